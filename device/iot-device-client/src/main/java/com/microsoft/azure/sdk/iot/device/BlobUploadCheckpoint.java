@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records which blocks of a file upload have been uploaded, so that an interrupted upload can skip them when it is
+ * started again.
+ *
+ * <p>
+ * The checkpoint is an append only text file. Its first line describes the upload: the size and last modified time
+ * of the file, and the block size. Each following line holds the index of one uploaded block. A checkpoint whose first
+ * line does not match the upload being started belongs to a different version of the file, and is discarded.
+ * </p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+@Slf4j
+final class BlobUploadCheckpoint implements Closeable
+{
+    private static final String CHECKPOINT_FILE_EXTENSION = ".checkpoint";
+    private static final String VERSION = "v1";
+
+    private final Path path;
+    private final Set<Integer> uploadedBlocks;
+    private final FileChannel channel;
+
+    private BlobUploadCheckpoint(Path path, Set<Integer> uploadedBlocks, FileChannel channel)
+    {
+        this.path = path;
+        this.uploadedBlocks = uploadedBlocks;
+        this.channel = channel;
+    }
+
+    /**
+     * Open the checkpoint of an upload, creating it if it doesn't exist yet.
+     *
+     * @param directory the directory that holds checkpoints.
+     * @param blobName the name of the blob being uploaded.
+     * @param fileSize the size of the file being uploaded.
+     * @param lastModifiedMillis the last modified time of the file being uploaded.
+     * @param blockSizeInBytes the block size of the upload.
+     * @return the checkpoint.
+     * @throws IOException if the checkpoint could not be read or created.
+     */
+    static BlobUploadCheckpoint open(Path directory, String blobName, long fileSize, long lastModifiedMillis, int blockSizeInBytes) throws IOException
+    {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(URLEncoder.encode(blobName, StandardCharsets.UTF_8.name()) + CHECKPOINT_FILE_EXTENSION);
+        String header = VERSION + " " + fileSize + " " + lastModifiedMillis + " " + blockSizeInBytes;
+
+        Set<Integer> uploadedBlocks = new HashSet<>();
+        if (Files.exists(path))
+        {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (!lines.isEmpty() && lines.get(0).equals(header))
+            {
+                for (String line : lines.subList(1, lines.size()))
+                {
+                    try
+                    {
+                        uploadedBlocks.add(Integer.parseInt(line.trim()));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        // The last line may have been cut short if the process stopped while appending it
+                        log.debug("Ignoring malformed line in blob upload checkpoint {}", path);
+                    }
+                }
+
+                log.debug("Resuming upload of blob {} with {} blocks already uploaded", blobName, uploadedBlocks.size());
+                return new BlobUploadCheckpoint(path, uploadedBlocks, FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+            }
+
+            log.debug("Discarding blob upload checkpoint {} since the file to upload has changed", path);
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        BlobUploadCheckpoint checkpoint = new BlobUploadCheckpoint(path, uploadedBlocks, channel);
+        checkpoint.append(header);
+        return checkpoint;
+    }
+
+    /**
+     * @param blockIndex the index of the block.
+     * @return true if the block was uploaded by an earlier attempt of this upload.
+     */
+    synchronized boolean isUploaded(int blockIndex)
+    {
+        return this.uploadedBlocks.contains(blockIndex);
+    }
+
+    /**
+     * Record that a block has been uploaded. The record is written to the storage device before this method returns.
+     *
+     * @param blockIndex the index of the block.
+     * @throws IOException if the record could not be written.
+     */
+    synchronized void markUploaded(int blockIndex) throws IOException
+    {
+        if (this.uploadedBlocks.add(blockIndex))
+        {
+            append(Integer.toString(blockIndex));
+        }
+    }
+
+    /**
+     * Close and delete this checkpoint, once the upload it records has been committed.
+     *
+     * @throws IOException if the checkpoint could not be deleted.
+     */
+    synchronized void delete() throws IOException
+    {
+        close();
+        Files.deleteIfExists(this.path);
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+    private void append(String line) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining())
+        {
+            this.channel.write(buffer);
+        }
+
+        this.channel.force(false);
+    }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Options that control how {@link DeviceClient#uploadToBlob(String, Path, BlobUploadOptions)} and
+ * {@link DeviceClient#uploadToBlob(String, java.io.InputStream, BlobUploadOptions)} move a file to Azure Storage.
+ */
+@Builder
+public final class BlobUploadOptions
+{
+    private static final int DEFAULT_BLOCK_SIZE_IN_BYTES = 4 * 1024 * 1024; // 4 MiB
+    private static final int DEFAULT_MAX_CONCURRENCY = 4;
+    private static final int DEFAULT_MAX_BLOCK_RETRIES = 3;
+
+    /**
+     * The largest block accepted by a single Azure Storage Put Block request.
+     */
+    static final int MAX_BLOCK_SIZE_IN_BYTES = 100 * 1024 * 1024; // 100 MiB
+
+    /**
+     * The size, in bytes, of each block uploaded with its own request. Must be between 1 byte and 100 MiB. A blob can
+     * hold at most 50,000 blocks, so larger files need larger blocks. Up to {@link #maxConcurrency} blocks are held in
+     * memory at once. By default, this value is 4 MiB.
+     */
+    @Getter
+    @Builder.Default
+    private final int blockSizeInBytes = DEFAULT_BLOCK_SIZE_IN_BYTES;
+
+    /**
+     * The number of blocks uploaded in parallel. By default, this value is 4.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+
+    /**
+     * The number of times the upload of a single block is retried after a network error or a server error before the
+     * whole upload fails. By default, this value is 3.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxBlockRetries = DEFAULT_MAX_BLOCK_RETRIES;
+
+    /**
+     * The directory in which the progress of file uploads is recorded. If set, a file upload that fails or is
+     * interrupted can be resumed by uploading the same, unmodified, file to the same blob name again, in which case the
+     * blocks that were already uploaded are not sent again. Azure Storage discards uploaded blocks that are not
+     * committed within a week. Uploads from an {@link java.io.InputStream} are never resumed. By default, this value
+     * is null and uploads always start from the beginning.
+     */
+    @Getter
+    private final Path checkpointDirectory;
+}
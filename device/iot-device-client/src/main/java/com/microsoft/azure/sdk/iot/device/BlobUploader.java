@@ -0,0 +1,540 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpTransportEngine;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uploads a file to an Azure Storage block blob through a SAS URI, such as the one returned by IoT Hub for file
+ * uploads, without depending on the Azure Storage SDK.
+ *
+ * <p>
+ * The content is split into blocks that are uploaded in parallel with Put Block requests, then committed in order
+ * with a single Put Block List request. Each block is read from the file with positional {@link FileChannel} reads by
+ * the thread that uploads it, so at most {@link BlobUploadOptions#getMaxConcurrency()} blocks are held in memory.
+ * </p>
+ *
+ * <p>
+ * Plain HTTP SAS URIs are only accepted for localhost, which allows uploading to a local stand-in for Azure Storage.
+ * </p>
+ */
+@Slf4j
+final class BlobUploader
+{
+    private static final String STORAGE_API_VERSION = "2020-04-08";
+    private static final String STORAGE_API_VERSION_HEADER = "x-ms-version";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String BLOCK_LIST_CONTENT_TYPE = "application/xml";
+    private static final String HTTPS_SCHEME = "https";
+
+    // Azure Storage limits the number of blocks in a blob
+    static final int MAX_BLOCK_COUNT = 50000;
+
+    private static final long RETRY_BASE_DELAY_MILLIS = 500;
+
+    // A stalled request would otherwise hold up the whole upload, since it can only fail once all of its blocks are done
+    private static final int CONNECT_TIMEOUT_MILLIS = 30 * 1000;
+    private static final int READ_TIMEOUT_MILLIS = 4 * 60 * 1000;
+
+    private final URI blobUri;
+    private final int blockSizeInBytes;
+    private final int maxConcurrency;
+    private final int maxBlockRetries;
+    private final Path checkpointDirectory;
+    private final HttpTransportEngine transportEngine;
+    private final ProxySettings proxySettings;
+    private final String userAgentString;
+    private final boolean isHttps;
+    private final SSLContext sslContext;
+
+    /**
+     * @param blobUri the SAS URI of the blob to upload to.
+     * @param options the upload options. If null, the default options are used.
+     * @param transportEngine the engine that sends the requests to Azure Storage.
+     * @param proxySettings the proxy to connect through. May be null.
+     * @param userAgentString the user agent string of the requests.
+     * @throws IOException if the default SSLContext could not be created.
+     */
+    BlobUploader(URI blobUri, BlobUploadOptions options, HttpTransportEngine transportEngine, ProxySettings proxySettings, String userAgentString) throws IOException
+    {
+        if (blobUri == null)
+        {
+            throw new IllegalArgumentException("Blob URI cannot be null");
+        }
+
+        if (options == null)
+        {
+            options = BlobUploadOptions.builder().build();
+        }
+
+        if (options.getBlockSizeInBytes() <= 0 || options.getBlockSizeInBytes() > BlobUploadOptions.MAX_BLOCK_SIZE_IN_BYTES)
+        {
+            throw new IllegalArgumentException("Block size must be greater than 0 and at most " + BlobUploadOptions.MAX_BLOCK_SIZE_IN_BYTES + " bytes");
+        }
+
+        if (options.getMaxConcurrency() <= 0)
+        {
+            throw new IllegalArgumentException("Max concurrency must be greater than 0");
+        }
+
+        if (options.getMaxBlockRetries() < 0)
+        {
+            throw new IllegalArgumentException("Max block retries cannot be negative");
+        }
+
+        this.blobUri = blobUri;
+        this.blockSizeInBytes = options.getBlockSizeInBytes();
+        this.maxConcurrency = options.getMaxConcurrency();
+        this.maxBlockRetries = options.getMaxBlockRetries();
+        this.checkpointDirectory = options.getCheckpointDirectory();
+        this.transportEngine = transportEngine;
+        this.proxySettings = proxySettings;
+        this.userAgentString = userAgentString;
+        this.isHttps = HTTPS_SCHEME.equalsIgnoreCase(blobUri.getScheme());
+
+        try
+        {
+            // Storage accounts are not signed by the certificates that IoT Hub SSLContexts may be limited to trusting
+            this.sslContext = this.isHttps ? SSLContext.getDefault() : null;
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IOException("Failed to get the default SSLContext", e);
+        }
+    }
+
+    /**
+     * Upload a file, resuming an earlier attempt if a checkpoint directory is configured.
+     *
+     * @param file the file to upload.
+     * @param blobName the name of the blob, which identifies the checkpoint of the upload.
+     * @throws IOException if the file could not be read, or any block could not be uploaded, or the blocks could not be
+     * committed.
+     */
+    void upload(Path file, String blobName) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            int blockCount = (int) Math.min(Integer.MAX_VALUE, (fileSize + this.blockSizeInBytes - 1) / this.blockSizeInBytes);
+            checkBlockCount(blockCount);
+
+            BlobUploadCheckpoint checkpoint = null;
+            if (this.checkpointDirectory != null)
+            {
+                long lastModified = Files.getLastModifiedTime(file).toMillis();
+                checkpoint = BlobUploadCheckpoint.open(this.checkpointDirectory, blobName, fileSize, lastModified, this.blockSizeInBytes);
+            }
+
+            boolean areBlocksUploaded = false;
+            try
+            {
+                ExecutorService executor = createExecutor();
+                List<Future<?>> uploads = new ArrayList<>();
+                try
+                {
+                    for (int i = 0; i < blockCount; i++)
+                    {
+                        final int blockIndex = i;
+                        if (checkpoint != null && checkpoint.isUploaded(blockIndex))
+                        {
+                            continue;
+                        }
+
+                        final BlobUploadCheckpoint blockCheckpoint = checkpoint;
+                        uploads.add(executor.submit(() ->
+                        {
+                            long position = (long) blockIndex * this.blockSizeInBytes;
+                            byte[] block = readBlock(channel, position, (int) Math.min(this.blockSizeInBytes, fileSize - position));
+                            putBlock(blockIndex, block);
+
+                            if (blockCheckpoint != null)
+                            {
+                                blockCheckpoint.markUploaded(blockIndex);
+                            }
+
+                            return null;
+                        }));
+                    }
+
+                    awaitAll(uploads);
+                }
+                finally
+                {
+                    stop(executor, uploads);
+                }
+
+                areBlocksUploaded = true;
+                putBlockList(blockCount);
+            }
+            finally
+            {
+                if (checkpoint != null)
+                {
+                    // Keep the checkpoint of an upload that failed before all of its blocks were uploaded, so that the
+                    // next attempt can resume it. Once all blocks are uploaded the checkpoint is no longer useful: either
+                    // the blocks were committed, or committing them failed, which happens when Azure Storage has
+                    // discarded some of the blocks that the checkpoint recorded.
+                    if (areBlocksUploaded)
+                    {
+                        checkpoint.delete();
+                    }
+                    else
+                    {
+                        checkpoint.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Upload the content of a stream. Stream uploads cannot be resumed.
+     *
+     * @param inputStream the stream to upload, which is read to its end but not closed.
+     * @throws IOException if the stream could not be read, or any block could not be uploaded, or the blocks could not
+     * be committed.
+     */
+    void upload(InputStream inputStream) throws IOException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+
+        // Blocks are read from the stream on this thread, so bound the number of blocks read but not yet uploaded
+        final Semaphore blocksInMemory = new Semaphore(this.maxConcurrency);
+        ExecutorService executor = createExecutor();
+        List<Future<?>> uploads = new ArrayList<>();
+        int blockCount = 0;
+        try
+        {
+            while (true)
+            {
+                blocksInMemory.acquire();
+                throwIfAnyFailed(uploads);
+
+                byte[] block = readBlock(inputStream);
+                if (block == null)
+                {
+                    blocksInMemory.release();
+                    break;
+                }
+
+                checkBlockCount(blockCount + 1);
+                final int blockIndex = blockCount++;
+                uploads.add(executor.submit(() ->
+                {
+                    try
+                    {
+                        putBlock(blockIndex, block);
+                    }
+                    finally
+                    {
+                        blocksInMemory.release();
+                    }
+
+                    return null;
+                }));
+            }
+
+            awaitAll(uploads);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading blob");
+        }
+        finally
+        {
+            stop(executor, uploads);
+        }
+
+        putBlockList(blockCount);
+    }
+
+    private void putBlock(int blockIndex, byte[] block) throws IOException
+    {
+        URL url = buildUrl("comp=block&blockid=" + URLEncoder.encode(blockId(blockIndex), StandardCharsets.UTF_8.name()));
+        send(url, block, null, "Put Block " + blockIndex);
+    }
+
+    private void putBlockList(int blockCount) throws IOException
+    {
+        StringBuilder blockList = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><BlockList>");
+        for (int i = 0; i < blockCount; i++)
+        {
+            blockList.append("<Latest>").append(blockId(i)).append("</Latest>");
+        }
+        blockList.append("</BlockList>");
+
+        log.debug("Committing {} blocks to blob", blockCount);
+        send(buildUrl("comp=blocklist"), blockList.toString().getBytes(StandardCharsets.UTF_8), BLOCK_LIST_CONTENT_TYPE, "Put Block List");
+    }
+
+    private void send(URL url, byte[] body, String contentType, String operation) throws IOException
+    {
+        for (int attempt = 0; ; attempt++)
+        {
+            HttpsRequest request = new HttpsRequest(url, HttpsMethod.PUT, body, this.userAgentString, this.proxySettings);
+            request.setHeaderField(STORAGE_API_VERSION_HEADER, STORAGE_API_VERSION);
+            request.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            request.setReadTimeout(READ_TIMEOUT_MILLIS);
+            if (contentType != null)
+            {
+                request.setHeaderField(CONTENT_TYPE_HEADER, contentType);
+            }
+
+            if (this.transportEngine != null)
+            {
+                request.setTransportEngine(this.transportEngine);
+            }
+
+            boolean canRetry = attempt < this.maxBlockRetries;
+            try
+            {
+                HttpsResponse response;
+                if (this.isHttps)
+                {
+                    response = request.setSSLContext(this.sslContext).send();
+                }
+                else
+                {
+                    response = request.sendAsHttpRequest();
+                }
+
+                int status = response.getStatus();
+                if (status == HttpURLConnection.HTTP_CREATED)
+                {
+                    return;
+                }
+
+                String errorMessage = String.format("%s failed with status %d: %s", operation, status, new String(response.getErrorReason(), StandardCharsets.UTF_8));
+                if (!canRetry || !isRetryable(status))
+                {
+                    throw new StorageRequestException(errorMessage, status);
+                }
+
+                log.debug("{}, retrying", errorMessage);
+            }
+            catch (TransportException e)
+            {
+                if (!canRetry)
+                {
+                    throw new IOException(operation + " failed", e);
+                }
+
+                log.debug("{} failed, retrying", operation, e);
+            }
+
+            sleepBeforeRetry(attempt);
+        }
+    }
+
+    private static boolean isRetryable(int status)
+    {
+        return status >= 500 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429;
+    }
+
+    private static void sleepBeforeRetry(int attempt) throws InterruptedIOException
+    {
+        try
+        {
+            Thread.sleep(RETRY_BASE_DELAY_MILLIS << Math.min(attempt, 6));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a blob upload request");
+        }
+    }
+
+    private URL buildUrl(String query) throws IOException
+    {
+        String uri = this.blobUri.toString();
+        return new URL(uri + (this.blobUri.getRawQuery() == null ? "?" : "&") + query);
+    }
+
+    // All block ids of a blob must have the same length, so the index is zero padded
+    private static String blockId(int blockIndex)
+    {
+        return Base64.getEncoder().encodeToString(String.format("block-%06d", blockIndex).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void checkBlockCount(int blockCount) throws IOException
+    {
+        if (blockCount > MAX_BLOCK_COUNT)
+        {
+            throw new IOException("Blob would need more than " + MAX_BLOCK_COUNT + " blocks, use a larger block size");
+        }
+    }
+
+    private static byte[] readBlock(FileChannel channel, long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("File was truncated while being uploaded");
+            }
+        }
+
+        return buffer.array();
+    }
+
+    // Returns null once the end of the stream is reached without reading any more bytes
+    private byte[] readBlock(InputStream inputStream) throws IOException
+    {
+        byte[] block = new byte[this.blockSizeInBytes];
+        int length = 0;
+        int bytesRead;
+        while (length < block.length && (bytesRead = inputStream.read(block, length, block.length - length)) >= 0)
+        {
+            length += bytesRead;
+        }
+
+        if (length == 0)
+        {
+            return null;
+        }
+
+        return length == block.length ? block : Arrays.copyOf(block, length);
+    }
+
+    private ExecutorService createExecutor()
+    {
+        return Executors.newFixedThreadPool(this.maxConcurrency, runnable ->
+        {
+            Thread thread = new Thread(runnable, "azure-iot-sdk-BlobUploader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Interrupting a thread that is reading from or writing to a FileChannel closes the channel, so instead of
+    // interrupting the uploads in progress, this cancels the uploads that haven't started and waits for the others.
+    private static void stop(ExecutorService executor, List<Future<?>> uploads)
+    {
+        for (Future<?> upload : uploads)
+        {
+            upload.cancel(false);
+        }
+
+        executor.shutdown();
+
+        boolean isInterrupted = false;
+        while (!executor.isTerminated())
+        {
+            try
+            {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void throwIfAnyFailed(List<Future<?>> uploads) throws IOException, InterruptedException
+    {
+        for (Future<?> upload : uploads)
+        {
+            if (upload.isDone())
+            {
+                getResult(upload);
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> uploads) throws IOException
+    {
+        try
+        {
+            for (Future<?> upload : uploads)
+            {
+                getResult(upload);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading blob");
+        }
+    }
+
+    private static void getResult(Future<?> upload) throws IOException, InterruptedException
+    {
+        try
+        {
+            upload.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException("Failed to upload block", e.getCause());
+        }
+    }
+
+    /**
+     * Thrown when Azure Storage rejects a request, so that the file upload can be completed with the status that Azure
+     * Storage responded with.
+     */
+    static final class StorageRequestException extends IOException
+    {
+        private final int statusCode;
+
+        StorageRequestException(String message, int statusCode)
+        {
+            super(message);
+            this.statusCode = statusCode;
+        }
+
+        int getStatusCode()
+        {
+            return this.statusCode;
+        }
+    }
+}
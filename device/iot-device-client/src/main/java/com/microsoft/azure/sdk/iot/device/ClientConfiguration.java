@@ -8,6 +8,8 @@ import com.microsoft.azure.sdk.iot.device.transport.NoRetry;
 import com.microsoft.azure.sdk.iot.device.twin.Pair;
 import com.microsoft.azure.sdk.iot.device.auth.*;
 import com.microsoft.azure.sdk.iot.device.transport.RetryPolicy;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpTransportEngine;
+import com.microsoft.azure.sdk.iot.device.transport.https.PooledHttpTransportEngine;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderSymmetricKey;
 import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProviderTpm;
@@ -19,6 +21,7 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.net.ssl.SSLContext;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -80,6 +83,24 @@ public final class ClientConfiguration
     @Setter(AccessLevel.PACKAGE)
     private int keepAliveInterval = DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
 
+    @Getter
+    private PayloadCodec payloadCodec;
+
+    @Getter
+    private int payloadCompressionThreshold;
+
+    @Getter
+    private HttpTransportEngine httpTransportEngine = new PooledHttpTransportEngine();
+
+    @Getter
+    private int mqttTelemetryQos = 1;
+
+    @Getter
+    private ClientMetrics clientMetrics = NoOpClientMetrics.INSTANCE;
+
+    @Getter
+    private File mqttSessionStateDirectory;
+
     private IotHubAuthenticationProvider authenticationProvider;
 
     /**
@@ -208,6 +229,34 @@ public final class ClientConfiguration
         this.amqpOpenAuthenticationSessionTimeout = clientOptions != null && clientOptions.getAmqpAuthenticationSessionTimeout() != 0 ? clientOptions.getAmqpAuthenticationSessionTimeout() : DEFAULT_AMQP_OPEN_AUTHENTICATION_SESSION_TIMEOUT_IN_SECONDS;
         this.amqpOpenDeviceSessionsTimeout = clientOptions != null && clientOptions.getAmqpDeviceSessionTimeout() != 0 ? clientOptions.getAmqpDeviceSessionTimeout() : DEFAULT_AMQP_OPEN_DEVICE_SESSIONS_TIMEOUT_IN_SECONDS;
         this.proxySettings = clientOptions != null && clientOptions.getProxySettings() != null ? clientOptions.getProxySettings() : null;
+        this.payloadCodec = clientOptions != null ? clientOptions.getPayloadCodec() : null;
+        this.payloadCompressionThreshold = clientOptions != null ? clientOptions.getPayloadCompressionThreshold() : 0;
+
+        if (clientOptions != null && clientOptions.getHttpTransportEngine() != null)
+        {
+            this.httpTransportEngine = clientOptions.getHttpTransportEngine();
+        }
+
+        if (clientOptions != null)
+        {
+            this.mqttTelemetryQos = clientOptions.getMqttTelemetryQos();
+            this.mqttSessionStateDirectory = clientOptions.getMqttSessionStateDirectory();
+        }
+
+        if (clientOptions != null && clientOptions.getClientMetrics() != null)
+        {
+            this.clientMetrics = clientOptions.getClientMetrics();
+        }
+
+        if (this.mqttTelemetryQos != 0 && this.mqttTelemetryQos != 1)
+        {
+            throw new IllegalArgumentException("ClientOption mqttTelemetryQos must be 0 or 1");
+        }
+
+        if (this.payloadCodec != null && this.payloadCompressionThreshold < 0)
+        {
+            throw new IllegalArgumentException("ClientOption payloadCompressionThreshold cannot be negative");
+        }
 
         if (proxySettings != null)
         {
@@ -420,7 +469,7 @@ public final class ClientConfiguration
      */
     void setMessageCallback(MessageCallback callback, Object context)
     {
-        this.defaultDeviceTelemetryMessageCallback = callback;
+        this.defaultDeviceTelemetryMessageCallback = PayloadCodecs.decodingCallback(this.payloadCodec, callback);
         this.defaultDeviceTelemetryMessageContext = context;
     }
 
@@ -432,7 +481,7 @@ public final class ClientConfiguration
         }
         else
         {
-            this.inputChannelMessageCallbacks.put(inputName, new Pair<>(callback, context));
+            this.inputChannelMessageCallbacks.put(inputName, new Pair<>(PayloadCodecs.decodingCallback(this.payloadCodec, callback), context));
         }
     }
 
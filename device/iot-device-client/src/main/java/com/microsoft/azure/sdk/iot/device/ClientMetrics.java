@@ -0,0 +1,87 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * Receives measurements of where time goes between a message being queued to the client, for instance by
+ * {@link DeviceClient#sendEventAsync(Message, IotHubEventCallback, Object)}, and its {@link IotHubEventCallback} being
+ * executed, along with measurements of the client's queues and connection.
+ *
+ * <p>
+ * When set in {@link ClientOptions#getClientMetrics()}, the client calls this from its send, receive and connection
+ * threads, including for every message it sends, so implementations must be thread safe and should return quickly
+ * without blocking. All durations are in nanoseconds and are measured with {@link System#nanoTime()}. Clients that
+ * are part of a {@link MultiplexingClient} do not report measurements.
+ * </p>
+ *
+ * @see NoOpClientMetrics
+ * @see InMemoryClientMetrics
+ */
+public interface ClientMetrics
+{
+    /**
+     * Called when a message is taken off the client's queue of messages waiting to be sent, and handed to the
+     * connection to send.
+     *
+     * @param messageType the type of the message.
+     * @param queueWaitNanos how long the message waited in the queue since it was last queued. A message that is
+     * queued again to be retried starts waiting again.
+     */
+    void onMessageQueueWait(MessageType messageType, long queueWaitNanos);
+
+    /**
+     * Called when a connection has written a message.
+     *
+     * @param messageType the type of the message.
+     * @param writeNanos how long the connection spent writing the message. Over MQTT, this includes any wait for the
+     * number of messages waiting on an acknowledgement to drop below its limit. Over AMQP, this is the time taken to
+     * encode the message and send it on its link. Over HTTPS, this is the time taken by the whole request, including
+     * its response.
+     */
+    void onMessageWritten(MessageType messageType, long writeNanos);
+
+    /**
+     * Called when the service has acknowledged a message.
+     *
+     * @param messageType the type of the message.
+     * @param timeOnWireNanos how long it took from the message being handed to the connection to send until it was
+     * acknowledged.
+     */
+    void onMessageAcknowledged(MessageType messageType, long timeOnWireNanos);
+
+    /**
+     * Called when a message failed to send and has been scheduled to be sent again.
+     *
+     * @param messageType the type of the message.
+     * @param retryAttempt the number of times that sending the message has failed so far.
+     */
+    void onMessageRetried(MessageType messageType, int retryAttempt);
+
+    /**
+     * Called when the client gave up on a message, or on the response to a request, because it took too long.
+     *
+     * @param messageType the type of the message.
+     * @param reason why the message expired.
+     */
+    void onMessageExpired(MessageType messageType, MessageExpiryReason reason);
+
+    /**
+     * Called each time the client checks its queues for expired messages, which it does before each time it sends
+     * queued messages, once for every message type.
+     *
+     * @param messageType the type of the messages counted.
+     * @param waitingCount the number of messages of this type waiting to be sent.
+     * @param inFlightCount the number of messages of this type that were sent and are waiting on an acknowledgement.
+     */
+    void onQueueDepth(MessageType messageType, int waitingCount, int inFlightCount);
+
+    /**
+     * Called when the client stops trying to reconnect after losing its connection.
+     *
+     * @param reconnectNanos how long the client spent reconnecting.
+     * @param attempts the number of reconnect attempts made.
+     * @param isReconnected true if the client reconnected, and false if it gave up and closed.
+     */
+    void onReconnectCompleted(long reconnectNanos, int attempts, boolean isReconnected);
+}
@@ -3,10 +3,13 @@
 
 package com.microsoft.azure.sdk.iot.device;
 
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpTransportEngine;
+import com.microsoft.azure.sdk.iot.device.transport.https.PooledHttpTransportEngine;
 import lombok.Builder;
 import lombok.Getter;
 
 import javax.net.ssl.SSLContext;
+import java.io.File;
 
 import static com.microsoft.azure.sdk.iot.device.ClientConfiguration.DEFAULT_KEEP_ALIVE_INTERVAL_IN_SECONDS;
 
@@ -22,6 +25,8 @@ public final class ClientOptions
     private static final int DEFAULT_MAX_MESSAGES_TO_SEND_PER_THREAD = 10;
     private static final int SEND_PERIOD_MILLIS = 10;
     private static final int RECEIVE_PERIOD_MILLIS = 10;
+    private static final int DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD_BYTES = 1024;
+    private static final int DEFAULT_MQTT_TELEMETRY_QOS = 1;
 
     /**
      * The Digital Twin Model Id associated with the device and module identity.
@@ -136,4 +141,68 @@ public final class ClientOptions
     @Getter
     @Builder.Default
     private final int receiveInterval = RECEIVE_PERIOD_MILLIS;
+
+    /**
+     * This option is applicable to all protocols. If set, the body of each telemetry message sent by this client that
+     * is at least {@link #payloadCompressionThreshold} bytes long, and that does not already have a content encoding,
+     * is encoded with this codec and its content encoding is set to {@link PayloadCodec#getContentEncoding()}. The
+     * body is replaced on the provided message instance. Cloud to device messages with a matching content encoding
+     * are decoded before the message callback is executed. By default, this value is null and payloads are sent as is.
+     *
+     * @see GzipPayloadCodec
+     * @see DeflatePayloadCodec
+     */
+    @Getter
+    private final PayloadCodec payloadCodec;
+
+    /**
+     * This option is only used if {@link #payloadCodec} is set. This option specifies the minimum body length, in
+     * bytes, of a telemetry message to be encoded. Smaller payloads rarely shrink enough to be worth the CPU cost.
+     * By default, this value is 1024 bytes.
+     */
+    @Getter
+    @Builder.Default
+    private final int payloadCompressionThreshold = DEFAULT_PAYLOAD_COMPRESSION_THRESHOLD_BYTES;
+
+    /**
+     * This option is only applicable for HTTPS. This option specifies the engine that sends the HTTP requests made by
+     * this client, including file upload and module method invocation requests. By default, each client uses its own
+     * {@link PooledHttpTransportEngine}. An engine can be shared by several clients, and its
+     * {@link HttpTransportEngine#getStatistics()} reports how often connections were reused.
+     */
+    @Getter
+    private final HttpTransportEngine httpTransportEngine;
+
+    /**
+     * This option is only applicable for MQTT and MQTT_WS. This option specifies the MQTT quality of service that
+     * telemetry messages are published with, either 1 (at least once) or 0 (at most once). With 0, IoT Hub does not
+     * acknowledge each message, so a message's {@link IotHubEventCallback} is executed with {@link IotHubStatusCode#OK}
+     * once it has been written to the socket, and messages that were written but never reached the service are lost
+     * rather than resent. This suits frequent, loss tolerant readings. Twin and direct method messages are always
+     * published with quality of service 1. By default, this value is 1.
+     */
+    @Getter
+    @Builder.Default
+    private final int mqttTelemetryQos = DEFAULT_MQTT_TELEMETRY_QOS;
+
+    /**
+     * This option is only applicable for MQTT and MQTT_WS. If set, the MQTT session state of this client, including
+     * the messages that were published with quality of service 1 but not yet acknowledged, is kept in a log file in
+     * this directory rather than in memory. If the process stops before those messages are acknowledged, the next
+     * client opened with the same directory and identity publishes them again when it first connects, so they are not
+     * lost. The {@link IotHubEventCallback} of such messages is not executed, since they were sent by another client
+     * instance. Each device or module identity needs its own directory, or a directory that no other process uses for
+     * the same identity. By default, this value is null and the session state is only kept in memory.
+     */
+    @Getter
+    private final File mqttSessionStateDirectory;
+
+    /**
+     * The metrics that this client reports its measurements to, such as how long its messages wait to be sent and to
+     * be acknowledged, how often they are retried or expire, how many are queued and how long reconnecting takes. Use an
+     * {@link InMemoryClientMetrics} to keep histograms of these measurements. By default, this value is null and no
+     * measurements are kept.
+     */
+    @Getter
+    private final ClientMetrics clientMetrics;
 }
@@ -54,4 +54,16 @@ public interface CorrelatingMessageCallback
      * @param callbackContext The context sent with the message.
      */
     void onResponseAcknowledged(Message message, Object callbackContext);
+
+    /**
+     * Called when no response to the message was received within the device operation timeout, or when the transport
+     * had too many other requests waiting on a response to keep waiting on this one. No further callbacks are made for
+     * the message after this one. Does nothing by default.
+     *
+     * @param message The request message that no response was received for.
+     * @param callbackContext The context sent with the message.
+     */
+    default void onResponseTimedOut(Message message, Object callbackContext)
+    {
+    }
 }
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link PayloadCodec} that compresses payloads using the zlib format (RFC 1950), which is what the "deflate"
+ * content encoding means in HTTP. Payloads are marked with the "deflate" content encoding.
+ */
+public final class DeflatePayloadCodec extends DeflaterPayloadCodec
+{
+    private static final String CONTENT_ENCODING = "deflate";
+
+    /**
+     * Create a deflate codec that uses the default compression level.
+     */
+    public DeflatePayloadCodec()
+    {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create a deflate codec that uses the provided compression level.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest output).
+     */
+    public DeflatePayloadCodec(int level)
+    {
+        this(level, DEFAULT_MAX_DECODED_LENGTH);
+    }
+
+    /**
+     * Create a deflate codec that uses the provided compression level and decodes payloads of up to the provided length.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest output).
+     * @param maxDecodedLength the maximum length, in bytes, of a decoded payload. Received payloads that decode to
+     * more bytes than this are delivered as received rather than decoded.
+     */
+    public DeflatePayloadCodec(int level, int maxDecodedLength)
+    {
+        super(level, false, maxDecodedLength);
+    }
+
+    @Override
+    public String getContentEncoding()
+    {
+        return CONTENT_ENCODING;
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer payload) throws IOException
+    {
+        if (payload == null)
+        {
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        try (InflaterInputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(TransportUtils.toByteArray(payload))))
+        {
+            return readDecoded(inputStream);
+        }
+    }
+}
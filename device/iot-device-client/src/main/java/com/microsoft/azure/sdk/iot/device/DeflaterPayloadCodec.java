@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Base class for the codecs built on {@link Deflater}. Deflater instances hold a sizeable native buffer and are
+ * expensive to create, so each codec keeps a small pool of them that are reset and reused between messages.
+ *
+ * <p>
+ * Decoding stops with an {@link IOException} once the decoded payload grows past the codec's maximum decoded length,
+ * so that a small, highly compressed payload can't expand to exhaust the memory of the device.
+ * </p>
+ */
+abstract class DeflaterPayloadCodec implements PayloadCodec
+{
+    private static final int MAX_POOLED_DEFLATERS = 4;
+    private static final int CHUNK_SIZE = 4096;
+
+    /**
+     * The default maximum length, in bytes, of a decoded payload.
+     */
+    public static final int DEFAULT_MAX_DECODED_LENGTH = 4 * 1024 * 1024;
+
+    private final int level;
+    private final boolean nowrap;
+    private final int maxDecodedLength;
+    private final Queue<Deflater> deflaterPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledDeflaterCount = new AtomicInteger();
+
+    DeflaterPayloadCodec(int level, boolean nowrap, int maxDecodedLength)
+    {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION)
+        {
+            throw new IllegalArgumentException("Compression level must be between 1 and 9, or -1 for the default level");
+        }
+
+        if (maxDecodedLength < 1)
+        {
+            throw new IllegalArgumentException("Maximum decoded length must be positive");
+        }
+
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxDecodedLength = maxDecodedLength;
+    }
+
+    /**
+     * @return the maximum length, in bytes, that this codec decodes a payload to. Longer payloads fail to decode.
+     */
+    public int getMaxDecodedLength()
+    {
+        return this.maxDecodedLength;
+    }
+
+    @Override
+    public byte[] encode(ByteBuffer payload) throws IOException
+    {
+        if (payload == null)
+        {
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        byte[] input = TransportUtils.toByteArray(payload);
+
+        // Deflated json is usually several times smaller than the input, so start small and let the stream grow
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+        writeHeader(output);
+
+        Deflater deflater = acquireDeflater();
+        try
+        {
+            deflater.setInput(input);
+            deflater.finish();
+
+            byte[] chunk = new byte[Math.min(CHUNK_SIZE, input.length + 64)];
+            while (!deflater.finished())
+            {
+                int length = deflater.deflate(chunk);
+                output.write(chunk, 0, length);
+            }
+        }
+        finally
+        {
+            releaseDeflater(deflater);
+        }
+
+        writeTrailer(output, input);
+        return output.toByteArray();
+    }
+
+    /**
+     * Reads the decoded payload from the provided stream, failing once it grows past the maximum decoded length.
+     * @param inputStream the stream that decodes the payload.
+     * @return the decoded payload.
+     * @throws IOException if the payload could not be decoded, or if it is longer than the maximum decoded length.
+     */
+    byte[] readDecoded(InputStream inputStream) throws IOException
+    {
+        return PayloadCodecs.readFully(inputStream, this.maxDecodedLength);
+    }
+
+    /**
+     * Writes any framing that precedes the deflated data.
+     * @param output the stream to write to.
+     */
+    void writeHeader(ByteArrayOutputStream output)
+    {
+    }
+
+    /**
+     * Writes any framing that follows the deflated data.
+     * @param output the stream to write to.
+     * @param input the uncompressed payload.
+     */
+    void writeTrailer(ByteArrayOutputStream output, byte[] input)
+    {
+    }
+
+    private Deflater acquireDeflater()
+    {
+        Deflater deflater = this.deflaterPool.poll();
+        if (deflater == null)
+        {
+            return new Deflater(this.level, this.nowrap);
+        }
+
+        this.pooledDeflaterCount.decrementAndGet();
+        return deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater)
+    {
+        if (this.pooledDeflaterCount.incrementAndGet() <= MAX_POOLED_DEFLATERS)
+        {
+            deflater.reset();
+            this.deflaterPool.offer(deflater);
+        }
+        else
+        {
+            this.pooledDeflaterCount.decrementAndGet();
+            deflater.end();
+        }
+    }
+}
@@ -10,7 +10,11 @@ import com.microsoft.azure.sdk.iot.provisioning.security.SecurityProvider;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 
 /**
  * <p>
@@ -260,6 +264,119 @@ public final class DeviceClient extends InternalClient
         this.fileUpload.sendNotification(notification);
     }
 
+    /**
+     * Upload a file to the storage account associated with this client's IoT hub, and notify IoT hub once it is done.
+     * This gets a file upload SAS URI, uploads the file to it in parallel blocks, and completes the file upload with
+     * its result, so the Azure Storage SDK is not needed. See <a href="https://docs.microsoft.com/en-us/azure/iot-hub/iot-hub-devguide-file-upload">this documentation</a> for more details.
+     *
+     * <p>
+     * If {@link BlobUploadOptions#getCheckpointDirectory()} is set, an upload that fails can be resumed by calling this
+     * method again with the same blob name and the same, unmodified, file. Blocks that were already uploaded are not
+     * sent again.
+     * </p>
+     *
+     * @param destinationBlobName the name of the blob to upload the file to.
+     * @param file the file to upload.
+     * @param options the options that control the upload. If null, the default options are used.
+     * @throws IOException if the file could not be read or uploaded, or if any request to IoT hub fails.
+     */
+    public void uploadToBlob(String destinationBlobName, Path file, BlobUploadOptions options) throws IOException
+    {
+        if (file == null)
+        {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        FileUploadSasUriResponse sasUriResponse = getFileUploadSasUri(new FileUploadSasUriRequest(destinationBlobName));
+        try
+        {
+            createBlobUploader(sasUriResponse, options).upload(file, destinationBlobName);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            completeFailedFileUpload(sasUriResponse, e);
+            throw e;
+        }
+
+        completeFileUpload(new FileUploadCompletionNotification(sasUriResponse.getCorrelationId(), true, HttpURLConnection.HTTP_CREATED, "Blob upload completed"));
+    }
+
+    /**
+     * Upload the content of a stream to the storage account associated with this client's IoT hub, and notify IoT hub
+     * once it is done. This behaves like {@link #uploadToBlob(String, Path, BlobUploadOptions)}, except that stream
+     * uploads cannot be resumed.
+     *
+     * @param destinationBlobName the name of the blob to upload the stream to.
+     * @param inputStream the stream to upload. It is read to its end, but not closed.
+     * @param options the options that control the upload. If null, the default options are used.
+     * @throws IOException if the stream could not be read or uploaded, or if any request to IoT hub fails.
+     */
+    public void uploadToBlob(String destinationBlobName, InputStream inputStream, BlobUploadOptions options) throws IOException
+    {
+        if (inputStream == null)
+        {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+
+        FileUploadSasUriResponse sasUriResponse = getFileUploadSasUri(new FileUploadSasUriRequest(destinationBlobName));
+        try
+        {
+            createBlobUploader(sasUriResponse, options).upload(inputStream);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            completeFailedFileUpload(sasUriResponse, e);
+            throw e;
+        }
+
+        completeFileUpload(new FileUploadCompletionNotification(sasUriResponse.getCorrelationId(), true, HttpURLConnection.HTTP_CREATED, "Blob upload completed"));
+    }
+
+    private BlobUploader createBlobUploader(FileUploadSasUriResponse sasUriResponse, BlobUploadOptions options) throws IOException
+    {
+        URI blobUri;
+        try
+        {
+            blobUri = sasUriResponse.getBlobUri();
+        }
+        catch (URISyntaxException e)
+        {
+            throw new IOException("Failed to build the blob URI from the file upload SAS URI response", e);
+        }
+
+        return new BlobUploader(
+            blobUri,
+            options,
+            this.config.getHttpTransportEngine(),
+            this.config.getProxySettings(),
+            this.config.getProductInfo().getUserAgentString());
+    }
+
+    private void completeFailedFileUpload(FileUploadSasUriResponse sasUriResponse, Exception uploadException)
+    {
+        // IoT hub limits the number of uploads in progress, so failed uploads must be completed too
+        try
+        {
+            completeFileUpload(new FileUploadCompletionNotification(sasUriResponse.getCorrelationId(), false, getFailureStatusCode(uploadException), uploadException.getMessage()));
+        }
+        catch (IOException | RuntimeException e)
+        {
+            uploadException.addSuppressed(e);
+        }
+    }
+
+    // Requests that Azure Storage rejected are reported with its status, and any other failure, such as a file that
+    // could not be read or a request that never got a response, as an internal error of the client
+    private static int getFailureStatusCode(Exception uploadException)
+    {
+        if (uploadException instanceof BlobUploader.StorageRequestException)
+        {
+            return ((BlobUploader.StorageRequestException) uploadException).getStatusCode();
+        }
+
+        return HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
     /**
      * Returns if this client is or ever was registered to a {@link MultiplexingClient} instance. Device clients that were
      * cannot be used in non-multiplexed connections. Device clients that aren't registered to any multiplexing client
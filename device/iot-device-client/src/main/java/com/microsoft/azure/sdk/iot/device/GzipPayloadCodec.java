@@ -0,0 +1,97 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A {@link PayloadCodec} that compresses payloads using the gzip format (RFC 1952). Payloads are marked with the
+ * "gzip" content encoding.
+ */
+public final class GzipPayloadCodec extends DeflaterPayloadCodec
+{
+    private static final String CONTENT_ENCODING = "gzip";
+
+    // magic number, deflate compression method, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * Create a gzip codec that uses the default compression level.
+     */
+    public GzipPayloadCodec()
+    {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Create a gzip codec that uses the provided compression level.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest output).
+     */
+    public GzipPayloadCodec(int level)
+    {
+        this(level, DEFAULT_MAX_DECODED_LENGTH);
+    }
+
+    /**
+     * Create a gzip codec that uses the provided compression level and decodes payloads of up to the provided length.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest output).
+     * @param maxDecodedLength the maximum length, in bytes, of a decoded payload. Received payloads that decode to
+     * more bytes than this are delivered as received rather than decoded.
+     */
+    public GzipPayloadCodec(int level, int maxDecodedLength)
+    {
+        super(level, true, maxDecodedLength);
+    }
+
+    @Override
+    public String getContentEncoding()
+    {
+        return CONTENT_ENCODING;
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer payload) throws IOException
+    {
+        if (payload == null)
+        {
+            throw new IllegalArgumentException("Payload cannot be null");
+        }
+
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(TransportUtils.toByteArray(payload))))
+        {
+            return readDecoded(inputStream);
+        }
+    }
+
+    @Override
+    void writeHeader(ByteArrayOutputStream output)
+    {
+        output.write(HEADER, 0, HEADER.length);
+    }
+
+    @Override
+    void writeTrailer(ByteArrayOutputStream output, byte[] input)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, input.length);
+        writeIntLittleEndian(output, (int) crc.getValue());
+        writeIntLittleEndian(output, input.length);
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream output, int value)
+    {
+        output.write(value & 0xff);
+        output.write((value >> 8) & 0xff);
+        output.write((value >> 16) & 0xff);
+        output.write((value >> 24) & 0xff);
+    }
+}
@@ -0,0 +1,221 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link ClientMetrics} that keeps its measurements in memory, as {@link LatencyHistogram}s of the durations and
+ * counts of the events reported for each {@link MessageType}, so that they can be read back or logged by the
+ * application.
+ *
+ * <p>
+ * Recording a measurement doesn't allocate or lock, and this class is thread safe. Measurements are kept from when it
+ * is created, and a single instance can be shared by several clients to combine their measurements.
+ * </p>
+ */
+public final class InMemoryClientMetrics implements ClientMetrics
+{
+    private static final int MESSAGE_TYPE_COUNT = MessageType.values().length;
+    private static final int EXPIRY_REASON_COUNT = MessageExpiryReason.values().length;
+
+    private final LatencyHistogram[] queueWaitHistograms = newHistograms(MESSAGE_TYPE_COUNT);
+    private final LatencyHistogram[] writeHistograms = newHistograms(MESSAGE_TYPE_COUNT);
+    private final LatencyHistogram[] timeOnWireHistograms = newHistograms(MESSAGE_TYPE_COUNT);
+    private final AtomicLongArray retryCounts = new AtomicLongArray(MESSAGE_TYPE_COUNT);
+    private final AtomicLongArray expiryCounts = new AtomicLongArray(MESSAGE_TYPE_COUNT * EXPIRY_REASON_COUNT);
+    private final AtomicIntegerArray waitingCounts = new AtomicIntegerArray(MESSAGE_TYPE_COUNT);
+    private final AtomicIntegerArray inFlightCounts = new AtomicIntegerArray(MESSAGE_TYPE_COUNT);
+    private final AtomicIntegerArray maxWaitingCounts = new AtomicIntegerArray(MESSAGE_TYPE_COUNT);
+    private final LatencyHistogram reconnectHistogram = new LatencyHistogram();
+    private final AtomicLong failedReconnectCount = new AtomicLong();
+
+    @Override
+    public void onMessageQueueWait(MessageType messageType, long queueWaitNanos)
+    {
+        this.queueWaitHistograms[index(messageType)].record(queueWaitNanos);
+    }
+
+    @Override
+    public void onMessageWritten(MessageType messageType, long writeNanos)
+    {
+        this.writeHistograms[index(messageType)].record(writeNanos);
+    }
+
+    @Override
+    public void onMessageAcknowledged(MessageType messageType, long timeOnWireNanos)
+    {
+        this.timeOnWireHistograms[index(messageType)].record(timeOnWireNanos);
+    }
+
+    @Override
+    public void onMessageRetried(MessageType messageType, int retryAttempt)
+    {
+        this.retryCounts.incrementAndGet(index(messageType));
+    }
+
+    @Override
+    public void onMessageExpired(MessageType messageType, MessageExpiryReason reason)
+    {
+        this.expiryCounts.incrementAndGet(index(messageType) * EXPIRY_REASON_COUNT + reason.ordinal());
+    }
+
+    @Override
+    public void onQueueDepth(MessageType messageType, int waitingCount, int inFlightCount)
+    {
+        int index = index(messageType);
+        this.waitingCounts.set(index, waitingCount);
+        this.inFlightCounts.set(index, inFlightCount);
+
+        int maxWaitingCount = this.maxWaitingCounts.get(index);
+        while (waitingCount > maxWaitingCount && !this.maxWaitingCounts.compareAndSet(index, maxWaitingCount, waitingCount))
+        {
+            maxWaitingCount = this.maxWaitingCounts.get(index);
+        }
+    }
+
+    @Override
+    public void onReconnectCompleted(long reconnectNanos, int attempts, boolean isReconnected)
+    {
+        this.reconnectHistogram.record(reconnectNanos);
+        if (!isReconnected)
+        {
+            this.failedReconnectCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the histogram of how long messages of this type waited to be sent.
+     */
+    public LatencyHistogram getQueueWaitHistogram(MessageType messageType)
+    {
+        return this.queueWaitHistograms[index(messageType)];
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the histogram of how long the connection spent writing messages of this type.
+     */
+    public LatencyHistogram getWriteHistogram(MessageType messageType)
+    {
+        return this.writeHistograms[index(messageType)];
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the histogram of how long messages of this type took to be acknowledged once handed to the connection.
+     */
+    public LatencyHistogram getTimeOnWireHistogram(MessageType messageType)
+    {
+        return this.timeOnWireHistograms[index(messageType)];
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the number of times that messages of this type were scheduled to be sent again after failing to send.
+     */
+    public long getRetryCount(MessageType messageType)
+    {
+        return this.retryCounts.get(index(messageType));
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @param reason the reason for the expiry.
+     * @return the number of messages of this type that expired for this reason.
+     */
+    public long getExpiryCount(MessageType messageType, MessageExpiryReason reason)
+    {
+        return this.expiryCounts.get(index(messageType) * EXPIRY_REASON_COUNT + reason.ordinal());
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the number of messages of this type that were waiting to be sent when the queues were last checked.
+     */
+    public int getWaitingCount(MessageType messageType)
+    {
+        return this.waitingCounts.get(index(messageType));
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the number of messages of this type that were waiting on an acknowledgement when the queues were last
+     * checked.
+     */
+    public int getInFlightCount(MessageType messageType)
+    {
+        return this.inFlightCounts.get(index(messageType));
+    }
+
+    /**
+     * @param messageType the type of message.
+     * @return the largest number of messages of this type that were seen waiting to be sent at once.
+     */
+    public int getMaxWaitingCount(MessageType messageType)
+    {
+        return this.maxWaitingCounts.get(index(messageType));
+    }
+
+    /**
+     * @return the histogram of how long the client spent reconnecting, whether or not it reconnected.
+     */
+    public LatencyHistogram getReconnectHistogram()
+    {
+        return this.reconnectHistogram;
+    }
+
+    /**
+     * @return the number of times the client gave up reconnecting.
+     */
+    public long getFailedReconnectCount()
+    {
+        return this.failedReconnectCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        for (MessageType messageType : MessageType.values())
+        {
+            if (getQueueWaitHistogram(messageType).getCount() == 0 && getWaitingCount(messageType) == 0)
+            {
+                continue;
+            }
+
+            builder.append(messageType)
+                .append(": queue wait [").append(getQueueWaitHistogram(messageType))
+                .append("], write [").append(getWriteHistogram(messageType))
+                .append("], time on wire [").append(getTimeOnWireHistogram(messageType))
+                .append("], retries: ").append(getRetryCount(messageType))
+                .append(", waiting: ").append(getWaitingCount(messageType))
+                .append(", in flight: ").append(getInFlightCount(messageType))
+                .append("; ");
+        }
+
+        return builder.append("reconnects [").append(this.reconnectHistogram)
+            .append("], failed reconnects: ").append(getFailedReconnectCount())
+            .toString();
+    }
+
+    private static int index(MessageType messageType)
+    {
+        return messageType == null ? MessageType.UNKNOWN.ordinal() : messageType.ordinal();
+    }
+
+    private static LatencyHistogram[] newHistograms(int count)
+    {
+        LatencyHistogram[] histograms = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++)
+        {
+            histograms[i] = new LatencyHistogram();
+        }
+
+        return histograms;
+    }
+}
@@ -562,6 +562,7 @@ public class InternalClient
     {
         verifyRegisteredIfMultiplexing();
         message.setConnectionDeviceId(this.config.getDeviceId());
+        PayloadCodecs.encodeIfNeeded(message, this.config.getPayloadCodec(), this.config.getPayloadCompressionThreshold());
         deviceIO.sendEventAsync(message, callback, callbackContext, this.config.getDeviceId());
     }
 
@@ -588,6 +589,7 @@ public class InternalClient
         for (Message message: messages)
         {
             message.setConnectionDeviceId(this.config.getDeviceId());
+            PayloadCodecs.encodeIfNeeded(message, this.config.getPayloadCodec(), this.config.getPayloadCompressionThreshold());
         }
 
         Message message = new BatchMessage(messages);
@@ -0,0 +1,153 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds, used by {@link InMemoryClientMetrics}.
+ *
+ * <p>
+ * Durations are counted in buckets whose width grows with the duration, so that each bucket spans at most an eighth
+ * of the durations it holds. Percentiles are therefore reported to within 12.5% of the recorded durations. Recording a
+ * duration doesn't allocate or lock, and this class is thread safe. Reads made while durations are being recorded may
+ * not include the durations being recorded.
+ * </p>
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds. Negative durations are recorded as 0.
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+        this.buckets.incrementAndGet(bucketIndex(value));
+        this.count.incrementAndGet();
+        this.sumNanos.addAndGet(value);
+
+        long currentMaxNanos = this.maxNanos.get();
+        while (value > currentMaxNanos && !this.maxNanos.compareAndSet(currentMaxNanos, value))
+        {
+            currentMaxNanos = this.maxNanos.get();
+        }
+    }
+
+    /**
+     * @return the number of durations recorded.
+     */
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * @return the longest duration recorded, in nanoseconds, or 0 if none have been recorded.
+     */
+    public long getMaxNanos()
+    {
+        return this.maxNanos.get();
+    }
+
+    /**
+     * @return the mean of the durations recorded, in nanoseconds, or 0 if none have been recorded.
+     */
+    public double getMeanNanos()
+    {
+        long currentCount = this.count.get();
+        return currentCount == 0 ? 0 : this.sumNanos.get() / (double) currentCount;
+    }
+
+    /**
+     * @param percentile the percentile to get, from 0 to 100. For instance, 99 gets the duration that 99% of the
+     * recorded durations are no longer than.
+     * @return the duration at the given percentile, in nanoseconds, or 0 if none have been recorded.
+     */
+    public long getPercentileNanos(double percentile)
+    {
+        if (percentile < 0 || percentile > 100)
+        {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        long totalCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            totalCount += this.buckets.get(i);
+        }
+
+        if (totalCount == 0)
+        {
+            return 0;
+        }
+
+        long targetCount = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            cumulativeCount += this.buckets.get(i);
+            if (cumulativeCount >= targetCount)
+            {
+                return Math.min(bucketUpperBound(i), this.maxNanos.get());
+            }
+        }
+
+        return this.maxNanos.get();
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKET_COUNT)
+        {
+            return (int) value;
+        }
+
+        // The position of the highest set bit picks the bucket group, and the bits below it pick the bucket in the group
+        int magnitude = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index)
+    {
+        if (index < SUB_BUCKET_COUNT)
+        {
+            return index;
+        }
+
+        int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long bucketWidth = 1L << (magnitude - SUB_BUCKET_BITS);
+        return ((SUB_BUCKET_COUNT + subBucket) * bucketWidth) + bucketWidth - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count: %d, mean: %.3f ms, p50: %.3f ms, p99: %.3f ms, max: %.3f ms",
+            getCount(),
+            getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1),
+            toMilliseconds(getPercentileNanos(50)),
+            toMilliseconds(getPercentileNanos(99)),
+            toMilliseconds(getMaxNanos()));
+    }
+
+    private static double toMilliseconds(long nanos)
+    {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -9,9 +9,11 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Slf4j
@@ -21,12 +23,12 @@ public class Message
 
     public static final Charset DEFAULT_IOTHUB_MESSAGE_CHARSET = StandardCharsets.UTF_8;
 
-    private static final String DATE_TIME_FORMAT = "yyyy-MM-dd_HH:mm:ss.SSSSSSS";
+    // DateTimeFormatter is immutable and thread-safe, so a single instance can be shared by every message
+    private static final DateTimeFormatter CREATION_TIME_UTC_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSS'Z'").withZone(ZoneOffset.UTC);
 
     private static final String SECURITY_CLIENT_JSON_ENCODING = "application/json";
 
-    private static final String UTC_TIMEZONE = "UTC";
-
     // ----- Data Fields -----
 
     /**
@@ -88,14 +90,16 @@ public class Message
     private String deliveryAcknowledgement;
 
     /**
-     * User-defined properties.
+     * User-defined properties, indexed by their lower case name since property names are case-insensitive.
+     * Insertion order is preserved so that properties are sent in the order they were last set.
      */
-    private ArrayList<MessageProperty> properties;
+    private LinkedHashMap<String, MessageProperty> properties;
 
     /**
-     * The message body
+     * The message body. Always positioned at 0 with its limit at the end of the body, and never handed out without
+     * being duplicated first so that readers cannot move each other's position.
      */
-    private byte[] body;
+    private ByteBuffer body;
 
     /**
      * Message routing options
@@ -105,6 +109,11 @@ public class Message
 
     private Date creationTimeUTC;
 
+    /**
+     * The rendered form of {@link #creationTimeUTC}, computed once on first use since every transport needs it.
+     */
+    private String creationTimeUTCString;
+
     /**
      * Security Client flag
      */
@@ -152,7 +161,29 @@ public class Message
 
         initialize();
 
-        this.body = body;
+        this.body = ByteBuffer.wrap(body);
+    }
+
+    /**
+     * Constructor that uses the remaining bytes of the provided buffer as the message body without copying them.
+     *
+     * <p>The buffer may be a heap buffer, a direct buffer, a slice of a larger buffer or a memory mapped file region.
+     * Only the bytes between the buffer's position and its limit at the time of this call are used, and the buffer's
+     * position and limit are not modified. Since the content is shared rather than copied, it must not be modified
+     * until this message has been acknowledged by the service.</p>
+     *
+     * @param body The body of the new Message instance.
+     */
+    public Message(ByteBuffer body)
+    {
+        if (body == null)
+        {
+            throw new IllegalArgumentException("Message body cannot be 'null'.");
+        }
+
+        initialize();
+
+        this.body = body.slice();
     }
 
     /**
@@ -168,7 +199,7 @@ public class Message
 
         initialize();
 
-        this.body = body.getBytes(DEFAULT_IOTHUB_MESSAGE_CHARSET);
+        this.body = ByteBuffer.wrap(body.getBytes(DEFAULT_IOTHUB_MESSAGE_CHARSET));
         this.setContentType(DEFAULT_IOTHUB_MESSAGE_CHARSET.name());
     }
 
@@ -194,12 +225,37 @@ public class Message
         byte[] bodyClone = null;
 
         if (this.body != null) {
-            bodyClone = Arrays.copyOf(this.body, this.body.length);
+            bodyClone = new byte[this.body.remaining()];
+            this.body.duplicate().get(bodyClone);
         }
 
         return bodyClone;
     }
 
+    /**
+     * A view of the body of this message that shares its content rather than copying it. The returned buffer has its
+     * own position and limit, so reading from it does not affect this message, but its content must not be modified.
+     * @return A view of this Message body, or null if this message has no body.
+     */
+    public ByteBuffer getBodyBuffer()
+    {
+        if (this.body == null)
+        {
+            return null;
+        }
+
+        return this.body.duplicate();
+    }
+
+    /**
+     * The length of the body of this message, in bytes. Unlike {@link #getBytes()}, this does not copy the body.
+     * @return The length of this Message body, or 0 if this message has no body.
+     */
+    public int getBodyLength()
+    {
+        return this.body == null ? 0 : this.body.remaining();
+    }
+
     /**
      * Gets the values of user-defined properties of this Message.
      * @param name Name of the user-defined property to search for.
@@ -207,17 +263,13 @@ public class Message
      */
     public String getProperty(String name)
     {
-        MessageProperty messageProperty = null;
-
-        for (MessageProperty currentMessageProperty: this.properties)
+        if (name == null)
         {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
+            return null;
         }
 
+        MessageProperty messageProperty = this.properties.get(toPropertyKey(name));
+
         if (messageProperty == null)
         {
             return null;
@@ -244,23 +296,11 @@ public class Message
             throw new IllegalArgumentException("Property value cannot be 'null'.");
         }
 
-        MessageProperty messageProperty = null;
+        String key = toPropertyKey(name);
 
-        for (MessageProperty currentMessageProperty: this.properties)
-        {
-            if (currentMessageProperty.hasSameName(name))
-            {
-                messageProperty = currentMessageProperty;
-                break;
-            }
-        }
-
-        if (messageProperty != null)
-        {
-            this.properties.remove(messageProperty);
-        }
-
-        this.properties.add(new MessageProperty(name, value));
+        // Remove before re-adding so that an updated property moves to the end, as it would in a list
+        this.properties.remove(key);
+        this.properties.put(key, new MessageProperty(name, value));
     }
 
     /**
@@ -270,11 +310,25 @@ public class Message
      */
     public MessageProperty[] getProperties()
     {
-        return properties.toArray(new MessageProperty[this.properties.size()]);
+        return this.properties.values().toArray(new MessageProperty[this.properties.size()]);
+    }
+
+    /**
+     * Replaces the body of this message. Only used when a {@link PayloadCodec} encodes or decodes the body.
+     * @param body the new body.
+     */
+    void setBody(byte[] body)
+    {
+        this.body = ByteBuffer.wrap(body);
     }
 
     // ----- Private Methods -----
 
+    private static String toPropertyKey(String name)
+    {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Internal initializer method for a new Message instance.
      */
@@ -282,7 +336,7 @@ public class Message
     {
         this.messageId = UUID.randomUUID().toString();
         this.correlationId = UUID.randomUUID().toString();
-        this.properties = new ArrayList<>();
+        this.properties = new LinkedHashMap<>();
         this.isSecurityClient = false;
     }
 
@@ -546,6 +600,9 @@ public class Message
      * oct 1st, 2018 yields
      * 2008-10-01T17:04:32.0000000
      *
+     * The rendered value is cached on this message, so changes made to the {@link Date} instance after this method
+     * has been called will not be reflected. Use {@link #setCreationTimeUTC(Date)} to change the creation time instead.
+     *
      * @return the iot hub accepted format for the creation time utc
      */
     public String getCreationTimeUTCString()
@@ -555,14 +612,18 @@ public class Message
             return null;
         }
 
-        SimpleDateFormat sdf = new SimpleDateFormat(DATE_TIME_FORMAT);
-        sdf.setTimeZone(TimeZone.getTimeZone(UTC_TIMEZONE));
-        return sdf.format(this.creationTimeUTC).replace("_", "T") + "Z";
+        if (this.creationTimeUTCString == null)
+        {
+            this.creationTimeUTCString = CREATION_TIME_UTC_FORMATTER.format(this.creationTimeUTC.toInstant());
+        }
+
+        return this.creationTimeUTCString;
     }
 
     public final void setCreationTimeUTC(Date creationTimeUTC)
     {
         this.creationTimeUTC = creationTimeUTC;
+        this.creationTimeUTCString = null;
     }
 
     public void setAsSecurityMessage()
@@ -0,0 +1,38 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * The reasons that a client can give up on a message because it took too long.
+ *
+ * @see ClientMetrics#onMessageExpired(MessageType, MessageExpiryReason)
+ */
+public enum MessageExpiryReason
+{
+    /**
+     * The message's expiry time passed while it was waiting to be sent.
+     */
+    EXPIRED_WHILE_QUEUED,
+
+    /**
+     * The message's expiry time passed after it was sent, but before it was acknowledged.
+     */
+    EXPIRED_WHILE_IN_FLIGHT,
+
+    /**
+     * The message failed to send, and the device operation timeout had passed so it was not retried.
+     */
+    OPERATION_TIMEOUT,
+
+    /**
+     * The message was a request, such as a twin request, and no response was received within the device operation
+     * timeout.
+     */
+    RESPONSE_TIMEOUT,
+
+    /**
+     * The message was a request, and too many other requests were waiting on a response to keep waiting on this one.
+     */
+    RESPONSE_EVICTED
+}
@@ -0,0 +1,55 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * A {@link ClientMetrics} that discards all measurements. This is what clients use when no metrics are set in
+ * {@link ClientOptions#getClientMetrics()}.
+ */
+public final class NoOpClientMetrics implements ClientMetrics
+{
+    /**
+     * The shared instance. This class has no state, so there is no need for more than one.
+     */
+    public static final NoOpClientMetrics INSTANCE = new NoOpClientMetrics();
+
+    private NoOpClientMetrics()
+    {
+    }
+
+    @Override
+    public void onMessageQueueWait(MessageType messageType, long queueWaitNanos)
+    {
+    }
+
+    @Override
+    public void onMessageWritten(MessageType messageType, long writeNanos)
+    {
+    }
+
+    @Override
+    public void onMessageAcknowledged(MessageType messageType, long timeOnWireNanos)
+    {
+    }
+
+    @Override
+    public void onMessageRetried(MessageType messageType, int retryAttempt)
+    {
+    }
+
+    @Override
+    public void onMessageExpired(MessageType messageType, MessageExpiryReason reason)
+    {
+    }
+
+    @Override
+    public void onQueueDepth(MessageType messageType, int waitingCount, int inFlightCount)
+    {
+    }
+
+    @Override
+    public void onReconnectCompleted(long reconnectNanos, int attempts, boolean isReconnected)
+    {
+    }
+}
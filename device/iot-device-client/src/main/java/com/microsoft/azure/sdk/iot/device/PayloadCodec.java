@@ -0,0 +1,50 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * An encoding that can be applied to the body of telemetry messages before they are sent, and removed from the body
+ * of cloud to device messages before they are handed to the message callback.
+ *
+ * <p>
+ * When a codec is set in {@link ClientOptions#getPayloadCodec()}, the client encodes the body of each telemetry message
+ * that is at least {@link ClientOptions#getPayloadCompressionThreshold()} bytes long and sets the message's content
+ * encoding to {@link #getContentEncoding()}. Received messages whose content encoding matches are decoded before the
+ * message callback is executed. Implementations must be thread safe.
+ * </p>
+ *
+ * @see GzipPayloadCodec
+ * @see DeflatePayloadCodec
+ */
+public interface PayloadCodec
+{
+    /**
+     * @return the value of the content encoding system property that identifies payloads produced by this codec,
+     * for instance "gzip".
+     */
+    String getContentEncoding();
+
+    /**
+     * Encodes the provided payload.
+     *
+     * @param payload the payload to encode. Its position and limit are not modified.
+     * @return the encoded payload.
+     * @throws IOException if the payload could not be encoded.
+     */
+    byte[] encode(ByteBuffer payload) throws IOException;
+
+    /**
+     * Decodes the provided payload.
+     *
+     * @param payload the payload to decode. Its position and limit are not modified.
+     * @return the decoded payload.
+     * @throws IOException if the payload is not a valid encoded payload, or if it decodes to more bytes than the
+     * codec allows. Implementations should bound the decoded length, since a small encoded payload can otherwise
+     * expand to exhaust the memory of the device.
+     */
+    byte[] decode(ByteBuffer payload) throws IOException;
+}
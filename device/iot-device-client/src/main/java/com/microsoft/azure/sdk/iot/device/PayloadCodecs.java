@@ -0,0 +1,117 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Applies the {@link PayloadCodec} configured in {@link ClientOptions} to outgoing and incoming messages.
+ */
+@Slf4j
+final class PayloadCodecs
+{
+    private static final int READ_CHUNK_SIZE = 4096;
+
+    private PayloadCodecs()
+    {
+    }
+
+    /**
+     * Encodes the body of the provided message in place if it is large enough and does not already declare a content
+     * encoding. The body is left untouched if encoding it does not make it smaller.
+     *
+     * @param message the message to encode.
+     * @param codec the codec to encode with. If null, this method does nothing.
+     * @param threshold the minimum body length, in bytes, worth encoding.
+     */
+    static void encodeIfNeeded(Message message, PayloadCodec codec, int threshold)
+    {
+        if (codec == null
+            || message == null
+            || message.getBodyLength() < threshold
+            || message.getContentEncoding() != null
+            || message.isSecurityMessage())
+        {
+            return;
+        }
+
+        try
+        {
+            byte[] encodedBody = codec.encode(message.getBodyBuffer());
+            if (encodedBody.length < message.getBodyLength())
+            {
+                log.trace("Encoded message ({}) body from {} to {} bytes using {}", message, message.getBodyLength(), encodedBody.length, codec.getContentEncoding());
+                message.setBody(encodedBody);
+                message.setContentEncoding(codec.getContentEncoding());
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to encode message ({}) body using {}, sending it unencoded", message, codec.getContentEncoding(), e);
+        }
+    }
+
+    /**
+     * Wraps the provided message callback so that messages encoded with the provided codec are decoded before the
+     * callback is executed.
+     *
+     * @param codec the codec to decode with. If null, the callback is returned as is.
+     * @param callback the callback to wrap. If null, null is returned.
+     * @return the wrapped callback.
+     */
+    static MessageCallback decodingCallback(PayloadCodec codec, MessageCallback callback)
+    {
+        if (codec == null || callback == null)
+        {
+            return callback;
+        }
+
+        return (message, callbackContext) ->
+        {
+            if (message != null
+                && message.getBodyBuffer() != null
+                && codec.getContentEncoding().equalsIgnoreCase(message.getContentEncoding()))
+            {
+                try
+                {
+                    message.setBody(codec.decode(message.getBodyBuffer()));
+                    message.setContentEncoding(null);
+                }
+                catch (IOException e)
+                {
+                    log.warn("Failed to decode received message ({}) body using {}, delivering it as received", message, codec.getContentEncoding(), e);
+                }
+            }
+
+            return callback.execute(message, callbackContext);
+        };
+    }
+
+    static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        return readFully(inputStream, Integer.MAX_VALUE);
+    }
+
+    static byte[] readFully(InputStream inputStream, int maxLength) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] chunk = new byte[READ_CHUNK_SIZE];
+        int length;
+        while ((length = inputStream.read(chunk)) != -1)
+        {
+            if (length > maxLength - output.size())
+            {
+                throw new IOException("Decoded payload is longer than the maximum of " + maxLength + " bytes");
+            }
+
+            output.write(chunk, 0, length);
+        }
+
+        return output.toByteArray();
+    }
+}
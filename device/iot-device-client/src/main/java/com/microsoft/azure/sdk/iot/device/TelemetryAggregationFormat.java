@@ -0,0 +1,23 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+/**
+ * The framing used by a {@link TelemetryAggregator} to pack several message bodies into one envelope message.
+ */
+public enum TelemetryAggregationFormat
+{
+    /**
+     * The envelope body is a JSON array whose elements are the message bodies, in the order they were added. Each
+     * message body must therefore be a UTF-8 encoded JSON value. The envelope has the "application/json" content type.
+     */
+    JSON_ARRAY,
+
+    /**
+     * The envelope body is the concatenation of each message body preceded by its length as a 4 byte big endian
+     * integer. Message bodies may contain arbitrary bytes. The envelope has the "application/octet-stream" content
+     * type.
+     */
+    LENGTH_PREFIXED
+}
@@ -0,0 +1,386 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packs many small telemetry messages into envelope messages so that each envelope is sent as a single protocol
+ * message, rather than one protocol message per telemetry message as {@link InternalClient#sendEventAsync(List, IotHubEventCallback, Object)}
+ * does for MQTT and AMQP.
+ *
+ * <p>
+ * An envelope is sent when it holds {@link TelemetryAggregatorOptions#getMaxMessageCount()} messages, when adding
+ * another message would make it larger than {@link TelemetryAggregatorOptions#getMaxEnvelopeSizeInBytes()}, when its
+ * oldest message has waited {@link TelemetryAggregatorOptions#getLingerMilliseconds()}, or when {@link #flush()} or
+ * {@link #close()} is called. The callback of each added message is executed with the status of its envelope.
+ * </p>
+ *
+ * <p>
+ * Only message bodies are aggregated. Properties set on the added messages are not sent, so the service side must
+ * unpack envelopes according to the configured {@link TelemetryAggregationFormat}. Envelopes carry the number of
+ * messages they contain in the {@value #AGGREGATED_MESSAGE_COUNT_PROPERTY} application property.
+ * </p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+@Slf4j
+public final class TelemetryAggregator implements Closeable
+{
+    /**
+     * The name of the application property that holds the number of messages in an envelope.
+     */
+    public static final String AGGREGATED_MESSAGE_COUNT_PROPERTY = "aggregated-message-count";
+
+    private static final String JSON_CONTENT_TYPE = "application/json";
+    private static final String JSON_CONTENT_ENCODING = "utf-8";
+    private static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+    private static final int LENGTH_PREFIX_SIZE = 4;
+
+    private final InternalClient client;
+    private final TelemetryAggregationFormat format;
+    private final int maxMessageCount;
+    private final int maxEnvelopeSizeInBytes;
+    private final long lingerMilliseconds;
+
+    private final Object envelopeLock = new Object();
+    private final ScheduledExecutorService lingerScheduler;
+    private List<AggregatedMessage> envelope = new ArrayList<>();
+    private int envelopeSizeInBytes;
+    private ScheduledFuture<?> lingerFuture;
+    private boolean isClosed;
+
+    // Incremented each time the current envelope is taken, so that a linger task that was already running when its
+    // envelope was sent can tell that the current envelope is a newer one and leave it alone
+    private long envelopeGeneration;
+
+    /**
+     * Create an aggregator that sends its envelopes through the provided client using the default options.
+     * @param client the client to send envelopes with. It must be open before the first envelope is sent.
+     */
+    public TelemetryAggregator(InternalClient client)
+    {
+        this(client, TelemetryAggregatorOptions.builder().build());
+    }
+
+    /**
+     * Create an aggregator that sends its envelopes through the provided client.
+     * @param client the client to send envelopes with. It must be open before the first envelope is sent.
+     * @param options the options that control when envelopes are sent.
+     */
+    public TelemetryAggregator(InternalClient client, TelemetryAggregatorOptions options)
+    {
+        if (client == null)
+        {
+            throw new IllegalArgumentException("Client cannot be null");
+        }
+
+        if (options == null)
+        {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+
+        if (options.getFormat() == null)
+        {
+            throw new IllegalArgumentException("Aggregation format cannot be null");
+        }
+
+        if (options.getMaxMessageCount() <= 0)
+        {
+            throw new IllegalArgumentException("Max message count must be greater than 0");
+        }
+
+        if (options.getMaxEnvelopeSizeInBytes() <= 0 || options.getMaxEnvelopeSizeInBytes() > TelemetryAggregatorOptions.MAX_ENVELOPE_SIZE_IN_BYTES)
+        {
+            throw new IllegalArgumentException("Max envelope size must be greater than 0 and at most " + TelemetryAggregatorOptions.MAX_ENVELOPE_SIZE_IN_BYTES + " bytes");
+        }
+
+        if (options.getLingerMilliseconds() <= 0)
+        {
+            throw new IllegalArgumentException("Linger time must be greater than 0");
+        }
+
+        this.client = client;
+        this.format = options.getFormat();
+        this.maxMessageCount = options.getMaxMessageCount();
+        this.maxEnvelopeSizeInBytes = options.getMaxEnvelopeSizeInBytes();
+        this.lingerMilliseconds = options.getLingerMilliseconds();
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "azure-iot-sdk-TelemetryAggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.envelopeSizeInBytes = envelopeOverhead();
+    }
+
+    /**
+     * Add a message to the current envelope.
+     *
+     * @param message the message whose body will be added to the envelope.
+     * @param callback the callback to be invoked once the envelope holding this message has been acknowledged. Can be
+     * {@code null}.
+     * @param callbackContext a context to be passed to the callback. Can be {@code null}.
+     * @throws IllegalArgumentException if the message or its body is {@code null}.
+     * @throws IllegalStateException if this aggregator has been closed.
+     */
+    public void add(Message message, IotHubEventCallback callback, Object callbackContext)
+    {
+        if (message == null || message.getBodyBuffer() == null)
+        {
+            throw new IllegalArgumentException("Message and its body cannot be null");
+        }
+
+        int framedSize = framedSize(message.getBodyLength());
+        boolean isTooLargeToAggregate = envelopeOverhead() + framedSize > this.maxEnvelopeSizeInBytes;
+
+        List<AggregatedMessage> fullEnvelope = null;
+        List<AggregatedMessage> completedEnvelope = null;
+        synchronized (this.envelopeLock)
+        {
+            if (this.isClosed)
+            {
+                throw new IllegalStateException("Cannot add messages to a closed aggregator");
+            }
+
+            if (isTooLargeToAggregate)
+            {
+                // The messages already added to the envelope are sent first so that this message doesn't overtake them
+                fullEnvelope = takeEnvelope();
+            }
+            else
+            {
+                if (this.envelopeSizeInBytes + framedSize > this.maxEnvelopeSizeInBytes)
+                {
+                    fullEnvelope = takeEnvelope();
+                }
+
+                this.envelope.add(new AggregatedMessage(message.getBodyBuffer(), callback, callbackContext));
+                this.envelopeSizeInBytes += framedSize;
+
+                if (this.envelope.size() >= this.maxMessageCount)
+                {
+                    completedEnvelope = takeEnvelope();
+                }
+                else if (this.envelope.size() == 1)
+                {
+                    long generation = this.envelopeGeneration;
+                    this.lingerFuture = this.lingerScheduler.schedule(() -> flushLingeringEnvelope(generation), this.lingerMilliseconds, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        sendEnvelope(fullEnvelope);
+
+        if (isTooLargeToAggregate)
+        {
+            log.debug("Message ({}) is too large to be aggregated, sending it on its own", message);
+            this.client.sendEventAsync(message, callback, callbackContext);
+        }
+        else
+        {
+            sendEnvelope(completedEnvelope);
+        }
+    }
+
+    /**
+     * Send the current envelope now, if it holds any messages.
+     */
+    public void flush()
+    {
+        List<AggregatedMessage> envelope;
+        synchronized (this.envelopeLock)
+        {
+            envelope = takeEnvelope();
+        }
+
+        sendEnvelope(envelope);
+    }
+
+    /**
+     * Send the current envelope, if it holds any messages, and stop accepting new messages. This does not close the
+     * client.
+     */
+    @Override
+    public void close()
+    {
+        List<AggregatedMessage> envelope;
+        synchronized (this.envelopeLock)
+        {
+            if (this.isClosed)
+            {
+                return;
+            }
+
+            this.isClosed = true;
+            envelope = takeEnvelope();
+        }
+
+        this.lingerScheduler.shutdownNow();
+        sendEnvelope(envelope);
+    }
+
+    private void flushLingeringEnvelope(long generation)
+    {
+        List<AggregatedMessage> envelope = null;
+        synchronized (this.envelopeLock)
+        {
+            // Cancelling the linger task doesn't stop it once it has started, so it may be running after its envelope
+            // was already sent by another thread and a new one was started. The new envelope has its own linger task.
+            if (generation == this.envelopeGeneration)
+            {
+                envelope = takeEnvelope();
+            }
+        }
+
+        sendEnvelope(envelope);
+    }
+
+    // Must be called while holding envelopeLock. Returns null if the envelope is empty.
+    private List<AggregatedMessage> takeEnvelope()
+    {
+        if (this.lingerFuture != null)
+        {
+            this.lingerFuture.cancel(false);
+            this.lingerFuture = null;
+        }
+
+        this.envelopeGeneration++;
+
+        if (this.envelope.isEmpty())
+        {
+            return null;
+        }
+
+        List<AggregatedMessage> envelope = this.envelope;
+        this.envelope = new ArrayList<>();
+        this.envelopeSizeInBytes = envelopeOverhead();
+        return envelope;
+    }
+
+    private void sendEnvelope(List<AggregatedMessage> envelope)
+    {
+        if (envelope == null)
+        {
+            return;
+        }
+
+        Message envelopeMessage = buildEnvelopeMessage(envelope);
+        try
+        {
+            log.trace("Sending envelope message ({}) holding {} aggregated messages", envelopeMessage, envelope.size());
+            this.client.sendEventAsync(envelopeMessage, (status, context) -> completeAll(envelope, status), null);
+        }
+        catch (RuntimeException e)
+        {
+            log.warn("Failed to send envelope message ({}) holding {} aggregated messages", envelopeMessage, envelope.size(), e);
+            completeAll(envelope, IotHubStatusCode.ERROR);
+        }
+    }
+
+    private Message buildEnvelopeMessage(List<AggregatedMessage> envelope)
+    {
+        int size = envelopeOverhead();
+        for (AggregatedMessage aggregatedMessage : envelope)
+        {
+            size += framedSize(aggregatedMessage.body.remaining());
+        }
+
+        if (this.format == TelemetryAggregationFormat.JSON_ARRAY)
+        {
+            // n messages only need n - 1 separating commas
+            size--;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        Message envelopeMessage;
+        if (this.format == TelemetryAggregationFormat.JSON_ARRAY)
+        {
+            body.put((byte) '[');
+            for (int i = 0; i < envelope.size(); i++)
+            {
+                if (i > 0)
+                {
+                    body.put((byte) ',');
+                }
+
+                body.put(envelope.get(i).body);
+            }
+            body.put((byte) ']');
+
+            envelopeMessage = new Message(body.array());
+            envelopeMessage.setContentType(JSON_CONTENT_TYPE);
+            envelopeMessage.setContentEncoding(JSON_CONTENT_ENCODING);
+        }
+        else
+        {
+            for (AggregatedMessage aggregatedMessage : envelope)
+            {
+                body.putInt(aggregatedMessage.body.remaining());
+                body.put(aggregatedMessage.body);
+            }
+
+            envelopeMessage = new Message(body.array());
+            envelopeMessage.setContentType(BINARY_CONTENT_TYPE);
+        }
+
+        envelopeMessage.setProperty(AGGREGATED_MESSAGE_COUNT_PROPERTY, Integer.toString(envelope.size()));
+        return envelopeMessage;
+    }
+
+    private static void completeAll(List<AggregatedMessage> envelope, IotHubStatusCode status)
+    {
+        for (AggregatedMessage aggregatedMessage : envelope)
+        {
+            if (aggregatedMessage.callback != null)
+            {
+                try
+                {
+                    aggregatedMessage.callback.execute(status, aggregatedMessage.callbackContext);
+                }
+                catch (Exception e)
+                {
+                    log.warn("Exception thrown while calling the callback of an aggregated message", e);
+                }
+            }
+        }
+    }
+
+    // The bytes an envelope takes before any message is added to it
+    private int envelopeOverhead()
+    {
+        // The two brackets of the JSON array. The separating commas are counted per message.
+        return this.format == TelemetryAggregationFormat.JSON_ARRAY ? 2 : 0;
+    }
+
+    // The bytes a message body of the given length adds to an envelope. For JSON arrays this accounts for a separating
+    // comma even for the first message, which slightly underestimates how many messages fit but never overshoots.
+    private int framedSize(int bodyLength)
+    {
+        return bodyLength + (this.format == TelemetryAggregationFormat.JSON_ARRAY ? 1 : LENGTH_PREFIX_SIZE);
+    }
+
+    private static final class AggregatedMessage
+    {
+        private final ByteBuffer body;
+        private final IotHubEventCallback callback;
+        private final Object callbackContext;
+
+        private AggregatedMessage(ByteBuffer body, IotHubEventCallback callback, Object callbackContext)
+        {
+            this.body = body;
+            this.callback = callback;
+            this.callbackContext = callbackContext;
+        }
+    }
+}
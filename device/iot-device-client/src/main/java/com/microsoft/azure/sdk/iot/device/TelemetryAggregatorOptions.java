@@ -0,0 +1,55 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Options that control when a {@link TelemetryAggregator} flushes the envelope message it is building.
+ */
+@Builder
+public final class TelemetryAggregatorOptions
+{
+    private static final int DEFAULT_MAX_MESSAGE_COUNT = 100;
+    private static final int DEFAULT_MAX_ENVELOPE_SIZE_IN_BYTES = 250 * 1024;
+    private static final long DEFAULT_LINGER_MILLISECONDS = 1000;
+
+    /**
+     * The largest envelope body, in bytes, that IoT hub accepts. The hub limit of 256 KB also covers properties, so
+     * the default envelope size leaves some room for them.
+     */
+    static final int MAX_ENVELOPE_SIZE_IN_BYTES = 256 * 1024;
+
+    /**
+     * The framing used to pack message bodies into an envelope. By default, message bodies are packed into a JSON array.
+     */
+    @Getter
+    @Builder.Default
+    private final TelemetryAggregationFormat format = TelemetryAggregationFormat.JSON_ARRAY;
+
+    /**
+     * The number of messages that causes an envelope to be sent. By default, this value is 100.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxMessageCount = DEFAULT_MAX_MESSAGE_COUNT;
+
+    /**
+     * The largest envelope body size, in bytes, including framing. A message that would make the envelope larger
+     * causes the envelope to be sent first. A message that would not fit in an envelope on its own is sent as is.
+     * Must not exceed 256 KB. By default, this value is 250 KB.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxEnvelopeSizeInBytes = DEFAULT_MAX_ENVELOPE_SIZE_IN_BYTES;
+
+    /**
+     * The longest time, in milliseconds, that a message waits in an envelope before the envelope is sent, even if
+     * neither the count nor the size limit have been reached. By default, this value is 1 second.
+     */
+    @Getter
+    @Builder.Default
+    private final long lingerMilliseconds = DEFAULT_LINGER_MILLISECONDS;
+}
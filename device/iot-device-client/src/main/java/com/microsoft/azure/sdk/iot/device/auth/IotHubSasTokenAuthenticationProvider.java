@@ -31,7 +31,8 @@ public abstract class IotHubSasTokenAuthenticationProvider extends IotHubAuthent
 
     static final String ENCODING_FORMAT_NAME = StandardCharsets.UTF_8.displayName();
 
-    protected IotHubSasToken sasToken;
+    // Volatile since some providers replace the token from a background thread
+    protected volatile IotHubSasToken sasToken;
 
     public abstract boolean canRefreshToken();
     public abstract char[] getSasToken() throws IOException, TransportException;
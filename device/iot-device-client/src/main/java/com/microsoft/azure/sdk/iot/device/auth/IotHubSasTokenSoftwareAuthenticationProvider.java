@@ -5,12 +5,49 @@
 
 package com.microsoft.azure.sdk.iot.device.auth;
 
+import lombok.extern.slf4j.Slf4j;
+
 import javax.net.ssl.SSLContext;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Authentication provider for SAS tokens that are either given by the user, or signed by this provider with the
+ * device's symmetric key.
+ *
+ * <p>
+ * When a device key is present, {@link #getSasToken()} hands out a token that was already signed in the background,
+ * so that the transports never wait on signing while they connect, reconnect or renew. A token is only handed out while
+ * it is young enough that the transport can use it for its whole renewal period (a fraction of the token's life, see
+ * {@link #getMillisecondsBeforeProactiveRenewal()}) before it expires. The background task replaces the ready token
+ * well before it gets that old, and stops once the transports have not asked for a token for a whole token lifetime.
+ * </p>
+ */
+@Slf4j
 public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasTokenAuthenticationProvider
 {
+    private static final long MILLISECONDS_PER_SECOND = 1000L;
+
+    // Shared by all providers, since each one signs a token at most every few minutes
+    private static final ScheduledExecutorService SAS_TOKEN_RENEWAL_EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "azure-iot-sdk-SasTokenRenewal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final String deviceKey;
 
+    // The expiry time, in seconds since the UNIX epoch, of the saved token, if this provider signed it
+    private volatile long sasTokenExpiryTimeSeconds;
+
+    // The last time, in milliseconds since the UNIX epoch, that a transport asked for a token
+    private volatile long lastSasTokenRequestTimeMillis;
+
+    private ScheduledFuture<?> sasTokenRenewalTask;
+
     /**
      * Constructor that takes a connection string containing a sas token or a device key
      *
@@ -27,7 +64,8 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
     {
         super(hostname, gatewayHostname, deviceId, moduleId, tokenValidSecs, timeBufferPercentage);
         this.deviceKey = deviceKey;
-        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, getExpiryTimeInSeconds());
+        this.sasTokenExpiryTimeSeconds = getExpiryTimeInSeconds();
+        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, this.sasTokenExpiryTimeSeconds);
     }
 
     /**
@@ -43,7 +81,8 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
     {
         super(hostname, gatewayHostname, deviceId, moduleId);
         this.deviceKey = deviceKey;
-        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, getExpiryTimeInSeconds());
+        this.sasTokenExpiryTimeSeconds = getExpiryTimeInSeconds();
+        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, this.sasTokenExpiryTimeSeconds);
     }
 
     /**
@@ -60,7 +99,8 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
     {
         super(hostname, gatewayHostname, deviceId, moduleId, sslContext);
         this.deviceKey = deviceKey;
-        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, getExpiryTimeInSeconds());
+        this.sasTokenExpiryTimeSeconds = getExpiryTimeInSeconds();
+        this.sasToken = new IotHubSasToken(hostname, deviceId, deviceKey, sharedAccessToken, moduleId, this.sasTokenExpiryTimeSeconds);
     }
 
     /**
@@ -80,7 +120,10 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
 
         if (this.deviceKey != null)
         {
-            this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, this.moduleId, getExpiryTimeInSeconds());
+            // The background renewal runs at a pace that depends on the token lifetime, so it is restarted with the
+            // next token request
+            cancelSasTokenRenewal();
+            renewSasToken();
         }
     }
 
@@ -91,7 +134,9 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
     }
 
     /**
-     * Getter for SasToken. If the saved token has expired, this method shall renew it if possible
+     * Getter for SasToken. If the saved token has expired, this method shall renew it if possible. Tokens that this
+     * provider signs are renewed in the background, and only signed by the calling thread if the background renewal
+     * has fallen behind.
      *
      * @return The value of SasToken
      */
@@ -100,9 +145,96 @@ public class IotHubSasTokenSoftwareAuthenticationProvider extends IotHubSasToken
     {
         if (this.deviceKey != null)
         {
-            this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, this.moduleId, getExpiryTimeInSeconds());
+            long currentTimeMillis = System.currentTimeMillis();
+            this.lastSasTokenRequestTimeMillis = currentTimeMillis;
+
+            if (getSasTokenAgeMillis(currentTimeMillis) > getMaxSasTokenAgeMillis())
+            {
+                renewSasToken();
+            }
+
+            scheduleSasTokenRenewal();
         }
 
         return this.sasToken.toString().toCharArray();
     }
+
+    /**
+     * The oldest a token may be when it is handed out. The transports renew the token they are given once
+     * {@link #getMillisecondsBeforeProactiveRenewal()} has passed, so a token handed out at this age is renewed when
+     * half of its remaining renewal buffer is left.
+     *
+     * @return the maximum age, in milliseconds, of a token that is handed out.
+     */
+    long getMaxSasTokenAgeMillis()
+    {
+        return (this.tokenValidSecs * MILLISECONDS_PER_SECOND - getMillisecondsBeforeProactiveRenewal()) / 2;
+    }
+
+    private long getSasTokenAgeMillis(long currentTimeMillis)
+    {
+        long issuedTimeMillis = (this.sasTokenExpiryTimeSeconds - this.tokenValidSecs) * MILLISECONDS_PER_SECOND;
+        return currentTimeMillis - issuedTimeMillis;
+    }
+
+    private synchronized void renewSasToken()
+    {
+        long expiryTimeSeconds = getExpiryTimeInSeconds();
+        this.sasToken = new IotHubSasToken(this.hostname, this.deviceId, this.deviceKey, null, this.moduleId, expiryTimeSeconds);
+        this.sasTokenExpiryTimeSeconds = expiryTimeSeconds;
+    }
+
+    private synchronized void scheduleSasTokenRenewal()
+    {
+        if (this.sasTokenRenewalTask != null)
+        {
+            return;
+        }
+
+        // Replacing the ready token twice per maximum age keeps it young enough to be handed out at any time
+        long renewalPeriodMillis = getMaxSasTokenAgeMillis() / 2;
+        if (renewalPeriodMillis <= 0)
+        {
+            // A time buffer of 100% leaves no room for handing out pre-signed tokens, so every request signs its own
+            return;
+        }
+
+        this.sasTokenRenewalTask = SAS_TOKEN_RENEWAL_EXECUTOR.scheduleWithFixedDelay(
+            this::renewSasTokenInBackground,
+            renewalPeriodMillis,
+            renewalPeriodMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelSasTokenRenewal()
+    {
+        if (this.sasTokenRenewalTask != null)
+        {
+            this.sasTokenRenewalTask.cancel(false);
+            this.sasTokenRenewalTask = null;
+        }
+    }
+
+    private void renewSasTokenInBackground()
+    {
+        try
+        {
+            // Stop once no transport has asked for a token in a whole token lifetime, so that closed clients don't
+            // keep signing tokens. The next request restarts the renewal.
+            long idleTimeMillis = System.currentTimeMillis() - this.lastSasTokenRequestTimeMillis;
+            if (idleTimeMillis > this.tokenValidSecs * MILLISECONDS_PER_SECOND)
+            {
+                log.trace("Stopping background SAS token renewal for device {} since no token was requested recently", this.deviceId);
+                cancelSasTokenRenewal();
+                return;
+            }
+
+            renewSasToken();
+        }
+        catch (RuntimeException e)
+        {
+            // The next request will sign its own token if the ready one gets too old
+            log.warn("Failed to renew the SAS token for device {} in the background", this.deviceId, e);
+        }
+    }
 }
@@ -13,6 +13,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 import static org.apache.commons.codec.binary.Base64.decodeBase64;
 import static org.apache.commons.codec.binary.Base64.encodeBase64;
@@ -30,6 +31,11 @@ final class SignatureHelper
     /** The charset used for the raw and hashed signature. */
     private static final Charset SIGNATURE_CHARSET = StandardCharsets.UTF_8;
 
+    private static final String HMAC_SHA256_ALGORITHM = "HmacSHA256";
+
+    /** The HMAC-SHA256 instance of each thread, along with the key it was last initialized with. */
+    private static final ThreadLocal<KeyedMac> HMAC_SHA256 = ThreadLocal.withInitial(KeyedMac::new);
+
     /**
      * Builds the raw signature.
      *
@@ -59,6 +65,12 @@ final class SignatureHelper
     /**
      * Encrypts the signature using HMAC-SHA256.
      *
+     * <p>
+     * Each thread keeps its own {@link Mac} instance, which is only initialized again when it is asked to sign with a
+     * different key than the last time. Looking up the algorithm provider and expanding the key are much more
+     * expensive than signing the few bytes of a SAS token, and a device client signs with the same key every time.
+     * </p>
+     *
      * @param sig the unencrypted signature.
      * @param deviceKey the Base64-decoded device key.
      *
@@ -67,16 +79,10 @@ final class SignatureHelper
     public static byte[] encryptSignatureHmacSha256(byte[] sig,
             byte[] deviceKey)
     {
-        String hmacSha256 = "HmacSHA256";
-
-        SecretKeySpec secretKey = new SecretKeySpec(deviceKey, hmacSha256);
-
         byte[] encryptedSig = null;
         try
         {
-            Mac hMacSha256 = Mac.getInstance(hmacSha256);
-            hMacSha256.init(secretKey);
-            encryptedSig = hMacSha256.doFinal(sig);
+            encryptedSig = HMAC_SHA256.get().getMac(deviceKey).doFinal(sig);
         }
         catch (NoSuchAlgorithmException | InvalidKeyException e)
         {
@@ -140,6 +146,33 @@ final class SignatureHelper
         return strSig;
     }
 
+    /**
+     * A {@link Mac} that remembers the key it was initialized with. Only ever used by a single thread.
+     */
+    private static final class KeyedMac
+    {
+        private Mac mac;
+        private byte[] key;
+
+        Mac getMac(byte[] key) throws NoSuchAlgorithmException, InvalidKeyException
+        {
+            if (this.mac == null)
+            {
+                this.mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
+            }
+
+            if (!Arrays.equals(this.key, key))
+            {
+                // Forget the old key first, so that a failed init doesn't leave it paired with the wrong key
+                this.key = null;
+                this.mac.init(new SecretKeySpec(key, HMAC_SHA256_ALGORITHM));
+                this.key = key.clone();
+            }
+
+            return this.mac;
+        }
+    }
+
     @SuppressWarnings("unused")
     protected SignatureHelper()
     {
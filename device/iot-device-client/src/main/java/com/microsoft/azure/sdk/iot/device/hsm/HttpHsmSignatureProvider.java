@@ -9,6 +9,9 @@ import com.microsoft.azure.sdk.iot.device.auth.SignatureProvider;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.hsm.parser.SignRequest;
 import com.microsoft.azure.sdk.iot.device.hsm.parser.SignResponse;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.Mac;
@@ -16,6 +19,8 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a means to sign data for authentication purposes
@@ -28,6 +33,14 @@ public class HttpHsmSignatureProvider implements SignatureProvider
     private static final String DEFAULT_KEY_ID = "primary";
     private final Mac defaultSignRequestAlgo = Mac.getInstance(MAC);
 
+    // Signatures are cached briefly since the transports and the clients of the same module often ask for a token for
+    // the same expiry time at nearly the same moment, for instance when a module starts. Since the signed data holds
+    // the expiry time, a cached signature is never reused past the second it was requested in by much.
+    static final long SIGNATURE_CACHE_TTL_MILLISECONDS = 60 * 1000;
+    private static final int SIGNATURE_CACHE_MAXIMUM_SIZE = 64;
+
+    private final Map<SignatureCacheKey, CachedSignature> signatureCache = new ConcurrentHashMap<>();
+
     private final String apiVersion;
     private final HttpsHsmClient httpClient;
 
@@ -74,6 +87,14 @@ public class HttpHsmSignatureProvider implements SignatureProvider
             throw new IllegalArgumentException("Data cannot be null or empty");
         }
 
+        SignatureCacheKey cacheKey = new SignatureCacheKey(keyName, data, generationId);
+        CachedSignature cachedSignature = this.signatureCache.get(cacheKey);
+        if (cachedSignature != null && !cachedSignature.isExpired(System.currentTimeMillis()))
+        {
+            log.trace("Using cached signature for key {}", keyName);
+            return cachedSignature.getSignature();
+        }
+
         SignRequest signRequest = new SignRequest();
         signRequest.setAlgo(defaultSignRequestAlgo);
         signRequest.setData(data.getBytes(ENCODING_CHARSET));
@@ -81,6 +102,47 @@ public class HttpHsmSignatureProvider implements SignatureProvider
 
         SignResponse response = this.httpClient.sign(this.apiVersion, keyName, signRequest, generationId);
 
-        return URLEncoder.encode(response.getDigest(), ENCODING_CHARSET);
+        String signature = URLEncoder.encode(response.getDigest(), ENCODING_CHARSET);
+        cacheSignature(cacheKey, signature);
+        return signature;
+    }
+
+    private void cacheSignature(SignatureCacheKey cacheKey, String signature)
+    {
+        long currentTimeMillis = System.currentTimeMillis();
+        if (this.signatureCache.size() >= SIGNATURE_CACHE_MAXIMUM_SIZE)
+        {
+            this.signatureCache.values().removeIf(cachedSignature -> cachedSignature.isExpired(currentTimeMillis));
+
+            if (this.signatureCache.size() >= SIGNATURE_CACHE_MAXIMUM_SIZE)
+            {
+                // Every entry is still fresh, which only happens if many different keys sign at once
+                this.signatureCache.clear();
+            }
+        }
+
+        this.signatureCache.put(cacheKey, new CachedSignature(signature, currentTimeMillis + SIGNATURE_CACHE_TTL_MILLISECONDS));
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class SignatureCacheKey
+    {
+        private final String keyName;
+        private final String data;
+        private final String generationId;
+    }
+
+    @AllArgsConstructor
+    private static final class CachedSignature
+    {
+        @Getter
+        private final String signature;
+        private final long expiryTimeMillis;
+
+        boolean isExpired(long currentTimeMillis)
+        {
+            return currentTimeMillis >= this.expiryTimeMillis;
+        }
     }
 }
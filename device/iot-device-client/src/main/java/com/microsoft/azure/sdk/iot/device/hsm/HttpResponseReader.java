@@ -0,0 +1,326 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads HTTP/1.1 responses from a {@link UnixDomainSocketChannel}.
+ *
+ * <p>
+ * Unlike {@link HttpsRequestResponseSerializer#deserializeResponse(java.io.BufferedReader)}, which needs the whole
+ * connection to be read into memory before it can parse it, this reader only reads as many bytes as the response spans,
+ * using its Content-Length or chunked encoding. The connection can then be used for the next request. Any bytes read
+ * past the end of a response are kept for the next one.
+ * </p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class HttpResponseReader
+{
+    private static final int READ_CHUNK_SIZE = 4096;
+    private static final int MAXIMUM_HEADER_COUNT = 500;
+    private static final int MAXIMUM_LINE_LENGTH = 16 * 1024;
+    private static final int MAXIMUM_BODY_SIZE = 16 * 1024 * 1024;
+
+    private static final String CONTENT_LENGTH = "content-length";
+    private static final String TRANSFER_ENCODING = "transfer-encoding";
+    private static final String CONNECTION = "connection";
+
+    private final UnixDomainSocketChannel channel;
+    private final byte[] readChunk = new byte[READ_CHUNK_SIZE];
+
+    // Holds the bytes read from the channel that haven't been parsed yet, between its position and its limit
+    private ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+
+    /**
+     * A response read from the channel.
+     */
+    static final class Result
+    {
+        @Getter
+        private final HttpsResponse response;
+
+        /**
+         * True if the server may receive further requests on the same connection.
+         */
+        @Getter
+        private final boolean keepAlive;
+
+        private Result(HttpsResponse response, boolean keepAlive)
+        {
+            this.response = response;
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    HttpResponseReader(UnixDomainSocketChannel channel)
+    {
+        this.channel = channel;
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Forget any bytes left over from the previous connection.
+     */
+    void reset()
+    {
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Read the next response from the channel.
+     *
+     * @return the response, and whether the connection may be used again.
+     * @throws IOException if the channel cannot be read from, or if it doesn't hold a valid HTTP response.
+     */
+    Result readResponse() throws IOException
+    {
+        //  <version> <status code> <reason phrase>
+        String statusLine = readLine();
+        String[] statusLineParts = statusLine.split(" ", 3);
+        if (statusLineParts.length < 2 || !statusLineParts[0].startsWith("HTTP/"))
+        {
+            throw new IOException("Status line is not valid: " + statusLine);
+        }
+
+        int statusCode;
+        try
+        {
+            statusCode = Integer.parseInt(statusLineParts[1]);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("StatusCode is not valid " + statusLineParts[1] + ".");
+        }
+
+        String reasonPhrase = statusLineParts.length > 2 ? statusLineParts[2] : "";
+
+        Map<String, List<String>> headerFields = new HashMap<>();
+        String contentLength = null;
+        String transferEncoding = null;
+        String connection = null;
+        String header = readLine();
+        while (!header.isEmpty())
+        {
+            if (headerFields.size() >= MAXIMUM_HEADER_COUNT)
+            {
+                throw new IOException("HSM provided too many http headers");
+            }
+
+            int headerSeparatorPosition = header.indexOf(':');
+            if (headerSeparatorPosition <= 0)
+            {
+                throw new IOException("Header is invalid " + header + ".");
+            }
+
+            String headerName = header.substring(0, headerSeparatorPosition).trim();
+            String headerValue = header.substring(headerSeparatorPosition + 1).trim();
+            headerFields.computeIfAbsent(headerName, name -> new ArrayList<>()).add(headerValue);
+
+            switch (headerName.toLowerCase())
+            {
+                case CONTENT_LENGTH:
+                    contentLength = headerValue;
+                    break;
+                case TRANSFER_ENCODING:
+                    transferEncoding = headerValue;
+                    break;
+                case CONNECTION:
+                    connection = headerValue;
+                    break;
+                default:
+                    break;
+            }
+
+            header = readLine();
+        }
+
+        boolean keepAlive = connection == null || !connection.equalsIgnoreCase("close");
+        byte[] body;
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked"))
+        {
+            body = readChunkedBody();
+        }
+        else if (contentLength != null)
+        {
+            body = readBytes(parseLength(contentLength, 10));
+        }
+        else if (statusCode == 204 || statusCode == 304 || (statusCode >= 100 && statusCode < 200))
+        {
+            body = new byte[0];
+        }
+        else
+        {
+            // Without a length, the body ends when the server closes the connection
+            body = readUntilEndOfStream();
+            keepAlive = false;
+        }
+
+        HttpsResponse response = new HttpsResponse(statusCode, body, headerFields, reasonPhrase.getBytes(StandardCharsets.UTF_8));
+        return new Result(response, keepAlive);
+    }
+
+    private byte[] readChunkedBody() throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true)
+        {
+            // <size in hex>[;extensions]
+            String chunkHeader = readLine();
+            int extensionsStart = chunkHeader.indexOf(';');
+            int chunkSize = parseLength(extensionsStart >= 0 ? chunkHeader.substring(0, extensionsStart) : chunkHeader, 16);
+            if (chunkSize == 0)
+            {
+                // Skip the trailers, which end with an empty line
+                String trailer = readLine();
+                while (!trailer.isEmpty())
+                {
+                    trailer = readLine();
+                }
+
+                return body.toByteArray();
+            }
+
+            if (body.size() + chunkSize > MAXIMUM_BODY_SIZE)
+            {
+                throw new IOException("HSM response body is too large");
+            }
+
+            body.write(readBytes(chunkSize));
+            if (!readLine().isEmpty())
+            {
+                throw new IOException("HSM response chunk is not terminated by a line break");
+            }
+        }
+    }
+
+    private byte[] readBytes(int length) throws IOException
+    {
+        while (this.buffer.remaining() < length)
+        {
+            if (!fill())
+            {
+                throw new EOFException("Unix domain socket closed before the whole HSM response was read");
+            }
+        }
+
+        byte[] bytes = new byte[length];
+        this.buffer.get(bytes);
+        return bytes;
+    }
+
+    private byte[] readUntilEndOfStream() throws IOException
+    {
+        while (fill())
+        {
+            if (this.buffer.remaining() > MAXIMUM_BODY_SIZE)
+            {
+                throw new IOException("HSM response body is too large");
+            }
+        }
+
+        byte[] bytes = new byte[this.buffer.remaining()];
+        this.buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Read up to the next line break, which is consumed but not returned. Accepts a bare LF as a line break.
+     */
+    private String readLine() throws IOException
+    {
+        int searchStart = this.buffer.position();
+        while (true)
+        {
+            for (int i = searchStart; i < this.buffer.limit(); i++)
+            {
+                if (this.buffer.get(i) == '\n')
+                {
+                    int lineEnd = (i > this.buffer.position() && this.buffer.get(i - 1) == '\r') ? i - 1 : i;
+                    String line = new String(this.buffer.array(), this.buffer.position(), lineEnd - this.buffer.position(), StandardCharsets.US_ASCII);
+                    this.buffer.position(i + 1);
+                    return line;
+                }
+            }
+
+            if (this.buffer.remaining() > MAXIMUM_LINE_LENGTH)
+            {
+                throw new IOException("HSM response line is too long");
+            }
+
+            // fill() may move the unread bytes to the start of the buffer
+            int searchedBytes = this.buffer.remaining();
+            if (!fill())
+            {
+                throw new EOFException("Unix domain socket closed before the whole HSM response was read");
+            }
+
+            searchStart = this.buffer.position() + searchedBytes;
+        }
+    }
+
+    /**
+     * Append the next bytes read from the channel to the unread bytes of the buffer.
+     *
+     * @return false if the channel has no more bytes to read.
+     */
+    private boolean fill() throws IOException
+    {
+        int numRead = this.channel.read(this.readChunk);
+        if (numRead < 0)
+        {
+            return false;
+        }
+
+        if (this.buffer.capacity() - this.buffer.limit() < numRead)
+        {
+            // Move the unread bytes to the start of the buffer, growing it if they still wouldn't fit
+            int unread = this.buffer.remaining();
+            ByteBuffer target = this.buffer.capacity() >= unread + numRead
+                ? this.buffer
+                : ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, unread + numRead));
+            System.arraycopy(this.buffer.array(), this.buffer.position(), target.array(), 0, unread);
+            target.limit(unread);
+            target.position(0);
+            this.buffer = target;
+        }
+
+        int end = this.buffer.limit();
+        this.buffer.limit(end + numRead);
+        System.arraycopy(this.readChunk, 0, this.buffer.array(), end, numRead);
+        return true;
+    }
+
+    private static int parseLength(String length, int radix) throws IOException
+    {
+        int parsedLength;
+        try
+        {
+            parsedLength = Integer.parseInt(length.trim(), radix);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IOException("HSM response has an invalid length " + length);
+        }
+
+        if (parsedLength < 0 || parsedLength > MAXIMUM_BODY_SIZE)
+        {
+            throw new IOException("HSM response has an invalid length " + length);
+        }
+
+        return parsedLength;
+    }
+}
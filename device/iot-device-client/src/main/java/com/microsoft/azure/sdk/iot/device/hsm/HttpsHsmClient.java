@@ -10,16 +10,14 @@ import com.microsoft.azure.sdk.iot.device.hsm.parser.ErrorResponse;
 import com.microsoft.azure.sdk.iot.device.hsm.parser.SignRequest;
 import com.microsoft.azure.sdk.iot.device.hsm.parser.SignResponse;
 import com.microsoft.azure.sdk.iot.device.hsm.parser.TrustBundleResponse;
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpTransportEngine;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsMethod;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsRequest;
 import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import com.microsoft.azure.sdk.iot.device.transport.https.PooledHttpTransportEngine;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.qpid.proton.reactor.impl.IO;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -31,6 +29,12 @@ public class HttpsHsmClient
     private final String scheme;
     private final UnixDomainSocketChannel unixDomainSocketChannel;
 
+    // Created by the first request sent over unix domain sockets, and kept open between requests
+    private UnixDomainSocketHttpConnection unixDomainSocketConnection;
+
+    // Workload API requests are sent to the same host throughout the lifetime of the module, so they share connections
+    private final HttpTransportEngine transportEngine = new PooledHttpTransportEngine();
+
     private static final String HTTPS_SCHEME = "https";
     private static final String HTTP_SCHEME = "http";
     private static final String UNIX_SCHEME = "unix";
@@ -192,11 +196,11 @@ public class HttpsHsmClient
         HttpsResponse response;
         if (this.scheme.equalsIgnoreCase(HTTPS_SCHEME))
         {
-            response = httpsRequest.send();
+            response = httpsRequest.setTransportEngine(this.transportEngine).send();
         }
         else if (this.scheme.equalsIgnoreCase(HTTP_SCHEME))
         {
-            response = httpsRequest.sendAsHttpRequest();
+            response = httpsRequest.setTransportEngine(this.transportEngine).sendAsHttpRequest();
         }
         else if (this.scheme.equalsIgnoreCase(UNIX_SCHEME))
         {
@@ -223,7 +227,7 @@ public class HttpsHsmClient
     }
 
     /**
-     * Send an HTTP request over a unix domain socket
+     * Send an HTTP request over a unix domain socket. The connection is kept open for the requests that follow.
      * @param httpsRequest the request to send
      * @return the response from the HSM unit
      * @throws IOException If the unix domain socket cannot be reached
@@ -232,69 +236,26 @@ public class HttpsHsmClient
     {
         log.debug("Sending data over unix domain socket");
 
-        HttpsResponse response;
-        try
-        {
-            //write to socket
-            byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress);
-            unixDomainSocketChannel.open(unixSocketAddress);
-
-            if (httpsRequest.getBody() != null)
-            {
-                //append http request body to the request bytes
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                outputStream.write(requestBytes);
-                outputStream.write(httpsRequest.getBody());
-
-                log.trace("Writing {} bytes to unix domain socket", outputStream.size());
-                unixDomainSocketChannel.write(outputStream.toByteArray());
-            }
-            else
-            {
-                log.trace("Writing {} bytes to unix domain socket", requestBytes.length);
-                unixDomainSocketChannel.write(requestBytes);
-            }
-
-            //read response
-            String responseString = readResponseFromChannel(unixDomainSocketChannel);
-            response = HttpsRequestResponseSerializer.deserializeResponse(new BufferedReader(new StringReader(responseString)));
-        }
-        finally
+        byte[] requestBytes = HttpsRequestResponseSerializer.serializeRequest(httpsRequest, httpRequestPath, httpRequestQueryString, unixSocketAddress, true);
+        if (httpsRequest.getBody() != null && httpsRequest.getBody().length > 0)
         {
-            log.trace("Closing unix domain socket");
-            unixDomainSocketChannel.close();
+            //append http request body to the request bytes
+            byte[] body = httpsRequest.getBody();
+            int headerLength = requestBytes.length;
+            requestBytes = Arrays.copyOf(requestBytes, headerLength + body.length);
+            System.arraycopy(body, 0, requestBytes, headerLength, body.length);
         }
 
-        return response;
+        return getUnixDomainSocketConnection(unixSocketAddress).send(requestBytes);
     }
 
-    private String readResponseFromChannel(UnixDomainSocketChannel channel) throws IOException
+    private synchronized UnixDomainSocketHttpConnection getUnixDomainSocketConnection(String unixSocketAddress)
     {
-        log.debug("Reading response from unix domain socket");
-
-        byte[] buf = new byte[400];
-        StringBuilder responseStringBuilder = new StringBuilder();
-        int numRead = channel.read(buf);
-
-        // keep reading from the unix domain socket in chunks until no more bytes are read
-        while (numRead >= 0)
+        if (this.unixDomainSocketConnection == null)
         {
-            log.trace("Read {} bytes from unix domain socket", numRead);
-
-            // buf may not be filled completely, so take the subArray of bytes sized equal to numRead
-            String readChunk = new String(Arrays.copyOfRange(buf, 0, numRead), StandardCharsets.US_ASCII);
-            log.trace("Read chunk of data from unix domain socket:");
-            log.trace("{}", readChunk);
-            responseStringBuilder.append(readChunk);
-
-            // Read bytes from the channel
-            numRead = channel.read(buf);
+            this.unixDomainSocketConnection = new UnixDomainSocketHttpConnection(this.unixDomainSocketChannel, unixSocketAddress);
         }
 
-        String response = responseStringBuilder.toString();
-        log.debug("Read response from unix domain socket channel");
-        log.debug("{}", response);
-
-        return response;
+        return this.unixDomainSocketConnection;
     }
 }
@@ -36,6 +36,22 @@ class HttpsRequestResponseSerializer
      * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
      */
     public static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host) throws IllegalArgumentException
+    {
+        return serializeRequest(httpsRequest, path, queryString, host, false);
+    }
+
+    /**
+     * Serialize the provided request
+     *
+     * @param httpsRequest the request to be serialized
+     * @param path the path for the request to invoke on (e.g. /trust-bundle)
+     * @param queryString the full querystring associated with the http request. Should not include the '?' character at the beginning
+     * @param host the host that the request is being made to
+     * @param keepAlive if true, the HSM is asked to keep the connection open after responding, otherwise to close it
+     * @return the serialized request
+     * @throws IllegalArgumentException if the provided httpsRequest is null or has a null request url
+     */
+    static byte[] serializeRequest(HttpsRequest httpsRequest, String path, String queryString, String host, boolean keepAlive) throws IllegalArgumentException
     {
         if (httpsRequest == null)
         {
@@ -58,7 +74,7 @@ class HttpsRequestResponseSerializer
         // <header>: <value>
         // <header>: <value1>; <value2>
 
-        httpsRequest.setHeaderField("Connection", "close");
+        httpsRequest.setHeaderField("Connection", keepAlive ? "keep-alive" : "close");
 
         String updatedPath = preProcessRequestPath(path);
 
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * A keep-alive HTTP/1.1 connection to the HSM over a {@link UnixDomainSocketChannel}.
+ *
+ * <p>
+ * The unix domain socket is opened by the first request and kept open for the requests that follow, so that a burst
+ * of sign requests, such as the ones sent while a module starts, doesn't pay for a new connection each. Requests from
+ * concurrent threads are sent one after the other over the same connection, since implementations of
+ * {@link UnixDomainSocketChannel} aren't required to support reading and writing from different threads at once.
+ * </p>
+ *
+ * <p>
+ * The HSM may close a connection that has been idle for a while. Connections that have been idle for longer than
+ * {@link #MAXIMUM_IDLE_MILLISECONDS} are therefore not reused, and a request that fails on a reused connection is sent
+ * again once over a new one. Only idempotent requests, such as sign and trust bundle requests, may be sent this way.
+ * </p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+@Slf4j
+final class UnixDomainSocketHttpConnection
+{
+    static final long MAXIMUM_IDLE_MILLISECONDS = 30 * 1000;
+
+    private final UnixDomainSocketChannel channel;
+    private final String address;
+    private final HttpResponseReader responseReader;
+
+    private boolean isOpen;
+    private long lastUsedTimeMillis;
+
+    UnixDomainSocketHttpConnection(UnixDomainSocketChannel channel, String address)
+    {
+        this.channel = channel;
+        this.address = address;
+        this.responseReader = new HttpResponseReader(channel);
+    }
+
+    /**
+     * Send a request over the connection, opening it first if needed, and read its response.
+     *
+     * @param request the serialized request, including its body.
+     * @return the response to the request.
+     * @throws IOException if the request could not be sent, or its response could not be read.
+     */
+    synchronized HttpsResponse send(byte[] request) throws IOException
+    {
+        if (this.isOpen && System.currentTimeMillis() - this.lastUsedTimeMillis > MAXIMUM_IDLE_MILLISECONDS)
+        {
+            log.trace("Closing idle unix domain socket connection to HSM");
+            close();
+        }
+
+        if (this.isOpen)
+        {
+            try
+            {
+                return sendOverOpenConnection(request);
+            }
+            catch (IOException e)
+            {
+                // The HSM may have closed the connection since it was last used
+                log.debug("Failed to send request over reused unix domain socket connection to HSM, retrying over a new connection", e);
+                close();
+            }
+        }
+
+        open();
+        try
+        {
+            return sendOverOpenConnection(request);
+        }
+        catch (IOException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the connection, if it is open. The next request opens a new one.
+     */
+    synchronized void close()
+    {
+        if (!this.isOpen)
+        {
+            return;
+        }
+
+        this.isOpen = false;
+        log.trace("Closing unix domain socket");
+        try
+        {
+            this.channel.close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to close unix domain socket connection to HSM", e);
+        }
+    }
+
+    private void open() throws IOException
+    {
+        log.trace("Opening unix domain socket connection to HSM");
+        this.channel.open(this.address);
+        this.responseReader.reset();
+        this.isOpen = true;
+    }
+
+    private HttpsResponse sendOverOpenConnection(byte[] request) throws IOException
+    {
+        log.trace("Writing {} bytes to unix domain socket", request.length);
+        this.channel.write(request);
+
+        HttpResponseReader.Result result = this.responseReader.readResponse();
+        this.lastUsedTimeMillis = System.currentTimeMillis();
+        if (!result.isKeepAlive())
+        {
+            close();
+        }
+
+        return result.getResponse();
+    }
+}
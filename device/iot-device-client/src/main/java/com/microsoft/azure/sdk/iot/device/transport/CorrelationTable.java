@@ -0,0 +1,214 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.CorrelatingMessageCallback;
+import com.microsoft.azure.sdk.iot.device.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the requests that are waiting on a correlated response from the service, such as twin requests, so that
+ * their {@link CorrelatingMessageCallback} can be notified as the request and its response move through the transport.
+ *
+ * <p>
+ * Each request has a deadline. Requests that get no response before their deadline are removed by
+ * {@link #removeExpired(long)} so that their callback can be told that the response timed out, rather than being kept
+ * forever. The table also holds at most a fixed number of requests. Once it is full, registering a request evicts the
+ * oldest one, which is treated as timed out as well.
+ * </p>
+ *
+ * <p>
+ * This class is thread safe. It never invokes the callbacks itself, so callers can do that without holding its lock.
+ * </p>
+ */
+final class CorrelationTable
+{
+    private final int maxEntries;
+
+    // In registration order, so the eldest entry is the first one to evict when the table is full
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    // No entry can have expired before this time, which lets most calls to removeExpired return without a scan
+    private long earliestDeadlineNanos = Long.MAX_VALUE;
+
+    /**
+     * A request that is waiting on its response.
+     */
+    static final class Entry
+    {
+        final String correlationId;
+        final Message request;
+        final CorrelatingMessageCallback callback;
+        final Object callbackContext;
+        final long deadlineNanos;
+
+        // Set once the response has been received, after which the entry is only kept until the response is acknowledged
+        private volatile boolean responseReceived;
+
+        // Set once the entry is no longer tracked, after which its callback isn't notified of anything else
+        private volatile boolean removed;
+
+        private Entry(String correlationId, Message request, CorrelatingMessageCallback callback, Object callbackContext, long deadlineNanos)
+        {
+            this.correlationId = correlationId;
+            this.request = request;
+            this.callback = callback;
+            this.callbackContext = callbackContext;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean isRemoved()
+        {
+            return this.removed;
+        }
+    }
+
+    /**
+     * @param maxEntries the most requests that can be waiting on a response at once.
+     */
+    CorrelationTable(int maxEntries)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Start tracking a request. If a request with the same correlation id is already tracked, for instance because it
+     * is being resent after a reconnection, then that request's entry is kept as it is.
+     *
+     * @param request the request message. Its correlation id and correlating message callback must be set.
+     * @param timeoutNanos how long to wait for the response to the request.
+     * @param nowNanos the current {@link System#nanoTime()}.
+     * @param evictedEntries the entries that were evicted to make room for this one, and whose response was never
+     * received, are added to this list.
+     * @return the entry for the request.
+     */
+    synchronized Entry register(Message request, long timeoutNanos, long nowNanos, List<Entry> evictedEntries)
+    {
+        String correlationId = request.getCorrelationId();
+        Entry entry = this.entries.get(correlationId);
+        if (entry != null)
+        {
+            return entry;
+        }
+
+        Iterator<Entry> eldestEntries = this.entries.values().iterator();
+        while (this.entries.size() >= this.maxEntries && eldestEntries.hasNext())
+        {
+            Entry evictedEntry = eldestEntries.next();
+            eldestEntries.remove();
+            evictedEntry.removed = true;
+            if (!evictedEntry.responseReceived)
+            {
+                evictedEntries.add(evictedEntry);
+            }
+        }
+
+        entry = new Entry(
+            correlationId,
+            request,
+            request.getCorrelatingMessageCallback(),
+            request.getCorrelatingMessageCallbackContext(),
+            nowNanos + timeoutNanos);
+
+        this.entries.put(correlationId, entry);
+        if (entry.deadlineNanos - this.earliestDeadlineNanos < 0 || this.earliestDeadlineNanos == Long.MAX_VALUE)
+        {
+            this.earliestDeadlineNanos = entry.deadlineNanos;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Mark the request with the given correlation id as having received its response.
+     *
+     * @param correlationId the correlation id of the response.
+     * @return the entry for the request, or null if no request with that correlation id is tracked.
+     */
+    synchronized Entry onResponseReceived(String correlationId)
+    {
+        Entry entry = this.entries.get(correlationId);
+        if (entry != null)
+        {
+            entry.responseReceived = true;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Stop tracking the request with the given correlation id.
+     *
+     * @param correlationId the correlation id of the request.
+     * @return the entry for the request, or null if no request with that correlation id is tracked.
+     */
+    synchronized Entry remove(String correlationId)
+    {
+        Entry entry = this.entries.remove(correlationId);
+        if (entry != null)
+        {
+            entry.removed = true;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Stop tracking all requests whose deadline has passed.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}.
+     * @return the expired entries whose response was never received. Expired entries that did receive their response
+     * are dropped without being returned.
+     */
+    synchronized List<Entry> removeExpired(long nowNanos)
+    {
+        if (this.entries.isEmpty() || nowNanos - this.earliestDeadlineNanos < 0)
+        {
+            return Collections.emptyList();
+        }
+
+        List<Entry> expiredEntries = new ArrayList<>();
+        long nextEarliestDeadlineNanos = Long.MAX_VALUE;
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while (iterator.hasNext())
+        {
+            Entry entry = iterator.next();
+            if (nowNanos - entry.deadlineNanos >= 0)
+            {
+                iterator.remove();
+                entry.removed = true;
+                if (!entry.responseReceived)
+                {
+                    expiredEntries.add(entry);
+                }
+            }
+            else if (nextEarliestDeadlineNanos == Long.MAX_VALUE || entry.deadlineNanos - nextEarliestDeadlineNanos < 0)
+            {
+                nextEarliestDeadlineNanos = entry.deadlineNanos;
+            }
+        }
+
+        this.earliestDeadlineNanos = nextEarliestDeadlineNanos;
+        return expiredEntries;
+    }
+
+    /**
+     * @return the number of requests that are currently tracked.
+     */
+    synchronized int size()
+    {
+        return this.entries.size();
+    }
+}
@@ -32,6 +32,12 @@ public class IotHubTransport implements IotHubListener
 {
     private static final int DEFAULT_MAX_MESSAGES_TO_SEND_PER_THREAD = 10;
 
+    // The most requests that can be waiting on a correlated response at once, across all devices using this transport
+    private static final int MAX_OUTSTANDING_CORRELATED_REQUESTS = 10000;
+
+    // Only used if the device that sent a correlated request has no config, such as after it was unregistered
+    private static final long DEFAULT_CORRELATED_REQUEST_TIMEOUT_MILLISECONDS = 4 * 60 * 1000;
+
     // For tracking the state of this layer in particular. If multiplexing, this value may be CONNECTED while a
     // device specific state is DISCONNECTED_RETRYING. If this state is DISCONNECTED_RETRYING, then the multiplexed
     // connection will be completely torn down and re-opened.
@@ -107,9 +113,11 @@ public class IotHubTransport implements IotHubListener
     // Flag set when close() starts. Acts as a signal to any running reconnection logic to not try again.
     private boolean isClosing;
 
-    // Used to store the CorrelationCallbackMessage for a correlationId
-    private final Map<String, CorrelatingMessageCallback> correlationCallbacks = new ConcurrentHashMap<>();
-    private final Map<String, Object> correlationCallbackContexts = new ConcurrentHashMap<>();
+    // Requests that are waiting on a correlated response, along with their CorrelatingMessageCallback
+    private final CorrelationTable correlationTable = new CorrelationTable(MAX_OUTSTANDING_CORRELATED_REQUESTS);
+
+    // Where the timings of messages, queues and reconnections are reported. Multiplexed connections don't report them.
+    private final ClientMetrics metrics;
 
     /**
      * Constructor for an IotHubTransport object with default values
@@ -137,6 +145,7 @@ public class IotHubTransport implements IotHubListener
 
         this.deviceIOConnectionStatusChangeCallback = deviceIOConnectionStatusChangeCallback;
         this.keepAliveInterval = defaultConfig.getKeepAliveInterval();
+        this.metrics = defaultConfig.getClientMetrics() != null ? defaultConfig.getClientMetrics() : NoOpClientMetrics.INSTANCE;
     }
 
     public IotHubTransport(
@@ -155,6 +164,7 @@ public class IotHubTransport implements IotHubListener
         this.deviceIOConnectionStatusChangeCallback = deviceIOConnectionStatusChangeCallback;
         this.isMultiplexing = true;
         this.keepAliveInterval = keepAliveInterval;
+        this.metrics = NoOpClientMetrics.INSTANCE;
     }
 
     public Object getSendThreadLock()
@@ -221,6 +231,7 @@ public class IotHubTransport implements IotHubListener
             if (e == null)
             {
                 log.trace("Message was sent by this client, adding it to callbacks queue with OK ({})", message);
+                this.metrics.onMessageAcknowledged(message.getMessageType(), System.nanoTime() - packet.getSentNanos());
                 packet.setStatus(IotHubStatusCode.OK);
                 this.addToCallbackQueue(packet);
             }
@@ -231,19 +242,11 @@ public class IotHubTransport implements IotHubListener
 
             try
             {
-                String correlationId = message.getCorrelationId();
-
-                if (!correlationId.isEmpty())
+                CorrelationTable.Entry correlationEntry = packet.getCorrelationEntry();
+                if (correlationEntry != null && !correlationEntry.isRemoved())
                 {
-                    CorrelatingMessageCallback callback = correlationCallbacks.get(correlationId);
-
-                    if (callback != null)
-                    {
-                        Object context = correlationCallbackContexts.get(correlationId);
-                        callback.onRequestAcknowledged(packet.getMessage(), context, e);
-                    }
+                    correlationEntry.callback.onRequestAcknowledged(packet.getMessage(), correlationEntry.callbackContext, e);
                 }
-
             }
             catch (Exception ex)
             {
@@ -280,12 +283,10 @@ public class IotHubTransport implements IotHubListener
                 String correlationId = message.getCorrelationId();
                 if (!correlationId.isEmpty())
                 {
-                    CorrelatingMessageCallback callback = correlationCallbacks.get(correlationId);
-
-                    if (callback != null)
+                    CorrelationTable.Entry correlationEntry = this.correlationTable.onResponseReceived(correlationId);
+                    if (correlationEntry != null)
                     {
-                        Object context = correlationCallbackContexts.get(correlationId);
-                        callback.onResponseReceived(message, context, e);
+                        correlationEntry.callback.onResponseReceived(message, correlationEntry.callbackContext, e);
                     }
                 }
             }
@@ -580,21 +581,17 @@ public class IotHubTransport implements IotHubListener
 
                 if (message != null && this.isMessageValid(packet))
                 {
+                    long sentNanos = System.nanoTime();
+                    this.metrics.onMessageQueueWait(message.getMessageType(), sentNanos - packet.getQueuedNanos());
+                    packet.setSentNanos(sentNanos);
                     sendPacket(packet);
 
                     try
                     {
-                        String correlationId = message.getCorrelationId();
-
-                        if (!correlationId.isEmpty())
+                        CorrelationTable.Entry correlationEntry = packet.getCorrelationEntry();
+                        if (correlationEntry != null && !correlationEntry.isRemoved())
                         {
-                            CorrelatingMessageCallback callback = correlationCallbacks.get(correlationId);
-
-                            if (callback != null)
-                            {
-                                Object context = correlationCallbackContexts.get(correlationId);
-                                callback.onRequestSent(message, context);
-                            }
+                            correlationEntry.callback.onRequestSent(message, correlationEntry.callbackContext);
                         }
                     }
                     catch (Exception e)
@@ -624,6 +621,10 @@ public class IotHubTransport implements IotHubListener
 
     private void checkForExpiredMessages()
     {
+        // Count the messages of each type that are left in the queues while checking them
+        int[] waitingCounts = new int[MessageType.values().length];
+        int[] inFlightCounts = new int[MessageType.values().length];
+
         //Check waiting packets, remove any that have expired.
         IotHubTransportPacket packet = this.waitingPacketsQueue.poll();
         Queue<IotHubTransportPacket> packetsToAddBackIntoWaitingPacketsQueue = new LinkedBlockingQueue<>();
@@ -631,6 +632,7 @@ public class IotHubTransport implements IotHubListener
         {
             if (packet.getMessage().isExpired())
             {
+                this.metrics.onMessageExpired(packet.getMessage().getMessageType(), MessageExpiryReason.EXPIRED_WHILE_QUEUED);
                 packet.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
                 this.addToCallbackQueue(packet);
             }
@@ -638,6 +640,7 @@ public class IotHubTransport implements IotHubListener
             {
                 //message not expired, requeue it
                 packetsToAddBackIntoWaitingPacketsQueue.add(packet);
+                waitingCounts[messageTypeIndex(packet.getMessage())]++;
             }
 
             packet = this.waitingPacketsQueue.poll();
@@ -652,19 +655,77 @@ public class IotHubTransport implements IotHubListener
             List<String> expiredPacketMessageIds = new ArrayList<>();
             for (String messageId : this.inProgressPackets.keySet())
             {
-                if (this.inProgressPackets.get(messageId).getMessage().isExpired())
+                Message inProgressMessage = this.inProgressPackets.get(messageId).getMessage();
+                if (inProgressMessage.isExpired())
                 {
                     expiredPacketMessageIds.add(messageId);
                 }
+                else
+                {
+                    inFlightCounts[messageTypeIndex(inProgressMessage)]++;
+                }
             }
 
             for (String messageId : expiredPacketMessageIds)
             {
                 IotHubTransportPacket expiredPacket = this.inProgressPackets.remove(messageId);
+                this.metrics.onMessageExpired(expiredPacket.getMessage().getMessageType(), MessageExpiryReason.EXPIRED_WHILE_IN_FLIGHT);
                 expiredPacket.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
                 this.addToCallbackQueue(expiredPacket);
             }
         }
+
+        for (MessageType messageType : MessageType.values())
+        {
+            this.metrics.onQueueDepth(messageType, waitingCounts[messageType.ordinal()], inFlightCounts[messageType.ordinal()]);
+        }
+
+        //Stop waiting on any correlated responses that didn't arrive in time
+        this.notifyCorrelatedResponsesTimedOut(this.correlationTable.removeExpired(System.nanoTime()), MessageExpiryReason.RESPONSE_TIMEOUT);
+    }
+
+    private static int messageTypeIndex(Message message)
+    {
+        MessageType messageType = message.getMessageType();
+        return messageType == null ? MessageType.UNKNOWN.ordinal() : messageType.ordinal();
+    }
+
+    private long getCorrelatedRequestTimeoutMillis(String deviceId)
+    {
+        ClientConfiguration config = this.getConfig(deviceId);
+        if (config == null)
+        {
+            config = this.getDefaultConfig();
+        }
+
+        return config != null ? config.getOperationTimeout() : DEFAULT_CORRELATED_REQUEST_TIMEOUT_MILLISECONDS;
+    }
+
+    private void notifyCorrelatedResponsesTimedOut(List<CorrelationTable.Entry> timedOutEntries, MessageExpiryReason reason)
+    {
+        for (CorrelationTable.Entry timedOutEntry : timedOutEntries)
+        {
+            this.metrics.onMessageExpired(timedOutEntry.request.getMessageType(), reason);
+            log.warn("No response was received for the request with correlation id {} in time, so it has been abandoned ({})", timedOutEntry.correlationId, timedOutEntry.request);
+
+            try
+            {
+                timedOutEntry.callback.onResponseTimedOut(timedOutEntry.request, timedOutEntry.callbackContext);
+            }
+            catch (Exception e)
+            {
+                log.warn("Exception thrown while calling the onResponseTimedOut callback", e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests, such as twin requests, that have been queued to this transport and are still
+     * waiting on their response from the service.
+     */
+    public int getOutstandingRequestCount()
+    {
+        return this.correlationTable.size();
     }
 
     /**
@@ -963,12 +1024,11 @@ public class IotHubTransport implements IotHubListener
                     String correlationId = receivedMessage.getCorrelationId();
                     if (!correlationId.isEmpty())
                     {
-                        CorrelatingMessageCallback callback = correlationCallbacks.get(correlationId);
-
-                        if (callback != null)
+                        // The response has been fully handled, so the request no longer needs to be tracked
+                        CorrelationTable.Entry correlationEntry = this.correlationTable.remove(correlationId);
+                        if (correlationEntry != null)
                         {
-                            Object context = correlationCallbackContexts.get(correlationId);
-                            callback.onResponseAcknowledged(receivedMessage, context);
+                            correlationEntry.callback.onResponseAcknowledged(receivedMessage, correlationEntry.callbackContext);
                         }
                     }
                 }
@@ -1006,12 +1066,10 @@ public class IotHubTransport implements IotHubListener
                 String correlationId = transportMessage.getCorrelationId();
                 if (!correlationId.isEmpty())
                 {
-                    CorrelatingMessageCallback callback = correlationCallbacks.get(correlationId);
-
-                    if (callback != null)
+                    CorrelationTable.Entry correlationEntry = this.correlationTable.onResponseReceived(correlationId);
+                    if (correlationEntry != null)
                     {
-                        Object context = correlationCallbackContexts.get(correlationId);
-                        callback.onResponseReceived(transportMessage, context, null);
+                        correlationEntry.callback.onResponseReceived(transportMessage, correlationEntry.callbackContext, null);
                     }
                 }
             }
@@ -1211,6 +1269,7 @@ public class IotHubTransport implements IotHubListener
     private void reconnect(TransportException transportException)
     {
         long reconnectionStartTimeMillis = System.currentTimeMillis();
+        long reconnectionStartTimeNanos = System.nanoTime();
         int reconnectionAttempts = 0;
 
         boolean hasReconnectOperationTimedOut = this.hasOperationTimedOut(reconnectionStartTimeMillis);
@@ -1275,6 +1334,11 @@ public class IotHubTransport implements IotHubListener
             log.error("Reconnection was abandoned due to encountering a non-retryable exception", transportException);
             this.close(this.exceptionToStatusChangeReason(transportException), transportException);
         }
+
+        this.metrics.onReconnectCompleted(
+            System.nanoTime() - reconnectionStartTimeNanos,
+            reconnectionAttempts,
+            this.connectionStatus == IotHubConnectionStatus.CONNECTED);
     }
 
     //For reconnecting multiplexed devices only. Since this triggers asynchronous functions in the AMQP layer, there
@@ -1345,6 +1409,7 @@ public class IotHubTransport implements IotHubListener
         @Override
         public void run()
         {
+            this.transportPacket.setQueuedNanos(System.nanoTime());
             this.waitingPacketsQueue.add(this.transportPacket);
 
             // Wake up send messages thread so that it can send this message
@@ -1382,6 +1447,7 @@ public class IotHubTransport implements IotHubListener
                 RetryDecision retryDecision = config.getRetryPolicy().getRetryDecision(packet.getCurrentRetryAttempt(), transportException);
                 if (retryDecision.shouldRetry())
                 {
+                    this.metrics.onMessageRetried(packet.getMessage().getMessageType(), packet.getCurrentRetryAttempt());
                     this.taskScheduler.schedule(new MessageRetryRunnable(this.waitingPacketsQueue, packet, this.sendThreadLock), retryDecision.getDuration(), MILLISECONDS);
                     return;
                 }
@@ -1398,6 +1464,7 @@ public class IotHubTransport implements IotHubListener
         else
         {
             log.warn("The device operation timeout has been exceeded for the message, so it has been abandoned ({})", packet.getMessage(), transportException);
+            this.metrics.onMessageExpired(packet.getMessage().getMessageType(), MessageExpiryReason.OPERATION_TIMEOUT);
         }
 
         IotHubStatusCode errorCode = (transportException instanceof IotHubServiceException) ?
@@ -1480,6 +1547,7 @@ public class IotHubTransport implements IotHubListener
         if (message.isExpired())
         {
             log.warn("Message with has expired, adding to callbacks queue with MESSAGE_EXPIRED ({})", message);
+            this.metrics.onMessageExpired(message.getMessageType(), MessageExpiryReason.EXPIRED_WHILE_QUEUED);
             packet.setStatus(IotHubStatusCode.MESSAGE_EXPIRED);
             this.addToCallbackQueue(packet);
             return false;
@@ -1691,17 +1759,18 @@ public class IotHubTransport implements IotHubListener
                 Message message = packet.getMessage();
                 if (message != null)
                 {
-                    String correlationId = message.getCorrelationId();
-                    CorrelatingMessageCallback correlationCallback = message.getCorrelatingMessageCallback();
-                    if (!correlationId.isEmpty() && correlationCallback != null)
+                    if (!message.getCorrelationId().isEmpty() && message.getCorrelatingMessageCallback() != null)
                     {
-                        correlationCallbacks.put(correlationId, correlationCallback);
-                        Object correlationCallbackContext = message.getCorrelatingMessageCallbackContext();
-                        if (correlationCallbackContext != null)
-                        {
-                            correlationCallbackContexts.put(correlationId, correlationCallbackContext);
-                        }
-                        correlationCallback.onRequestQueued(message, correlationCallbackContext);
+                        List<CorrelationTable.Entry> evictedCorrelationEntries = new ArrayList<>();
+                        CorrelationTable.Entry correlationEntry = this.correlationTable.register(
+                            message,
+                            MILLISECONDS.toNanos(this.getCorrelatedRequestTimeoutMillis(packet.getDeviceId())),
+                            System.nanoTime(),
+                            evictedCorrelationEntries);
+
+                        packet.setCorrelationEntry(correlationEntry);
+                        this.notifyCorrelatedResponsesTimedOut(evictedCorrelationEntries, MessageExpiryReason.RESPONSE_EVICTED);
+                        correlationEntry.callback.onRequestQueued(message, correlationEntry.callbackContext);
                     }
                 }
             }
@@ -1713,6 +1782,7 @@ public class IotHubTransport implements IotHubListener
 
         synchronized (this.sendThreadLock)
         {
+            packet.setQueuedNanos(System.nanoTime());
             this.waitingPacketsQueue.add(packet);
 
             // Wake up IotHubSendTask so it can send this message
@@ -21,6 +21,13 @@ public final class IotHubTransportPacket
     private int currentRetryAttempt;
     private final String deviceId;
 
+    // The correlation table entry of this packet's message, if the message is a request that expects a correlated response
+    private CorrelationTable.Entry correlationEntry;
+
+    // The System.nanoTime() when this packet was last added to the waiting queue, and when it was last sent
+    private long queuedNanos;
+    private long sentNanos;
+
     /**
      * Constructor.
      *
@@ -140,4 +147,34 @@ public final class IotHubTransportPacket
     {
         return deviceId;
     }
+
+    CorrelationTable.Entry getCorrelationEntry()
+    {
+        return this.correlationEntry;
+    }
+
+    void setCorrelationEntry(CorrelationTable.Entry correlationEntry)
+    {
+        this.correlationEntry = correlationEntry;
+    }
+
+    long getQueuedNanos()
+    {
+        return this.queuedNanos;
+    }
+
+    void setQueuedNanos(long queuedNanos)
+    {
+        this.queuedNanos = queuedNanos;
+    }
+
+    long getSentNanos()
+    {
+        return this.sentNanos;
+    }
+
+    void setSentNanos(long sentNanos)
+    {
+        this.sentNanos = sentNanos;
+    }
 }
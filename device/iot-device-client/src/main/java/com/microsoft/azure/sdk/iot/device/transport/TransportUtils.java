@@ -5,6 +5,8 @@ package com.microsoft.azure.sdk.iot.device.transport;
 
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 
+import java.nio.ByteBuffer;
+
 public class TransportUtils
 {
     public static final String IOTHUB_API_VERSION = "2020-09-30";
@@ -31,4 +33,32 @@ public class TransportUtils
         transportException.setIotHubService(service);
         throw transportException;
     }
+
+    /**
+     * Returns the remaining bytes of the provided buffer as a byte array. When the buffer exactly wraps an accessible
+     * heap array, as it does for messages built from a byte array, that array is returned as is rather than copied.
+     * Otherwise, for instance for direct, read only or sliced buffers, the bytes are copied once.
+     *
+     * @param buffer the buffer to read. Its position is not modified.
+     * @return the remaining bytes of the buffer, or null if the buffer is null.
+     */
+    public static byte[] toByteArray(ByteBuffer buffer)
+    {
+        if (buffer == null)
+        {
+            return null;
+        }
+
+        if (buffer.hasArray()
+            && buffer.arrayOffset() == 0
+            && buffer.position() == 0
+            && buffer.remaining() == buffer.array().length)
+        {
+            return buffer.array();
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
 }
@@ -113,6 +113,9 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
 
     private final Map<IotHubTransportMessage, IotHubMessageResult> queuedAcknowledgements = new ConcurrentHashMap<>();
 
+    // Where the time taken to send each message on its link is reported. Multiplexed connections don't report it.
+    private final ClientMetrics metrics;
+
     public AmqpsIotHubConnection(ClientConfiguration config, String transportUniqueIdentifier)
     {
         // This allows us to create thread safe sets despite there being no such type default in Java 7 or 8
@@ -145,6 +148,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         this.isMultiplexing = false;
 
         this.keepAliveInterval = config.getKeepAliveInterval();
+        this.metrics = config.getClientMetrics() != null ? config.getClientMetrics() : NoOpClientMetrics.INSTANCE;
 
         this.state = IotHubConnectionStatus.DISCONNECTED;
         log.trace("AmqpsIotHubConnection object is created successfully and will use port {}", this.isWebsocketConnection ? WEB_SOCKET_PORT : AMQP_PORT);
@@ -170,6 +174,7 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
         add(new Handshaker());
 
         this.isMultiplexing = true; // This constructor is only ever called when multiplexing
+        this.metrics = NoOpClientMetrics.INSTANCE;
 
         this.state = IotHubConnectionStatus.DISCONNECTED;
         log.trace("AmqpsIotHubConnection object is created successfully and will use port {}", this.isWebsocketConnection ? WEB_SOCKET_PORT : AMQP_PORT);
@@ -990,7 +995,14 @@ public final class AmqpsIotHubConnection extends BaseHandler implements IotHubTr
             return SendResult.WRONG_DEVICE;
         }
 
-        return sessionHandler.sendMessage(message);
+        long sendStartNanos = System.nanoTime();
+        SendResult sendResult = sessionHandler.sendMessage(message);
+        if (sendResult == SendResult.SUCCESS)
+        {
+            this.metrics.onMessageWritten(message.getMessageType(), System.nanoTime() - sendStartNanos);
+        }
+
+        return sendResult;
     }
 
     private Reactor createReactor() throws TransportException
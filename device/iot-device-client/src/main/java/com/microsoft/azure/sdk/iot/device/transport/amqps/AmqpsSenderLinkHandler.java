@@ -28,6 +28,7 @@ import org.apache.qpid.proton.engine.Sender;
 import org.apache.qpid.proton.message.impl.MessageImpl;
 
 import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -313,7 +314,19 @@ abstract class AmqpsSenderLinkHandler extends BaseHandler
         MessageAnnotations messageAnnotations = new MessageAnnotations(messageAnnotationsMap);
         outgoingMessage.setMessageAnnotations(messageAnnotations);
 
-        Binary binary = new Binary(message.getBytes());
+        // Binary can reference a region of an existing array, so heap backed bodies (including slices of larger
+        // arrays) are not copied here. Direct buffers have no accessible array and have to be copied once.
+        ByteBuffer body = message.getBodyBuffer();
+        Binary binary;
+        if (body != null && body.hasArray())
+        {
+            binary = new Binary(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        }
+        else
+        {
+            binary = new Binary(body == null ? new byte[0] : TransportUtils.toByteArray(body));
+        }
+
         Section section = new Data(binary);
         outgoingMessage.setBody(section);
         return outgoingMessage;
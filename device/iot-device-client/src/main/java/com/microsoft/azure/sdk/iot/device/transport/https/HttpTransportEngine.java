@@ -0,0 +1,37 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+
+/**
+ * Sends {@link HttpsRequest}s over the network. All HTTP requests made by the device HTTPS transport, including file
+ * upload and module method invocation requests, and by the Edge workload HTTP client go through an engine.
+ *
+ * <p>
+ * Implementations must be thread safe, and are expected to keep connections alive between requests so that
+ * consecutive requests to the same host do not each pay for a new TCP connection and TLS handshake.
+ * </p>
+ *
+ * @see PooledHttpTransportEngine
+ */
+public interface HttpTransportEngine
+{
+    /**
+     * Send the provided request and wait for its response.
+     *
+     * @param request the request to send.
+     * @param isHttps if true, the request must be sent over TLS. Otherwise it is sent as a plain HTTP request, which
+     * is only allowed to localhost.
+     * @return the response to the request.
+     * @throws TransportException if the connection could not be established, or the request could not be sent or its
+     * response could not be read.
+     */
+    HttpsResponse send(HttpsRequest request, boolean isHttps) throws TransportException;
+
+    /**
+     * @return a snapshot of the connection usage of this engine since it was created.
+     */
+    HttpTransportStatistics getStatistics();
+}
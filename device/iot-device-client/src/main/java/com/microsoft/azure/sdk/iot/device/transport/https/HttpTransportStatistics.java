@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A snapshot of how an {@link HttpTransportEngine} has used its connections.
+ */
+@Getter
+@AllArgsConstructor
+public final class HttpTransportStatistics
+{
+    /**
+     * The number of requests sent, whether or not they received a response.
+     */
+    private final long requestCount;
+
+    /**
+     * The number of TLS connections opened. Plain HTTP connections are not counted.
+     */
+    private final long connectionCount;
+
+    /**
+     * The number of completed TLS handshakes, including abbreviated handshakes that resumed a cached session.
+     */
+    private final long handshakeCount;
+
+    /**
+     * @return the fraction, between 0 and 1, of requests that were sent over an already open connection rather than
+     * a newly opened one. If no requests have been sent, this is 0.
+     */
+    public double getConnectionReuseRatio()
+    {
+        if (this.requestCount == 0)
+        {
+            return 0;
+        }
+
+        return Math.max(0, this.requestCount - this.connectionCount) / (double) this.requestCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("requests: %d, connections: %d, handshakes: %d, connection reuse ratio: %.2f",
+            this.requestCount, this.connectionCount, this.handshakeCount, getConnectionReuseRatio());
+    }
+}
@@ -0,0 +1,251 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.MessageProperty;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Encodes HTTPS messages into batched IoT Hub request bodies, each a JSON array no larger than a given size.
+ *
+ * <p>
+ * Message bodies are base64 encoded and written, along with their properties, straight into a byte buffer that is
+ * kept between calls, so encoding a batch does not build any intermediate strings. The size of the batch is tracked
+ * as each message is written, and a new batch is started whenever the next message would not fit in the current one.
+ * </p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class HttpsBatchEncoder
+{
+    private static final byte[] BODY_PREFIX = "{\"body\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BASE64_ENCODED_SUFFIX = "\",\"base64Encoded\":true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PROPERTIES_PREFIX = ",\"properties\":{".getBytes(StandardCharsets.US_ASCII);
+
+    private final int maxBatchSizeInBytes;
+    private final BatchBuffer buffer = new BatchBuffer();
+
+    /**
+     * @param maxBatchSizeInBytes the largest size, in bytes, of a single encoded batch.
+     */
+    HttpsBatchEncoder(int maxBatchSizeInBytes)
+    {
+        this.maxBatchSizeInBytes = maxBatchSizeInBytes;
+    }
+
+    /**
+     * Encodes the provided messages into as few batches as possible while keeping their order.
+     *
+     * @param messages the messages to encode.
+     * @return the encoded batches. An empty list of messages is encoded as a single empty batch.
+     * @throws IotHubSizeExceededException if a single message is too large to fit in a batch on its own.
+     */
+    List<HttpsBatchMessage> encode(List<HttpsSingleMessage> messages) throws IotHubSizeExceededException
+    {
+        List<HttpsBatchMessage> batches = new ArrayList<>();
+
+        this.buffer.reset();
+        this.buffer.write('[');
+        int messagesInBatch = 0;
+
+        for (HttpsSingleMessage message : messages)
+        {
+            int messageStart = this.buffer.size();
+            if (messagesInBatch > 0)
+            {
+                this.buffer.write(',');
+            }
+
+            writeMessage(message);
+
+            // + 1 for the closing bracket of the array
+            if (this.buffer.size() + 1 > this.maxBatchSizeInBytes)
+            {
+                if (messagesInBatch == 0)
+                {
+                    String errMsg = String.format("Service-bound message size (%d bytes) cannot exceed %d bytes.",
+                        this.buffer.size() + 1, this.maxBatchSizeInBytes);
+                    throw new IotHubSizeExceededException(errMsg);
+                }
+
+                // Close the batch before this message, then start the next batch with this message, dropping the
+                // separating comma that was written ahead of it
+                int separatorLength = 1;
+                batches.add(finishBatch(messageStart, messagesInBatch));
+                this.buffer.moveToNewBatch(messageStart + separatorLength);
+                messagesInBatch = 0;
+
+                if (this.buffer.size() + 1 > this.maxBatchSizeInBytes)
+                {
+                    String errMsg = String.format("Service-bound message size (%d bytes) cannot exceed %d bytes.",
+                        this.buffer.size() + 1, this.maxBatchSizeInBytes);
+                    throw new IotHubSizeExceededException(errMsg);
+                }
+            }
+
+            messagesInBatch++;
+        }
+
+        batches.add(finishBatch(this.buffer.size(), messagesInBatch));
+        return batches;
+    }
+
+    private HttpsBatchMessage finishBatch(int batchEnd, int messagesInBatch)
+    {
+        byte[] body = Arrays.copyOf(this.buffer.array(), batchEnd + 1);
+        body[batchEnd] = ']';
+        return new HttpsBatchMessage(body, messagesInBatch);
+    }
+
+    private void writeMessage(HttpsSingleMessage message)
+    {
+        this.buffer.write(BODY_PREFIX, 0, BODY_PREFIX.length);
+
+        byte[] body = message.getBody();
+        if (body != null && body.length > 0)
+        {
+            // The base64 stream encodes in small chunks directly into the batch buffer. Closing it flushes the final
+            // padded chunk, and closing a ByteArrayOutputStream does nothing.
+            try (OutputStream base64Stream = Base64.getEncoder().wrap(this.buffer))
+            {
+                base64Stream.write(body);
+            }
+            catch (IOException e)
+            {
+                // Writes to an in memory buffer do not throw
+                throw new IllegalStateException(e);
+            }
+        }
+
+        this.buffer.write(BASE64_ENCODED_SUFFIX, 0, BASE64_ENCODED_SUFFIX.length);
+
+        boolean hasProperties = false;
+        MessageProperty[] properties = message.getProperties();
+        Map<String, String> systemProperties = message.getSystemProperties();
+        if (systemProperties != null)
+        {
+            // System and application properties share the same json object. As in the json built before this
+            // encoder existed, an application property replaces a system property of the same name rather than
+            // producing a duplicate key.
+            Set<String> propertyNames = new HashSet<>();
+            if (properties != null)
+            {
+                for (MessageProperty property : properties)
+                {
+                    propertyNames.add(property.getName());
+                }
+            }
+
+            for (Map.Entry<String, String> systemProperty : systemProperties.entrySet())
+            {
+                if (!propertyNames.contains(systemProperty.getKey()))
+                {
+                    hasProperties = writeProperty(hasProperties, systemProperty.getKey(), systemProperty.getValue());
+                }
+            }
+        }
+
+        if (properties != null)
+        {
+            for (MessageProperty property : properties)
+            {
+                hasProperties = writeProperty(hasProperties, property.getName(), property.getValue());
+            }
+        }
+
+        if (hasProperties)
+        {
+            this.buffer.write('}');
+        }
+
+        this.buffer.write('}');
+    }
+
+    private boolean writeProperty(boolean hasProperties, String name, String value)
+    {
+        if (hasProperties)
+        {
+            this.buffer.write(',');
+        }
+        else
+        {
+            this.buffer.write(PROPERTIES_PREFIX, 0, PROPERTIES_PREFIX.length);
+        }
+
+        writeJsonString(name);
+        this.buffer.write(':');
+        writeJsonString(value);
+        return true;
+    }
+
+    private void writeJsonString(String value)
+    {
+        this.buffer.write('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                this.buffer.write('\\');
+                this.buffer.write(c);
+            }
+            else if (c < 0x20)
+            {
+                byte[] escaped = String.format("\\u%04x", (int) c).getBytes(StandardCharsets.US_ASCII);
+                this.buffer.write(escaped, 0, escaped.length);
+            }
+            else if (c < 0x80)
+            {
+                this.buffer.write(c);
+            }
+            else
+            {
+                // Property values are almost always ASCII, so only fall back to the charset encoder for the rare
+                // characters that aren't, keeping surrogate pairs together
+                int end = Character.isHighSurrogate(c) && i + 1 < value.length() ? i + 2 : i + 1;
+                byte[] encoded = value.substring(i, end).getBytes(StandardCharsets.UTF_8);
+                this.buffer.write(encoded, 0, encoded.length);
+                i = end - 1;
+            }
+        }
+        this.buffer.write('"');
+    }
+
+    /**
+     * A byte buffer whose backing array can be read without copying, and whose trailing bytes can be moved to the
+     * start of the buffer when a new batch is started.
+     */
+    private static final class BatchBuffer extends ByteArrayOutputStream
+    {
+        private BatchBuffer()
+        {
+            super(4096);
+        }
+
+        private byte[] array()
+        {
+            return this.buf;
+        }
+
+        private void moveToNewBatch(int from)
+        {
+            int length = this.count - from;
+            this.buf[0] = '[';
+            System.arraycopy(this.buf, from, this.buf, 1, length);
+            this.count = length + 1;
+        }
+    }
+}
@@ -6,23 +6,20 @@ package com.microsoft.azure.sdk.iot.device.transport.https;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
 
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.apache.commons.codec.binary.Base64.encodeBase64String;
-
 
 /**
- * Builds a batched IoT Hub request body as a JSON array. The batched message
- * has a maximum size of 256 kb.
+ * A batched IoT Hub request body, as a JSON array. The batched message
+ * has a maximum size of 256 kb. Batches are built by {@link HttpsBatchEncoder},
+ * which splits lists of messages that don't fit in a single batch.
  */
 final class HttpsBatchMessage implements HttpsMessage
 {
     // Note: this limit is defined by the IoT Hub.
-    private static final int SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES = 255 * 1024 - 1;
+    static final int SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES = 255 * 1024 - 1;
 
     /**
      * The value for the "content-type" header field in a batched HTTPS
@@ -30,53 +27,35 @@ final class HttpsBatchMessage implements HttpsMessage
      */
     private static final String HTTPS_BATCH_CONTENT_TYPE = "application/vnd.microsoft.iothub.json";
 
-    /**
-     * The charset used to encode IoT Hub messages. The server will interpret
-     * the JSON array using UTF-8 by default according to RFC4627.
-     */
-    private static final Charset BATCH_CHARSET = StandardCharsets.UTF_8;
-
-    private static final String BASE_ENCODED_KEY = "\"base64Encoded\"";
-    private static final String BODY = "\"body\"";
-    private static final String KEY_VALUE_SEPARATOR = ":";
-    private static final String PROPERTIES = "\"properties\"";
+    /** The batched message body, UTF-8 encoded. */
+    private final byte[] batchBody;
 
-    /** The current batched message body. */
-    private final String batchBody;
-
-    /** The current number of messages in the batch. */
-    private int numMsgs;
+    /** The number of messages in the batch. */
+    private final int numMsgs;
 
+    /**
+     * Creates a single batch holding all of the provided messages.
+     *
+     * @param messageList the messages to batch.
+     * @throws IotHubSizeExceededException if the messages do not fit in a single batch.
+     */
     public HttpsBatchMessage(List<HttpsSingleMessage> messageList) throws IotHubSizeExceededException
     {
-        StringBuilder batchBodyBuilder = new StringBuilder();
-        batchBodyBuilder.append('[');
-
-        boolean isSubsequentMessage = false;
-        for (HttpsSingleMessage message : messageList)
+        List<HttpsBatchMessage> batches = new HttpsBatchEncoder(SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES).encode(messageList);
+        if (batches.size() > 1)
         {
-            if (isSubsequentMessage)
-            {
-                batchBodyBuilder.append(','); // comma to separate each object in the json array
-            }
-
-            addJsonToStringBuilder(message, batchBodyBuilder);
-            this.numMsgs++;
-            isSubsequentMessage = true; // the next message, and all subsequent messages, will need a comma before them
+            throw new IotHubSizeExceededException(String.format("Service-bound messages do not fit in a single batch of %d bytes.",
+                SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES));
         }
 
-        batchBodyBuilder.append(']');
-
-        this.batchBody = batchBodyBuilder.toString();
-
-        byte[] newBatchBodyBytes = this.batchBody.getBytes(BATCH_CHARSET);
+        this.batchBody = batches.get(0).batchBody;
+        this.numMsgs = batches.get(0).numMsgs;
+    }
 
-        if (newBatchBodyBytes.length > SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES)
-        {
-            String errMsg = String.format("Service-bound message size (%d bytes) cannot exceed %d bytes.",
-                newBatchBodyBytes.length, SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
-            throw new IotHubSizeExceededException(errMsg);
-        }
+    HttpsBatchMessage(byte[] batchBody, int numMsgs)
+    {
+        this.batchBody = batchBody;
+        this.numMsgs = numMsgs;
     }
 
     /**
@@ -86,7 +65,7 @@ final class HttpsBatchMessage implements HttpsMessage
      */
     public byte[] getBody()
     {
-        return this.batchBody.getBytes(BATCH_CHARSET);
+        return this.batchBody;
     }
 
     /**
@@ -129,44 +108,4 @@ final class HttpsBatchMessage implements HttpsMessage
     {
         return this.numMsgs;
     }
-
-    /**
-     * Converts a service-bound message to a JSON object with the correct
-     * format.
-     *
-     * @param msg the message to be converted to a corresponding JSON object.
-     */
-    private static void addJsonToStringBuilder(HttpsSingleMessage msg, StringBuilder jsonStringBuilder)
-    {
-        jsonStringBuilder.append('{' + BODY + KEY_VALUE_SEPARATOR);
-        jsonStringBuilder.append('\"').append(encodeBase64String(msg.getBody())).append("\",");
-        jsonStringBuilder.append(BASE_ENCODED_KEY + KEY_VALUE_SEPARATOR);
-        jsonStringBuilder.append(true);
-        MessageProperty[] properties = msg.getProperties();
-        Map<String, String> allProperties = new HashMap<>(msg.getSystemProperties());
-        for (MessageProperty p : properties)
-        {
-            allProperties.put(p.getName(), p.getValue());
-        }
-
-        int numProperties = allProperties.size();
-        if (numProperties > 0)
-        {
-            jsonStringBuilder.append(',');
-            jsonStringBuilder.append(PROPERTIES + KEY_VALUE_SEPARATOR);
-            jsonStringBuilder.append('{');
-            for (String key : allProperties.keySet())
-            {
-                jsonStringBuilder.append('\"').append(key).append("\":");
-                jsonStringBuilder.append('\"').append(allProperties.get(key)).append("\",");
-            }
-
-            //remove last trailing comma
-            jsonStringBuilder.deleteCharAt(jsonStringBuilder.length()-1);
-
-            jsonStringBuilder.append('}');
-        }
-
-        jsonStringBuilder.append('}');
-    }
 }
@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.transport.HttpProxySocketFactory;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.*;
@@ -373,16 +374,33 @@ public class HttpsConnection
         {
             throw new IllegalArgumentException("SSL context cannot be null");
         }
+
+        if (this.proxySettings != null)
+        {
+            setSSLSocketFactory(new HttpProxySocketFactory(sslContext.getSocketFactory(), proxySettings));
+        }
+        else
+        {
+            setSSLSocketFactory(sslContext.getSocketFactory());
+        }
+    }
+
+    /**
+     * Sets the socket factory used to open the TLS connection. Connections kept alive by the JDK are only reused by
+     * requests that use the same socket factory instance.
+     *
+     * @param socketFactory the socket factory, which must already handle any proxy settings.
+     */
+    void setSSLSocketFactory(SSLSocketFactory socketFactory) throws IllegalArgumentException
+    {
+        if (socketFactory == null)
+        {
+            throw new IllegalArgumentException("SSL socket factory cannot be null");
+        }
+
         if (this.connection instanceof HttpsURLConnection)
         {
-            if (this.proxySettings != null)
-            {
-                ((HttpsURLConnection)this.connection).setSSLSocketFactory(new HttpProxySocketFactory(sslContext.getSocketFactory(), proxySettings));
-            }
-            else
-            {
-                ((HttpsURLConnection)this.connection).setSSLSocketFactory(sslContext.getSocketFactory());
-            }
+            ((HttpsURLConnection)this.connection).setSSLSocketFactory(socketFactory);
         }
         else
         {
@@ -17,9 +17,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * An HTTPS connection between a device and an IoT Hub. Contains functionality
@@ -51,6 +53,16 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
      */
     private final Map<Message, String> messageToETagMap = new HashMap<>();
 
+    /**
+     * The number of nested messages of each split batch that the service has already accepted, for batches whose
+     * later requests failed. The transport layer retries the whole batch message, so the accepted messages are skipped
+     * on the retry rather than delivered again. Weak keys, since a batch that is never retried is never removed.
+     */
+    private final Map<BatchMessage, Integer> acceptedBatchMessageCounts = new WeakHashMap<>();
+
+    /** Encodes batch messages. Its buffer is reused across sends, which are serialized by HTTPS_CONNECTION_LOCK. */
+    private final HttpsBatchEncoder batchEncoder = new HttpsBatchEncoder(HttpsBatchMessage.SERVICEBOUND_MESSAGE_MAX_SIZE_BYTES);
+
     /**
      * Constructs an instance from the given {@link ClientConfiguration}
      * object.
@@ -78,19 +90,29 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
     {
         synchronized (HTTPS_CONNECTION_LOCK)
         {
-            // Here we check if it's a bulk message and serialize it.
-            HttpsMessage httpsMessage;
+            // Here we check if it's a bulk message and serialize it. Batches that are too large for a single request
+            // are split into as many requests as needed, sent one after the other over the same connection.
+            List<? extends HttpsMessage> httpsMessages;
+            int previouslyAcceptedMessageCount = 0;
 
             if (message instanceof BatchMessage)
             {
                 try
                 {
+                    List<Message> nestedMessages = ((BatchMessage) message).getNestedMessages();
+                    previouslyAcceptedMessageCount = this.acceptedBatchMessageCounts.getOrDefault(message, 0);
+                    if (previouslyAcceptedMessageCount > 0)
+                    {
+                        log.debug("Resending the {} of {} messages of batch message ({}) that were not accepted by the previous attempt",
+                            nestedMessages.size() - previouslyAcceptedMessageCount, nestedMessages.size(), message);
+                    }
+
                     List<HttpsSingleMessage> httpsMessageList = new ArrayList<>();
-                    for (Message msg : ((BatchMessage)message).getNestedMessages())
+                    for (Message msg : nestedMessages.subList(previouslyAcceptedMessageCount, nestedMessages.size()))
                     {
                         httpsMessageList.add(HttpsSingleMessage.parseHttpsMessage(msg));
                     }
-                    httpsMessage = new HttpsBatchMessage(httpsMessageList);
+                    httpsMessages = this.batchEncoder.encode(httpsMessageList);
                 }
                 catch (IotHubSizeExceededException e)
                 {
@@ -99,7 +121,7 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
             }
             else
             {
-                httpsMessage = HttpsSingleMessage.parseHttpsMessage(message);
+                httpsMessages = Collections.singletonList(HttpsSingleMessage.parseHttpsMessage(message));
             }
 
             String iotHubHostname = getHostName();
@@ -110,49 +132,46 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
 
             URL eventUrl = this.buildUrlFromString(HTTPS_HEAD_TAG + iotHubEventUri.toString());
 
-            HttpsRequest request = new HttpsRequest(eventUrl, HttpsMethod.POST, httpsMessage.getBody(), this.config.getProductInfo().getUserAgentString(), config.getProxySettings());
-
-            for (MessageProperty property : httpsMessage.getProperties())
+            IotHubStatusCode status = IotHubStatusCode.OK;
+            int acceptedMessageCount = previouslyAcceptedMessageCount;
+            byte[] body = null;
+            long requestStartNanos = System.nanoTime();
+            for (HttpsMessage httpsMessage : httpsMessages)
             {
-                request.setHeaderField(property.getName(),
-                        property.getValue());
-            }
+                body = httpsMessage.getBody();
+                HttpsRequest request = buildEventRequest(eventUrl, iotHubEventUri, message, httpsMessage, body);
 
-            if (message.getContentEncoding() != null)
-            {
-                request.setHeaderField(MessageProperty.IOTHUB_CONTENT_ENCODING, message.getContentEncoding());
-            }
+                log.trace("Sending message using http request ({})", message);
+                HttpsResponse response = this.sendRequest(request);
+                status = IotHubStatusCode.getIotHubStatusCode(response.getStatus());
+                log.trace("Iot Hub responded to http message for iot hub message ({}) with status code {}", message, status);
 
-            if (message.getContentType() != null)
-            {
-                request.setHeaderField(MessageProperty.IOTHUB_CONTENT_TYPE, message.getContentType());
-            }
+                if (status != IotHubStatusCode.OK)
+                {
+                    // Stop at the first failed request. The transport layer retries the whole message, so remember
+                    // how many messages of a split batch were accepted so that only the rest are sent again.
+                    if (message instanceof BatchMessage && acceptedMessageCount > 0)
+                    {
+                        this.acceptedBatchMessageCounts.put((BatchMessage) message, acceptedMessageCount);
+                    }
 
-            if (message.getCreationTimeUTC() != null)
-            {
-                request.setHeaderField(MessageProperty.IOTHUB_CREATION_TIME_UTC, message.getCreationTimeUTCString());
-            }
+                    break;
+                }
 
-            if (message.isSecurityMessage())
-            {
-                request.setHeaderField(MessageProperty.IOTHUB_SECURITY_INTERFACE_ID, MessageProperty.IOTHUB_SECURITY_INTERFACE_ID_VALUE);
+                if (httpsMessage instanceof HttpsBatchMessage)
+                {
+                    acceptedMessageCount += ((HttpsBatchMessage) httpsMessage).numMessages();
+                }
             }
 
-            Map<String, String> systemProperties = httpsMessage.getSystemProperties();
-            for (String systemProperty : systemProperties.keySet())
+            if (status == IotHubStatusCode.OK && message instanceof BatchMessage)
             {
-                request.setHeaderField(systemProperty, systemProperties.get(systemProperty));
+                this.acceptedBatchMessageCounts.remove(message);
             }
 
-            request.setHeaderField(HTTPS_PROPERTY_IOTHUB_TO_TAG, iotHubEventUri.getPath())
-                    .setHeaderField(HTTPS_PROPERTY_CONTENT_TYPE_TAG, httpsMessage.getContentType());
-
-            log.trace("Sending message using http request ({})", message);
-            HttpsResponse response = this.sendRequest(request);
-            IotHubStatusCode status = IotHubStatusCode.getIotHubStatusCode(response.getStatus());
-            log.trace("Iot Hub responded to http message for iot hub message ({}) with status code {}", message, status);
+            this.config.getClientMetrics().onMessageWritten(message.getMessageType(), System.nanoTime() - requestStartNanos);
 
-            IotHubTransportMessage transportMessage = new IotHubTransportMessage(httpsMessage.getBody(), message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
+            IotHubTransportMessage transportMessage = new IotHubTransportMessage(body, message.getMessageType(), message.getMessageId(), message.getCorrelationId(), message.getProperties());
             if (status == IotHubStatusCode.OK)
             {
                 this.listener.onMessageSent(transportMessage, this.config.getDeviceId(), null);
@@ -165,6 +184,48 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
         }
     }
 
+    private HttpsRequest buildEventRequest(URL eventUrl, IotHubEventUri iotHubEventUri, Message message, HttpsMessage httpsMessage, byte[] body)
+    {
+        HttpsRequest request = new HttpsRequest(eventUrl, HttpsMethod.POST, body, this.config.getProductInfo().getUserAgentString(), config.getProxySettings());
+
+        for (MessageProperty property : httpsMessage.getProperties())
+        {
+            request.setHeaderField(property.getName(),
+                    property.getValue());
+        }
+
+        if (message.getContentEncoding() != null)
+        {
+            request.setHeaderField(MessageProperty.IOTHUB_CONTENT_ENCODING, message.getContentEncoding());
+        }
+
+        if (message.getContentType() != null)
+        {
+            request.setHeaderField(MessageProperty.IOTHUB_CONTENT_TYPE, message.getContentType());
+        }
+
+        if (message.getCreationTimeUTC() != null)
+        {
+            request.setHeaderField(MessageProperty.IOTHUB_CREATION_TIME_UTC, message.getCreationTimeUTCString());
+        }
+
+        if (message.isSecurityMessage())
+        {
+            request.setHeaderField(MessageProperty.IOTHUB_SECURITY_INTERFACE_ID, MessageProperty.IOTHUB_SECURITY_INTERFACE_ID_VALUE);
+        }
+
+        Map<String, String> systemProperties = httpsMessage.getSystemProperties();
+        for (String systemProperty : systemProperties.keySet())
+        {
+            request.setHeaderField(systemProperty, systemProperties.get(systemProperty));
+        }
+
+        request.setHeaderField(HTTPS_PROPERTY_IOTHUB_TO_TAG, iotHubEventUri.getPath())
+                .setHeaderField(HTTPS_PROPERTY_CONTENT_TYPE_TAG, httpsMessage.getContentType());
+
+        return request;
+    }
+
     /**
      * Sends an generic https message.
      *
@@ -283,7 +344,8 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
     @Override
     public void close()
     {
-        //Dummy call
+        // There is no connection to close, the transport engine keeps connections alive for the next requests
+        log.debug("HTTPS transport engine statistics: {}", this.config.getHttpTransportEngine().getStatistics());
     }
 
     /**
@@ -400,6 +462,7 @@ public class HttpsIotHubConnection implements IotHubTransportConnection
         }
 
         request.setSSLContext(this.getSSLContext());
+        request.setTransportEngine(this.config.getHttpTransportEngine());
 
         return request.send();
     }
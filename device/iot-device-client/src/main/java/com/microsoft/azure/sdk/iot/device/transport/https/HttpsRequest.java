@@ -9,6 +9,7 @@ import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import javax.net.ssl.SSLContext;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,10 @@ public class HttpsRequest
     private int connectTimeout;
     private SSLContext sslContext;
     private ProxySettings proxySettings;
+    private HttpTransportEngine transportEngine;
+
+    // Used by requests that were not given an engine, so that they still share kept alive connections
+    private static final HttpTransportEngine DEFAULT_TRANSPORT_ENGINE = new PooledHttpTransportEngine();
 
     /**
      * Constructor. Takes a URL as an argument and returns an HTTPS request that
@@ -127,49 +132,8 @@ public class HttpsRequest
             throw new IllegalArgumentException("url cannot be null");
         }
 
-        HttpsConnection connection = new HttpsConnection(url, method, this.proxySettings, isHttps);
-
-        for (String headerKey : headers.keySet())
-        {
-            for (String headerValue : this.headers.get(headerKey))
-            {
-                connection.setRequestHeader(headerKey, headerValue);
-            }
-        }
-
-        connection.writeOutput(this.body);
-
-        if (this.sslContext != null && isHttps)
-        {
-            connection.setSSLContext(this.sslContext);
-        }
-
-        if (this.readTimeout != 0)
-        {
-            connection.setReadTimeout(this.readTimeout);
-        }
-
-        if (this.connectTimeout != 0)
-        {
-            connection.setConnectTimeout(this.connectTimeout);
-        }
-
-        int responseStatus;
-        byte[] responseBody = new byte[0];
-        byte[] errorReason = new byte[0];
-        Map<String, List<String>> headerFields;
-
-        connection.connect();
-
-        responseStatus = connection.getResponseStatus();
-        headerFields = connection.getResponseHeaders();
-
-        if (responseStatus == 200)
-        {
-            responseBody = connection.readInput();
-        }
-
-        return new HttpsResponse(responseStatus, responseBody, headerFields, errorReason);
+        HttpTransportEngine engine = this.transportEngine != null ? this.transportEngine : DEFAULT_TRANSPORT_ENGINE;
+        return engine.send(this, isHttps);
     }
 
     /**
@@ -242,6 +206,25 @@ public class HttpsRequest
         return this;
     }
 
+    /**
+     * Sets the engine that sends this request. If not set, the request is sent by an engine shared by all requests
+     * that were not given one.
+     * @param transportEngine the engine to send this request with.
+     * @return itself, for fluent setting.
+     * @throws IllegalArgumentException if transportEngine is null
+     */
+    public HttpsRequest setTransportEngine(HttpTransportEngine transportEngine) throws IllegalArgumentException
+    {
+        if (transportEngine == null)
+        {
+            throw new IllegalArgumentException("Transport engine cannot be null");
+        }
+
+        this.transportEngine = transportEngine;
+
+        return this;
+    }
+
     public byte[] getBody()
     {
         return this.body;
@@ -257,6 +240,39 @@ public class HttpsRequest
         return this.method.toString();
     }
 
+    public HttpsMethod getHttpsMethod()
+    {
+        return this.method;
+    }
+
+    /**
+     * @return the header fields of this request, each with all of its values.
+     */
+    public Map<String, List<String>> getHeaderFields()
+    {
+        return Collections.unmodifiableMap(this.headers);
+    }
+
+    public int getReadTimeout()
+    {
+        return this.readTimeout;
+    }
+
+    public int getConnectTimeout()
+    {
+        return this.connectTimeout;
+    }
+
+    public SSLContext getSSLContext()
+    {
+        return this.sslContext;
+    }
+
+    public ProxySettings getProxySettings()
+    {
+        return this.proxySettings;
+    }
+
     public String getRequestHeaders()
     {
         StringBuilder headerString = new StringBuilder();
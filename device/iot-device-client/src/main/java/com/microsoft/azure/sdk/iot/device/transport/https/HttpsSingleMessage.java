@@ -5,6 +5,7 @@ package com.microsoft.azure.sdk.iot.device.transport.https;
 
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageProperty;
+import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -76,8 +77,9 @@ final class HttpsSingleMessage implements HttpsMessage
 
     private static void parser(HttpsSingleMessage httpsMsg, Message message)
     {
-        byte[] msgBody = message.getBytes();
-        httpsMsg.body = Arrays.copyOf(msgBody, msgBody.length);
+        // getBody() hands out copies, so the message body only needs to be copied here when it isn't already a plain
+        // byte array
+        httpsMsg.body = TransportUtils.toByteArray(message.getBodyBuffer());
 
         MessageProperty[] msgProperties = message.getProperties();
         httpsMsg.properties = new MessageProperty[msgProperties.length];
@@ -0,0 +1,253 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.ProxySettings;
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.HttpProxySocketFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default {@link HttpTransportEngine}. Requests are sent with {@link HttpsConnection}, whose underlying
+ * connections are kept alive and pooled per host by the JDK.
+ *
+ * <p>
+ * The JDK only hands a pooled TLS connection to a request that uses the very same {@link SSLSocketFactory} instance
+ * that opened it, and only returns a connection to the pool once its response has been fully read. This engine keeps
+ * one socket factory per {@link SSLContext} and proxy settings, rather than one per request, and always reads the
+ * response or error body to the end, so that consecutive requests to the same host share a single TLS connection.
+ * The size of the pool is controlled by the JDK's {@code http.maxConnections} system property.
+ * </p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+@Slf4j
+public final class PooledHttpTransportEngine implements HttpTransportEngine
+{
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong connectionCount = new AtomicLong();
+    private final AtomicLong handshakeCount = new AtomicLong();
+
+    // A client sends requests to IoT hub and to Azure Storage, which use different SSLContexts, through the same engine,
+    // so a socket factory is kept for each of the few SSLContexts in use. The least recently used factories are dropped
+    // so that SSLContexts that were replaced, for instance on certificate renewal, are not held on to.
+    private static final int MAX_CACHED_SOCKET_FACTORIES = 4;
+
+    private final Map<SocketFactoryKey, SSLSocketFactory> socketFactories =
+        new LinkedHashMap<SocketFactoryKey, SSLSocketFactory>(MAX_CACHED_SOCKET_FACTORIES * 2, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SocketFactoryKey, SSLSocketFactory> eldest)
+            {
+                return size() > MAX_CACHED_SOCKET_FACTORIES;
+            }
+        };
+
+    @Override
+    public HttpsResponse send(HttpsRequest request, boolean isHttps) throws TransportException
+    {
+        if (request.getRequestUrl() == null)
+        {
+            throw new IllegalArgumentException("url cannot be null");
+        }
+
+        HttpsConnection connection = new HttpsConnection(request.getRequestUrl(), request.getHttpsMethod(), request.getProxySettings(), isHttps);
+
+        for (Map.Entry<String, List<String>> header : request.getHeaderFields().entrySet())
+        {
+            for (String headerValue : header.getValue())
+            {
+                connection.setRequestHeader(header.getKey(), headerValue);
+            }
+        }
+
+        connection.writeOutput(request.getBody());
+
+        if (request.getSSLContext() != null && isHttps)
+        {
+            connection.setSSLSocketFactory(getSocketFactory(request.getSSLContext(), request.getProxySettings()));
+        }
+
+        if (request.getReadTimeout() != 0)
+        {
+            connection.setReadTimeout(request.getReadTimeout());
+        }
+
+        if (request.getConnectTimeout() != 0)
+        {
+            connection.setConnectTimeout(request.getConnectTimeout());
+        }
+
+        this.requestCount.incrementAndGet();
+        connection.connect();
+
+        int responseStatus = connection.getResponseStatus();
+        Map<String, List<String>> headerFields = connection.getResponseHeaders();
+
+        byte[] responseBody = new byte[0];
+        byte[] errorReason = new byte[0];
+        if (responseStatus == 200)
+        {
+            responseBody = connection.readInput();
+        }
+        else if (responseStatus >= 400)
+        {
+            // The connection can only go back to the pool once the error stream has been read to the end
+            errorReason = connection.readError();
+        }
+        else
+        {
+            // Other statuses are reported without a body, but the body, if any, still has to be drained
+            connection.readInput();
+        }
+
+        return new HttpsResponse(responseStatus, responseBody, headerFields, errorReason);
+    }
+
+    @Override
+    public HttpTransportStatistics getStatistics()
+    {
+        return new HttpTransportStatistics(this.requestCount.get(), this.connectionCount.get(), this.handshakeCount.get());
+    }
+
+    private SSLSocketFactory getSocketFactory(SSLContext sslContext, ProxySettings proxySettings)
+    {
+        SocketFactoryKey key = new SocketFactoryKey(sslContext, proxySettings);
+        synchronized (this.socketFactories)
+        {
+            SSLSocketFactory socketFactory = this.socketFactories.get(key);
+            if (socketFactory != null)
+            {
+                return socketFactory;
+            }
+
+            log.trace("Creating a new SSL socket factory for HTTP requests");
+            socketFactory = sslContext.getSocketFactory();
+            if (proxySettings != null)
+            {
+                socketFactory = new HttpProxySocketFactory(socketFactory, proxySettings);
+            }
+
+            socketFactory = new CountingSocketFactory(socketFactory);
+            this.socketFactories.put(key, socketFactory);
+            return socketFactory;
+        }
+    }
+
+    // SSLContexts and proxy settings are compared by identity, since pooled connections are only shared by requests that
+    // use the same socket factory instance
+    private static final class SocketFactoryKey
+    {
+        private final SSLContext sslContext;
+        private final ProxySettings proxySettings;
+
+        private SocketFactoryKey(SSLContext sslContext, ProxySettings proxySettings)
+        {
+            this.sslContext = sslContext;
+            this.proxySettings = proxySettings;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if (!(other instanceof SocketFactoryKey))
+            {
+                return false;
+            }
+
+            SocketFactoryKey otherKey = (SocketFactoryKey) other;
+            return this.sslContext == otherKey.sslContext && this.proxySettings == otherKey.proxySettings;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(this.sslContext) + System.identityHashCode(this.proxySettings);
+        }
+    }
+
+    /**
+     * Counts the TLS sockets created by, and the handshakes completed on, the sockets of the wrapped factory.
+     */
+    private final class CountingSocketFactory extends SSLSocketFactory
+    {
+        private final SSLSocketFactory delegate;
+
+        private CountingSocketFactory(SSLSocketFactory delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket() throws IOException
+        {
+            return count(this.delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException
+        {
+            return count(this.delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException
+        {
+            return count(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException
+        {
+            return count(this.delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException
+        {
+            return count(this.delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException
+        {
+            return count(this.delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites()
+        {
+            return this.delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites()
+        {
+            return this.delegate.getSupportedCipherSuites();
+        }
+
+        private Socket count(Socket socket)
+        {
+            // The JDK may create a plain socket first and layer TLS over it later, so only TLS sockets are counted
+            if (socket instanceof SSLSocket)
+            {
+                connectionCount.incrementAndGet();
+                ((SSLSocket) socket).addHandshakeCompletedListener(event -> handshakeCount.incrementAndGet());
+            }
+
+            return socket;
+        }
+    }
+}
@@ -4,13 +4,18 @@
 package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 import com.microsoft.azure.sdk.iot.device.twin.DeviceOperations;
+import com.microsoft.azure.sdk.iot.device.ClientMetrics;
 import com.microsoft.azure.sdk.iot.device.Message;
 import com.microsoft.azure.sdk.iot.device.MessageType;
+import com.microsoft.azure.sdk.iot.device.NoOpClientMetrics;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubTransportMessage;
 import com.microsoft.azure.sdk.iot.device.transport.ReconnectionNotifier;
+import com.microsoft.azure.sdk.iot.device.transport.TransportUtils;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.PahoExceptionTranslator;
+import lombok.AccessLevel;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -19,8 +24,15 @@ import org.eclipse.paho.client.mqttv3.*;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 public abstract class Mqtt implements MqttCallback
@@ -37,12 +49,23 @@ public abstract class Mqtt implements MqttCallback
     static final int MAX_IN_FLIGHT_COUNT = 65000;
 
     private MqttAsyncClient mqttAsyncClient;
+    private MqttSubscriptionPipeline subscriptionPipeline;
     private final MqttConnectOptions connectOptions;
     private final MqttMessageListener messageListener;
     private final Map<Integer, Message> unacknowledgedSentMessages;
 
-    final Object receivedMessagesLock; // lock for making operations on the receivedMessagesQueue atomic
+    // the quality of service that this client publishes with. Only telemetry can be published with quality of service 0
+    @Setter(AccessLevel.PACKAGE)
+    private int publishQos = QOS;
+
+    // Where the time taken to publish each message is reported
+    @Setter(AccessLevel.PACKAGE)
+    private ClientMetrics metrics = NoOpClientMetrics.INSTANCE;
+
+    // the messages received for this client. Only the client that receives the Paho callbacks adds to it directly,
+    // and only when it has no topic router
     final Queue<Pair<String, byte[]>> receivedMessages;
+    private MqttTopicRouter topicRouter;
 
     /* Each property is separated by & and all system properties start with an encoded $ (except for iothub-ack) */
     final static char MESSAGE_PROPERTY_SEPARATOR = '&';
@@ -76,7 +99,7 @@ public abstract class Mqtt implements MqttCallback
     private String connectionId;
     private final String deviceId;
 
-    private final Object stateLock; // lock for preventing simultaneous connects and subscribe requests
+    private final Object stateLock; // lock for preventing simultaneous connects and sending subscribe requests
     private final Object unacknowledgedSentMessagesLock; // lock for making operations on unacknowledgedSentMessages atomic
 
     /**
@@ -94,7 +117,6 @@ public abstract class Mqtt implements MqttCallback
         this.deviceId = deviceId;
         this.receivedMessages = receivedMessages;
         this.stateLock = new Object();
-        this.receivedMessagesLock = new Object();
         this.unacknowledgedSentMessagesLock = new Object();
         this.messageListener = messageListener;
         this.connectOptions = connectOptions;
@@ -178,7 +200,8 @@ public abstract class Mqtt implements MqttCallback
     }
 
     /**
-     * Method to publish to mqtt broker connection.
+     * Method to publish to mqtt broker connection. Messages published with quality of service 0 are not tracked for
+     * acknowledgement, and are reported as sent once Paho has written them to the socket.
      *
      * @param publishTopic the topic to publish on mqtt broker connection.
      * @param message the message to publish.
@@ -196,16 +219,20 @@ public abstract class Mqtt implements MqttCallback
                 throw transportException;
             }
 
-            if (message == null || publishTopic == null || publishTopic.length() == 0 || message.getBytes() == null)
+            if (message == null || publishTopic == null || publishTopic.length() == 0 || message.getBodyBuffer() == null)
             {
                 throw new IllegalArgumentException("Cannot publish on null or empty publish topic");
             }
 
-            byte[] payload = message.getBytes();
+            // Paho keeps a reference to the payload rather than copying it, so the message body is only copied
+            // here if it isn't already backed by a plain byte array
+            byte[] payload = TransportUtils.toByteArray(message.getBodyBuffer());
+            long publishStartNanos = System.nanoTime();
 
             // Wait until either the number of in flight messages is below the limit before publishing another message
-            // Or wait until the connection is lost so the message can be requeued for later
-            while (this.mqttAsyncClient.getPendingDeliveryTokens().length >= MAX_IN_FLIGHT_COUNT)
+            // Or wait until the connection is lost so the message can be requeued for later. Messages published with
+            // quality of service 0 don't wait for an acknowledgement, so they don't take an in flight slot.
+            while (this.publishQos > 0 && this.mqttAsyncClient.getPendingDeliveryTokens().length >= MAX_IN_FLIGHT_COUNT)
             {
                 //noinspection BusyWait
                 Thread.sleep(10);
@@ -220,7 +247,17 @@ public abstract class Mqtt implements MqttCallback
 
             MqttMessage mqttMessage = (payload.length == 0) ? new MqttMessage() : new MqttMessage(payload);
 
-            mqttMessage.setQos(QOS);
+            mqttMessage.setQos(this.publishQos);
+
+            if (this.publishQos == 0)
+            {
+                // These messages have no mqtt message id to track them by, so the message is the token's user context
+                // instead. Paho calls deliveryComplete with that token once the message has been written to the socket.
+                log.trace("Publishing message ({}) to MQTT topic {} with quality of service 0", message, publishTopic);
+                this.mqttAsyncClient.publish(publishTopic, mqttMessage, message, null);
+                this.metrics.onMessageWritten(message.getMessageType(), System.nanoTime() - publishStartNanos);
+                return;
+            }
 
             synchronized (this.unacknowledgedSentMessagesLock)
             {
@@ -229,6 +266,8 @@ public abstract class Mqtt implements MqttCallback
                 unacknowledgedSentMessages.put(publishToken.getMessageId(), message);
                 log.trace("Message published to MQTT topic {}. Mqtt message id {} added to list of messages to wait for acknowledgement ({})", publishTopic, publishToken.getMessageId(), message);
             }
+
+            this.metrics.onMessageWritten(message.getMessageType(), System.nanoTime() - publishStartNanos);
         }
         catch (MqttException e)
         {
@@ -250,39 +289,71 @@ public abstract class Mqtt implements MqttCallback
      */
     void subscribe(String topic) throws TransportException
     {
-        synchronized (this.stateLock)
+        if (topic == null)
         {
-            try
-            {
-                if (topic == null)
-                {
-                    throw new IllegalArgumentException("Topic cannot be null");
-                }
-                else if (!this.mqttAsyncClient.isConnected())
-                {
-
-                    TransportException transportException = new TransportException("Cannot subscribe when mqtt client is disconnected");
-                    transportException.setRetryable(true);
-                    throw transportException;
-                }
+            throw new IllegalArgumentException("Topic cannot be null");
+        }
 
-                log.debug("Sending MQTT SUBSCRIBE packet for topic {}", topic);
+        subscribe(Collections.singletonList(topic));
+    }
 
-                IMqttToken subToken = this.mqttAsyncClient.subscribe(topic, QOS);
+    /**
+     * Subscribe to the provided topics with a single SUBSCRIBE packet and wait for the service to acknowledge them.
+     * Topics that were already subscribed to on this connection are not sent again. Other threads may send their own
+     * subscriptions while this one waits.
+     *
+     * @param topics the topics to subscribe on mqtt broker connection.
+     * @throws TransportException if failed to subscribe any of the mqtt topics.
+     */
+    void subscribe(Collection<String> topics) throws TransportException
+    {
+        CompletableFuture<Void> subscription;
+        synchronized (this.stateLock)
+        {
+            if (!this.mqttAsyncClient.isConnected())
+            {
+                TransportException transportException = new TransportException("Cannot subscribe when mqtt client is disconnected");
+                transportException.setRetryable(true);
+                throw transportException;
+            }
 
-                subToken.waitForCompletion(MAX_SUBSCRIBE_ACK_WAIT_TIME);
-                log.debug("Sent MQTT SUBSCRIBE packet for topic {} was acknowledged", topic);
+            subscription = this.subscriptionPipeline.subscribe(topics);
+        }
 
-            }
-            catch (MqttException e)
+        try
+        {
+            subscription.get(MAX_SUBSCRIBE_ACK_WAIT_TIME, TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof TransportException)
             {
-                log.warn("Encountered exception while sending MQTT SUBSCRIBE packet for topic {}", topic, e);
-
-                throw PahoExceptionTranslator.convertToMqttException(e, "Unable to subscribe to topic :" + topic);
+                throw (TransportException) e.getCause();
             }
+
+            throw new TransportException("Unable to subscribe to topics " + topics, e.getCause());
+        }
+        catch (TimeoutException e)
+        {
+            TransportException transportException = new TransportException("Timed out waiting for subscription to topics " + topics + " to be acknowledged", e);
+            transportException.setRetryable(true);
+            throw transportException;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransportException("Interrupted, Unable to subscribe to topics " + topics, e);
         }
     }
 
+    /**
+     * @return the topics that have been subscribed to on the current connection.
+     */
+    Set<String> getSubscribedTopics()
+    {
+        return this.subscriptionPipeline == null ? Collections.emptySet() : this.subscriptionPipeline.getSubscribedTopics();
+    }
+
     /**
      * Method to receive messages on mqtt broker connection.
      *
@@ -290,35 +361,21 @@ public abstract class Mqtt implements MqttCallback
      */
     public IotHubTransportMessage receive()
     {
-        synchronized (this.receivedMessagesLock)
+        Pair<String, byte[]> messagePair = this.receivedMessages.poll();
+        if (messagePair != null && messagePair.getKey() != null)
         {
-            Pair<String, byte[]> messagePair = this.receivedMessages.peek();
-            if (messagePair != null)
+            byte[] data = messagePair.getValue();
+            if (data != null)
             {
-                String topic = messagePair.getKey();
-                if (topic != null)
-                {
-                    byte[] data = messagePair.getValue();
-                    if (data != null)
-                    {
-                        // remove this message from the queue as this is the correct handler
-                        this.receivedMessages.poll();
-
-                        return constructMessage(data, topic);
-                    }
-                    else
-                    {
-                        log.warn("Data cannot be null when topic is non-null");
-                    }
-                }
-                else
-                {
-                    return null;
-                }
+                return constructMessage(data, messagePair.getKey());
+            }
+            else
+            {
+                log.warn("Data cannot be null when topic is non-null");
             }
-
-            return null;
         }
+
+        return null;
     }
 
     /**
@@ -358,11 +415,21 @@ public abstract class Mqtt implements MqttCallback
     public void messageArrived(String topic, MqttMessage mqttMessage)
     {
         log.trace("Mqtt message arrived on topic {} with mqtt message id {}", topic, mqttMessage.getId());
-        this.receivedMessages.add(new MutablePair<>(topic, mqttMessage.getPayload()));
+        Pair<String, byte[]> receivedMessage = new MutablePair<>(topic, mqttMessage.getPayload());
+        MqttTopicRouter.Destination destination;
+        if (this.topicRouter != null)
+        {
+            destination = this.topicRouter.route(receivedMessage);
+        }
+        else
+        {
+            this.receivedMessages.add(receivedMessage);
+            destination = MqttTopicRouter.Destination.MESSAGING;
+        }
 
         if (this.messageListener != null)
         {
-            this.messageListener.onMessageArrived(mqttMessage.getId());
+            this.messageListener.onMessageArrived(mqttMessage.getId(), destination);
         }
     }
 
@@ -374,17 +441,26 @@ public abstract class Mqtt implements MqttCallback
     public void deliveryComplete(IMqttDeliveryToken iMqttDeliveryToken)
     {
         Message deliveredMessage = null;
-        log.trace("Mqtt message with message id {} was acknowledge by service", iMqttDeliveryToken.getMessageId());
-        synchronized (this.unacknowledgedSentMessagesLock)
+        if (iMqttDeliveryToken.getUserContext() instanceof Message)
         {
-            if (unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
-            {
-                log.trace("Mqtt message with message id {} that was acknowledge by service was sent by this client", iMqttDeliveryToken.getMessageId());
-                deliveredMessage = unacknowledgedSentMessages.remove(iMqttDeliveryToken.getMessageId());
-            }
-            else
+            // published with quality of service 0, so this only means that the message was written to the socket
+            deliveredMessage = (Message) iMqttDeliveryToken.getUserContext();
+            log.trace("Mqtt message was written to the socket without waiting for acknowledgement ({})", deliveredMessage);
+        }
+        else
+        {
+            log.trace("Mqtt message with message id {} was acknowledge by service", iMqttDeliveryToken.getMessageId());
+            synchronized (this.unacknowledgedSentMessagesLock)
             {
-                log.warn("Mqtt message with message id {} that was acknowledge by service was not sent by this client, will be ignored", iMqttDeliveryToken.getMessageId());
+                if (unacknowledgedSentMessages.containsKey(iMqttDeliveryToken.getMessageId()))
+                {
+                    log.trace("Mqtt message with message id {} that was acknowledge by service was sent by this client", iMqttDeliveryToken.getMessageId());
+                    deliveredMessage = unacknowledgedSentMessages.remove(iMqttDeliveryToken.getMessageId());
+                }
+                else
+                {
+                    log.warn("Mqtt message with message id {} that was acknowledge by service was not sent by this client, will be ignored", iMqttDeliveryToken.getMessageId());
+                }
             }
         }
 
@@ -535,10 +611,30 @@ public abstract class Mqtt implements MqttCallback
         this.connectionId = connectionId;
     }
 
+    /**
+     * @param topicRouter the router that sends each message this client receives from Paho to the received messages
+     * queue of the client it belongs to.
+     */
+    void setTopicRouter(MqttTopicRouter topicRouter)
+    {
+        this.topicRouter = topicRouter;
+    }
+
     void setMqttAsyncClient(MqttAsyncClient mqttAsyncClient)
+    {
+        setMqttAsyncClient(mqttAsyncClient, new MqttSubscriptionPipeline(mqttAsyncClient, Collections.emptySet()));
+    }
+
+    /**
+     * @param mqttAsyncClient the client of the new connection.
+     * @param subscriptionPipeline the subscription pipeline of the new connection, shared by every client of that
+     * connection so that their subscriptions can be sent together.
+     */
+    void setMqttAsyncClient(MqttAsyncClient mqttAsyncClient, MqttSubscriptionPipeline subscriptionPipeline)
     {
         // should never be set to null
         // mqttAsyncClients are single use, so this setter is used when the MqttIotHubConnection layer needs to open a new connection
         this.mqttAsyncClient = mqttAsyncClient;
+        this.subscriptionPipeline = subscriptionPipeline;
     }
 }
@@ -118,62 +118,53 @@ class MqttDirectMethod extends Mqtt
     @Override
     public IotHubTransportMessage receive()
     {
-        synchronized (this.receivedMessagesLock)
+        // Only method topics are routed to this client's queue, so anything polled here is for this handler
+        Pair<String, byte[]> messagePair = this.receivedMessages.poll();
+        if (messagePair == null)
         {
-            IotHubTransportMessage message = null;
+            return null;
+        }
 
-            Pair<String, byte[]> messagePair = this.receivedMessages.peek();
+        String topic = messagePair.getKey();
+        if (topic == null || topic.length() <= POST.length() || !topic.startsWith(POST))
+        {
+            log.warn("Received a direct method message on an unexpected topic {}, it will be ignored", topic);
+            return null;
+        }
 
-            if (messagePair != null)
-            {
-                String topic = messagePair.getKey();
+        byte[] data = messagePair.getValue();
 
-                if (topic != null && topic.length() > 0)
-                {
-                    byte[] data = messagePair.getValue();
-
-                    if (topic.length() > METHOD.length() && topic.startsWith(METHOD))
-                    {
-                        if (topic.length() > POST.length() && topic.startsWith(POST))
-                        {
-                            //remove this message from the queue as this is the correct handler
-                            this.receivedMessages.poll();
-
-                            // Case for $iothub/methods/POST/{method name}/?$rid={request id}
-                            TopicParser topicParser = new TopicParser(topic);
-
-                            if (data != null && data.length > 0)
-                            {
-                                message = new IotHubTransportMessage(data, MessageType.DEVICE_METHODS);
-                            }
-                            else
-                            {
-                                message = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_METHODS);
-                            }
-
-                            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
-
-                            String methodName = topicParser.getMethodName(METHOD_TOKEN);
-                            message.setMethodName(methodName);
-
-                            String reqId = topicParser.getRequestId(REQID_TOKEN);
-                            if (reqId != null)
-                            {
-                                message.setRequestId(reqId);
-
-                                message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
-                            }
-                            else
-                            {
-                                log.warn("Request ID cannot be null");
-                            }
-                        }
-                    }
-                }
-            }
+        // Case for $iothub/methods/POST/{method name}/?$rid={request id}
+        TopicParser topicParser = new TopicParser(topic);
 
-            return message;
+        IotHubTransportMessage message;
+        if (data != null && data.length > 0)
+        {
+            message = new IotHubTransportMessage(data, MessageType.DEVICE_METHODS);
+        }
+        else
+        {
+            message = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_METHODS);
         }
+
+        message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
+
+        String methodName = topicParser.getMethodName(METHOD_TOKEN);
+        message.setMethodName(methodName);
+
+        String reqId = topicParser.getRequestId(REQID_TOKEN);
+        if (reqId != null)
+        {
+            message.setRequestId(reqId);
+
+            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_METHOD_RECEIVE_REQUEST);
+        }
+        else
+        {
+            log.warn("Request ID cannot be null");
+        }
+
+        return message;
     }
 
     private void throwMethodsTransportException(String message) throws TransportException
@@ -0,0 +1,375 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link MqttClientPersistence} that keeps the MQTT session state of one client in a single append-only log file,
+ * rather than in one file per message like Paho's default file persistence.
+ *
+ * <p>
+ * Each put or remove appends one record to the log, and the state is kept in memory as well so that reads don't touch
+ * the disk. When the client is opened, the log can be replayed to restore the state that a previous process left
+ * behind, ignoring a partially written record at its end. The log is rewritten with only the current state once most of
+ * its records are outdated.
+ * </p>
+ *
+ * <p>
+ * Each record is synced to the storage device before the put or remove that wrote it returns, so a message that Paho
+ * considers persisted survives a power loss as well as the process exiting. A compacted log is written and synced to a
+ * temporary file first and then atomically moved over the log, so there is always a complete log on disk.
+ * </p>
+ */
+@Slf4j
+final class MqttFileLogPersistence implements MqttClientPersistence
+{
+    private static final String LOG_FILE_EXTENSION = ".log";
+    private static final String COMPACTED_LOG_FILE_EXTENSION = ".log.tmp";
+
+    private static final byte PUT_RECORD = 1;
+    private static final byte REMOVE_RECORD = 2;
+
+    // The log is only compacted once it holds at least this many records, and more than twice as many as the state
+    private static final int MIN_RECORDS_TO_COMPACT = 64;
+
+    private final File directory;
+    private final boolean restoreState;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private File logFile;
+    private FileOutputStream logFileOutputStream;
+    private DataOutputStream logOutputStream;
+    private int logRecordCount;
+
+    private static final class Entry
+    {
+        private final byte[] header;
+        private final byte[] payload;
+
+        private Entry(byte[] header, byte[] payload)
+        {
+            this.header = header;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * @param directory the directory to keep the log files in. One log file is created per client id.
+     * @param restoreState if true, the state in the client's existing log file is restored when the client is opened.
+     * Otherwise, that state is discarded.
+     */
+    MqttFileLogPersistence(File directory, boolean restoreState)
+    {
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("directory cannot be null");
+        }
+
+        this.directory = directory;
+        this.restoreState = restoreState;
+    }
+
+    @Override
+    public synchronized void open(String clientId, String serverURI) throws MqttPersistenceException
+    {
+        if (!this.directory.isDirectory() && !this.directory.mkdirs())
+        {
+            throw new MqttPersistenceException(new IOException("Could not create the MQTT session state directory " + this.directory));
+        }
+
+        try
+        {
+            this.logFile = new File(this.directory, URLEncoder.encode(clientId, StandardCharsets.UTF_8.name()) + LOG_FILE_EXTENSION);
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new MqttPersistenceException(e);
+        }
+
+        this.entries.clear();
+        this.logRecordCount = 0;
+        if (this.restoreState && this.logFile.exists())
+        {
+            replayLog();
+        }
+
+        // Start each session from a compact log, which also drops any partially written record at the end of it
+        writeCompactedLog();
+    }
+
+    @Override
+    public synchronized void close() throws MqttPersistenceException
+    {
+        if (this.logOutputStream == null)
+        {
+            return;
+        }
+
+        try
+        {
+            this.logOutputStream.close();
+        }
+        catch (IOException e)
+        {
+            throw new MqttPersistenceException(e);
+        }
+        finally
+        {
+            this.logOutputStream = null;
+            this.logFileOutputStream = null;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, MqttPersistable persistable) throws MqttPersistenceException
+    {
+        checkIsOpen();
+
+        byte[] header = copyOf(persistable.getHeaderBytes(), persistable.getHeaderOffset(), persistable.getHeaderLength());
+        byte[] payload = copyOf(persistable.getPayloadBytes(), persistable.getPayloadOffset(), persistable.getPayloadLength());
+
+        appendRecord(PUT_RECORD, key, header, payload);
+        this.entries.put(key, new Entry(header, payload));
+        this.logRecordCount++;
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized MqttPersistable get(String key) throws MqttPersistenceException
+    {
+        checkIsOpen();
+
+        Entry entry = this.entries.get(key);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        return new MqttPersistentData(key, entry.header, 0, entry.header.length, entry.payload, 0, entry.payload.length);
+    }
+
+    @Override
+    public synchronized void remove(String key) throws MqttPersistenceException
+    {
+        checkIsOpen();
+
+        if (this.entries.remove(key) == null)
+        {
+            return;
+        }
+
+        appendRecord(REMOVE_RECORD, key, null, null);
+        this.logRecordCount++;
+        compactIfNeeded();
+    }
+
+    @Override
+    public synchronized Enumeration keys() throws MqttPersistenceException
+    {
+        checkIsOpen();
+
+        // Paho removes entries while it goes through the keys, so this is a copy of them
+        return Collections.enumeration(new ArrayList<>(this.entries.keySet()));
+    }
+
+    @Override
+    public synchronized void clear() throws MqttPersistenceException
+    {
+        checkIsOpen();
+        this.entries.clear();
+        writeCompactedLog();
+    }
+
+    @Override
+    public synchronized boolean containsKey(String key) throws MqttPersistenceException
+    {
+        checkIsOpen();
+        return this.entries.containsKey(key);
+    }
+
+    private void checkIsOpen() throws MqttPersistenceException
+    {
+        if (this.logOutputStream == null)
+        {
+            throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_CLIENT_EXCEPTION);
+        }
+    }
+
+    private void appendRecord(byte recordType, String key, byte[] header, byte[] payload) throws MqttPersistenceException
+    {
+        try
+        {
+            writeRecord(this.logOutputStream, recordType, key, header, payload);
+            this.logOutputStream.flush();
+            this.logFileOutputStream.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    private void replayLog() throws MqttPersistenceException
+    {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(this.logFile))))
+        {
+            while (true)
+            {
+                byte recordType;
+                try
+                {
+                    recordType = inputStream.readByte();
+                }
+                catch (EOFException e)
+                {
+                    break;
+                }
+
+                String key = inputStream.readUTF();
+                if (recordType == PUT_RECORD)
+                {
+                    byte[] header = readBytes(inputStream);
+                    byte[] payload = readBytes(inputStream);
+                    this.entries.put(key, new Entry(header, payload));
+                }
+                else if (recordType == REMOVE_RECORD)
+                {
+                    this.entries.remove(key);
+                }
+                else
+                {
+                    log.warn("MQTT session state log {} has an unknown record type {}, ignoring the rest of the log", this.logFile, recordType);
+                    break;
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            // The previous process stopped part way through writing its last record
+            log.debug("Ignoring the partially written last record of MQTT session state log {}", this.logFile);
+        }
+        catch (IOException e)
+        {
+            throw new MqttPersistenceException(e);
+        }
+
+        log.debug("Restored {} MQTT session state entries from {}", this.entries.size(), this.logFile);
+    }
+
+    private void compactIfNeeded() throws MqttPersistenceException
+    {
+        if (this.logRecordCount >= MIN_RECORDS_TO_COMPACT && this.logRecordCount > 2 * this.entries.size())
+        {
+            writeCompactedLog();
+        }
+    }
+
+    private void writeCompactedLog() throws MqttPersistenceException
+    {
+        close();
+
+        File compactedLogFile = new File(this.directory, this.logFile.getName().replace(LOG_FILE_EXTENSION, COMPACTED_LOG_FILE_EXTENSION));
+        try
+        {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(compactedLogFile))
+            {
+                DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+                for (Map.Entry<String, Entry> entry : this.entries.entrySet())
+                {
+                    writeRecord(outputStream, PUT_RECORD, entry.getKey(), entry.getValue().header, entry.getValue().payload);
+                }
+
+                outputStream.flush();
+                fileOutputStream.getFD().sync();
+            }
+
+            replaceLog(compactedLogFile);
+
+            this.logFileOutputStream = new FileOutputStream(this.logFile, true);
+            this.logOutputStream = new DataOutputStream(new BufferedOutputStream(this.logFileOutputStream));
+            this.logRecordCount = this.entries.size();
+        }
+        catch (IOException e)
+        {
+            throw new MqttPersistenceException(e);
+        }
+    }
+
+    // The previous log stays whole until the synced compacted log replaces it in one step
+    private void replaceLog(File compactedLogFile) throws IOException
+    {
+        try
+        {
+            Files.move(compactedLogFile.toPath(), this.logFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            log.debug("Atomic moves are not supported for MQTT session state log {}, replacing it non-atomically", this.logFile);
+            Files.move(compactedLogFile.toPath(), this.logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream outputStream, byte recordType, String key, byte[] header, byte[] payload) throws IOException
+    {
+        outputStream.writeByte(recordType);
+        outputStream.writeUTF(key);
+        if (recordType == PUT_RECORD)
+        {
+            outputStream.writeInt(header.length);
+            outputStream.write(header);
+            outputStream.writeInt(payload.length);
+            outputStream.write(payload);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream inputStream) throws IOException
+    {
+        int length = inputStream.readInt();
+        if (length < 0)
+        {
+            throw new EOFException();
+        }
+
+        byte[] bytes = new byte[length];
+        inputStream.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] copyOf(byte[] bytes, int offset, int length)
+    {
+        byte[] copy = new byte[length];
+        if (bytes != null && length > 0)
+        {
+            System.arraycopy(bytes, offset, copy, 0, length);
+        }
+
+        return copy;
+    }
+}
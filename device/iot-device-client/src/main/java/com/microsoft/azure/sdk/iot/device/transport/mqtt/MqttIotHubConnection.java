@@ -7,25 +7,32 @@ import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.*;
 import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.PahoExceptionTranslator;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
 import javax.net.ssl.SSLContext;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.Proxy;
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_METHODS;
 import static com.microsoft.azure.sdk.iot.device.MessageType.DEVICE_TWIN;
@@ -64,6 +71,20 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
 
     private final Map<IotHubTransportMessage, Integer> receivedMessagesToAcknowledge = new ConcurrentHashMap<>();
 
+    // Only the first connection restores the session state that was persisted by a previous process. The messages that
+    // were in flight when a later connection of this process was lost are re-sent by the transport layer instead.
+    private boolean isSessionStateRestored;
+
+    // The subscriptions of the current connection. Its topics are restored by the next connection.
+    private MqttSubscriptionPipeline subscriptionPipeline;
+
+    /**
+     * The time, in milliseconds, that the last successful {@link #open()} took from its start until the connection
+     * was established and its subscriptions were acknowledged, or -1 if the connection has never been opened.
+     */
+    @Getter
+    private volatile long timeToReadyMilliseconds = -1;
+
     /**
      * Constructs an instance from the given {@link ClientConfiguration}
      * object.
@@ -212,9 +233,13 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             connectOptions.setSocketFactory(sslContext.getSocketFactory());
         }
 
-        // these variables are shared between the messaging, twin and method subclients
+        // this map is shared between the messaging, twin and method subclients
         Map<Integer, Message> unacknowledgedSentMessages = new ConcurrentHashMap<>();
-        Queue<Pair<String, byte[]>> receivedMessages = new ConcurrentLinkedQueue<>();
+
+        // each subclient gets its own received messages queue that the topic router fills as messages arrive
+        Queue<Pair<String, byte[]>> receivedMessagingMessages = new ConcurrentLinkedQueue<>();
+        Queue<Pair<String, byte[]>> receivedDirectMethodMessages = new ConcurrentLinkedQueue<>();
+        Queue<Pair<String, byte[]>> receivedTwinMessages = new ConcurrentLinkedQueue<>();
 
         this.deviceMessaging = new MqttMessaging(
             deviceId,
@@ -223,19 +248,26 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             this.config.getGatewayHostname() != null && !this.config.getGatewayHostname().isEmpty(),
             connectOptions,
             unacknowledgedSentMessages,
-            receivedMessages);
+            receivedMessagingMessages);
 
         this.directMethod = new MqttDirectMethod(
             deviceId,
             connectOptions,
             unacknowledgedSentMessages,
-            receivedMessages);
+            receivedDirectMethodMessages);
 
         this.deviceTwin = new MqttTwin(
             deviceId,
             connectOptions,
             unacknowledgedSentMessages,
-            receivedMessages);
+            receivedTwinMessages);
+
+        // the messaging subclient receives the Paho callbacks for the whole connection
+        this.deviceMessaging.setTopicRouter(new MqttTopicRouter(receivedDirectMethodMessages, receivedTwinMessages, receivedMessagingMessages));
+        this.deviceMessaging.setPublishQos(this.config.getMqttTelemetryQos());
+        this.deviceMessaging.setMetrics(this.config.getClientMetrics());
+        this.directMethod.setMetrics(this.config.getClientMetrics());
+        this.deviceTwin.setMetrics(this.config.getClientMetrics());
     }
 
     /**
@@ -260,6 +292,7 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             }
 
             log.debug("Opening MQTT connection...");
+            long openStartTimeNanoseconds = System.nanoTime();
 
             if (this.config.getSasTokenAuthentication() != null)
             {
@@ -278,14 +311,26 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
             // each time an open is called
             MqttAsyncClient mqttAsyncClient = buildMqttAsyncClient(this.serverUri, this.clientId);
             mqttAsyncClient.setCallback(this.deviceMessaging);
-            this.deviceMessaging.setMqttAsyncClient(mqttAsyncClient);
-            this.deviceTwin.setMqttAsyncClient(mqttAsyncClient);
-            this.directMethod.setMqttAsyncClient(mqttAsyncClient);
 
-            this.deviceMessaging.start();
+            // The messaging, twin and method clients share one subscription pipeline so that their subscriptions can be
+            // sent together. The first subscription of the new connection also restores those of the previous one.
+            Set<String> topicsToRestore = this.subscriptionPipeline != null
+                ? this.subscriptionPipeline.getSubscribedTopics()
+                : Collections.emptySet();
+            this.subscriptionPipeline = new MqttSubscriptionPipeline(mqttAsyncClient, topicsToRestore);
+            this.deviceMessaging.setMqttAsyncClient(mqttAsyncClient, this.subscriptionPipeline);
+            this.deviceTwin.setMqttAsyncClient(mqttAsyncClient, this.subscriptionPipeline);
+            this.directMethod.setMqttAsyncClient(mqttAsyncClient, this.subscriptionPipeline);
+
+            // Twin requests can only be answered once their response topic is subscribed to, so it is subscribed to
+            // along with the cloud to device messages, rather than waiting for the first twin request to do so. The
+            // method and desired property topics are only subscribed to once the user asks for them, unless they are
+            // restored from the previous connection, in which case they are part of this same SUBSCRIBE packet.
+            this.deviceMessaging.start(Collections.singletonList(this.deviceTwin.getResponseTopic()));
             this.state = IotHubConnectionStatus.CONNECTED;
+            this.timeToReadyMilliseconds = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openStartTimeNanoseconds);
 
-            log.debug("MQTT connection opened successfully");
+            log.debug("MQTT connection opened successfully and was ready after {} milliseconds", this.timeToReadyMilliseconds);
 
             this.listener.onConnectionEstablished(this.connectionId);
         }
@@ -339,10 +384,11 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     @Override
     public IotHubStatusCode sendMessage(Message message) throws TransportException
     {
-        if (message == null || message.getBytes() == null ||
+        ByteBuffer body = message == null ? null : message.getBodyBuffer();
+        if (body == null ||
             ((message.getMessageType() != DEVICE_TWIN
                     && message.getMessageType() != DEVICE_METHODS)
-                    && message.getBytes().length == 0))
+                    && !body.hasRemaining()))
         {
             return IotHubStatusCode.BAD_FORMAT;
         }
@@ -432,28 +478,24 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
     }
 
     @Override
-    public void onMessageArrived(int messageId)
+    public void onMessageArrived(int messageId, MqttTopicRouter.Destination destination)
     {
-        IotHubTransportMessage transportMessage = this.directMethod.receive();
-        if (transportMessage != null)
-        {
-            log.trace("Received MQTT device method message ({})", transportMessage);
-        }
-        else
-        {
-            transportMessage = deviceTwin.receive();
-            if (transportMessage != null)
-            {
+        // The message was already routed by its topic, so only the client it was routed to has to look at it
+        IotHubTransportMessage transportMessage;
+        switch (destination)
+        {
+            case DIRECT_METHOD:
+                transportMessage = this.directMethod.receive();
+                log.trace("Received MQTT device method message ({})", transportMessage);
+                break;
+            case TWIN:
+                transportMessage = this.deviceTwin.receive();
                 log.trace("Received MQTT device twin message ({})", transportMessage);
-            }
-            else
-            {
-                transportMessage = deviceMessaging.receive();
-                if (transportMessage != null)
-                {
-                    log.trace("Received MQTT device messaging message ({})", transportMessage);
-                }
-            }
+                break;
+            case MESSAGING:
+            default:
+                transportMessage = this.deviceMessaging.receive();
+                log.trace("Received MQTT device messaging message ({})", transportMessage);
         }
 
         if (transportMessage == null)
@@ -495,7 +537,19 @@ public class MqttIotHubConnection implements IotHubTransportConnection, MqttMess
         MqttAsyncClient mqttAsyncClient;
         try
         {
-            mqttAsyncClient = new MqttAsyncClient(serverUri, clientId, new MemoryPersistence());
+            MqttClientPersistence persistence;
+            File sessionStateDirectory = this.config.getMqttSessionStateDirectory();
+            if (sessionStateDirectory != null)
+            {
+                persistence = new MqttFileLogPersistence(sessionStateDirectory, !this.isSessionStateRestored);
+                this.isSessionStateRestored = true;
+            }
+            else
+            {
+                persistence = new MemoryPersistence();
+            }
+
+            mqttAsyncClient = new MqttAsyncClient(serverUri, clientId, persistence);
         }
         catch (MqttException e)
         {
@@ -7,5 +7,11 @@ package com.microsoft.azure.sdk.iot.device.transport.mqtt;
 
 interface MqttMessageListener
 {
-    void onMessageArrived(int messageId);
+    /**
+     * Called once a received message has been added to the received messages queue of the client it belongs to.
+     *
+     * @param messageId the MQTT message id of the received message.
+     * @param destination the client whose received messages queue the message was added to.
+     */
+    void onMessageArrived(int messageId, MqttTopicRouter.Destination destination);
 }
@@ -12,6 +12,10 @@ import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
@@ -57,17 +61,36 @@ class MqttMessaging extends Mqtt
     }
 
     public void start() throws TransportException
+    {
+        start(Collections.<String>emptyList());
+    }
+
+    /**
+     * Connect, then subscribe to the cloud to device message topic of this client along with the given topics of the
+     * other clients that share its connection, in a single SUBSCRIBE packet, and wait until the service has
+     * acknowledged all of them.
+     *
+     * @param companionTopics the topics of the other clients of this connection to subscribe to.
+     * @throws TransportException if the connection couldn't be opened, or any of the subscriptions failed.
+     */
+    public void start(Collection<String> companionTopics) throws TransportException
     {
         this.connect();
 
+        List<String> topics = new ArrayList<>();
         if (!this.isEdgeHub)
         {
-            this.subscribe(this.eventsSubscribeTopic);
+            topics.add(this.eventsSubscribeTopic);
         }
         else if (this.moduleId != null && !this.moduleId.isEmpty())
         {
-            this.subscribe(this.inputsSubscribeTopic);
+            topics.add(this.inputsSubscribeTopic);
         }
+
+        topics.addAll(companionTopics);
+
+        // Even with no topics of its own, this still restores the previous connection's subscriptions
+        this.subscribe(topics);
     }
 
     public void stop()
@@ -83,7 +106,7 @@ class MqttMessaging extends Mqtt
      */
     public void send(Message message) throws TransportException
     {
-        if (message == null || message.getBytes() == null)
+        if (message == null || message.getBodyBuffer() == null)
         {
             throw new IllegalArgumentException("Message cannot be null");
         }
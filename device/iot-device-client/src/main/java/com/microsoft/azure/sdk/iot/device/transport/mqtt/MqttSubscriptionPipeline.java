@@ -0,0 +1,234 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import com.microsoft.azure.sdk.iot.device.transport.mqtt.exceptions.PahoExceptionTranslator;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the MQTT subscriptions of the messaging, twin and method clients that share one MQTT connection, without
+ * waiting for earlier subscriptions to be acknowledged first.
+ *
+ * <p>
+ * All the topics asked for at once are sent in a single SUBSCRIBE packet, and a topic that was already subscribed to,
+ * or is waiting for its SUBACK, is not sent again. The topics that were subscribed to on the previous connection are
+ * sent along with the first SUBSCRIBE packet of a new connection, so that a reconnection restores every subscription
+ * in one round trip.
+ * </p>
+ *
+ * <p>This class is thread safe.</p>
+ */
+@Slf4j
+final class MqttSubscriptionPipeline
+{
+    private static final int QOS = 1;
+
+    // The return code of a SUBACK for a topic that the service refused to subscribe to
+    private static final int SUBSCRIPTION_FAILURE = 0x80;
+
+    private final IMqttAsyncClient mqttAsyncClient;
+    private final Set<String> topicsToRestore;
+    private final Set<String> subscribedTopics = new HashSet<>();
+    private final Map<String, CompletableFuture<Void>> pendingSubscriptions = new HashMap<>();
+
+    /**
+     * @param mqttAsyncClient the client to send subscriptions with.
+     * @param topicsToRestore the topics to send along with the first subscription, typically those that were
+     * subscribed to on the previous connection.
+     */
+    MqttSubscriptionPipeline(IMqttAsyncClient mqttAsyncClient, Collection<String> topicsToRestore)
+    {
+        this.mqttAsyncClient = mqttAsyncClient;
+        this.topicsToRestore = new LinkedHashSet<>(topicsToRestore);
+    }
+
+    /**
+     * Subscribe to the given topics, along with any topics still to be restored, in a single SUBSCRIBE packet. Does not
+     * wait for the SUBACK. If every given topic is already subscribed to, or waiting for its SUBACK, and no topic is
+     * left to restore, nothing is sent.
+     *
+     * @param topics the topics to subscribe to.
+     * @return a future that completes once every one of the given topics has been acknowledged by the service, or
+     * completes exceptionally with a {@link TransportException} if any of them was refused or couldn't be sent.
+     * @throws TransportException if the SUBSCRIBE packet couldn't be sent.
+     */
+    synchronized CompletableFuture<Void> subscribe(Collection<String> topics) throws TransportException
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        Set<String> topicsToSend = new LinkedHashSet<>();
+
+        for (String topic : topics)
+        {
+            if (this.subscribedTopics.contains(topic))
+            {
+                continue;
+            }
+
+            CompletableFuture<Void> pendingSubscription = this.pendingSubscriptions.get(topic);
+            if (pendingSubscription != null)
+            {
+                futures.add(pendingSubscription);
+            }
+            else
+            {
+                topicsToSend.add(topic);
+            }
+        }
+
+        // Topics still to be restored stay in that set until they are acknowledged, so that they are carried over to the
+        // next connection if this one is lost before then
+        for (String topicToRestore : this.topicsToRestore)
+        {
+            if (!this.pendingSubscriptions.containsKey(topicToRestore))
+            {
+                topicsToSend.add(topicToRestore);
+            }
+        }
+
+        if (!topicsToSend.isEmpty())
+        {
+            Map<String, CompletableFuture<Void>> batch = send(topicsToSend);
+            for (String topic : topics)
+            {
+                CompletableFuture<Void> future = batch.get(topic);
+                if (future != null)
+                {
+                    futures.add(future);
+                }
+            }
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * @return the topics that the service has acknowledged so far, along with the topics of the previous connection
+     * that haven't been restored yet.
+     */
+    synchronized Set<String> getSubscribedTopics()
+    {
+        Set<String> topics = new LinkedHashSet<>(this.topicsToRestore);
+        topics.addAll(this.subscribedTopics);
+        return Collections.unmodifiableSet(topics);
+    }
+
+    private Map<String, CompletableFuture<Void>> send(Set<String> topicsToSend) throws TransportException
+    {
+        final String[] topicArray = topicsToSend.toArray(new String[0]);
+        int[] qosArray = new int[topicArray.length];
+        final Map<String, CompletableFuture<Void>> batch = new HashMap<>();
+        for (int i = 0; i < topicArray.length; i++)
+        {
+            qosArray[i] = QOS;
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            batch.put(topicArray[i], future);
+            this.pendingSubscriptions.put(topicArray[i], future);
+        }
+
+        log.debug("Sending MQTT SUBSCRIBE packet for topics {}", topicsToSend);
+        try
+        {
+            this.mqttAsyncClient.subscribe(topicArray, qosArray, null, new IMqttActionListener()
+            {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken)
+                {
+                    onSubscribeAcknowledged(topicArray, asyncActionToken.getGrantedQos(), batch);
+                }
+
+                @Override
+                public void onFailure(IMqttToken asyncActionToken, Throwable exception)
+                {
+                    onSubscribeFailed(topicArray, exception, batch);
+                }
+            });
+        }
+        catch (MqttException e)
+        {
+            for (String topic : topicArray)
+            {
+                this.pendingSubscriptions.remove(topic);
+            }
+
+            throw PahoExceptionTranslator.convertToMqttException(e, "Unable to subscribe to topics " + topicsToSend);
+        }
+
+        return batch;
+    }
+
+    private void onSubscribeAcknowledged(String[] topics, int[] grantedQos, Map<String, CompletableFuture<Void>> batch)
+    {
+        List<CompletableFuture<Void>> acknowledged = new ArrayList<>();
+        Map<String, CompletableFuture<Void>> refused = new HashMap<>();
+        synchronized (this)
+        {
+            for (int i = 0; i < topics.length; i++)
+            {
+                this.pendingSubscriptions.remove(topics[i]);
+                this.topicsToRestore.remove(topics[i]);
+                if (grantedQos != null && i < grantedQos.length && grantedQos[i] == SUBSCRIPTION_FAILURE)
+                {
+                    refused.put(topics[i], batch.get(topics[i]));
+                }
+                else
+                {
+                    this.subscribedTopics.add(topics[i]);
+                    acknowledged.add(batch.get(topics[i]));
+                }
+            }
+        }
+
+        log.debug("Sent MQTT SUBSCRIBE packet for topics {} was acknowledged", Arrays.toString(topics));
+
+        // Complete the futures outside of the lock, since completing them runs the waiting callers' continuations
+        for (CompletableFuture<Void> future : acknowledged)
+        {
+            future.complete(null);
+        }
+
+        for (Map.Entry<String, CompletableFuture<Void>> refusedTopic : refused.entrySet())
+        {
+            log.warn("Service refused MQTT subscription to topic {}", refusedTopic.getKey());
+            refusedTopic.getValue().completeExceptionally(new TransportException("Service refused subscription to topic :" + refusedTopic.getKey()));
+        }
+    }
+
+    private void onSubscribeFailed(String[] topics, Throwable exception, Map<String, CompletableFuture<Void>> batch)
+    {
+        synchronized (this)
+        {
+            for (String topic : topics)
+            {
+                this.pendingSubscriptions.remove(topic);
+            }
+        }
+
+        log.warn("Encountered exception while sending MQTT SUBSCRIBE packet for topics {}", Arrays.toString(topics), exception);
+
+        TransportException transportException = exception instanceof MqttException
+            ? PahoExceptionTranslator.convertToMqttException((MqttException) exception, "Unable to subscribe to topics")
+            : new TransportException("Unable to subscribe to topics", exception);
+        for (CompletableFuture<Void> future : batch.values())
+        {
+            future.completeExceptionally(transportException);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.Queue;
+
+/**
+ * Routes each message received on an MQTT connection to the received messages queue of the messaging, twin or method
+ * client it belongs to, based on its topic.
+ *
+ * <p>
+ * The topic is classified once, on arrival, by matching its prefix, so that each client only ever sees its own
+ * messages and twin and method messages aren't held up behind cloud to device messages.
+ * </p>
+ */
+final class MqttTopicRouter
+{
+    private static final String DIRECT_METHOD_TOPIC_PREFIX = "$iothub/methods/";
+    private static final String TWIN_TOPIC_PREFIX = "$iothub/twin/";
+
+    enum Destination
+    {
+        DIRECT_METHOD,
+        TWIN,
+        MESSAGING
+    }
+
+    private final Queue<Pair<String, byte[]>> directMethodMessages;
+    private final Queue<Pair<String, byte[]>> twinMessages;
+    private final Queue<Pair<String, byte[]>> messagingMessages;
+
+    /**
+     * @param directMethodMessages the received messages queue of the method client.
+     * @param twinMessages the received messages queue of the twin client.
+     * @param messagingMessages the received messages queue of the messaging client.
+     */
+    MqttTopicRouter(
+        Queue<Pair<String, byte[]>> directMethodMessages,
+        Queue<Pair<String, byte[]>> twinMessages,
+        Queue<Pair<String, byte[]>> messagingMessages)
+    {
+        this.directMethodMessages = directMethodMessages;
+        this.twinMessages = twinMessages;
+        this.messagingMessages = messagingMessages;
+    }
+
+    /**
+     * @param topic the topic the message was received on.
+     * @return the client that messages on this topic belong to. Messages on any topic that isn't a twin or method
+     * topic, including a null topic, belong to the messaging client.
+     */
+    static Destination classify(String topic)
+    {
+        if (topic != null && topic.startsWith(DIRECT_METHOD_TOPIC_PREFIX))
+        {
+            return Destination.DIRECT_METHOD;
+        }
+        else if (topic != null && topic.startsWith(TWIN_TOPIC_PREFIX))
+        {
+            return Destination.TWIN;
+        }
+
+        return Destination.MESSAGING;
+    }
+
+    /**
+     * Add the received message to the received messages queue of the client it belongs to.
+     *
+     * @param receivedMessage the topic and payload of the received message.
+     * @return the client that the message was routed to.
+     */
+    Destination route(Pair<String, byte[]> receivedMessage)
+    {
+        Destination destination = classify(receivedMessage.getKey());
+        switch (destination)
+        {
+            case DIRECT_METHOD:
+                this.directMethodMessages.add(receivedMessage);
+                break;
+            case TWIN:
+                this.twinMessages.add(receivedMessage);
+                break;
+            case MESSAGING:
+            default:
+                this.messagingMessages.add(receivedMessage);
+        }
+
+        return destination;
+    }
+}
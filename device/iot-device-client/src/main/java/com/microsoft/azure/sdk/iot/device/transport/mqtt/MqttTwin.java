@@ -68,6 +68,14 @@ class MqttTwin extends Mqtt
         }
     }
 
+    /**
+     * @return the topic that responses to this client's twin requests are received on.
+     */
+    String getResponseTopic()
+    {
+        return this.subscribeTopic;
+    }
+
     public void stop()
     {
         isStarted = false;
@@ -256,112 +264,107 @@ class MqttTwin extends Mqtt
     @Override
     public IotHubTransportMessage receive()
     {
-        synchronized (this.receivedMessagesLock)
-        {
-            IotHubTransportMessage message = null;
+        IotHubTransportMessage message = null;
 
-            Pair<String, byte[]> messagePair = this.receivedMessages.peek();
+        // Only twin topics are routed to this client's queue, so anything polled here is for this handler
+        Pair<String, byte[]> messagePair = this.receivedMessages.poll();
 
-            if (messagePair != null)
-            {
-                String topic = messagePair.getKey();
+        if (messagePair != null)
+        {
+            String topic = messagePair.getKey();
 
-                if (topic != null && topic.length() > 0)
+            if (topic != null && topic.length() > 0)
+            {
+                if (topic.length() > TWIN.length() && topic.startsWith(TWIN))
                 {
-                    if (topic.length() > TWIN.length() && topic.startsWith(TWIN))
-                    {
-                        byte[] data = messagePair.getValue();
+                    byte[] data = messagePair.getValue();
 
-                        //remove this message from the queue as this is the correct handler
-                        this.receivedMessages.poll();
-
-                        if (topic.length() > RES.length() && topic.startsWith(RES))
+                    if (topic.length() > RES.length() && topic.startsWith(RES))
+                    {
+                        // Tokenize on backslash
+                        String[] topicTokens = topic.split(Pattern.quote("/"));
+                        if (data != null && data.length > 0)
                         {
-                            // Tokenize on backslash
-                            String[] topicTokens = topic.split(Pattern.quote("/"));
-                            if (data != null && data.length > 0)
-                            {
-                                message = new IotHubTransportMessage(data, MessageType.DEVICE_TWIN);
-                            }
-                            else
-                            {
-                                // Case for $iothub/twin/res/{status}/?$rid={request id}
-                                message = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN); // empty body
+                            message = new IotHubTransportMessage(data, MessageType.DEVICE_TWIN);
+                        }
+                        else
+                        {
+                            // Case for $iothub/twin/res/{status}/?$rid={request id}
+                            message = new IotHubTransportMessage(new byte[0], MessageType.DEVICE_TWIN); // empty body
 
-                            }
-                            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
+                        }
+                        message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
 
-                            // Case for $iothub/twin/res/{status}/?$rid={request id}&$version={new version}
-                            if (topicTokens.length > STATUS_TOKEN)
-                            {
-                                message.setStatus(getStatus(topicTokens[STATUS_TOKEN]));
-                            }
-                            else
-                            {
-                                log.warn("Message received without status");
-                            }
+                        // Case for $iothub/twin/res/{status}/?$rid={request id}&$version={new version}
+                        if (topicTokens.length > STATUS_TOKEN)
+                        {
+                            message.setStatus(getStatus(topicTokens[STATUS_TOKEN]));
+                        }
+                        else
+                        {
+                            log.warn("Message received without status");
+                        }
 
-                            if (topicTokens.length > REQID_TOKEN)
+                        if (topicTokens.length > REQID_TOKEN)
+                        {
+                            String requestId = getRequestId(topicTokens[REQID_TOKEN]);
+                            // MQTT does not have the concept of correlationId for request/response handling but it does have a requestId
+                            // To handle this we are setting the correlationId to the requestId to better handle correlation
+                            // whether we use MQTT or AMQP.
+                            message.setRequestId(requestId);
+                            message.setCorrelationId(requestId);
+                            if (requestMap.containsKey(requestId))
                             {
-                                String requestId = getRequestId(topicTokens[REQID_TOKEN]);
-                                // MQTT does not have the concept of correlationId for request/response handling but it does have a requestId
-                                // To handle this we are setting the correlationId to the requestId to better handle correlation
-                                // whether we use MQTT or AMQP.
-                                message.setRequestId(requestId);
-                                message.setCorrelationId(requestId);
-                                if (requestMap.containsKey(requestId))
+                                switch (requestMap.remove(requestId))
                                 {
-                                    switch (requestMap.remove(requestId))
-                                    {
-                                        case DEVICE_OPERATION_TWIN_GET_REQUEST:
-                                            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE);
-                                            break;
-                                        case DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST:
-                                            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE);
-                                            break;
-                                        default:
-                                            message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
-                                    }
-                                }
-                                else
-                                {
-                                    log.warn("Request ID cannot be null");
+                                    case DEVICE_OPERATION_TWIN_GET_REQUEST:
+                                        message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_GET_RESPONSE);
+                                        break;
+                                    case DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_REQUEST:
+                                        message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_UPDATE_REPORTED_PROPERTIES_RESPONSE);
+                                        break;
+                                    default:
+                                        message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_UNKNOWN);
                                 }
                             }
-
-                            if (topicTokens.length > VERSION_TOKEN)
+                            else
                             {
-                                message.setVersion(getVersion(topicTokens[VERSION_TOKEN]));
+                                log.warn("Request ID cannot be null");
                             }
                         }
-                        else if (topic.length() > PATCH.length() && topic.startsWith(PATCH))
+
+                        if (topicTokens.length > VERSION_TOKEN)
                         {
-                            if (topic.startsWith(PATCH + BACKSLASH + PROPERTIES + BACKSLASH + DESIRED))
+                            message.setVersion(getVersion(topicTokens[VERSION_TOKEN]));
+                        }
+                    }
+                    else if (topic.length() > PATCH.length() && topic.startsWith(PATCH))
+                    {
+                        if (topic.startsWith(PATCH + BACKSLASH + PROPERTIES + BACKSLASH + DESIRED))
+                        {
+                            if (data != null)
                             {
-                                if (data != null)
-                                {
-                                    message = new IotHubTransportMessage(data, MessageType.DEVICE_TWIN);
-                                    message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE);
-                                }
+                                message = new IotHubTransportMessage(data, MessageType.DEVICE_TWIN);
+                                message.setDeviceOperationType(DeviceOperations.DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_RESPONSE);
+                            }
 
-                                // Case for $iothub/twin/PATCH/properties/desired/?$version={new version}
-                                // Tokenize on backslash
-                                String[] topicTokens = topic.split(Pattern.quote("/"));
-                                if (topicTokens.length > PATCH_VERSION_TOKEN)
+                            // Case for $iothub/twin/PATCH/properties/desired/?$version={new version}
+                            // Tokenize on backslash
+                            String[] topicTokens = topic.split(Pattern.quote("/"));
+                            if (topicTokens.length > PATCH_VERSION_TOKEN)
+                            {
+                                if (message != null)
                                 {
-                                    if (message != null)
-                                    {
-                                        message.setVersion(getVersion(topicTokens[PATCH_VERSION_TOKEN]));
-                                    }
+                                    message.setVersion(getVersion(topicTokens[PATCH_VERSION_TOKEN]));
                                 }
                             }
                         }
                     }
                 }
             }
-
-            return message;
         }
+
+        return message;
     }
 
     @SuppressWarnings("SameParameterValue") // This method currently has a single caller (with a single value for "message"),
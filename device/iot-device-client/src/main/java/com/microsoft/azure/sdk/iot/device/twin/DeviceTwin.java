@@ -102,6 +102,13 @@ public class DeviceTwin implements MessageCallback
             {
                 twinCallback.onResponseAcknowledged(message, callbackContext);
             }
+
+            @Override
+            public void onResponseTimedOut(Message message, Object callbackContext)
+            {
+                TransportException e = new TransportException("No response was received for the get twin request within the device operation timeout");
+                twinCallback.onResponseReceived(null, message, callbackContext, IotHubStatusCode.MESSAGE_EXPIRED, e);
+            }
         });
         getTwinRequestMessage.setCorrelatingMessageCallbackContext(callbackContext);
 
@@ -203,6 +210,16 @@ public class DeviceTwin implements MessageCallback
                     reportedPropertiesUpdateCorrelatingMessageCallback.onResponseAcknowledged(message, callbackContext);
                 }
             }
+
+            @Override
+            public void onResponseTimedOut(Message message, Object callbackContext)
+            {
+                if (reportedPropertiesUpdateCorrelatingMessageCallback != null)
+                {
+                    TransportException e = new TransportException("No response was received for the reported properties update within the device operation timeout");
+                    reportedPropertiesUpdateCorrelatingMessageCallback.onResponseReceived(message, callbackContext, IotHubStatusCode.MESSAGE_EXPIRED, e);
+                }
+            }
         });
 
         updateReportedPropertiesRequest.setCorrelatingMessageCallbackContext(callbackContext);
@@ -45,7 +45,9 @@ public interface GetTwinCorrelatingMessageCallback
 
     /**
      * Called when a response to the sent message has been sent by IoT hub and has been receieved by the transport. This response
-     * contains the twin that was requested.
+     * contains the twin that was requested. If no response is received within the device operation timeout, this is
+     * called with a null twin, the request message, a status code of {@link IotHubStatusCode#MESSAGE_EXPIRED} and a
+     * {@link TransportException}.
      *
      * @param twin The retrieved twin from the service. If null, check the status code and exception for details on why
      * the twin could not be received.
@@ -45,6 +45,8 @@ public interface ReportedPropertiesUpdateCorrelatingMessageCallback
 
     /**
      * Called when a response to the sent message has been sent by IoT hub and has been receieved by the transport.
+     * If no response is received within the device operation timeout, this is called with the request message instead,
+     * a status code of {@link IotHubStatusCode#MESSAGE_EXPIRED} and a {@link TransportException}.
      *
      * @param message The response message received by the transport.
      * @param callbackContext The context sent with the message.
@@ -0,0 +1,285 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.PooledHttpTransportEngine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for BlobUploader, run against a local HTTP stand-in for Azure Storage.
+ */
+public class BlobUploaderTest
+{
+    private static final int BLOCK_SIZE = 1024;
+    private static final Pattern LATEST_BLOCK_PATTERN = Pattern.compile("<Latest>([^<]+)</Latest>");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private URI blobUri;
+
+    private final Map<String, byte[]> uncommittedBlocks = new ConcurrentHashMap<>();
+    private final List<String> putBlockIds = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> failingBlockIds = ConcurrentHashMap.newKeySet();
+    private volatile byte[] committedBlob;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/container/blob", this::handleBlobRequest);
+        server.start();
+        blobUri = URI.create("http://localhost:" + server.getAddress().getPort() + "/container/blob?sv=2020-04-08&sig=test");
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private void handleBlobRequest(HttpExchange exchange) throws IOException
+    {
+        byte[] body = readFully(exchange.getRequestBody());
+        String query = exchange.getRequestURI().getRawQuery();
+        int status = 201;
+
+        if (!"PUT".equals(exchange.getRequestMethod()))
+        {
+            status = 405;
+        }
+        else if (query.contains("comp=blocklist"))
+        {
+            ByteArrayOutputStream blob = new ByteArrayOutputStream();
+            Matcher matcher = LATEST_BLOCK_PATTERN.matcher(new String(body, StandardCharsets.UTF_8));
+            while (matcher.find())
+            {
+                byte[] block = uncommittedBlocks.get(matcher.group(1));
+                if (block == null)
+                {
+                    status = 400;
+                    break;
+                }
+                blob.write(block);
+            }
+
+            if (status == 201)
+            {
+                committedBlob = blob.toByteArray();
+                uncommittedBlocks.clear();
+            }
+        }
+        else
+        {
+            String blockId = URLDecoder.decode(query.substring(query.indexOf("blockid=") + "blockid=".length()), StandardCharsets.UTF_8.name());
+            if (failingBlockIds.contains(blockId))
+            {
+                status = 500;
+            }
+            else
+            {
+                putBlockIds.add(blockId);
+                uncommittedBlocks.put(blockId, body);
+            }
+        }
+
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int bytesRead;
+        while ((bytesRead = inputStream.read(buffer)) >= 0)
+        {
+            output.write(buffer, 0, bytesRead);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String blockId(int blockIndex)
+    {
+        return Base64.getEncoder().encodeToString(String.format("block-%06d", blockIndex).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private BlobUploader uploader(BlobUploadOptions options) throws IOException
+    {
+        return new BlobUploader(blobUri, options, new PooledHttpTransportEngine(), null, "test");
+    }
+
+    @Test
+    public void uploadFileUploadsBlocksInParallelAndCommitsThemInOrder() throws IOException
+    {
+        byte[] content = randomBytes(10 * BLOCK_SIZE + 17);
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+
+        uploader(BlobUploadOptions.builder().blockSizeInBytes(BLOCK_SIZE).maxConcurrency(4).build()).upload(file, "blob");
+
+        assertThat(committedBlob, is(content));
+        assertThat(putBlockIds.size(), is(11));
+    }
+
+    @Test
+    public void uploadStreamCommitsAllBlocks() throws IOException
+    {
+        byte[] content = randomBytes(5 * BLOCK_SIZE);
+
+        uploader(BlobUploadOptions.builder().blockSizeInBytes(BLOCK_SIZE).maxConcurrency(2).build()).upload(new ByteArrayInputStream(content));
+
+        assertThat(committedBlob, is(content));
+        assertThat(putBlockIds.size(), is(5));
+    }
+
+    @Test
+    public void uploadEmptyFileCommitsEmptyBlob() throws IOException
+    {
+        Path file = temporaryFolder.newFile().toPath();
+
+        uploader(BlobUploadOptions.builder().blockSizeInBytes(BLOCK_SIZE).build()).upload(file, "blob");
+
+        assertThat(committedBlob.length, is(0));
+    }
+
+    @Test
+    public void uploadFileResumesFromCheckpointAfterFailure() throws IOException
+    {
+        byte[] content = randomBytes(8 * BLOCK_SIZE);
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+        Path checkpointDirectory = temporaryFolder.newFolder().toPath();
+        BlobUploadOptions options = BlobUploadOptions.builder()
+            .blockSizeInBytes(BLOCK_SIZE)
+            .maxConcurrency(1)
+            .maxBlockRetries(0)
+            .checkpointDirectory(checkpointDirectory)
+            .build();
+
+        // Fail the sixth block, so the first five are uploaded and recorded by the first attempt
+        String failingBlockId = blockId(5);
+        failingBlockIds.add(failingBlockId);
+        try
+        {
+            uploader(options).upload(file, "blob");
+            fail("Expected the upload to fail");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+
+        assertTrue(committedBlob == null);
+        int blocksUploadedByFirstAttempt = putBlockIds.size();
+        assertTrue(blocksUploadedByFirstAttempt >= 5);
+
+        failingBlockIds.clear();
+        putBlockIds.clear();
+        uploader(options).upload(file, "blob");
+
+        assertThat(committedBlob, is(content));
+        assertThat(putBlockIds.size(), is(8 - blocksUploadedByFirstAttempt));
+        assertFalse(putBlockIds.contains(blockId(0)));
+        try (Stream<Path> checkpoints = Files.list(checkpointDirectory))
+        {
+            assertThat(checkpoints.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void uploadFileRetriesFailedBlocks() throws IOException
+    {
+        byte[] content = randomBytes(2 * BLOCK_SIZE);
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+        final String flakyBlockId = blockId(1);
+        failingBlockIds.add(flakyBlockId);
+
+        // The block is allowed again while the uploader waits to retry it
+        Thread recoveryThread = new Thread(() ->
+        {
+            try
+            {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            failingBlockIds.clear();
+        });
+        recoveryThread.start();
+
+        uploader(BlobUploadOptions.builder().blockSizeInBytes(BLOCK_SIZE).maxBlockRetries(3).build()).upload(file, "blob");
+
+        assertThat(committedBlob, is(content));
+    }
+
+    @Test
+    public void uploadFileReportsStatusOfRejectedBlock() throws IOException
+    {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, randomBytes(BLOCK_SIZE));
+        failingBlockIds.add(blockId(0));
+
+        try
+        {
+            uploader(BlobUploadOptions.builder().blockSizeInBytes(BLOCK_SIZE).maxBlockRetries(0).build()).upload(file, "blob");
+            fail("Expected the upload to fail");
+        }
+        catch (BlobUploader.StorageRequestException e)
+        {
+            assertThat(e.getStatusCode(), is(500));
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForInvalidBlockSize() throws IOException
+    {
+        uploader(BlobUploadOptions.builder().blockSizeInBytes(0).build());
+    }
+}
@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LatencyHistogram and InMemoryClientMetrics.
+ */
+public class LatencyHistogramTest
+{
+    @Test
+    public void bucketsHoldTheValuesWithinTheirBounds()
+    {
+        long[] values = {0, 1, 7, 8, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision()
+    {
+        //arrange
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //act
+        for (long i = 1; i <= 1000; i++)
+        {
+            histogram.record(i * 1000);
+        }
+
+        //assert
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000 * 1000, histogram.getMaxNanos());
+        assertEquals(500500, histogram.getMeanNanos(), 0.001);
+        assertEquals(500 * 1000, histogram.getPercentileNanos(50), 500 * 1000 / 8);
+        assertEquals(990 * 1000, histogram.getPercentileNanos(99), 990 * 1000 / 8);
+        assertEquals(1000 * 1000, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos(), 0);
+    }
+
+    @Test
+    public void inMemoryMetricsKeepMeasurementsPerMessageType()
+    {
+        //arrange
+        InMemoryClientMetrics metrics = new InMemoryClientMetrics();
+
+        //act
+        metrics.onMessageQueueWait(MessageType.DEVICE_TELEMETRY, 2000);
+        metrics.onMessageAcknowledged(MessageType.DEVICE_TWIN, 3000);
+        metrics.onMessageRetried(MessageType.DEVICE_TELEMETRY, 1);
+        metrics.onMessageExpired(MessageType.DEVICE_TWIN, MessageExpiryReason.RESPONSE_TIMEOUT);
+        metrics.onQueueDepth(MessageType.DEVICE_TELEMETRY, 5, 2);
+        metrics.onQueueDepth(MessageType.DEVICE_TELEMETRY, 3, 1);
+        metrics.onReconnectCompleted(4000, 2, false);
+
+        //assert
+        assertEquals(1, metrics.getQueueWaitHistogram(MessageType.DEVICE_TELEMETRY).getCount());
+        assertEquals(0, metrics.getQueueWaitHistogram(MessageType.DEVICE_TWIN).getCount());
+        assertEquals(1, metrics.getTimeOnWireHistogram(MessageType.DEVICE_TWIN).getCount());
+        assertEquals(1, metrics.getRetryCount(MessageType.DEVICE_TELEMETRY));
+        assertEquals(1, metrics.getExpiryCount(MessageType.DEVICE_TWIN, MessageExpiryReason.RESPONSE_TIMEOUT));
+        assertEquals(0, metrics.getExpiryCount(MessageType.DEVICE_TWIN, MessageExpiryReason.RESPONSE_EVICTED));
+        assertEquals(3, metrics.getWaitingCount(MessageType.DEVICE_TELEMETRY));
+        assertEquals(1, metrics.getInFlightCount(MessageType.DEVICE_TELEMETRY));
+        assertEquals(5, metrics.getMaxWaitingCount(MessageType.DEVICE_TELEMETRY));
+        assertEquals(1, metrics.getReconnectHistogram().getCount());
+        assertEquals(1, metrics.getFailedReconnectCount());
+    }
+}
@@ -13,6 +13,7 @@ import mockit.NonStrictExpectations;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
@@ -395,4 +396,113 @@ public class MessageTest
         assertTrue(msg.isSecurityMessage());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getCreationTimeUTCStringFormatsInUtcWithSevenDigitFraction()
+    {
+        //arrange
+        Message msg = new Message();
+        msg.setCreationTimeUTC(new Date(1222880672032L));
+
+        //act
+        String creationTimeUTCString = msg.getCreationTimeUTCString();
+
+        //assert
+        assertEquals("2008-10-01T17:04:32.0320000Z", creationTimeUTCString);
+    }
+
+    @Test
+    public void setCreationTimeUTCInvalidatesCachedCreationTimeUTCString()
+    {
+        //arrange
+        Message msg = new Message();
+        msg.setCreationTimeUTC(new Date(0));
+        String first = msg.getCreationTimeUTCString();
+
+        //act
+        msg.setCreationTimeUTC(new Date(1000));
+
+        //assert
+        assertEquals("1970-01-01T00:00:00.0000000Z", first);
+        assertEquals("1970-01-01T00:00:01.0000000Z", msg.getCreationTimeUTCString());
+        assertSame(msg.getCreationTimeUTCString(), msg.getCreationTimeUTCString());
+    }
+
+    @Test
+    public void setPropertyReplacesCaseInsensitiveMatchAndMovesItLast()
+    {
+        //arrange
+        Message msg = new Message();
+        msg.setProperty("first", "1");
+        msg.setProperty("second", "2");
+
+        //act
+        msg.setProperty("FIRST", "3");
+
+        //assert
+        MessageProperty[] properties = msg.getProperties();
+        assertEquals(2, properties.length);
+        assertEquals("second", properties[0].getName());
+        assertEquals("FIRST", properties[1].getName());
+        assertEquals("3", msg.getProperty("First"));
+        assertNull(msg.getProperty(null));
+    }
+
+    @Test
+    public void byteBufferConstructorUsesRemainingBytesWithoutMovingBuffer()
+    {
+        //arrange
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+        buffer.position(1);
+        buffer.limit(4);
+
+        //act
+        Message msg = new Message(buffer);
+
+        //assert
+        assertArrayEquals(new byte[] { 2, 3, 4 }, msg.getBytes());
+        assertEquals(3, msg.getBodyLength());
+        assertEquals(1, buffer.position());
+        assertEquals(4, buffer.limit());
+    }
+
+    @Test
+    public void byteBufferConstructorSupportsDirectBuffers()
+    {
+        //arrange
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3);
+        buffer.put(new byte[] { 7, 8, 9 });
+        buffer.flip();
+
+        //act
+        Message msg = new Message(buffer);
+
+        //assert
+        assertArrayEquals(new byte[] { 7, 8, 9 }, msg.getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void byteBufferConstructorRejectsNullBody()
+    {
+        new Message((ByteBuffer) null);
+    }
+
+    @Test
+    public void getBodyBufferSharesContentButNotPosition()
+    {
+        //arrange
+        final byte[] body = { 1, 2, 3 };
+        Message msg = new Message(body);
+
+        //act
+        ByteBuffer first = msg.getBodyBuffer();
+        first.get();
+        ByteBuffer second = msg.getBodyBuffer();
+
+        //assert
+        assertSame(body, second.array());
+        assertEquals(0, second.position());
+        assertEquals(3, second.remaining());
+        assertNull(new Message().getBodyBuffer());
+        assertEquals(0, new Message().getBodyLength());
+    }
+}
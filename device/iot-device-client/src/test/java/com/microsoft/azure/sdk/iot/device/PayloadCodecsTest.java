@@ -0,0 +1,193 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for PayloadCodecs, GzipPayloadCodec and DeflatePayloadCodec.
+ */
+public class PayloadCodecsTest
+{
+    private static final String COMPRESSIBLE_BODY;
+
+    static
+    {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 200; i++)
+        {
+            builder.append("{\"temperature\":21.5,\"humidity\":40,\"sequence\":").append(i).append("},");
+        }
+        COMPRESSIBLE_BODY = builder.append("{}]").toString();
+    }
+
+    @Test
+    public void gzipEncodedPayloadIsReadableByGzipInputStream() throws IOException
+    {
+        //arrange
+        GzipPayloadCodec codec = new GzipPayloadCodec();
+
+        //act
+        byte[] encoded = codec.encode(ByteBuffer.wrap(COMPRESSIBLE_BODY.getBytes(StandardCharsets.UTF_8)));
+
+        //assert
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(encoded)))
+        {
+            assertEquals(COMPRESSIBLE_BODY, new String(PayloadCodecs.readFully(inputStream), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void gzipAndDeflateRoundTripRepeatedly() throws IOException
+    {
+        // encoding several payloads in a row exercises the reuse of pooled deflaters
+        for (PayloadCodec codec : new PayloadCodec[] { new GzipPayloadCodec(), new DeflatePayloadCodec(1) })
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                byte[] body = (COMPRESSIBLE_BODY + i).getBytes(StandardCharsets.UTF_8);
+
+                byte[] encoded = codec.encode(ByteBuffer.wrap(body));
+                byte[] decoded = codec.decode(ByteBuffer.wrap(encoded));
+
+                assertTrue(encoded.length < body.length);
+                assertArrayEquals(body, decoded);
+            }
+        }
+    }
+
+    @Test
+    public void decodeFailsOncePayloadExpandsPastMaxDecodedLength() throws IOException
+    {
+        // A megabyte of zeros deflates to about a kilobyte, the shape of a decompression bomb
+        byte[] zeros = new byte[1024 * 1024];
+        for (PayloadCodec codec : new PayloadCodec[] { new GzipPayloadCodec(1, 64 * 1024), new DeflatePayloadCodec(1, 64 * 1024) })
+        {
+            byte[] encoded = codec.encode(ByteBuffer.wrap(zeros));
+
+            try
+            {
+                codec.decode(ByteBuffer.wrap(encoded));
+                fail("Expected decoding to fail past the maximum decoded length");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void decodingCallbackDeliversPayloadAsReceivedIfItExpandsPastMaxDecodedLength() throws IOException
+    {
+        //arrange
+        PayloadCodec codec = new GzipPayloadCodec(1, 1024);
+        byte[] encoded = codec.encode(ByteBuffer.wrap(COMPRESSIBLE_BODY.getBytes(StandardCharsets.UTF_8)));
+        Message received = new Message(encoded);
+        received.setContentEncoding("gzip");
+        final AtomicReference<byte[]> bodySeenByCallback = new AtomicReference<>();
+
+        //act
+        PayloadCodecs.decodingCallback(codec, (message, context) ->
+        {
+            bodySeenByCallback.set(message.getBytes());
+            return IotHubMessageResult.COMPLETE;
+        }).execute(received, null);
+
+        //assert
+        assertArrayEquals(encoded, bodySeenByCallback.get());
+        assertEquals("gzip", received.getContentEncoding());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsNonPositiveMaxDecodedLength()
+    {
+        new DeflatePayloadCodec(1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsInvalidLevel()
+    {
+        new GzipPayloadCodec(10);
+    }
+
+    @Test
+    public void encodeIfNeededEncodesLargeMessages()
+    {
+        //arrange
+        Message message = new Message(COMPRESSIBLE_BODY);
+        int originalLength = message.getBodyLength();
+
+        //act
+        PayloadCodecs.encodeIfNeeded(message, new GzipPayloadCodec(), 1024);
+
+        //assert
+        assertEquals("gzip", message.getContentEncoding());
+        assertTrue(message.getBodyLength() < originalLength);
+    }
+
+    @Test
+    public void encodeIfNeededSkipsSmallAndAlreadyEncodedMessages()
+    {
+        //arrange
+        Message smallMessage = new Message("{\"temperature\":21.5}");
+        Message encodedMessage = new Message(COMPRESSIBLE_BODY);
+        encodedMessage.setContentEncoding("utf-8");
+
+        //act
+        PayloadCodecs.encodeIfNeeded(smallMessage, new GzipPayloadCodec(), 1024);
+        PayloadCodecs.encodeIfNeeded(encodedMessage, new GzipPayloadCodec(), 1024);
+
+        //assert
+        assertNull(smallMessage.getContentEncoding());
+        assertEquals("{\"temperature\":21.5}", new String(smallMessage.getBytes(), StandardCharsets.UTF_8));
+        assertEquals("utf-8", encodedMessage.getContentEncoding());
+        assertEquals(COMPRESSIBLE_BODY, new String(encodedMessage.getBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void decodingCallbackDecodesMatchingMessagesBeforeExecutingCallback() throws IOException
+    {
+        //arrange
+        PayloadCodec codec = new DeflatePayloadCodec();
+        Message received = new Message(codec.encode(ByteBuffer.wrap(COMPRESSIBLE_BODY.getBytes(StandardCharsets.UTF_8))));
+        received.setContentEncoding("DEFLATE");
+        final AtomicReference<String> bodySeenByCallback = new AtomicReference<>();
+        MessageCallback callback = (message, context) ->
+        {
+            bodySeenByCallback.set(new String(message.getBytes(), StandardCharsets.UTF_8));
+            return IotHubMessageResult.COMPLETE;
+        };
+
+        //act
+        IotHubMessageResult result = PayloadCodecs.decodingCallback(codec, callback).execute(received, null);
+
+        //assert
+        assertEquals(IotHubMessageResult.COMPLETE, result);
+        assertEquals(COMPRESSIBLE_BODY, bodySeenByCallback.get());
+        assertNull(received.getContentEncoding());
+    }
+
+    @Test
+    public void decodingCallbackIsNotAppliedWithoutCodec()
+    {
+        //arrange
+        MessageCallback callback = (message, context) -> IotHubMessageResult.ABANDON;
+
+        //act
+        MessageCallback wrapped = PayloadCodecs.decodingCallback(null, callback);
+
+        //assert
+        assertSame(callback, wrapped);
+    }
+}
@@ -0,0 +1,214 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device;
+
+import mockit.Deencapsulation;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TelemetryAggregator.
+ */
+public class TelemetryAggregatorTest
+{
+    @Mocked
+    InternalClient mockClient;
+
+    @Test
+    public void flushOnCountSendsJsonArrayEnvelope()
+    {
+        //arrange
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder().maxMessageCount(3).build());
+
+        //act
+        aggregator.add(new Message("{\"a\":1}"), null, null);
+        aggregator.add(new Message("2"), null, null);
+        aggregator.add(new Message("\"three\""), null, null);
+
+        //assert
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any);
+                times = 1;
+            }
+        };
+
+        Message envelope = sentMessages.get(0);
+        assertEquals("[{\"a\":1},2,\"three\"]", new String(envelope.getBytes(), StandardCharsets.UTF_8));
+        assertEquals("application/json", envelope.getContentType());
+        assertEquals("3", envelope.getProperty(TelemetryAggregator.AGGREGATED_MESSAGE_COUNT_PROPERTY));
+        aggregator.close();
+    }
+
+    @Test
+    public void flushOnSizeSendsLengthPrefixedEnvelopeBeforeItOverflows()
+    {
+        //arrange
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder()
+            .format(TelemetryAggregationFormat.LENGTH_PREFIXED)
+            .maxEnvelopeSizeInBytes(16)
+            .build());
+
+        //act
+        aggregator.add(new Message(new byte[] { 1, 2, 3 }), null, null);
+        aggregator.add(new Message(new byte[] { 4, 5, 6, 7 }), null, null);
+        aggregator.add(new Message(new byte[] { 8 }), null, null);
+
+        //assert
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any);
+                times = 1;
+            }
+        };
+
+        ByteBuffer envelopeBody = ByteBuffer.wrap(sentMessages.get(0).getBytes());
+        assertEquals(15, envelopeBody.remaining());
+        assertEquals(3, envelopeBody.getInt());
+        envelopeBody.position(envelopeBody.position() + 3);
+        assertEquals(4, envelopeBody.getInt());
+        aggregator.close();
+    }
+
+    @Test
+    public void closeFlushesAndEnvelopeCallbackCompletesEachMessageCallback()
+    {
+        //arrange
+        final List<Object> completedContexts = new ArrayList<>();
+        IotHubEventCallback callback = (status, context) ->
+        {
+            assertEquals(IotHubStatusCode.OK, status);
+            completedContexts.add(context);
+        };
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient);
+        aggregator.add(new Message("1"), callback, "first");
+        aggregator.add(new Message("2"), callback, "second");
+
+        //act
+        aggregator.close();
+
+        //assert
+        final List<IotHubEventCallback> envelopeCallbacks = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync((Message) any, withCapture(envelopeCallbacks), any);
+                times = 1;
+            }
+        };
+
+        envelopeCallbacks.get(0).execute(IotHubStatusCode.OK, null);
+        assertEquals(2, completedContexts.size());
+        assertEquals("first", completedContexts.get(0));
+        assertEquals("second", completedContexts.get(1));
+    }
+
+    @Test
+    public void lingerTimeFlushesPartialEnvelope() throws InterruptedException
+    {
+        //arrange
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder().lingerMilliseconds(50).build());
+
+        //act
+        aggregator.add(new Message("1"), null, null);
+        Thread.sleep(500);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync((Message) any, (IotHubEventCallback) any, any);
+                times = 1;
+            }
+        };
+        aggregator.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addAfterCloseThrows()
+    {
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient);
+        aggregator.close();
+        aggregator.add(new Message("1"), null, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addOfMessageTooLargeToAggregateAfterCloseThrows()
+    {
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder().maxEnvelopeSizeInBytes(16).build());
+        aggregator.close();
+        aggregator.add(new Message(new byte[32]), null, null);
+    }
+
+    @Test
+    public void messageTooLargeToAggregateIsSentAfterPendingEnvelope()
+    {
+        //arrange
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder()
+            .format(TelemetryAggregationFormat.LENGTH_PREFIXED)
+            .maxEnvelopeSizeInBytes(16)
+            .build());
+        Message largeMessage = new Message(new byte[32]);
+
+        //act
+        aggregator.add(new Message(new byte[] { 1 }), null, null);
+        aggregator.add(largeMessage, null, null);
+
+        //assert
+        final List<Message> sentMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync(withCapture(sentMessages), (IotHubEventCallback) any, any);
+                times = 2;
+            }
+        };
+
+        assertEquals("1", sentMessages.get(0).getProperty(TelemetryAggregator.AGGREGATED_MESSAGE_COUNT_PROPERTY));
+        assertSame(largeMessage, sentMessages.get(1));
+        aggregator.close();
+    }
+
+    @Test
+    public void lingerTaskOfAnEarlierEnvelopeDoesNotFlushCurrentEnvelope()
+    {
+        //arrange
+        TelemetryAggregator aggregator = new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder().lingerMilliseconds(60000).build());
+        aggregator.add(new Message("1"), null, null);
+        long staleGeneration = Deencapsulation.getField(aggregator, "envelopeGeneration");
+        aggregator.flush();
+        aggregator.add(new Message("2"), null, null);
+
+        //act
+        Deencapsulation.invoke(aggregator, "flushLingeringEnvelope", staleGeneration);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockClient.sendEventAsync((Message) any, (IotHubEventCallback) any, any);
+                times = 1;
+            }
+        };
+        aggregator.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructorRejectsEnvelopeLargerThanHubLimit()
+    {
+        new TelemetryAggregator(mockClient, TelemetryAggregatorOptions.builder().maxEnvelopeSizeInBytes(300 * 1024).build());
+    }
+}
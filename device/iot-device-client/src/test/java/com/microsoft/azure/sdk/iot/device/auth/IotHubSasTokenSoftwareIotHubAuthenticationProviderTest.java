@@ -15,10 +15,12 @@ import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 /**
  * Unit tests for IotHubSasTokenSoftwareAuthenticationProvider.java
@@ -40,6 +42,9 @@ public class IotHubSasTokenSoftwareIotHubAuthenticationProviderTest
     @Mocked IotHubSSLContext mockIotHubSSLContext;
     @Mocked SSLContext mockSSLContext;
 
+    // Keeps the background token renewal from running during, and after, the tests
+    @Capturing ScheduledExecutorService mockRenewalExecutor;
+
     //Tests_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_34_002: [This constructor shall save the provided hostname, device id, module id, deviceKey, and sharedAccessToken.]
     @Test
     public void constructorSavesArguments()
@@ -143,18 +148,17 @@ public class IotHubSasTokenSoftwareIotHubAuthenticationProviderTest
 
     //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_004: [If the saved sas token has expired and there is a device key present, the saved sas token shall be renewed.]
     @Test
-    public void getRenewedSasTokenAutoRenews(@Mocked final System mockSystem) throws IOException, TransportException
+    public void getSasTokenRenewsTokenOlderThanMaxAge(@Mocked final System mockSystem) throws IOException, TransportException
     {
         //assert
         new Expectations()
         {
             {
                 System.currentTimeMillis();
-                result = 0;
-                System.currentTimeMillis();
-                result = 0;
-                Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, String.class, String.class, String.class, long.class}, expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, expectedExpiryTime);
+                returns(0L, 3600 * 1000L, 3600 * 1000L);
+                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, 3600 + expectedExpiryTime);
                 result = mockSasToken;
+                times = 1;
             }
         };
 
@@ -163,100 +167,104 @@ public class IotHubSasTokenSoftwareIotHubAuthenticationProviderTest
 
         //act
         sasAuth.getSasToken();
-
     }
 
-    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_006: [If the saved sas token has not expired and there is a device key present, but this method is called to proactively renew and the token should renew, the saved sas token shall be renewed.]
     @Test
-    public void getRenewedSasTokenProactivelyRenews(@Mocked final System mockSystem) throws IOException, TransportException
+    public void getSasTokenHandsOutReadyTokenWithoutSigning(@Mocked final System mockSystem) throws IOException, TransportException
     {
-        new MockUp<IotHubSasTokenAuthenticationProvider>()
-        {
-            @Mock public boolean shouldRefreshToken(boolean proactivelyRenew)
-            {
-                return true;
-            }
-        };
-
-        //assert
-        new Expectations()
+        //arrange
+        new NonStrictExpectations()
         {
             {
                 System.currentTimeMillis();
-                result = 0;
-                System.currentTimeMillis();
-                result = 0;
-                Deencapsulation.newInstance(IotHubSasToken.class, new Class[] {String.class, String.class, String.class, String.class, String.class, long.class}, expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, expectedExpiryTime);
-                result = mockSasToken;
+                result = 0L;
             }
         };
 
-        //arrange
         IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, expectedSasToken);
 
         //act
         sasAuth.getSasToken();
-    }
+        sasAuth.getSasToken();
 
-    @Test
-    public void getRenewedSasTokenForciblyRenews(@Mocked final System mockSystem) throws IOException, TransportException
-    {
-        new MockUp<IotHubSasTokenAuthenticationProvider>()
+        //assert
+        new Verifications()
         {
-            @Mock public boolean shouldRefreshToken(boolean proactivelyRenew)
             {
-                return false;
+                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, (String) withNull(), expectedModuleId, anyLong);
+                times = 0;
             }
         };
+    }
 
-        //assert
-        new Expectations()
+    @Test
+    public void backgroundRenewalReplacesReadyToken(@Mocked final System mockSystem) throws IOException, TransportException
+    {
+        //arrange
+        new NonStrictExpectations()
         {
             {
                 System.currentTimeMillis();
-                result = 0;
-                times = 2;
-                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, anyLong);
-                result = mockSasToken;
-                times = 2;
+                result = 0L;
             }
         };
 
-        //arrange
         IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, expectedSasToken);
+        sasAuth.getSasToken();
 
         //act
-        sasAuth.getSasToken();
+        Deencapsulation.invoke(sasAuth, "renewSasTokenInBackground");
+
+        //assert
+        new Verifications()
+        {
+            {
+                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, null, expectedModuleId, expectedExpiryTime);
+                times = 1;
+            }
+        };
     }
 
-    //Tests_SRS_IOTHUBSASTOKENAUTHENTICATION_34_006: [If the saved sas token has not expired and there is a device key present, but this method is called to proactively renew and the token should renew, the saved sas token shall be renewed.]
     @Test
-    public void getRenewedSasTokenDoesntProactivelyRenewIfShouldntRefreshToken(@Mocked final System mockSystem) throws IOException, TransportException
+    public void backgroundRenewalStopsWhenNoTokenWasRequestedForATokenLifetime(@Mocked final System mockSystem) throws IOException, TransportException
     {
-        new MockUp<IotHubSasTokenAuthenticationProvider>()
+        //arrange
+        new NonStrictExpectations()
         {
-            @Mock public boolean shouldRefreshToken(boolean proactivelyRenew)
             {
-                return false;
+                System.currentTimeMillis();
+                returns(0L, 0L, 3602 * 1000L);
             }
         };
 
+        IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, expectedSasToken);
+        sasAuth.getSasToken();
+
+        //act
+        Deencapsulation.invoke(sasAuth, "renewSasTokenInBackground");
+
         //assert
-        new Expectations()
+        assertNull(Deencapsulation.getField(sasAuth, "sasTokenRenewalTask"));
+        new Verifications()
         {
             {
-                System.currentTimeMillis();
-                result = 0;
-                System.currentTimeMillis();
-                result = 0;
+                new IotHubSasToken(expectedHostname, expectedDeviceId, expectedDeviceKey, (String) withNull(), expectedModuleId, anyLong);
+                times = 0;
             }
         };
+    }
 
+    @Test
+    public void maxSasTokenAgeIsHalfOfRenewalBuffer()
+    {
         //arrange
-        IotHubSasTokenAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, expectedSasToken);
+        IotHubSasTokenSoftwareAuthenticationProvider sasAuth = new IotHubSasTokenSoftwareAuthenticationProvider(expectedHostname, expectedGatewayHostname, expectedDeviceId, expectedModuleId, expectedDeviceKey, null, 1000, 80);
 
         //act
-        sasAuth.getSasToken();
+        long maxAge = sasAuth.getMaxSasTokenAgeMillis();
+
+        //assert
+        assertEquals(100 * 1000L, maxAge);
     }
 
     //Tests_SRS_IOTHUBSASTOKENSOFTWAREAUTHENTICATION_34_005: [This function shall return the saved sas token.]
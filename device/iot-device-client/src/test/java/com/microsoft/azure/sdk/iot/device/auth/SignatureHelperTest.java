@@ -66,6 +66,21 @@ public class SignatureHelperTest
         assertThat(testEncryptedSig, is(expectedEncryptedSig));
     }
 
+    @Test
+    public void encryptSignatureUsesLatestKeyWhenKeyChanges()
+    {
+        final byte[] testSig = "what do ya want for nothing?".getBytes(UTF8);
+        final byte[] deviceKey = "Jefe".getBytes(UTF8);
+        final byte[] otherDeviceKey = "other key".getBytes(UTF8);
+
+        byte[] firstEncryptedSig = SignatureHelper.encryptSignatureHmacSha256(testSig, deviceKey);
+        byte[] otherEncryptedSig = SignatureHelper.encryptSignatureHmacSha256(testSig, otherDeviceKey);
+        byte[] secondEncryptedSig = SignatureHelper.encryptSignatureHmacSha256(testSig, deviceKey);
+
+        assertThat(secondEncryptedSig, is(firstEncryptedSig));
+        assertThat(otherEncryptedSig, is(not(firstEncryptedSig)));
+    }
+
     // Tests_SRS_SIGNATUREHELPER_11_006: [The function shall encode the signature using Base64.]
     @Test
     public void encodeSignatureUsingBase64()
@@ -148,6 +148,84 @@ public class HttpHsmSignatureProviderTest
     }
 
 
+    @Test
+    public void signReusesCachedSignatureForSameKeyDataAndGenerationId() throws NoSuchAlgorithmException, TransportException, IOException, URISyntaxException, HsmException
+    {
+        //arrange
+        final String keyName = "keyName";
+        final String data = "some data";
+        new NonStrictExpectations()
+        {
+            {
+                new HttpsHsmClient(expectedProviderUri, mockedUnixDomainSocketChannel);
+                result = mockedHttpsHsmClient;
+
+                mockedHttpsHsmClient.sign(expectedApiVersion, anyString, (SignRequest) any, anyString);
+                result = mockedSignResponse;
+
+                mockedSignResponse.getDigest();
+                result = "digest";
+            }
+        };
+
+        HttpHsmSignatureProvider signatureProvider = new HttpHsmSignatureProvider(expectedProviderUri, expectedApiVersion, mockedUnixDomainSocketChannel);
+
+        //act
+        String firstDigest = signatureProvider.sign(keyName, data, expectedGenId);
+        String secondDigest = signatureProvider.sign(keyName, data, expectedGenId);
+        signatureProvider.sign(keyName, "other data", expectedGenId);
+        signatureProvider.sign(keyName, data, "gen2");
+
+        //assert
+        assertEquals(firstDigest, secondDigest);
+        new Verifications()
+        {
+            {
+                mockedHttpsHsmClient.sign(expectedApiVersion, keyName, (SignRequest) any, expectedGenId);
+                times = 2;
+                mockedHttpsHsmClient.sign(expectedApiVersion, keyName, (SignRequest) any, "gen2");
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void signDoesNotReuseExpiredSignature(@Mocked final System mockSystem) throws NoSuchAlgorithmException, TransportException, IOException, URISyntaxException, HsmException
+    {
+        //arrange
+        new NonStrictExpectations()
+        {
+            {
+                new HttpsHsmClient(expectedProviderUri, mockedUnixDomainSocketChannel);
+                result = mockedHttpsHsmClient;
+
+                mockedHttpsHsmClient.sign(expectedApiVersion, anyString, (SignRequest) any, anyString);
+                result = mockedSignResponse;
+
+                mockedSignResponse.getDigest();
+                result = "digest";
+
+                System.currentTimeMillis();
+                returns(0L, HttpHsmSignatureProvider.SIGNATURE_CACHE_TTL_MILLISECONDS);
+            }
+        };
+
+        HttpHsmSignatureProvider signatureProvider = new HttpHsmSignatureProvider(expectedProviderUri, expectedApiVersion, mockedUnixDomainSocketChannel);
+
+        //act
+        signatureProvider.sign("keyName", "some data", expectedGenId);
+        signatureProvider.sign("keyName", "some data", expectedGenId);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedHttpsHsmClient.sign(expectedApiVersion, anyString, (SignRequest) any, anyString);
+                times = 2;
+            }
+        };
+    }
+
     // Codes_SRS_HTTPHSMSIGNATUREPROVIDER_34_007: [If the provided data is null or empty, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
     public void signThrowsForNullData() throws NoSuchAlgorithmException, TransportException, IOException, URISyntaxException, HsmException
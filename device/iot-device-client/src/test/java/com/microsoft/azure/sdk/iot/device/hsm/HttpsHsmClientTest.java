@@ -218,7 +218,7 @@ public class HttpsHsmClientTest
 
     // Tests_SRS_HSMHTTPCLIENT_34_006: [If the scheme of the provided url is Unix, this function shall send the http request using unix domain sockets.]
     @Test
-    public void signSuccessWithUnix(@Mocked final URI mockedURI) throws IOException, TransportException, URISyntaxException, HsmException
+    public void signSuccessWithUnix(@Mocked final URI mockedURI, @Mocked final UnixDomainSocketHttpConnection mockedConnection) throws IOException, TransportException, URISyntaxException, HsmException
     {
         //arrange
         final String expectedJson = "some json";
@@ -239,24 +239,16 @@ public class HttpsHsmClientTest
                 new HttpsRequest((URL) any, HttpsMethod.POST, expectedJson.getBytes(StandardCharsets.UTF_8), anyString);
                 result = mockedHttpsRequest;
 
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString, true);
                 result = expectedMetaData;
 
                 mockedHttpsRequest.setHeaderField(anyString, anyString);
-                times = 2;
+                times = 4;
 
                 mockedHttpsRequest.getBody();
                 result = expectedBody;
 
-                mockedUnixDomainSocketChannel.open(anyString);
-
-                mockedUnixDomainSocketChannel.read((byte[]) any);
-                result = 100;
-
-                mockedUnixDomainSocketChannel.read((byte[]) any);
-                result = -1;
-
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
+                mockedConnection.send((byte[]) any);
                 result = mockedHttpsResponse;
 
                 mockedHttpsResponse.getStatus();
@@ -269,19 +261,21 @@ public class HttpsHsmClientTest
 
         //act
         client.sign(expectedApiVersion, expectedName, mockedSignRequest, expectedGenId);
+        client.sign(expectedApiVersion, expectedName, mockedSignRequest, expectedGenId);
 
         //assert
+        final byte[] expectedRequest = new byte[expectedMetaData.length + expectedBody.length];
+        System.arraycopy(expectedMetaData, 0, expectedRequest, 0, expectedMetaData.length);
+        System.arraycopy(expectedBody, 0, expectedRequest, expectedMetaData.length, expectedBody.length);
         new Verifications()
         {
             {
-                HttpsRequestResponseSerializer.serializeRequest(mockedHttpsRequest, anyString, anyString, anyString);
+                // Both requests share one connection
+                new UnixDomainSocketHttpConnection(mockedUnixDomainSocketChannel, anyString);
                 times = 1;
 
-                HttpsRequestResponseSerializer.deserializeResponse((BufferedReader) any);
-                times = 1;
-
-                mockedUnixDomainSocketChannel.write((byte[]) any);
-                times = 1;
+                mockedConnection.send(expectedRequest);
+                times = 2;
 
                 mockedHttpsRequest.send();
                 times = 0;
@@ -0,0 +1,206 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.hsm;
+
+import com.microsoft.azure.sdk.iot.device.transport.https.HttpsResponse;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for UnixDomainSocketHttpConnection and HttpResponseReader, using an in memory channel.
+ */
+public class UnixDomainSocketHttpConnectionTest
+{
+    private static final String ADDRESS = "/var/run/iotedge/workload.sock";
+    private static final byte[] REQUEST = "GET /trust-bundle HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * A channel whose every connection answers with the next of the given responses, in reads of at most
+     * {@code readSize} bytes.
+     */
+    private static class FakeChannel implements UnixDomainSocketChannel
+    {
+        private final Deque<String> responses = new ArrayDeque<>();
+        private final int readSize;
+        private final List<String> writes = new ArrayList<>();
+        private int openCount;
+        private int closeCount;
+        private byte[] pending = new byte[0];
+        private int pendingOffset;
+        private boolean closedByServer;
+
+        FakeChannel(int readSize, String... responses)
+        {
+            this.readSize = readSize;
+            for (String response : responses)
+            {
+                this.responses.add(response);
+            }
+        }
+
+        @Override
+        public void open(String address)
+        {
+            this.openCount++;
+            this.closedByServer = false;
+            this.pending = new byte[0];
+            this.pendingOffset = 0;
+        }
+
+        @Override
+        public void write(byte[] output) throws IOException
+        {
+            if (this.closedByServer)
+            {
+                throw new IOException("Broken pipe");
+            }
+
+            this.writes.add(new String(output, StandardCharsets.US_ASCII));
+            String response = this.responses.poll();
+            if (response == null)
+            {
+                this.closedByServer = true;
+                return;
+            }
+
+            byte[] responseBytes = response.getBytes(StandardCharsets.US_ASCII);
+            byte[] combined = new byte[this.pending.length - this.pendingOffset + responseBytes.length];
+            System.arraycopy(this.pending, this.pendingOffset, combined, 0, this.pending.length - this.pendingOffset);
+            System.arraycopy(responseBytes, 0, combined, this.pending.length - this.pendingOffset, responseBytes.length);
+            this.pending = combined;
+            this.pendingOffset = 0;
+        }
+
+        @Override
+        public int read(byte[] inputBuffer)
+        {
+            if (this.pendingOffset == this.pending.length)
+            {
+                return -1;
+            }
+
+            int numRead = Math.min(Math.min(this.readSize, inputBuffer.length), this.pending.length - this.pendingOffset);
+            System.arraycopy(this.pending, this.pendingOffset, inputBuffer, 0, numRead);
+            this.pendingOffset += numRead;
+            return numRead;
+        }
+
+        @Override
+        public void close()
+        {
+            this.closeCount++;
+        }
+
+        void closeFromServer()
+        {
+            this.closedByServer = true;
+        }
+    }
+
+    private static String okResponse(String body)
+    {
+        return "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+    }
+
+    @Test
+    public void sendReusesConnectionForConsecutiveRequests() throws IOException
+    {
+        FakeChannel channel = new FakeChannel(7, okResponse("{\"digest\":\"a\"}"), okResponse("{\"digest\":\"b\"}"));
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        HttpsResponse first = connection.send(REQUEST);
+        HttpsResponse second = connection.send(REQUEST);
+
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8), is("{\"digest\":\"a\"}"));
+        assertThat(new String(second.getBody(), StandardCharsets.UTF_8), is("{\"digest\":\"b\"}"));
+        assertThat(first.getHeaderField("Content-Type"), is("application/json"));
+        assertThat(channel.openCount, is(1));
+        assertThat(channel.closeCount, is(0));
+    }
+
+    @Test
+    public void sendReadsChunkedBody() throws IOException
+    {
+        String chunkedResponse = "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n6;ext=1\r\n world\r\n0\r\n\r\n";
+        FakeChannel channel = new FakeChannel(3, chunkedResponse, okResponse("next"));
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        HttpsResponse first = connection.send(REQUEST);
+        HttpsResponse second = connection.send(REQUEST);
+
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8), is("hello world"));
+        assertThat(new String(second.getBody(), StandardCharsets.UTF_8), is("next"));
+        assertThat(channel.openCount, is(1));
+    }
+
+    @Test
+    public void sendClosesConnectionWhenServerAsksTo() throws IOException
+    {
+        String closingResponse = "HTTP/1.1 404 Not Found\r\nConnection: close\r\nContent-Length: 2\r\n\r\n{}";
+        FakeChannel channel = new FakeChannel(4096, closingResponse, okResponse("{}"));
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        HttpsResponse first = connection.send(REQUEST);
+        connection.send(REQUEST);
+
+        assertThat(first.getStatus(), is(404));
+        assertThat(new String(first.getErrorReason(), StandardCharsets.UTF_8), is("Not Found"));
+        assertThat(channel.openCount, is(2));
+        assertThat(channel.closeCount, is(1));
+    }
+
+    @Test
+    public void sendReadsBodyWithoutLengthUntilConnectionCloses() throws IOException
+    {
+        FakeChannel channel = new FakeChannel(5, "HTTP/1.1 200 OK\r\n\r\nuntil the end");
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        HttpsResponse response = connection.send(REQUEST);
+
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8), is("until the end"));
+        assertThat(channel.closeCount, is(1));
+    }
+
+    @Test
+    public void sendRetriesOverNewConnectionIfReusedConnectionWasClosed() throws IOException
+    {
+        FakeChannel channel = new FakeChannel(4096, okResponse("a"), okResponse("b"));
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+        connection.send(REQUEST);
+        channel.closeFromServer();
+
+        HttpsResponse response = connection.send(REQUEST);
+
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8), is("b"));
+        assertThat(channel.openCount, is(2));
+        assertThat(channel.writes.size(), is(2));
+    }
+
+    @Test (expected = IOException.class)
+    public void sendThrowsIfNewConnectionFails() throws IOException
+    {
+        FakeChannel channel = new FakeChannel(4096, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort");
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        connection.send(REQUEST);
+    }
+
+    @Test (expected = IOException.class)
+    public void sendThrowsForInvalidStatusLine() throws IOException
+    {
+        FakeChannel channel = new FakeChannel(4096, "not http\r\n\r\n");
+        UnixDomainSocketHttpConnection connection = new UnixDomainSocketHttpConnection(channel, ADDRESS);
+
+        connection.send(REQUEST);
+    }
+}
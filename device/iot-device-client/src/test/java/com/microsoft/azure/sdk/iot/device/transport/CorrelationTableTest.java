@@ -0,0 +1,111 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+package com.microsoft.azure.sdk.iot.device.transport;
+
+import com.microsoft.azure.sdk.iot.device.CorrelatingMessageCallback;
+import com.microsoft.azure.sdk.iot.device.Message;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for CorrelationTable.
+ */
+public class CorrelationTableTest
+{
+    private static final long TIMEOUT_NANOS = 1000;
+
+    @Mocked
+    private CorrelatingMessageCallback mockCallback;
+
+    private Message request(String correlationId)
+    {
+        Message message = new Message(new byte[0]);
+        message.setCorrelationId(correlationId);
+        message.setCorrelatingMessageCallback(mockCallback);
+        return message;
+    }
+
+    @Test
+    public void registerReturnsExistingEntryForSameCorrelationId()
+    {
+        //arrange
+        CorrelationTable table = new CorrelationTable(10);
+        List<CorrelationTable.Entry> evictedEntries = new ArrayList<>();
+        CorrelationTable.Entry entry = table.register(request("1"), TIMEOUT_NANOS, 0, evictedEntries);
+
+        //act
+        CorrelationTable.Entry secondEntry = table.register(request("1"), TIMEOUT_NANOS, 500, evictedEntries);
+
+        //assert
+        assertSame(entry, secondEntry);
+        assertEquals(1, table.size());
+        assertTrue(evictedEntries.isEmpty());
+    }
+
+    @Test
+    public void removeExpiredReturnsOnlyEntriesWithoutResponse()
+    {
+        //arrange
+        CorrelationTable table = new CorrelationTable(10);
+        List<CorrelationTable.Entry> evictedEntries = new ArrayList<>();
+        CorrelationTable.Entry unansweredEntry = table.register(request("1"), TIMEOUT_NANOS, 0, evictedEntries);
+        CorrelationTable.Entry answeredEntry = table.register(request("2"), TIMEOUT_NANOS, 0, evictedEntries);
+        CorrelationTable.Entry laterEntry = table.register(request("3"), TIMEOUT_NANOS, 500, evictedEntries);
+        table.onResponseReceived("2");
+
+        //act
+        List<CorrelationTable.Entry> notYetExpiredEntries = table.removeExpired(TIMEOUT_NANOS - 1);
+        List<CorrelationTable.Entry> expiredEntries = table.removeExpired(TIMEOUT_NANOS);
+
+        //assert
+        assertTrue(notYetExpiredEntries.isEmpty());
+        assertEquals(1, expiredEntries.size());
+        assertSame(unansweredEntry, expiredEntries.get(0));
+        assertTrue(unansweredEntry.isRemoved());
+        assertTrue(answeredEntry.isRemoved());
+        assertFalse(laterEntry.isRemoved());
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void registerEvictsEldestEntryWhenFull()
+    {
+        //arrange
+        CorrelationTable table = new CorrelationTable(2);
+        List<CorrelationTable.Entry> evictedEntries = new ArrayList<>();
+        CorrelationTable.Entry eldestEntry = table.register(request("1"), TIMEOUT_NANOS, 0, evictedEntries);
+        table.register(request("2"), TIMEOUT_NANOS, 0, evictedEntries);
+
+        //act
+        table.register(request("3"), TIMEOUT_NANOS, 0, evictedEntries);
+
+        //assert
+        assertEquals(1, evictedEntries.size());
+        assertSame(eldestEntry, evictedEntries.get(0));
+        assertTrue(eldestEntry.isRemoved());
+        assertEquals(2, table.size());
+        assertNull(table.onResponseReceived("1"));
+    }
+
+    @Test
+    public void removeStopsTrackingEntry()
+    {
+        //arrange
+        CorrelationTable table = new CorrelationTable(10);
+        CorrelationTable.Entry entry = table.register(request("1"), TIMEOUT_NANOS, 0, new ArrayList<>());
+
+        //act
+        CorrelationTable.Entry removedEntry = table.remove("1");
+
+        //assert
+        assertSame(entry, removedEntry);
+        assertTrue(entry.isRemoved());
+        assertEquals(0, table.size());
+        assertTrue(table.removeExpired(TIMEOUT_NANOS).isEmpty());
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.Message;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for HttpsBatchEncoder.
+ */
+public class HttpsBatchEncoderTest
+{
+    private static HttpsSingleMessage message(String body)
+    {
+        Message iotHubMessage = new Message(body.getBytes(StandardCharsets.UTF_8));
+        iotHubMessage.setMessageId(body);
+        iotHubMessage.setCorrelationId(body);
+        return HttpsSingleMessage.parseHttpsMessage(iotHubMessage);
+    }
+
+    private static String expectedEntry(String body)
+    {
+        return "{\"body\":\"" + Base64.getEncoder().encodeToString(body.getBytes(StandardCharsets.UTF_8)) + "\",\"base64Encoded\":true,"
+            + "\"properties\":{\"iothub-correlationid\":\"" + body + "\",\"iothub-messageid\":\"" + body + "\"}}";
+    }
+
+    @Test
+    public void encodeWritesAllMessagesInOneBatchWhenTheyFit() throws IotHubSizeExceededException
+    {
+        List<HttpsSingleMessage> messages = new ArrayList<>();
+        messages.add(message("first"));
+        messages.add(message("second"));
+
+        List<HttpsBatchMessage> batches = new HttpsBatchEncoder(1024).encode(messages);
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0).numMessages(), is(2));
+        assertThat(new String(batches.get(0).getBody(), StandardCharsets.UTF_8),
+            is("[" + expectedEntry("first") + "," + expectedEntry("second") + "]"));
+    }
+
+    @Test
+    public void encodeSplitsMessagesAcrossBatchesInOrder() throws IotHubSizeExceededException
+    {
+        List<HttpsSingleMessage> messages = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            bodies.add("message-" + i);
+            messages.add(message("message-" + i));
+        }
+
+        // Room for three entries per batch, including separators and brackets
+        int maxBatchSize = 3 * (expectedEntry(bodies.get(0)).length() + 1) + 1;
+        List<HttpsBatchMessage> batches = new HttpsBatchEncoder(maxBatchSize).encode(messages);
+
+        assertThat(batches.size(), is(4));
+        int messageIndex = 0;
+        for (HttpsBatchMessage batch : batches)
+        {
+            assertTrue(batch.getBody().length <= maxBatchSize);
+
+            StringBuilder expected = new StringBuilder("[");
+            for (int i = 0; i < batch.numMessages(); i++)
+            {
+                if (i > 0)
+                {
+                    expected.append(',');
+                }
+                expected.append(expectedEntry(bodies.get(messageIndex++)));
+            }
+            expected.append(']');
+
+            assertThat(new String(batch.getBody(), StandardCharsets.UTF_8), is(expected.toString()));
+        }
+        assertThat(messageIndex, is(10));
+    }
+
+    @Test
+    public void encodeEscapesPropertyValues() throws IotHubSizeExceededException
+    {
+        Message iotHubMessage = new Message("body");
+        iotHubMessage.setProperty("key", "a\"b\\cé");
+        List<HttpsSingleMessage> messages = new ArrayList<>();
+        messages.add(HttpsSingleMessage.parseHttpsMessage(iotHubMessage));
+
+        List<HttpsBatchMessage> batches = new HttpsBatchEncoder(1024).encode(messages);
+
+        String batchBody = new String(batches.get(0).getBody(), StandardCharsets.UTF_8);
+        assertTrue(batchBody, batchBody.contains("\"iothub-app-key\":\"a\\\"b\\\\cé\""));
+    }
+
+    @Test (expected = IotHubSizeExceededException.class)
+    public void encodeThrowsIfSingleMessageTooLarge() throws IotHubSizeExceededException
+    {
+        List<HttpsSingleMessage> messages = new ArrayList<>();
+        messages.add(message("small"));
+        messages.add(message(new String(new char[200]).replace('\0', 'a')));
+
+        new HttpsBatchEncoder(expectedEntry("small").length() + 2).encode(messages);
+    }
+
+    @Test
+    public void encodeWritesApplicationPropertyInsteadOfSystemPropertyOfTheSameName() throws IotHubSizeExceededException
+    {
+        Message iotHubMessage = new Message("body".getBytes(StandardCharsets.UTF_8));
+        iotHubMessage.setProperty("clash", "application");
+        HttpsSingleMessage message = HttpsSingleMessage.parseHttpsMessage(iotHubMessage);
+        Map<String, String> systemProperties = new HashMap<>();
+        systemProperties.put("iothub-app-clash", "system");
+        Deencapsulation.setField(message, "systemProperties", systemProperties);
+
+        List<HttpsSingleMessage> messages = new ArrayList<>();
+        messages.add(message);
+
+        String batch = new String(new HttpsBatchEncoder(1024).encode(messages).get(0).getBody(), StandardCharsets.UTF_8);
+
+        assertThat(batch, is("[{\"body\":\"" + Base64.getEncoder().encodeToString("body".getBytes(StandardCharsets.UTF_8))
+            + "\",\"base64Encoded\":true,\"properties\":{\"iothub-app-clash\":\"application\"}}]"));
+    }
+}
@@ -5,6 +5,7 @@ package com.microsoft.azure.sdk.iot.device.transport.https;
 
 import com.microsoft.azure.sdk.iot.device.*;
 import com.microsoft.azure.sdk.iot.device.exceptions.IotHubServiceException;
+import com.microsoft.azure.sdk.iot.device.exceptions.IotHubSizeExceededException;
 import com.microsoft.azure.sdk.iot.device.exceptions.ProtocolException;
 import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
 import com.microsoft.azure.sdk.iot.device.transport.IotHubListener;
@@ -16,6 +17,7 @@ import org.junit.Test;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -2199,4 +2201,61 @@ public class HttpsIotHubConnectionTest
         connection.open();
         connection.close();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sendEventResendsOnlyTheUnacceptedMessagesOfASplitBatch(
+            @Mocked final IotHubEventUri mockUri,
+            @Mocked final HttpsBatchEncoder mockEncoder,
+            @Mocked final HttpsBatchMessage mockFirstRequest,
+            @Mocked final HttpsBatchMessage mockSecondRequest) throws TransportException, IotHubSizeExceededException
+    {
+        final List<Message> nestedMessages = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            nestedMessages.add(new Message("message" + i));
+        }
+
+        final Message batchMessage = Deencapsulation.newInstance(BatchMessage.class, new Class<?>[] { List.class }, nestedMessages);
+        final List<HttpsBatchMessage> firstAttemptRequests = new ArrayList<>();
+        firstAttemptRequests.add(mockFirstRequest);
+        firstAttemptRequests.add(mockSecondRequest);
+        final List<HttpsBatchMessage> secondAttemptRequests = new ArrayList<>();
+        secondAttemptRequests.add(mockSecondRequest);
+
+        new NonStrictExpectations()
+        {
+            {
+                mockEncoder.encode((List<HttpsSingleMessage>) any);
+                returns(firstAttemptRequests, secondAttemptRequests);
+                mockFirstRequest.numMessages();
+                result = 2;
+                mockSecondRequest.numMessages();
+                result = 2;
+                new HttpsRequest((URL) any, HttpsMethod.POST, (byte[]) any, anyString, null);
+                result = mockRequest;
+                mockRequest.send();
+                result = mockResponse;
+                mockResponse.getStatus();
+                returns(200, 500, 200);
+            }
+        };
+
+        HttpsIotHubConnection conn = new HttpsIotHubConnection(mockConfig);
+        conn.setListener(mockedListener);
+
+        assertThat(conn.sendMessage(batchMessage), is(IotHubStatusCode.INTERNAL_SERVER_ERROR));
+        assertThat(conn.sendMessage(batchMessage), is(IotHubStatusCode.OK));
+
+        final List<List<HttpsSingleMessage>> encodedMessages = new ArrayList<>();
+        new Verifications()
+        {
+            {
+                mockEncoder.encode(withCapture(encodedMessages));
+                times = 2;
+            }
+        };
+
+        assertThat(encodedMessages.get(0).size(), is(4));
+        assertThat(encodedMessages.get(1).size(), is(2));
+    }
+}
@@ -15,6 +15,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -456,7 +457,10 @@ public class HttpsRequestTest
         new Verifications()
         {
             {
-                Deencapsulation.invoke(mockConn, "setSSLContext", mockedContext);
+                mockedContext.getSocketFactory();
+                times = 1;
+                mockConn.setSSLSocketFactory((SSLSocketFactory) any);
+                times = 1;
             }
         };
     }
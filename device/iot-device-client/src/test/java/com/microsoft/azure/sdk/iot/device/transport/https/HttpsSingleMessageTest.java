@@ -13,6 +13,7 @@ import mockit.NonStrictExpectations;
 import mockit.Verifications;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -43,8 +44,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -78,8 +79,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -111,8 +112,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -188,8 +189,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockMsg.getMessageId();
@@ -229,8 +230,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -267,8 +268,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -301,8 +302,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -353,8 +354,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockMsg.getMessageId();
@@ -578,8 +579,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -613,8 +614,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -646,8 +647,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
@@ -679,8 +680,8 @@ public class HttpsSingleMessageTest
         new NonStrictExpectations()
         {
             {
-                mockMsg.getBytes();
-                result = body;
+                mockMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(body);
                 mockMsg.getProperties();
                 result = properties;
                 mockProperty.getName();
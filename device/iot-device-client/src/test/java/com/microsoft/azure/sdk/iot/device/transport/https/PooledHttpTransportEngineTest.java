@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.device.transport.https;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import mockit.Verifications;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for PooledHttpTransportEngine.
+ */
+public class PooledHttpTransportEngineTest
+{
+    @Mocked
+    HttpsConnection mockConnection;
+
+    @Mocked
+    SSLContext mockSslContext;
+
+    private static HttpsRequest request(SSLContext sslContext) throws MalformedURLException
+    {
+        HttpsRequest request = new HttpsRequest(new URL("https://test.azure-devices.net"), HttpsMethod.GET, new byte[0], "");
+        return request.setSSLContext(sslContext);
+    }
+
+    @Test
+    public void sendReusesSocketFactoryForSameSslContext() throws MalformedURLException, TransportException
+    {
+        PooledHttpTransportEngine engine = new PooledHttpTransportEngine();
+
+        engine.send(request(mockSslContext), true);
+        engine.send(request(mockSslContext), true);
+
+        final SSLSocketFactory[] socketFactories = new SSLSocketFactory[2];
+        new Verifications()
+        {
+            {
+                mockSslContext.getSocketFactory();
+                times = 1;
+                mockConnection.setSSLSocketFactory(socketFactories[0] = withCapture());
+                mockConnection.setSSLSocketFactory(socketFactories[1] = withCapture());
+            }
+        };
+
+        assertThat(socketFactories[0] == socketFactories[1], is(true));
+    }
+
+    @Test
+    public void sendCreatesNewSocketFactoryWhenSslContextChanges(@Mocked final SSLContext otherSslContext) throws MalformedURLException, TransportException
+    {
+        PooledHttpTransportEngine engine = new PooledHttpTransportEngine();
+
+        engine.send(request(mockSslContext), true);
+        engine.send(request(otherSslContext), true);
+
+        new Verifications()
+        {
+            {
+                mockSslContext.getSocketFactory();
+                times = 1;
+                otherSslContext.getSocketFactory();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendKeepsSocketFactoriesOfAlternatingSslContexts(@Mocked final SSLContext otherSslContext) throws MalformedURLException, TransportException
+    {
+        PooledHttpTransportEngine engine = new PooledHttpTransportEngine();
+
+        engine.send(request(mockSslContext), true);
+        engine.send(request(otherSslContext), true);
+        engine.send(request(mockSslContext), true);
+        engine.send(request(otherSslContext), true);
+
+        new Verifications()
+        {
+            {
+                mockSslContext.getSocketFactory();
+                times = 1;
+                otherSslContext.getSocketFactory();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void sendReadsErrorStreamOfFailedRequests() throws MalformedURLException, TransportException
+    {
+        final byte[] errorReason = "error".getBytes();
+        new NonStrictExpectations()
+        {
+            {
+                mockConnection.getResponseStatus();
+                result = 404;
+                mockConnection.readError();
+                result = errorReason;
+            }
+        };
+
+        HttpsResponse response = new PooledHttpTransportEngine().send(request(mockSslContext), true);
+
+        assertThat(response.getStatus(), is(404));
+        assertThat(response.getErrorReason(), is(errorReason));
+        new Verifications()
+        {
+            {
+                mockConnection.readInput();
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendDrainsBodyOfResponsesWithoutContent() throws MalformedURLException, TransportException
+    {
+        new NonStrictExpectations()
+        {
+            {
+                mockConnection.getResponseStatus();
+                result = 204;
+            }
+        };
+
+        HttpsResponse response = new PooledHttpTransportEngine().send(request(mockSslContext), true);
+
+        assertThat(response.getBody().length, is(0));
+        new Verifications()
+        {
+            {
+                mockConnection.readInput();
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void getStatisticsCountsRequests() throws MalformedURLException, TransportException
+    {
+        PooledHttpTransportEngine engine = new PooledHttpTransportEngine();
+
+        engine.send(request(mockSslContext), true);
+        engine.send(request(mockSslContext), true);
+
+        HttpTransportStatistics statistics = engine.getStatistics();
+        assertThat(statistics.getRequestCount(), is(2L));
+        // No sockets are created by the mocked connection, so every request counts as reusing a connection
+        assertThat(statistics.getConnectionCount(), is(0L));
+        assertThat(statistics.getConnectionReuseRatio(), is(1.0));
+    }
+}
@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttFileLogPersistence.
+ */
+public class MqttFileLogPersistenceTest
+{
+    private static final String CLIENT_ID = "someDevice/someModule";
+    private static final String SERVER_URI = "ssl://some-hub.azure-devices.net:8883";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static MqttPersistable persistable(String header, String payload)
+    {
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return new MqttPersistentData("unused", headerBytes, 0, headerBytes.length, payloadBytes, 0, payloadBytes.length);
+    }
+
+    private static String header(MqttPersistable persistable) throws MqttPersistenceException
+    {
+        return new String(persistable.getHeaderBytes(), persistable.getHeaderOffset(), persistable.getHeaderLength(), StandardCharsets.UTF_8);
+    }
+
+    private static String payload(MqttPersistable persistable) throws MqttPersistenceException
+    {
+        return new String(persistable.getPayloadBytes(), persistable.getPayloadOffset(), persistable.getPayloadLength(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void stateIsRestoredByNextInstance() throws Exception
+    {
+        //arrange
+        File directory = temporaryFolder.getRoot();
+        MqttFileLogPersistence persistence = new MqttFileLogPersistence(directory, true);
+        persistence.open(CLIENT_ID, SERVER_URI);
+        persistence.put("s-1", persistable("header1", "payload1"));
+        persistence.put("s-2", persistable("header2", "payload2"));
+        persistence.remove("s-1");
+        persistence.close();
+
+        //act
+        MqttFileLogPersistence restoredPersistence = new MqttFileLogPersistence(directory, true);
+        restoredPersistence.open(CLIENT_ID, SERVER_URI);
+
+        //assert
+        assertFalse(restoredPersistence.containsKey("s-1"));
+        assertTrue(restoredPersistence.containsKey("s-2"));
+        assertEquals(Collections.singletonList("s-2"), Collections.list(restoredPersistence.keys()));
+        assertEquals("header2", header(restoredPersistence.get("s-2")));
+        assertEquals("payload2", payload(restoredPersistence.get("s-2")));
+        restoredPersistence.close();
+    }
+
+    @Test
+    public void stateIsDiscardedIfNotRestoring() throws Exception
+    {
+        //arrange
+        File directory = temporaryFolder.getRoot();
+        MqttFileLogPersistence persistence = new MqttFileLogPersistence(directory, true);
+        persistence.open(CLIENT_ID, SERVER_URI);
+        persistence.put("s-1", persistable("header1", "payload1"));
+        persistence.close();
+
+        //act
+        MqttFileLogPersistence nextPersistence = new MqttFileLogPersistence(directory, false);
+        nextPersistence.open(CLIENT_ID, SERVER_URI);
+
+        //assert
+        assertFalse(nextPersistence.keys().hasMoreElements());
+        nextPersistence.close();
+    }
+
+    @Test
+    public void partiallyWrittenLastRecordIsIgnored() throws Exception
+    {
+        //arrange
+        File directory = temporaryFolder.getRoot();
+        MqttFileLogPersistence persistence = new MqttFileLogPersistence(directory, true);
+        persistence.open(CLIENT_ID, SERVER_URI);
+        persistence.put("s-1", persistable("header1", "payload1"));
+        persistence.close();
+
+        File[] logFiles = directory.listFiles();
+        assertNotNull(logFiles);
+        assertEquals(1, logFiles.length);
+        try (FileOutputStream outputStream = new FileOutputStream(logFiles[0], true))
+        {
+            // a put record that was cut off part way through its key
+            outputStream.write(new byte[] {1, 0, 10, 's'});
+        }
+
+        //act
+        MqttFileLogPersistence restoredPersistence = new MqttFileLogPersistence(directory, true);
+        restoredPersistence.open(CLIENT_ID, SERVER_URI);
+
+        //assert
+        assertEquals(Collections.singletonList("s-1"), Collections.list(restoredPersistence.keys()));
+        restoredPersistence.close();
+    }
+
+    @Test
+    public void clearRemovesAllState() throws Exception
+    {
+        //arrange
+        File directory = temporaryFolder.getRoot();
+        MqttFileLogPersistence persistence = new MqttFileLogPersistence(directory, true);
+        persistence.open(CLIENT_ID, SERVER_URI);
+        persistence.put("s-1", persistable("header1", "payload1"));
+
+        //act
+        persistence.clear();
+        persistence.close();
+
+        //assert
+        MqttFileLogPersistence restoredPersistence = new MqttFileLogPersistence(directory, true);
+        restoredPersistence.open(CLIENT_ID, SERVER_URI);
+        assertFalse(restoredPersistence.keys().hasMoreElements());
+        restoredPersistence.close();
+    }
+
+    @Test
+    public void compactedLogReplacesLogAndKeepsState() throws Exception
+    {
+        //arrange
+        File directory = temporaryFolder.getRoot();
+        MqttFileLogPersistence persistence = new MqttFileLogPersistence(directory, true);
+        persistence.open(CLIENT_ID, SERVER_URI);
+
+        //act
+        for (int i = 0; i < 100; i++)
+        {
+            persistence.put("s-" + i, persistable("header" + i, "payload" + i));
+            if (i != 99)
+            {
+                persistence.remove("s-" + i);
+            }
+        }
+        persistence.close();
+
+        //assert
+        File[] logFiles = directory.listFiles();
+        assertNotNull(logFiles);
+        assertEquals(1, logFiles.length);
+        assertTrue(logFiles[0].getName().endsWith(".log"));
+
+        MqttFileLogPersistence restoredPersistence = new MqttFileLogPersistence(directory, true);
+        restoredPersistence.open(CLIENT_ID, SERVER_URI);
+        assertEquals(Collections.singletonList("s-99"), Collections.list(restoredPersistence.keys()));
+        assertEquals("payload99", payload(restoredPersistence.get("s-99")));
+        restoredPersistence.close();
+    }
+
+    @Test(expected = MqttPersistenceException.class)
+    public void putThrowsIfNotOpen() throws IOException, MqttPersistenceException
+    {
+        new MqttFileLogPersistence(temporaryFolder.getRoot(), true).put("s-1", persistable("header", "payload"));
+    }
+}
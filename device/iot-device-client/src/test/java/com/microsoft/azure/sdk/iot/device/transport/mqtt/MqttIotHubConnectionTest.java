@@ -21,7 +21,10 @@ import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 import org.junit.Test;
 
 import javax.net.ssl.SSLContext;
+import java.nio.ByteBuffer;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
@@ -458,8 +461,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(msgBody);
                 mockDeviceMessaging.send(mockedMessage);
             }
         };
@@ -504,12 +507,11 @@ public class MqttIotHubConnectionTest
         baseExpectations();
         openExpectations(null);
 
-        final byte[] msgBody = null;
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                mockedMessage.getBodyBuffer();
+                result = null;
             }
         };
 
@@ -532,8 +534,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = new byte[0];
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(new byte[0]);
             }
         };
 
@@ -555,8 +557,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(msgBody);
             }
         };
 
@@ -574,8 +576,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = msgBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(msgBody);
             }
         };
 
@@ -597,8 +599,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceTwinMsg.getBytes();
-                result = msgBody;
+                mockDeviceTwinMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(msgBody);
                 mockDeviceTwinMsg.getMessageType();
                 result = MessageType.DEVICE_TWIN;
 
@@ -637,8 +639,8 @@ public class MqttIotHubConnectionTest
         new NonStrictExpectations()
         {
             {
-                mockDeviceMethodMsg.getBytes();
-                result = msgBody;
+                mockDeviceMethodMsg.getBodyBuffer();
+                result = ByteBuffer.wrap(msgBody);
                 mockDeviceMethodMsg.getMessageType();
                 result = MessageType.DEVICE_METHODS;
 
@@ -739,6 +741,45 @@ public class MqttIotHubConnectionTest
         };
     }
 
+    @Test
+    public void openSubscribesToTwinResponsesAlongWithCloudToDeviceMessages() throws IOException, TransportException
+    {
+        //arrange
+        final String twinResponseTopic = "$iothub/twin/res/#";
+        baseExpectations();
+
+        new NonStrictExpectations()
+        {
+            {
+                mockConfig.getAuthenticationType();
+                result = ClientConfiguration.AuthType.SAS_TOKEN;
+                mockConfig.getSasTokenAuthentication().getSasToken();
+                result = "someToken".toCharArray();
+                mockConfig.isUsingWebsocket();
+                result = false;
+                mockDeviceTwin.getResponseTopic();
+                result = twinResponseTopic;
+            }
+        };
+
+        final MqttIotHubConnection connection = new MqttIotHubConnection(mockConfig);
+        Deencapsulation.setField(connection, "listener", mockedIotHubListener);
+
+        //act
+        connection.open();
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockDeviceMessaging.start(Collections.singletonList(twinResponseTopic));
+                times = 1;
+                mockDeviceTwin.start();
+                times = 0;
+            }
+        };
+    }
+
 
     //Tests_SRS_MQTTIOTHUBCONNECTION_34_049: [If the provided listener object is null, this function shall throw an IllegalArgumentException.]
     @Test (expected = IllegalArgumentException.class)
@@ -984,9 +1025,6 @@ public class MqttIotHubConnectionTest
         new Expectations()
         {
             {
-                mockDeviceMethod.receive();
-                result = null;
-
                 mockDeviceTwin.receive();
                 result = mockedTransportMessage;
 
@@ -1008,7 +1046,7 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MqttTopicRouter.Destination.TWIN);
 
         //assert
         Map<IotHubTransportMessage, Integer> receivedMessagesToAcknowledge = Deencapsulation.getField(connection, "receivedMessagesToAcknowledge");
@@ -1055,7 +1093,7 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MqttTopicRouter.Destination.DIRECT_METHOD);
     }
 
     //Tests_SRS_MQTTIOTHUBCONNECTION_34_062: [If a transport message is successfully received, and the message has a type of DEVICE_TELEMETRY, this function shall set the callback and callback context of this object from the saved values in config for telemetry.]
@@ -1073,12 +1111,6 @@ public class MqttIotHubConnectionTest
         new Expectations()
         {
             {
-                mockDeviceMethod.receive();
-                result = null;
-
-                mockDeviceTwin.receive();
-                result = null;
-
                 mockDeviceMessaging.receive();
                 result = mockedTransportMessage;
 
@@ -1106,7 +1138,18 @@ public class MqttIotHubConnectionTest
         };
 
         //act
-        connection.onMessageArrived(expectedMessageId);
+        connection.onMessageArrived(expectedMessageId, MqttTopicRouter.Destination.MESSAGING);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockDeviceMethod.receive();
+                times = 0;
+                mockDeviceTwin.receive();
+                times = 0;
+            }
+        };
     }
 
     //Tests_SRS_MQTTIOTHUBCONNECTION_34_064: [This function shall return the saved connectionId.]
@@ -1140,14 +1183,17 @@ public class MqttIotHubConnectionTest
                 mockedProductInfo.getUserAgentString();
                 result = "someUserAgentString";
 
-                mockedMessage.getBytes();
-                result = expectedMessageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(expectedMessageBody);
 
                 mockedMessage.getMessageType();
                 result = MessageType.UNKNOWN;
 
                 mockConfig.getProxySettings();
                 result = null;
+
+                mockConfig.getMqttSessionStateDirectory();
+                result = null;
             }
         };
     }
@@ -1165,7 +1211,7 @@ public class MqttIotHubConnectionTest
                 result = mockDeviceTwin;
                 new MqttDirectMethod(anyString, (MqttConnectOptions) any, (Map) any, (Queue) any);
                 result = mockDeviceMethod;
-                mockDeviceMessaging.start();
+                mockDeviceMessaging.start((Collection<String>) any);
                 result = null;
             }
         };
@@ -16,10 +16,13 @@ import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -111,7 +114,7 @@ public class MqttMessagingTest
         {
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
             }
         };
 
@@ -123,7 +126,7 @@ public class MqttMessagingTest
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
                 times = 1;
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
                 times = 1;
             }
         };
@@ -149,7 +152,7 @@ public class MqttMessagingTest
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
                 times = 1;
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
                 times = 0;
 
             }
@@ -164,7 +167,7 @@ public class MqttMessagingTest
         {
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
                 result = new TransportException();
             }
         };
@@ -177,7 +180,7 @@ public class MqttMessagingTest
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
                 times = 1;
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
                 times = 1;
 
             }
@@ -220,7 +223,7 @@ public class MqttMessagingTest
         {
             {
                 Deencapsulation.invoke(mockMqtt, "connect");
-                Deencapsulation.invoke(mockMqtt, "subscribe", anyString);
+                mockMqtt.subscribe((Collection<String>) any);
                 Deencapsulation.invoke(mockMqtt, "disconnect");
                 result = new TransportException();
             }
@@ -249,8 +252,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[] {String.class, Message.class}, anyString, (Message) any);
             }
         };
@@ -262,7 +265,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                mockedMessage.getBodyBuffer();
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", new Class[]{String.class, Message.class}, anyString, mockedMessage);
                 times = 1;
@@ -279,8 +282,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
             }
         };
 
@@ -290,7 +293,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                mockedMessage.getBodyBuffer();
                 times = 1;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 1;
@@ -311,7 +314,7 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                mockedMessage.getBytes();
+                mockedMessage.getBodyBuffer();
                 times = 0;
                 Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, new byte[1]);
                 times = 0;
@@ -336,8 +339,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
             }
@@ -371,8 +374,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
                 mockedMessage.getMessageId();
@@ -407,8 +410,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
                 mockedMessage.getCorrelationId();
@@ -442,8 +445,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
                 mockedMessage.getComponentName();
@@ -478,8 +481,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
                 mockedMessage.getUserId();
@@ -514,8 +517,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getProperties();
                 result = messageProperties;
                 mockedMessage.getTo();
@@ -572,8 +575,8 @@ public class MqttMessagingTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = messageBody;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(messageBody);
                 mockedMessage.getMessageId();
                 result = messageId;
                 mockedMessage.getCorrelationId();
@@ -631,10 +634,10 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                Deencapsulation.invoke(mockMqtt, "subscribe", inputsSubsriptionChannel);
+                mockMqtt.subscribe(Collections.singletonList(inputsSubsriptionChannel));
                 times = 1;
 
-                Deencapsulation.invoke(mockMqtt, "subscribe", eventsSubsriptionChannel);
+                mockMqtt.subscribe(Collections.singletonList(eventsSubsriptionChannel));
                 times = 0;
             }
         };
@@ -658,10 +661,10 @@ public class MqttMessagingTest
         new Verifications()
         {
             {
-                Deencapsulation.invoke(mockMqtt, "subscribe", inputsSubsriptionChannel);
+                mockMqtt.subscribe(Collections.singletonList(inputsSubsriptionChannel));
                 times = 0;
 
-                Deencapsulation.invoke(mockMqtt, "subscribe", eventsSubsriptionChannel);
+                mockMqtt.subscribe(Collections.singletonList(eventsSubsriptionChannel));
                 times = 1;
             }
         };
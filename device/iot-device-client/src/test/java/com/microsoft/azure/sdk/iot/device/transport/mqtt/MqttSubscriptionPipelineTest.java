@@ -0,0 +1,146 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import com.microsoft.azure.sdk.iot.device.exceptions.TransportException;
+import mockit.Delegate;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttSubscriptionPipeline.
+ */
+public class MqttSubscriptionPipelineTest
+{
+    private static final String TOPIC_1 = "devices/deviceId/messages/devicebound/#";
+    private static final String TOPIC_2 = "$iothub/twin/res/#";
+    private static final String TOPIC_3 = "$iothub/methods/POST/#";
+
+    @Mocked
+    private IMqttAsyncClient mockMqttAsyncClient;
+
+    @Mocked
+    private IMqttToken mockMqttToken;
+
+    private void acknowledgeSubscriptionsWith(final int[] grantedQos) throws Exception
+    {
+        new Expectations()
+        {
+            {
+                mockMqttToken.getGrantedQos();
+                result = grantedQos;
+                mockMqttAsyncClient.subscribe((String[]) any, (int[]) any, any, (IMqttActionListener) any);
+                result = new Delegate()
+                {
+                    IMqttToken subscribe(String[] topics, int[] qos, Object userContext, IMqttActionListener callback)
+                    {
+                        callback.onSuccess(mockMqttToken);
+                        return mockMqttToken;
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    public void subscribeSendsAllTopicsInOnePacket() throws Exception
+    {
+        //arrange
+        acknowledgeSubscriptionsWith(new int[] {1, 1});
+        MqttSubscriptionPipeline pipeline = new MqttSubscriptionPipeline(mockMqttAsyncClient, Collections.<String>emptySet());
+
+        //act
+        CompletableFuture<Void> subscription = pipeline.subscribe(Arrays.asList(TOPIC_1, TOPIC_2));
+
+        //assert
+        assertTrue(subscription.isDone());
+        assertFalse(subscription.isCompletedExceptionally());
+        assertEquals(2, pipeline.getSubscribedTopics().size());
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.subscribe(new String[] {TOPIC_1, TOPIC_2}, new int[] {1, 1}, any, (IMqttActionListener) any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void subscribeSendsTopicsToRestoreWithFirstSubscription() throws Exception
+    {
+        //arrange
+        acknowledgeSubscriptionsWith(new int[] {1, 1, 1});
+        MqttSubscriptionPipeline pipeline = new MqttSubscriptionPipeline(mockMqttAsyncClient, Arrays.asList(TOPIC_2, TOPIC_3));
+
+        //act
+        pipeline.subscribe(Collections.singletonList(TOPIC_1)).get();
+
+        //assert
+        assertTrue(pipeline.getSubscribedTopics().containsAll(Arrays.asList(TOPIC_1, TOPIC_2, TOPIC_3)));
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.subscribe(new String[] {TOPIC_1, TOPIC_2, TOPIC_3}, (int[]) any, any, (IMqttActionListener) any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void subscribeDoesNotResendSubscribedTopics() throws Exception
+    {
+        //arrange
+        acknowledgeSubscriptionsWith(new int[] {1});
+        MqttSubscriptionPipeline pipeline = new MqttSubscriptionPipeline(mockMqttAsyncClient, Collections.<String>emptySet());
+        pipeline.subscribe(Collections.singletonList(TOPIC_1)).get();
+
+        //act
+        CompletableFuture<Void> subscription = pipeline.subscribe(Collections.singletonList(TOPIC_1));
+
+        //assert
+        assertTrue(subscription.isDone());
+        new Verifications()
+        {
+            {
+                mockMqttAsyncClient.subscribe(new String[] {TOPIC_1}, (int[]) any, any, (IMqttActionListener) any);
+                times = 1;
+            }
+        };
+    }
+
+    @Test
+    public void subscribeCompletesExceptionallyIfServiceRefusesTopic() throws Exception
+    {
+        //arrange
+        acknowledgeSubscriptionsWith(new int[] {0x80});
+        MqttSubscriptionPipeline pipeline = new MqttSubscriptionPipeline(mockMqttAsyncClient, Collections.<String>emptySet());
+
+        //act
+        CompletableFuture<Void> subscription = pipeline.subscribe(Collections.singletonList(TOPIC_1));
+
+        //assert
+        try
+        {
+            subscription.get();
+            fail("Expected the subscription to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TransportException);
+        }
+
+        assertTrue(pipeline.getSubscribedTopics().isEmpty());
+    }
+}
@@ -17,6 +17,7 @@ import org.eclipse.paho.client.mqttv3.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -144,8 +145,8 @@ public class MqttTest
         new NonStrictExpectations()
         {
             {
-                mockedMessage.getBytes();
-                result = payload;
+                mockedMessage.getBodyBuffer();
+                result = ByteBuffer.wrap(payload);
                 mockMqttAsyncClient.isConnected();
                 result = true;
                 new MqttMessage(payload);
@@ -329,6 +330,37 @@ public class MqttTest
         };
     }
 
+    @Test
+    public void publishWithQos0DoesNotTrackMessageForAcknowledgement(final @Mocked Message mockedMessage) throws TransportException, MqttException
+    {
+        //arrange
+        baseConnectExpectation();
+        basePublishExpectations(mockedMessage);
+
+        Mqtt mockMqtt = instantiateMqtt(true);
+        mockMqtt.setPublishQos(0);
+        Map<Integer, Message> unacknowledgedMessages = new HashMap<>();
+        Deencapsulation.setField(mockMqtt, "unacknowledgedSentMessages", unacknowledgedMessages);
+        Deencapsulation.invoke(mockMqtt, "connect");
+
+        //act
+        Deencapsulation.invoke(mockMqtt, "publish", MOCK_PARSE_TOPIC, mockedMessage);
+
+        //assert
+        assertTrue(unacknowledgedMessages.isEmpty());
+        new Verifications()
+        {
+            {
+                mockMqttMessage.setQos(0);
+                times = 1;
+                mockMqttAsyncClient.publish(MOCK_PARSE_TOPIC, mockMqttMessage, mockedMessage, null);
+                times = 1;
+                mockMqttAsyncClient.getPendingDeliveryTokens();
+                times = 0;
+            }
+        };
+    }
+
     /*
     **Tests_SRS_Mqtt_25_012: [If the MQTT connection is closed, the function shall throw a TransportException.]
      */
@@ -493,8 +525,15 @@ public class MqttTest
             {
                 mockMqttAsyncClient.isConnected();
                 result = true;
-                mockMqttAsyncClient.subscribe(MOCK_PARSE_TOPIC, anyInt);
-                result = mockMqttToken;
+                mockMqttAsyncClient.subscribe(new String[] {MOCK_PARSE_TOPIC}, (int[]) any, any, (IMqttActionListener) any);
+                result = new Delegate()
+                {
+                    IMqttToken subscribe(String[] topics, int[] qos, Object userContext, IMqttActionListener callback)
+                    {
+                        callback.onSuccess(mockMqttToken);
+                        return mockMqttToken;
+                    }
+                };
             }
         };
         Mqtt mockMqtt = instantiateMqtt(true);
@@ -510,7 +549,7 @@ public class MqttTest
             {
                 mockMqttAsyncClient.isConnected();
                 minTimes = 1;
-                mockMqttAsyncClient.subscribe(MOCK_PARSE_TOPIC, anyInt);
+                mockMqttAsyncClient.subscribe(new String[] {MOCK_PARSE_TOPIC}, (int[]) any, any, (IMqttActionListener) any);
                 times = 1;
             }
         };
@@ -585,7 +624,7 @@ public class MqttTest
             {
                 mockMqttAsyncClient.isConnected();
                 result = true;
-                mockMqttAsyncClient.subscribe(MOCK_PARSE_TOPIC, anyInt);
+                mockMqttAsyncClient.subscribe((String[]) any, (int[]) any, any, (IMqttActionListener) any);
                 result = mockMqttException;
             }
         };
@@ -602,7 +641,7 @@ public class MqttTest
             {
                 mockMqttAsyncClient.isConnected();
                 minTimes = 1;
-                mockMqttAsyncClient.subscribe(MOCK_PARSE_TOPIC, anyInt);
+                mockMqttAsyncClient.subscribe(new String[] {MOCK_PARSE_TOPIC}, (int[]) any, any, (IMqttActionListener) any);
                 times = 1;
             }
         };
@@ -751,7 +790,7 @@ public class MqttTest
         new Verifications()
         {
             {
-                mockedMessageListener.onMessageArrived(anyInt);
+                mockedMessageListener.onMessageArrived(anyInt, MqttTopicRouter.Destination.MESSAGING);
                 times = 1;
             }
         };
@@ -1012,6 +1051,35 @@ public class MqttTest
         };
     }
 
+    @Test
+    public void deliveryCompleteNotifiesListenerOfQos0MessageFromUserContext() throws TransportException
+    {
+        //arrange
+        final Message expectedMessage = new Message();
+        Mqtt mockMqtt = instantiateMqtt(true, mockedIotHubListener);
+        final String deviceId = "someDeviceId";
+        Deencapsulation.setField(mockMqtt, "deviceId", deviceId);
+        new Expectations()
+        {
+            {
+                mockMqttDeliveryToken.getUserContext();
+                result = expectedMessage;
+            }
+        };
+
+        //act
+        mockMqtt.deliveryComplete(mockMqttDeliveryToken);
+
+        //assert
+        new Verifications()
+        {
+            {
+                mockedIotHubListener.onMessageSent(expectedMessage, deviceId, null);
+                times = 1;
+            }
+        };
+    }
+
     //Tests_SRS_Mqtt_34_056: [If the acknowledged message is of type
     // DEVICE_OPERATION_TWIN_SUBSCRIBE_DESIRED_PROPERTIES_REQUEST, DEVICE_OPERATION_METHOD_SUBSCRIBE_REQUEST,
     // or DEVICE_OPERATION_TWIN_UNSUBSCRIBE_DESIRED_PROPERTIES_REQUEST, this function shall not notify the saved
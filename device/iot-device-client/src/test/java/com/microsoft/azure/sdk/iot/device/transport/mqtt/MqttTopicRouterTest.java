@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+package com.microsoft.azure.sdk.iot.device.transport.mqtt;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MqttTopicRouter.
+ */
+public class MqttTopicRouterTest
+{
+    private static final byte[] PAYLOAD = {0x61, 0x62, 0x63};
+
+    @Test
+    public void classifyMatchesTopicPrefixes()
+    {
+        assertEquals(MqttTopicRouter.Destination.DIRECT_METHOD, MqttTopicRouter.classify("$iothub/methods/POST/testMethod/?$rid=10"));
+        assertEquals(MqttTopicRouter.Destination.TWIN, MqttTopicRouter.classify("$iothub/twin/res/200/?$rid=5"));
+        assertEquals(MqttTopicRouter.Destination.TWIN, MqttTopicRouter.classify("$iothub/twin/PATCH/properties/desired/?$version=2"));
+        assertEquals(MqttTopicRouter.Destination.MESSAGING, MqttTopicRouter.classify("devices/deviceId/messages/devicebound/%24.mid=1"));
+        assertEquals(MqttTopicRouter.Destination.MESSAGING, MqttTopicRouter.classify("devices/deviceId/modules/moduleId/inputs/input1/"));
+        assertEquals(MqttTopicRouter.Destination.MESSAGING, MqttTopicRouter.classify(null));
+    }
+
+    @Test
+    public void routeAddsMessageToDestinationQueueOnly()
+    {
+        //arrange
+        Queue<Pair<String, byte[]>> directMethodMessages = new ConcurrentLinkedQueue<>();
+        Queue<Pair<String, byte[]>> twinMessages = new ConcurrentLinkedQueue<>();
+        Queue<Pair<String, byte[]>> messagingMessages = new ConcurrentLinkedQueue<>();
+        MqttTopicRouter router = new MqttTopicRouter(directMethodMessages, twinMessages, messagingMessages);
+        Pair<String, byte[]> twinMessage = new MutablePair<>("$iothub/twin/res/200/?$rid=5", PAYLOAD);
+
+        //act
+        MqttTopicRouter.Destination destination = router.route(twinMessage);
+
+        //assert
+        assertEquals(MqttTopicRouter.Destination.TWIN, destination);
+        assertSame(twinMessage, twinMessages.poll());
+        assertTrue(directMethodMessages.isEmpty());
+        assertTrue(messagingMessages.isEmpty());
+    }
+}
@@ -995,7 +995,6 @@ public class MqttTwinTest
         testreceivedMessages.add(new MutablePair<String, byte[]>(null, new byte[5]));
         Deencapsulation.setField(testTwin, "receivedMessages", testreceivedMessages);
         Deencapsulation.setField(testTwin, "stateLock", new Object());
-        Deencapsulation.setField(testTwin, "receivedMessagesLock", new Object());
 
         //act
         //assert
@@ -755,6 +755,35 @@ public class IotHubConnectionString extends IotHubConnectionStringBuilder
         return new URL(stringBuilder);
     }
 
+    /**
+     * Create url for adding, updating or removing up to 100 devices and modules in a single request
+     *
+     * @return The bulk registry operations URL in the following format: "https:hostname/devices?api-version=201X-XX-XX"
+     * @throws MalformedURLException This exception is thrown if the URL creation failed due to malformed string
+     */
+    public URL getUrlBulkRegistryOperations() throws MalformedURLException
+    {
+        return getUrlBulkRegistryOperations(this.hostName);
+    }
+
+    /**
+     * Create url for adding, updating or removing up to 100 devices and modules in a single request
+     *
+     * @param hostName The hostname of the IoT Hub
+     * @return The bulk registry operations URL in the following format: "https:hostname/devices?api-version=201X-XX-XX"
+     * @throws MalformedURLException This exception is thrown if the URL creation failed due to malformed string
+     */
+    public static URL getUrlBulkRegistryOperations(String hostName) throws MalformedURLException
+    {
+        String stringBuilder = URL_HTTPS +
+                hostName +
+                URL_SEPARATOR_0 +
+                URL_PATH_DEVICES +
+                URL_SEPARATOR_1 +
+                URL_API_VERSION;
+        return new URL(stringBuilder);
+    }
+
     /**
      * Create url for processing a bulk import/export job
      *
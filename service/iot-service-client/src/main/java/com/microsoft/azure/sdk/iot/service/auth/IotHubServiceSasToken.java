@@ -9,6 +9,7 @@ import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 
 import static org.apache.commons.codec.binary.Base64.decodeBase64;
 import static org.apache.commons.codec.binary.Base64.encodeBase64String;
@@ -30,6 +31,8 @@ public final class IotHubServiceSasToken
      */
     private static final String TOKEN_FORMAT = "SharedAccessSignature sr=%s&sig=%s&se=%s&skn=%s";
 
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+
     /* The URI for a connection to an IoT Hub */
     private final String resourceUri;
     /* The value of the SharedAccessKey */
@@ -43,6 +46,9 @@ public final class IotHubServiceSasToken
 
     private final long tokenLifespanSeconds;
 
+    /* The Mac to sign the token with, or null if the token should create its own */
+    private final Mac mac;
+
     /**
      * Constructor. Generates a SAS token that grants access to an IoT Hub for
      * the default amount of time of 1 hour.
@@ -51,7 +57,20 @@ public final class IotHubServiceSasToken
      */
     public IotHubServiceSasToken(IotHubConnectionString iotHubConnectionString)
     {
-        this(iotHubConnectionString, DEFAULT_TOKEN_LIFESPAN_SECONDS);
+        this(iotHubConnectionString, DEFAULT_TOKEN_LIFESPAN_SECONDS, null);
+    }
+
+    /**
+     * Constructor used by {@link IotHubServiceSasTokenCache}. Generates a SAS token that grants access to an IoT Hub
+     * for the default amount of time of 1 hour, signed with a {@link Mac} that the cache keeps for signing its later
+     * tokens. The caller must not use the Mac from another thread at the same time.
+     *
+     * @param iotHubConnectionString Connection string object containing the connection parameters
+     * @param mac the Mac to sign the token with, initialized with the connection string's shared access key.
+     */
+    IotHubServiceSasToken(IotHubConnectionString iotHubConnectionString, Mac mac)
+    {
+        this(iotHubConnectionString, DEFAULT_TOKEN_LIFESPAN_SECONDS, mac);
     }
 
     /**
@@ -60,8 +79,9 @@ public final class IotHubServiceSasToken
      *
      * @param iotHubConnectionString Connection string object containing the connection parameters.
      * @param tokenLifespanSeconds The number of seconds that the created SAS token will be valid for.
+     * @param mac The Mac to sign the token with, or null if a new one should be created.
      */
-    private IotHubServiceSasToken(IotHubConnectionString iotHubConnectionString, long tokenLifespanSeconds)
+    private IotHubServiceSasToken(IotHubConnectionString iotHubConnectionString, long tokenLifespanSeconds, Mac mac)
     {
         if (iotHubConnectionString == null)
         {
@@ -74,6 +94,7 @@ public final class IotHubServiceSasToken
         }
 
         this.tokenLifespanSeconds = tokenLifespanSeconds;
+        this.mac = mac;
         this.resourceUri = iotHubConnectionString.getHostName();
         this.keyValue = iotHubConnectionString.getSharedAccessKey();
         this.keyName = iotHubConnectionString.getSharedAccessKeyName();
@@ -103,14 +124,9 @@ public final class IotHubServiceSasToken
             targetUri = URLEncoder.encode(this.resourceUri.toLowerCase(), StandardCharsets.UTF_8.name());
             String toSign = targetUri + "\n" + this.expiryTimeSeconds;
 
-            byte[] keyBytes = decodeBase64(this.keyValue.getBytes(StandardCharsets.UTF_8));
-            SecretKeySpec signingKey = new SecretKeySpec(keyBytes, "HmacSHA256");
-
-            // Get an hmac_sha1 Mac instance and initialize with the signing key
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(signingKey);
+            Mac mac = this.mac != null ? this.mac : createMac(this.keyValue);
 
-            // Compute the hmac on input data bytes
+            // Compute the hmac on input data bytes. This also resets the Mac so that it can be reused.
             byte[] rawHmac = mac.doFinal(toSign.getBytes(StandardCharsets.UTF_8));
 
             // Convert raw bytes to Hex
@@ -124,6 +140,30 @@ public final class IotHubServiceSasToken
         }
     }
 
+    /**
+     * Create a Mac for signing tokens with the given shared access key.
+     *
+     * @param keyValue the base64 encoded shared access key.
+     * @return the Mac, initialized with the key.
+     */
+    static Mac createMac(String keyValue)
+    {
+        byte[] keyBytes = decodeBase64(keyValue.getBytes(StandardCharsets.UTF_8));
+        SecretKeySpec signingKey = new SecretKeySpec(keyBytes, HMAC_SHA_256);
+
+        try
+        {
+            // Get an hmac_sha256 Mac instance and initialize with the signing key
+            Mac mac = Mac.getInstance(HMAC_SHA_256);
+            mac.init(signingKey);
+            return mac;
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * Helper function to calculate token expiry
      *
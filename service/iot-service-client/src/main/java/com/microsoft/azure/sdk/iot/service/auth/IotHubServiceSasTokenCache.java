@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Mac;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class generates SAS tokens from an IoT hub connection string but caches previous tokens when they aren't near
+ * expiry, so that the requests of a service client share a token rather than each signing their own. Each service
+ * client created from a connection string owns one of these caches, so the cache and its key live no longer than the
+ * client does.
+ *
+ * <p>
+ * A token is renewed in the background once it is 9 minutes or less away from expiring, while callers keep getting the
+ * current token. Only if it is 1 minute or less away from expiring is it renewed by the caller. This class is thread
+ * safe.
+ * </p>
+ */
+@Slf4j
+public final class IotHubServiceSasTokenCache
+{
+    private static final int MINUTES_BEFORE_PROACTIVE_RENEWAL = 9;
+    private static final int MINUTES_BEFORE_REQUIRED_RENEWAL = 1;
+
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-IotHubServiceSasTokenCache-";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Signing a token is quick, so one thread renews the tokens of all caches rather than borrowing the common pool
+    // that user code may be saturating
+    private static final ExecutorService RENEWAL_EXECUTOR = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final IotHubConnectionString iotHubConnectionString;
+    private final AtomicBoolean isRenewing = new AtomicBoolean();
+    private volatile IotHubServiceSasToken sasToken;
+
+    // Only used while holding this cache's lock, since a Mac is not thread safe
+    private Mac mac;
+
+    /**
+     * Create a cache for SAS tokens generated from the given connection string.
+     *
+     * @param iotHubConnectionString the connection string to generate SAS tokens from.
+     */
+    public IotHubServiceSasTokenCache(IotHubConnectionString iotHubConnectionString)
+    {
+        this.iotHubConnectionString = Objects.requireNonNull(iotHubConnectionString, "iotHubConnectionString cannot be null");
+    }
+
+    /**
+     * Get a valid SAS token. This will be the same as a previously returned token unless that token is close to
+     * expiring.
+     *
+     * @return a valid SAS token string.
+     */
+    public String getTokenString()
+    {
+        IotHubServiceSasToken currentSasToken = this.sasToken;
+        long remainingMillis = getRemainingMillis(currentSasToken);
+
+        if (remainingMillis <= TimeUnit.MINUTES.toMillis(MINUTES_BEFORE_REQUIRED_RENEWAL))
+        {
+            return renew().toString();
+        }
+
+        if (remainingMillis <= TimeUnit.MINUTES.toMillis(MINUTES_BEFORE_PROACTIVE_RENEWAL)
+            && this.isRenewing.compareAndSet(false, true))
+        {
+            RENEWAL_EXECUTOR.execute(this::renewInBackground);
+        }
+
+        return currentSasToken.toString();
+    }
+
+    private void renewInBackground()
+    {
+        try
+        {
+            renew();
+        }
+        catch (RuntimeException e)
+        {
+            // The next caller to find the token close to expiry will try again
+            log.warn("Failed to renew the SAS token for {}", this.iotHubConnectionString.getHostName(), e);
+        }
+        finally
+        {
+            this.isRenewing.set(false);
+        }
+    }
+
+    private synchronized IotHubServiceSasToken renew()
+    {
+        // Another thread may have renewed the token while this one was waiting for the lock
+        IotHubServiceSasToken currentSasToken = this.sasToken;
+        if (getRemainingMillis(currentSasToken) > TimeUnit.MINUTES.toMillis(MINUTES_BEFORE_PROACTIVE_RENEWAL))
+        {
+            return currentSasToken;
+        }
+
+        log.trace("Generating a new SAS token for {}", this.iotHubConnectionString.getHostName());
+        if (this.mac == null)
+        {
+            this.mac = IotHubServiceSasToken.createMac(this.iotHubConnectionString.getSharedAccessKey());
+        }
+
+        this.sasToken = new IotHubServiceSasToken(this.iotHubConnectionString, this.mac);
+        return this.sasToken;
+    }
+
+    private static long getRemainingMillis(IotHubServiceSasToken sasToken)
+    {
+        return sasToken == null ? 0 : sasToken.getExpiryTimeMillis() - System.currentTimeMillis();
+    }
+}
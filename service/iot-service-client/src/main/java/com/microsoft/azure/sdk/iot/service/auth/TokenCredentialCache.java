@@ -7,20 +7,32 @@ import com.azure.core.credential.AccessToken;
 import com.azure.core.credential.TokenCredential;
 import com.azure.core.credential.TokenRequestContext;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This class generates AAD authentication tokens from a TokenCredential but caches previous tokens when they aren't near
  * expiry.
+ *
+ * <p>
+ * At most one token request is in flight at a time, no matter how many threads ask for a token. A token is renewed in
+ * the background once it is 9 minutes or less away from expiring, while callers keep getting the current token. Only
+ * if it is 1 minute or less away from expiring do callers wait for the renewal. This class is thread safe.
+ * </p>
  */
+@Slf4j
 public class TokenCredentialCache
 {
     private final static int MINUTES_BEFORE_PROACTIVE_RENEWAL = 9;
+    private final static int MINUTES_BEFORE_REQUIRED_RENEWAL = 1;
     private final TokenCredential tokenCredential;
-    private AccessToken accessToken;
+    private volatile AccessToken accessToken;
+    private CompletableFuture<AccessToken> pendingRenewal;
 
     @SuppressFBWarnings("MS_MUTABLE_ARRAY") // Can't change this to an immutable list without a breaking change
     public static final String[] IOTHUB_PUBLIC_SCOPE = new String[]{"https://iothubs.azure.net/.default"};
@@ -39,18 +51,51 @@ public class TokenCredentialCache
 
     /**
      * Get a valid AAD authentication token. This may be the same as a previously returned token if it is not near
-     * expiration time yet. If a token is less than or equal to 9 minutes away from expiring or is expired already, the
-     * token will be renewed. Otherwise, a cached token will be returned.
+     * expiration time yet. If a token is less than or equal to 9 minutes away from expiring, it will be renewed in the
+     * background while the cached token is returned. If a token is less than or equal to 1 minute away from expiring
+     * or is expired already, this call blocks until the token has been renewed.
      * @return a valid AAD authentication token.
      */
     public AccessToken getAccessToken()
     {
-        if (this.accessToken == null || isAccessTokenCloseToExpiry(this.accessToken))
+        try
         {
-            this.accessToken = tokenCredential.getToken(new TokenRequestContext().addScopes(IOTHUB_PUBLIC_SCOPE)).block();
+            return getAccessTokenAsync().join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Get a valid AAD authentication token without blocking the calling thread. The returned future is already
+     * completed unless the cached token is 1 minute or less away from expiring, in which case it completes once the
+     * token has been renewed. Concurrent callers share a single renewal.
+     * @return a future that completes with a valid AAD authentication token.
+     */
+    public CompletableFuture<AccessToken> getAccessTokenAsync()
+    {
+        AccessToken currentAccessToken = this.accessToken;
+        if (currentAccessToken != null && !isAccessTokenCloseToExpiry(currentAccessToken, MINUTES_BEFORE_PROACTIVE_RENEWAL))
+        {
+            return CompletableFuture.completedFuture(currentAccessToken);
         }
 
-        return this.accessToken;
+        CompletableFuture<AccessToken> renewal = renewAccessToken();
+
+        if (currentAccessToken != null && !isAccessTokenCloseToExpiry(currentAccessToken, MINUTES_BEFORE_REQUIRED_RENEWAL))
+        {
+            // The current token is still usable, so don't make the caller wait on the renewal
+            return CompletableFuture.completedFuture(currentAccessToken);
+        }
+
+        return renewal;
     }
 
     /**
@@ -62,6 +107,15 @@ public class TokenCredentialCache
         return BEARER_TOKEN_PREFIX + getAccessToken().getToken();
     }
 
+    /**
+     * Get the access token string, including the Bearer prefix, without blocking the calling thread.
+     * @return a future that completes with the access token string, including the Bearer prefix.
+     */
+    public CompletableFuture<String> getTokenStringAsync()
+    {
+        return getAccessTokenAsync().thenApply(token -> BEARER_TOKEN_PREFIX + token.getToken());
+    }
+
     /**
      * @return the TokenCredential instance that was set in the constructor.
      */
@@ -70,9 +124,73 @@ public class TokenCredentialCache
         return this.tokenCredential;
     }
 
-    private static boolean isAccessTokenCloseToExpiry(AccessToken accessToken)
+    private synchronized CompletableFuture<AccessToken> renewAccessToken()
+    {
+        if (this.pendingRenewal != null)
+        {
+            return this.pendingRenewal;
+        }
+
+        // Another thread may have finished renewing the token since this one last checked it
+        AccessToken currentAccessToken = this.accessToken;
+        if (currentAccessToken != null && !isAccessTokenCloseToExpiry(currentAccessToken, MINUTES_BEFORE_PROACTIVE_RENEWAL))
+        {
+            return CompletableFuture.completedFuture(currentAccessToken);
+        }
+
+        CompletableFuture<AccessToken> tokenRequest;
+        try
+        {
+            tokenRequest = this.tokenCredential.getToken(new TokenRequestContext().addScopes(IOTHUB_PUBLIC_SCOPE)).toFuture();
+        }
+        catch (RuntimeException e)
+        {
+            tokenRequest = new CompletableFuture<>();
+            tokenRequest.completeExceptionally(e);
+        }
+
+        CompletableFuture<AccessToken> renewal = new CompletableFuture<>();
+        this.pendingRenewal = renewal;
+
+        tokenRequest.whenComplete((newAccessToken, throwable) ->
+        {
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+
+            if (cause == null && newAccessToken == null)
+            {
+                cause = new IllegalStateException("The token credential did not return an access token");
+            }
+
+            synchronized (this)
+            {
+                if (cause == null)
+                {
+                    this.accessToken = newAccessToken;
+                }
+
+                // A failed renewal is retried by the next caller that finds the token close to expiry
+                this.pendingRenewal = null;
+            }
+
+            if (cause == null)
+            {
+                renewal.complete(newAccessToken);
+            }
+            else
+            {
+                log.warn("Failed to renew the AAD authentication token", cause);
+                renewal.completeExceptionally(cause);
+            }
+        });
+
+        return renewal;
+    }
+
+    private static boolean isAccessTokenCloseToExpiry(AccessToken accessToken, int minutesBeforeRenewal)
     {
         Duration remainingTimeToLive = Duration.between(Instant.now(), accessToken.getExpiresAt().toInstant());
-        return remainingTimeToLive.toMinutes() <= MINUTES_BEFORE_PROACTIVE_RENEWAL;
+        return remainingTimeToLive.toMinutes() <= minutesBeforeRenewal;
     }
 }
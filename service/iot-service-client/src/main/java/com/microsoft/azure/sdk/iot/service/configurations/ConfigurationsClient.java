@@ -8,25 +8,30 @@ import com.azure.core.credential.TokenCredential;
 import com.google.gson.Gson;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.configurations.serializers.ConfigurationParser;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.registry.Module;
 import com.microsoft.azure.sdk.iot.service.registry.serializers.RegistryIdentityParser;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The client for creating, updating, getting and deleting configurations.
@@ -36,10 +41,13 @@ import java.util.Objects;
 @Slf4j
 public class ConfigurationsClient
 {
+    private static final Gson GSON = new Gson();
+
     private final String hostName;
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
 
     private final ConfigurationsClientOptions options;
 
@@ -73,6 +81,7 @@ public class ConfigurationsClient
 
         this.iotHubConnectionString =
             IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
 
         this.hostName = iotHubConnectionString.getHostName();
         this.options = options;
@@ -207,6 +216,35 @@ public class ConfigurationsClient
         return new Configuration(new ConfigurationParser(bodyStr));
     }
 
+    /**
+     * Get configuration by configuration Id from IotHub without blocking the calling thread.
+     *
+     * @param configurationId The id of requested configuration
+     * @return A future that completes with the configuration object of requested configuration. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<Configuration> getAsync(String configurationId)
+    {
+        if (configurationId == null || configurationId.isEmpty())
+        {
+            throw new IllegalArgumentException("configurationId cannot be null or empty");
+        }
+
+        URL url;
+        try
+        {
+            url = IotHubConnectionString.getUrlConfiguration(this.hostName, configurationId);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid configurationId to create url", e);
+        }
+
+        return sendAsync(createAsyncRequest(url, HttpMethod.GET, new byte[0]))
+            .thenApply(response -> new Configuration(new ConfigurationParser(new String(response.getBody(), StandardCharsets.UTF_8))));
+    }
+
     /**
      * Get list of Configuration
      *
@@ -231,8 +269,7 @@ public class ConfigurationsClient
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
         List<Configuration> configurationList = new ArrayList<>();
 
-        Gson gson = new Gson();
-        ConfigurationParser[] configurationParsers = gson.fromJson(bodyStr, ConfigurationParser[].class);
+        ConfigurationParser[] configurationParsers = GSON.fromJson(bodyStr, ConfigurationParser[].class);
 
         for (int i = 0; i < configurationParsers.length; i++)
         {
@@ -362,6 +399,29 @@ public class ConfigurationsClient
         return request;
     }
 
+    private AsyncHttpRequest createAsyncRequest(URL url, HttpMethod method, byte[] payload)
+    {
+        Proxy proxy = null;
+        if (this.options.getProxyOptions() != null)
+        {
+            proxy = this.options.getProxyOptions().getProxy();
+        }
+
+        // The Authorization header is set by sendAsync, once the token is available
+        AsyncHttpRequest request = new AsyncHttpRequest(url, method, payload, null, proxy);
+        request.setReadTimeoutSeconds(this.options.getHttpReadTimeoutSeconds());
+        request.setConnectTimeoutSeconds(this.options.getHttpConnectTimeoutSeconds());
+        return request;
+    }
+
+    private CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request)
+    {
+        AsyncHttpEngine configuredEngine = this.options.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync().thenCompose(token -> engine.sendAsync(request.setAuthorizationToken(token)));
+    }
+
     private String getAuthenticationToken()
     {
         // Three different constructor types for this class, and each type provides either a TokenCredential implementation,
@@ -376,6 +436,17 @@ public class ConfigurationsClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 }
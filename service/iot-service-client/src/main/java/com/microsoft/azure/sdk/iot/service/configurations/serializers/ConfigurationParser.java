@@ -100,6 +100,7 @@ public class ConfigurationParser
     private String eTag;
 
     private final transient static Gson gson = new GsonBuilder().enableComplexMapKeySerialization().serializeNulls().create();
+    private final transient static Gson EXPOSED_FIELDS_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
 
     /**
      * Empty constructor: Used only to keep GSON happy.
@@ -246,8 +247,7 @@ public class ConfigurationParser
         }
 
         //Codes_SRS_CONFIGURATION_PARSER_28_006: [This method shall return a json representation of this.]
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().create();
-        JsonObject jsonObject = gson.toJsonTree(this).getAsJsonObject();
+        JsonObject jsonObject = EXPOSED_FIELDS_GSON.toJsonTree(this).getAsJsonObject();
 
         /* SRS_TWIN_STATE_21_009: [If the tags is null, the JSON shall not include the `tags`.] */
         if (this.content != null)
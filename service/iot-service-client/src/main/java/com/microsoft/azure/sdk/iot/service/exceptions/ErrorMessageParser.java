@@ -11,6 +11,8 @@ import com.google.gson.annotations.SerializedName;
  */
 public class ErrorMessageParser
 {
+    private static final Gson GSON = new Gson();
+
     @SuppressWarnings("unused") // A number of private members are unused but may be filled in or used by serialization
     static class ErrorMessage
     {
@@ -36,15 +38,13 @@ public class ErrorMessageParser
             return "";
         }
 
-        Gson gson = new GsonBuilder().create();
-
         String rootMessage = fullErrorMessage;
         String rootException = null;
         ErrorMessage subMessage;
         /* Codes_SRS_ERROR_MESSAGE_PARSER_21_001: [The bestErrorMessage shall parse the fullErrorMessage as json with format {"Message":"ErrorCode:[error]","ExceptionMessage":"Tracking ID:[tracking id]-TimeStamp:[dateTime]"}.] */
         try
         {
-            subMessage = gson.fromJson(rootMessage, ErrorMessage.class);
+            subMessage = GSON.fromJson(rootMessage, ErrorMessage.class);
         }
         catch (JsonSyntaxException e)
         {
@@ -64,7 +64,7 @@ public class ErrorMessageParser
             try
             {
                 /* Codes_SRS_ERROR_MESSAGE_PARSER_21_004: [The bestErrorMessage shall use the most inner message as the root cause.] */
-                subMessage = gson.fromJson(rootMessage.substring(rootMessage.indexOf('{')), ErrorMessage.class);
+                subMessage = GSON.fromJson(rootMessage.substring(rootMessage.indexOf('{')), ErrorMessage.class);
             }
             catch (StringIndexOutOfBoundsException | JsonSyntaxException e)
             {
@@ -97,7 +97,7 @@ public class ErrorMessageParser
 
         try
         {
-            JsonObject errorMessageJson = new GsonBuilder().create().fromJson(fullErrorMessage, JsonObject.class);
+            JsonObject errorMessageJson = GSON.fromJson(fullErrorMessage, JsonObject.class);
 
             if (errorMessageJson.has(errorCodeJsonKey) && errorMessageJson.get(errorCodeJsonKey).isJsonPrimitive())
             {
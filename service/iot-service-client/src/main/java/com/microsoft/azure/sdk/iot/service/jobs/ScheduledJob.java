@@ -24,6 +24,8 @@ import java.util.Set;
  */
 public class ScheduledJob
 {
+    private static final Gson PRETTY_PRINTING_GSON = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
+
     /**
      * The unique identifier for this job.
      */
@@ -210,8 +212,7 @@ public class ScheduledJob
     @Override
     public String toString()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().setPrettyPrinting().create();
-        return gson.toJson(this);
+        return PRETTY_PRINTING_GSON.toJson(this);
     }
 
     private Set<Pair> mapToSet(Map<String, Object> map)
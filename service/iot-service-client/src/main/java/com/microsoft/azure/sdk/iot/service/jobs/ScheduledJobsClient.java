@@ -15,15 +15,18 @@ import com.microsoft.azure.sdk.iot.service.twin.TwinCollection;
 import com.microsoft.azure.sdk.iot.service.twin.TwinState;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.twin.Twin;
 import com.microsoft.azure.sdk.iot.service.twin.Pair;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -33,6 +36,7 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.Set;
 
 /**
@@ -47,6 +51,7 @@ public final class ScheduledJobsClient
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
     private final ScheduledJobsClientOptions clientOptions;
 
     // keep a queryClient within this client so that twins can be queried
@@ -77,6 +82,7 @@ public final class ScheduledJobsClient
         }
 
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
         this.hostName = this.iotHubConnectionString.getHostName();
         this.clientOptions = clientOptions;
         commonConstructorSetup();
@@ -86,6 +92,7 @@ public final class ScheduledJobsClient
                 .httpReadTimeoutSeconds(clientOptions.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(clientOptions.getHttpConnectTimeoutSeconds())
                 .proxyOptions(clientOptions.getProxyOptions())
+                .asyncHttpEngine(clientOptions.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(connectionString, queryClientOptions);
@@ -131,6 +138,7 @@ public final class ScheduledJobsClient
                 .httpReadTimeoutSeconds(clientOptions.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(clientOptions.getHttpConnectTimeoutSeconds())
                 .proxyOptions(clientOptions.getProxyOptions())
+                .asyncHttpEngine(clientOptions.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(hostName, credential, queryClientOptions);
@@ -174,6 +182,7 @@ public final class ScheduledJobsClient
                 .httpReadTimeoutSeconds(clientOptions.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(clientOptions.getHttpConnectTimeoutSeconds())
                 .proxyOptions(clientOptions.getProxyOptions())
+                .asyncHttpEngine(clientOptions.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(hostName, azureSasCredential, queryClientOptions);
@@ -369,6 +378,35 @@ public final class ScheduledJobsClient
         return new ScheduledJob(new String(response.getBody(), StandardCharsets.UTF_8));
     }
 
+    /**
+     * Get the current job on the iotHub without blocking the calling thread.
+     *
+     * @param jobId Unique ScheduledJob Id for this job
+     * @return a future that completes with the retrieved job. It completes exceptionally with an {@link IOException}
+     * if the IO failed on request, or with an {@link IotHubException} if the http request failed.
+     */
+    public CompletableFuture<ScheduledJob> getAsync(String jobId)
+    {
+        URL url;
+
+        if (jobId == null || jobId.isEmpty())
+        {
+            throw new IllegalArgumentException("jobId cannot be null or empty");
+        }
+
+        try
+        {
+            url = IotHubConnectionString.getUrlJobs(this.hostName, jobId);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid JobId to create url");
+        }
+
+        return sendAsync(createAsyncRequest(url, HttpMethod.GET, new byte[0]))
+            .thenApply(response -> new ScheduledJob(new String(response.getBody(), StandardCharsets.UTF_8)));
+    }
+
     /**
      * Cancel a current jod on the IoTHub
      *
@@ -513,6 +551,29 @@ public final class ScheduledJobsClient
         return map;
     }
 
+    private AsyncHttpRequest createAsyncRequest(URL url, HttpMethod method, byte[] payload)
+    {
+        Proxy proxy = null;
+        if (this.clientOptions.getProxyOptions() != null)
+        {
+            proxy = this.clientOptions.getProxyOptions().getProxy();
+        }
+
+        // The Authorization header is set by sendAsync, once the token is available
+        AsyncHttpRequest request = new AsyncHttpRequest(url, method, payload, null, proxy);
+        request.setReadTimeoutSeconds(this.clientOptions.getHttpReadTimeoutSeconds());
+        request.setConnectTimeoutSeconds(this.clientOptions.getHttpConnectTimeoutSeconds());
+        return request;
+    }
+
+    private CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request)
+    {
+        AsyncHttpEngine configuredEngine = this.clientOptions.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync().thenCompose(token -> engine.sendAsync(request.setAuthorizationToken(token)));
+    }
+
     private String getAuthenticationToken()
     {
         // Three different constructor types for this class, and each type provides either a TokenCredential implementation,
@@ -527,7 +588,18 @@ public final class ScheduledJobsClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 
     private HttpRequest createRequest(URL url, HttpMethod method, byte[] payload) throws IOException
@@ -16,6 +16,9 @@ import java.io.IOException;
 @SuppressWarnings("unused") // A number of private members are unused but may be filled in or used by serialization
 public class JobQueryResponseError
 {
+    private static final Gson FROM_JSON_GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final Gson TO_JSON_GSON = new GsonBuilder().serializeNulls().create();
+
     // Code for the error
     private static final String CODE_TAG = "code";
     @SerializedName(CODE_TAG)
@@ -44,12 +47,11 @@ public class JobQueryResponseError
             throw new IllegalArgumentException("Json is null or empty");
         }
 
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
         JobQueryResponseError jobQueryResponseError;
         try
         {
             //Codes_SRSJOB_QUERY_RESPONSE_ERROR_25_004: [This method shall save the values of code and description to this object.]
-            jobQueryResponseError = gson.fromJson(json, JobQueryResponseError.class);
+            jobQueryResponseError = FROM_JSON_GSON.fromJson(json, JobQueryResponseError.class);
         }
         catch (JsonSyntaxException e)
         {
@@ -78,7 +80,6 @@ public class JobQueryResponseError
     public String toJson()
     {
         //Codes_SRSJOB_QUERY_RESPONSE_ERROR_25_003: [The method shall build the json with the values provided to this object.]
-        Gson gson = new GsonBuilder().serializeNulls().create();
-        return gson.toJson(this);
+        return TO_JSON_GSON.toJson(this);
     }
 }
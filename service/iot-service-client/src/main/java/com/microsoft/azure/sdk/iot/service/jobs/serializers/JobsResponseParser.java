@@ -6,7 +6,9 @@ package com.microsoft.azure.sdk.iot.service.jobs.serializers;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 import com.microsoft.azure.sdk.iot.service.methods.serializers.MethodParser;
@@ -15,7 +17,6 @@ import com.microsoft.azure.sdk.iot.service.twin.TwinState;
 import lombok.Getter;
 
 import java.util.Date;
-import java.util.Map;
 
 /**
  * Representation of a single Jobs response collection with a Json deserializer.
@@ -23,6 +24,8 @@ import java.util.Map;
 @SuppressWarnings("unused") // A number of private members are unused but may be filled in or used by serialization
 public class JobsResponseParser
 {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
     // ScheduledJob identifier
     private static final String JOBID_TAG = "jobId";
     @SerializedName(JOBID_TAG)
@@ -211,17 +214,18 @@ public class JobsResponseParser
      * @throws IllegalArgumentException if the json is {@code null} or empty, or if any date is invalid
      * @throws JsonParseException if the json is not valid
      */
-    @SuppressWarnings("rawtypes")
     public static JobsResponseParser createFromJson(String json) throws IllegalArgumentException, JsonParseException
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-
         if ((json == null) || json.isEmpty())
         {
             throw new IllegalArgumentException("Json is null or empty");
         }
 
-        JobsResponseParser jobsResponseParser = gson.fromJson(json, JobsResponseParser.class);
+        // Parsed once into a tree, so that the nested twin and method objects can be read from it without parsing the
+        // whole json again
+        JsonElement root = JsonParser.parseString(json);
+        JobsResponseParser jobsResponseParser = GSON.fromJson(root, JobsResponseParser.class);
+        JsonObject rootObject = root.getAsJsonObject();
 
         if ((jobsResponseParser.jobId == null) || jobsResponseParser.jobId.isEmpty())
         {
@@ -248,40 +252,37 @@ public class JobsResponseParser
             jobsResponseParser.type = jobsResponseParser.jobType;
         }
 
-        Map map = gson.fromJson(json, Map.class);
-
-        if (map.containsKey(UPDATETWIN_TAG))
+        if (rootObject.has(UPDATETWIN_TAG))
         {
-            jobsResponseParser.updateTwin = new TwinState(gson.toJson(map.get(UPDATETWIN_TAG)));
+            jobsResponseParser.updateTwin = new TwinState(rootObject.get(UPDATETWIN_TAG).toString());
         }
 
-        if (map.containsKey(CLOUDTODEVICEMETHOD_TAG))
+        if (rootObject.has(CLOUDTODEVICEMETHOD_TAG))
         {
-            jobsResponseParser.cloudToDeviceMethod.fromJson(gson.toJson(map.get(CLOUDTODEVICEMETHOD_TAG)));
+            jobsResponseParser.cloudToDeviceMethod.fromJson(rootObject.get(CLOUDTODEVICEMETHOD_TAG).toString());
         }
 
-        if (map.containsKey(OUTCOME_TAG))
+        if (rootObject.has(OUTCOME_TAG))
         {
-            Map responseMap = gson.fromJson(jobsResponseParser.outcome, Map.class);
-            if (responseMap.containsKey(DEVICE_METHOD_RESPONSE_TAG))
+            JsonElement outcome = rootObject.get(OUTCOME_TAG);
+            if (outcome.isJsonObject() && outcome.getAsJsonObject().has(DEVICE_METHOD_RESPONSE_TAG))
             {
-                MethodParser methodParserResponse = new MethodParser();
-                Object value = responseMap.get(DEVICE_METHOD_RESPONSE_TAG);
-                if (value == null)
+                JsonElement value = outcome.getAsJsonObject().get(DEVICE_METHOD_RESPONSE_TAG);
+                if (value.isJsonNull())
                 {
                     jobsResponseParser.methodResponse = null;
                 }
                 else
                 {
-                    String outcomeResponse = gson.toJson(value);
-                    methodParserResponse.fromJson(outcomeResponse);
+                    MethodParser methodParserResponse = new MethodParser();
+                    methodParserResponse.fromJson(value.toString());
                     jobsResponseParser.methodResponse = methodParserResponse;
                 }
             }
             else
             {
                 MethodParser methodParserResponse = new MethodParser();
-                methodParserResponse.fromJson(gson.toJson(map.get(OUTCOME_TAG)));
+                methodParserResponse.fromJson(outcome.toString());
                 jobsResponseParser.methodResponse = methodParserResponse;
             }
         }
@@ -16,6 +16,8 @@ import java.util.List;
  */
 public class FeedbackBatchMessage
 {
+    private static final Gson GSON = new Gson();
+
     /**
      * Parse received Json and create FeedbackBatch object
      *
@@ -35,8 +37,7 @@ public class FeedbackBatchMessage
 
             if (!jsonString.equals(""))
             {
-                Gson gson = new Gson();
-                FeedbackRecordParser[] feedbackRecordParsers = gson.fromJson(jsonString, FeedbackRecordParser[].class);
+                FeedbackRecordParser[] feedbackRecordParsers = GSON.fromJson(jsonString, FeedbackRecordParser[].class);
 
                 if (feedbackRecordParsers.length > 0)
                 {
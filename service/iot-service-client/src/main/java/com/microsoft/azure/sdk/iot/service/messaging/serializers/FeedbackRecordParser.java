@@ -4,17 +4,27 @@
 package com.microsoft.azure.sdk.iot.service.messaging.serializers;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.microsoft.azure.sdk.iot.service.ParserUtility;
 import com.microsoft.azure.sdk.iot.service.messaging.FeedbackStatusCode;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.util.Date;
 
 import static com.microsoft.azure.sdk.iot.service.messaging.FeedbackStatusCode.unknown;
 
+/**
+ * A single record of a feedback batch. A feedback batch can hold many records, so they are read and written by a
+ * hand-written {@link TypeAdapter} rather than by reflection.
+ */
+@JsonAdapter(FeedbackRecordParser.FeedbackRecordTypeAdapter.class)
 public class FeedbackRecordParser
 {
     private static final String DEVICE_ID_TAG = "deviceId";
@@ -64,4 +74,97 @@ public class FeedbackRecordParser
     {
         return ParserUtility.getDateTimeUtc(this.enqueuedTimeUtc);
     }
+
+    static final class FeedbackRecordTypeAdapter extends TypeAdapter<FeedbackRecordParser>
+    {
+        // Gson's adapter for the enum, so the status codes are named by their @SerializedName values. Unrecognized
+        // codes are read as null and left for FeedbackRecord to map to unknown, as the reflective adapter did.
+        private static final TypeAdapter<FeedbackStatusCode> STATUS_CODE_ADAPTER = new Gson().getAdapter(FeedbackStatusCode.class);
+
+        @Override
+        public void write(JsonWriter writer, FeedbackRecordParser record) throws IOException
+        {
+            if (record == null)
+            {
+                writer.nullValue();
+                return;
+            }
+
+            writer.beginObject();
+            writeIfNotNull(writer, DEVICE_ID_TAG, record.deviceId);
+            writeIfNotNull(writer, ORIGINAL_MESSAGE_ID_TAG, record.originalMessageId);
+            writeIfNotNull(writer, DESCRIPTION_TAG, record.description);
+            if (record.statusCode != null)
+            {
+                writer.name(STATUS_CODE_TAG);
+                STATUS_CODE_ADAPTER.write(writer, record.statusCode);
+            }
+
+            writeIfNotNull(writer, DEVICE_GENERATION_ID_TAG, record.deviceGenerationId);
+            writeIfNotNull(writer, ENQUEUED_TIME_UTC_TAG, record.enqueuedTimeUtc);
+            writer.endObject();
+        }
+
+        @Override
+        public FeedbackRecordParser read(JsonReader reader) throws IOException
+        {
+            if (reader.peek() == JsonToken.NULL)
+            {
+                reader.nextNull();
+                return null;
+            }
+
+            FeedbackRecordParser record = new FeedbackRecordParser();
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                switch (reader.nextName())
+                {
+                    case DEVICE_ID_TAG:
+                        record.deviceId = nextStringOrNull(reader);
+                        break;
+                    case ORIGINAL_MESSAGE_ID_TAG:
+                        record.originalMessageId = nextStringOrNull(reader);
+                        break;
+                    case DESCRIPTION_TAG:
+                        record.description = nextStringOrNull(reader);
+                        break;
+                    case STATUS_CODE_TAG:
+                        record.statusCode = STATUS_CODE_ADAPTER.read(reader);
+                        break;
+                    case DEVICE_GENERATION_ID_TAG:
+                        record.deviceGenerationId = nextStringOrNull(reader);
+                        break;
+                    case ENQUEUED_TIME_UTC_TAG:
+                        record.enqueuedTimeUtc = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+
+            reader.endObject();
+            return record;
+        }
+
+        private static String nextStringOrNull(JsonReader reader) throws IOException
+        {
+            if (reader.peek() == JsonToken.NULL)
+            {
+                reader.nextNull();
+                return null;
+            }
+
+            return reader.nextString();
+        }
+
+        private static void writeIfNotNull(JsonWriter writer, String name, String value) throws IOException
+        {
+            if (value != null)
+            {
+                writer.name(name).value(value);
+            }
+        }
+    }
 }
@@ -25,6 +25,8 @@ import java.util.Date;
  */
 public class FileUploadNotificationParser
 {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+
     private static final String DEVICE_ID_TAG = "deviceId";
     @Expose
     @SerializedName(DEVICE_ID_TAG)
@@ -69,14 +71,13 @@ public class FileUploadNotificationParser
     public FileUploadNotificationParser(String json) throws IllegalArgumentException
     {
         /* Codes_SRS_FILE_UPLOAD_NOTIFICATION_21_001: [The constructor shall create an instance of the FileUploadNotification.] */
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
         FileUploadNotificationParser fileUploadNotificationParser;
 
         /* Codes_SRS_FILE_UPLOAD_NOTIFICATION_21_003: [If the provided json is null, empty, or not valid, the constructor shall throws IllegalArgumentException.] */
         ParserUtility.validateStringUTF8(json);
         try
         {
-            fileUploadNotificationParser = gson.fromJson(json, FileUploadNotificationParser.class);
+            fileUploadNotificationParser = GSON.fromJson(json, FileUploadNotificationParser.class);
         }
         catch (Exception malformed)
         {
@@ -0,0 +1,57 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.methods;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * The outcome of invoking a direct method on one of the devices of a fan-out.
+ */
+public final class DeviceMethodInvocationResult
+{
+    /**
+     * The Id of the device that the method was invoked on.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The status and payload that the device responded with, or null if the invocation failed.
+     */
+    @Getter
+    private final MethodResult methodResult;
+
+    /**
+     * The reason that the invocation failed, or null if it succeeded. This is an {@link IOException} if the IO
+     * operation failed, or an {@link IotHubException} if the response verification failed, for instance because the
+     * device is offline.
+     */
+    @Getter
+    private final Throwable exception;
+
+    /**
+     * The time from sending the request to receiving the response, in milliseconds.
+     */
+    @Getter
+    private final long latencyMillis;
+
+    DeviceMethodInvocationResult(String deviceId, MethodResult methodResult, Throwable exception, long latencyMillis)
+    {
+        this.deviceId = deviceId;
+        this.methodResult = methodResult;
+        this.exception = exception;
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * @return true if the device responded to the method, and false otherwise.
+     */
+    public boolean isSuccessful()
+    {
+        return this.exception == null;
+    }
+}
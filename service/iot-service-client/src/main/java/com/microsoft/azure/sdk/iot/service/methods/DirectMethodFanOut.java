@@ -0,0 +1,274 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.methods;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Invokes a direct method on many devices. A single thread walks the device Ids and starts the invocations, waiting
+ * whenever {@link DirectMethodFanOutOptions#getMaxConcurrentInvocations()} of them are in progress or the rate limit
+ * has been reached. The invocations themselves are asynchronous, so they don't hold a thread while they wait for the
+ * devices to respond.
+ *
+ * <p>
+ * The results are passed to the result handler one at a time on a thread of the fan-out's own, so the handler
+ * doesn't have to be thread safe and never runs on the threads that complete the invocations, such as the event loop
+ * of the HTTP engine.
+ * </p>
+ */
+@Slf4j
+final class DirectMethodFanOut
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-DirectMethodFanOut-";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final int INITIAL_LATENCIES_CAPACITY = 64;
+
+    /**
+     * Starts the invocation of the direct method on a single device.
+     */
+    interface Invoker
+    {
+        CompletableFuture<MethodResult> invoke(String deviceId);
+    }
+
+    private final Iterable<String> deviceIds;
+    private final Invoker invoker;
+    private final Consumer<DeviceMethodInvocationResult> resultHandler;
+    private final DirectMethodFanOutOptions options;
+    private final Semaphore invocationPermits;
+    private final CompletableFuture<DirectMethodFanOutStatistics> completion = new CompletableFuture<>();
+    private final ExecutorService resultExecutor = Executors.newSingleThreadExecutor(DirectMethodFanOut::newThread);
+
+    // Starts at 1 for the thread that starts the invocations, so the fan-out can't complete before all have started
+    private final AtomicInteger pendingInvocations = new AtomicInteger(1);
+
+    private final Object resultLock = new Object();
+    private final long startNanos;
+    private long[] latenciesMillis = new long[INITIAL_LATENCIES_CAPACITY];
+    private int resultCount;
+    private int successCount;
+
+    private DirectMethodFanOut(
+        Iterable<String> deviceIds,
+        Invoker invoker,
+        Consumer<DeviceMethodInvocationResult> resultHandler,
+        DirectMethodFanOutOptions options)
+    {
+        this.deviceIds = deviceIds;
+        this.invoker = invoker;
+        this.resultHandler = resultHandler;
+        this.options = options;
+        this.invocationPermits = new Semaphore(options.getMaxConcurrentInvocations());
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start invoking the direct method on the devices.
+     *
+     * @param deviceIds the Ids of the devices to invoke the method on.
+     * @param invoker starts the invocation on a single device.
+     * @param resultHandler is called with the result of each invocation as it completes.
+     * @param options the options of the fan-out.
+     * @return a future that completes with the statistics of the fan-out once every invocation has completed.
+     * Cancelling it stops starting new invocations.
+     */
+    static CompletableFuture<DirectMethodFanOutStatistics> start(
+        Iterable<String> deviceIds,
+        Invoker invoker,
+        Consumer<DeviceMethodInvocationResult> resultHandler,
+        DirectMethodFanOutOptions options)
+    {
+        validateOptions(options);
+
+        DirectMethodFanOut fanOut = new DirectMethodFanOut(deviceIds, invoker, resultHandler, options);
+        newThread(fanOut::startInvocations).start();
+        return fanOut.completion;
+    }
+
+    private static Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static void validateOptions(DirectMethodFanOutOptions options)
+    {
+        if (options.getMethodRequestOptions() == null)
+        {
+            throw new IllegalArgumentException("methodRequestOptions cannot be null");
+        }
+
+        if (options.getMaxConcurrentInvocations() < 1)
+        {
+            throw new IllegalArgumentException("maxConcurrentInvocations must be positive");
+        }
+
+        if (options.getMaxInvocationsPerSecond() < 0)
+        {
+            throw new IllegalArgumentException("maxInvocationsPerSecond cannot be negative");
+        }
+    }
+
+    private void startInvocations()
+    {
+        long intervalNanos = this.options.getMaxInvocationsPerSecond() > 0
+            ? TimeUnit.SECONDS.toNanos(1) / this.options.getMaxInvocationsPerSecond()
+            : 0;
+        long nextStartNanos = this.startNanos;
+
+        try
+        {
+            for (String deviceId : this.deviceIds)
+            {
+                this.invocationPermits.acquire();
+
+                // The fan-out was cancelled, or the result handler failed
+                if (this.completion.isDone())
+                {
+                    this.invocationPermits.release();
+                    break;
+                }
+
+                if (intervalNanos > 0)
+                {
+                    TimeUnit.NANOSECONDS.sleep(nextStartNanos - System.nanoTime());
+
+                    // A fan-out that has fallen behind its rate doesn't catch up with a burst of invocations
+                    nextStartNanos = Math.max(nextStartNanos, System.nanoTime()) + intervalNanos;
+                }
+
+                this.pendingInvocations.incrementAndGet();
+                invoke(deviceId);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            this.completion.completeExceptionally(e);
+        }
+        catch (RuntimeException e)
+        {
+            // Such as an UncheckedIOException from iterating the device Ids of a query
+            log.debug("Stopped invoking the direct method because the device Ids could not be iterated", e);
+            this.completion.completeExceptionally(e);
+        }
+        finally
+        {
+            onInvocationCompleted();
+        }
+    }
+
+    private void invoke(String deviceId)
+    {
+        long invocationStartNanos = System.nanoTime();
+
+        CompletableFuture<MethodResult> invocation;
+        try
+        {
+            invocation = this.invoker.invoke(deviceId);
+        }
+        catch (RuntimeException e)
+        {
+            // Such as an IllegalArgumentException for an empty device Id, which only fails that device's invocation
+            invocation = new CompletableFuture<>();
+            invocation.completeExceptionally(e);
+        }
+
+        invocation.whenComplete((methodResult, throwable) ->
+        {
+            // Measured before the result is queued, so the time it waits for the result handler isn't counted
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - invocationStartNanos);
+            this.resultExecutor.execute(() -> onResult(deviceId, methodResult, throwable, latencyMillis));
+        });
+    }
+
+    private void onResult(String deviceId, MethodResult methodResult, Throwable throwable, long latencyMillis)
+    {
+        Throwable exception = throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+
+        DeviceMethodInvocationResult result = new DeviceMethodInvocationResult(
+            deviceId,
+            exception == null ? methodResult : null,
+            exception,
+            latencyMillis);
+
+        synchronized (this.resultLock)
+        {
+            recordLatency(latencyMillis, exception == null);
+        }
+
+        try
+        {
+            // Only called from the result thread, and without holding the lock that the statistics are read under
+            if (!this.completion.isDone())
+            {
+                this.resultHandler.accept(result);
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.debug("Stopped invoking the direct method because the result handler failed", e);
+            this.completion.completeExceptionally(e);
+        }
+        finally
+        {
+            this.invocationPermits.release();
+            onInvocationCompleted();
+        }
+    }
+
+    private void recordLatency(long latencyMillis, boolean isSuccessful)
+    {
+        if (this.resultCount == this.latenciesMillis.length)
+        {
+            this.latenciesMillis = Arrays.copyOf(this.latenciesMillis, this.latenciesMillis.length * 2);
+        }
+
+        this.latenciesMillis[this.resultCount++] = latencyMillis;
+        if (isSuccessful)
+        {
+            this.successCount++;
+        }
+    }
+
+    private void onInvocationCompleted()
+    {
+        if (this.pendingInvocations.decrementAndGet() == 0)
+        {
+            // No more results will be handled, so the result thread can end once this one has been
+            this.resultExecutor.shutdown();
+
+            // Does nothing if the fan-out was cancelled or failed
+            this.completion.complete(createStatistics());
+        }
+    }
+
+    private DirectMethodFanOutStatistics createStatistics()
+    {
+        long totalDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startNanos);
+        synchronized (this.resultLock)
+        {
+            long[] sortedLatenciesMillis = Arrays.copyOf(this.latenciesMillis, this.resultCount);
+            Arrays.sort(sortedLatenciesMillis);
+            return new DirectMethodFanOutStatistics(
+                this.successCount,
+                this.resultCount - this.successCount,
+                sortedLatenciesMillis,
+                totalDurationMillis);
+        }
+    }
+}
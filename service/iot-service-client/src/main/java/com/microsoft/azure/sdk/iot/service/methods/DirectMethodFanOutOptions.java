@@ -0,0 +1,43 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.methods;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The optional parameters for invoking a direct method on many devices with
+ * {@link DirectMethodsClient#invokeOnDevicesAsync(Iterable, String, java.util.function.Consumer, DirectMethodFanOutOptions)}.
+ */
+@Builder
+public final class DirectMethodFanOutOptions
+{
+    private static final int DEFAULT_MAX_CONCURRENT_INVOCATIONS = 64;
+
+    /**
+     * The optional parameters of each invocation, including the method's payload. By default, the payload is null and
+     * the timeouts are the defaults of {@link DirectMethodRequestOptions}.
+     */
+    @Getter
+    @Builder.Default
+    private final DirectMethodRequestOptions methodRequestOptions = DirectMethodRequestOptions.builder().build();
+
+    /**
+     * The maximum number of invocations that are in progress at the same time. By default, this value is 64, which is
+     * the number of connections that the default {@link com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine}
+     * opens to a single host. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxConcurrentInvocations = DEFAULT_MAX_CONCURRENT_INVOCATIONS;
+
+    /**
+     * The maximum number of invocations that are started per second, so that the fan-out stays within the IoT hub's
+     * direct method throttling limit. By default, this value is 0, which means that invocations are only limited by
+     * {@link #maxConcurrentInvocations}. Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxInvocationsPerSecond = 0;
+}
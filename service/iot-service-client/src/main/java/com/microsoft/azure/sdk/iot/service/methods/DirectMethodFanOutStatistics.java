@@ -0,0 +1,112 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.methods;
+
+import lombok.Getter;
+
+/**
+ * The summary of invoking a direct method on many devices. Latencies are measured from sending each request to
+ * receiving its response, so they include the time that the devices took to run the method.
+ */
+public final class DirectMethodFanOutStatistics
+{
+    /**
+     * The number of devices that the method was invoked on.
+     */
+    @Getter
+    private final int invocationCount;
+
+    /**
+     * The number of devices that responded to the method.
+     */
+    @Getter
+    private final int successCount;
+
+    /**
+     * The number of devices that the invocation failed for.
+     */
+    @Getter
+    private final int failureCount;
+
+    /**
+     * The lowest latency of all invocations, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final long minLatencyMillis;
+
+    /**
+     * The highest latency of all invocations, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final long maxLatencyMillis;
+
+    /**
+     * The mean latency of all invocations, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final double averageLatencyMillis;
+
+    /**
+     * The median latency of all invocations, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final long p50LatencyMillis;
+
+    /**
+     * The latency that 95% of the invocations completed within, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final long p95LatencyMillis;
+
+    /**
+     * The latency that 99% of the invocations completed within, in milliseconds. 0 if no invocations were made.
+     */
+    @Getter
+    private final long p99LatencyMillis;
+
+    /**
+     * The time from starting the first invocation to completing the last one, in milliseconds.
+     */
+    @Getter
+    private final long totalDurationMillis;
+
+    DirectMethodFanOutStatistics(int successCount, int failureCount, long[] sortedLatenciesMillis, long totalDurationMillis)
+    {
+        this.invocationCount = successCount + failureCount;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.totalDurationMillis = totalDurationMillis;
+
+        if (sortedLatenciesMillis.length == 0)
+        {
+            this.minLatencyMillis = 0;
+            this.maxLatencyMillis = 0;
+            this.averageLatencyMillis = 0;
+            this.p50LatencyMillis = 0;
+            this.p95LatencyMillis = 0;
+            this.p99LatencyMillis = 0;
+            return;
+        }
+
+        long totalLatencyMillis = 0;
+        for (long latencyMillis : sortedLatenciesMillis)
+        {
+            totalLatencyMillis += latencyMillis;
+        }
+
+        this.minLatencyMillis = sortedLatenciesMillis[0];
+        this.maxLatencyMillis = sortedLatenciesMillis[sortedLatenciesMillis.length - 1];
+        this.averageLatencyMillis = (double) totalLatencyMillis / sortedLatenciesMillis.length;
+        this.p50LatencyMillis = percentile(sortedLatenciesMillis, 50);
+        this.p95LatencyMillis = percentile(sortedLatenciesMillis, 95);
+        this.p99LatencyMillis = percentile(sortedLatenciesMillis, 99);
+    }
+
+    // Nearest rank, so the percentile is always one of the measured latencies
+    private static long percentile(long[] sortedLatenciesMillis, int percent)
+    {
+        int rank = (int) Math.ceil(percent / 100.0 * sortedLatenciesMillis.length);
+        return sortedLatenciesMillis[Math.max(rank, 1) - 1];
+    }
+}
@@ -8,21 +8,28 @@ import com.azure.core.credential.TokenCredential;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.methods.serializers.MethodParser;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest.REQUEST_ID;
 
@@ -32,13 +39,14 @@ import static com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest.REQ
 @Slf4j
 public final class DirectMethodsClient
 {
-    private Integer requestId = 0;
+    private final AtomicInteger requestId = new AtomicInteger();
 
     private final DirectMethodsClientOptions options;
     private final String hostName;
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
 
     /**
      * Create a DirectMethodsClient instance from the information in the connection string.
@@ -67,6 +75,7 @@ public final class DirectMethodsClient
         this.hostName = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString).getHostName();
         this.options = options;
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
         commonConstructorSetup();
     }
 
@@ -237,37 +246,238 @@ public final class DirectMethodsClient
         return invokeMethod(url, methodName, options);
     }
 
-    private MethodResult invokeMethod(URL url, String methodName, DirectMethodRequestOptions options)
-            throws IotHubException, IOException
+    /**
+     * Directly invokes a method on the device without blocking the calling thread.
+     *
+     * @param deviceId is the device where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @return a future that completes with the status and payload resulted from the method invoke. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String methodName)
     {
-        MethodParser methodParser =
-            new MethodParser(
-                methodName,
-                options.getMethodResponseTimeoutSeconds(),
-                options.getMethodConnectTimeoutSeconds(),
-                options.getPayload());
+        return invokeAsync(deviceId, methodName, DirectMethodRequestOptions.builder().build());
+    }
 
-        String json = methodParser.toJson();
-        if (json == null)
+    /**
+     * Directly invokes a method on the device without blocking the calling thread.
+     *
+     * @param deviceId is the device where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param options the optional parameters for this request, including the method's payload. May not be null.
+     * @return a future that completes with the status and payload resulted from the method invoke. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String methodName, DirectMethodRequestOptions options)
+    {
+        if (deviceId == null || deviceId.isEmpty())
         {
-            throw new IllegalArgumentException("MethodParser return null Json");
+            throw new IllegalArgumentException("deviceId is empty or null.");
+        }
+
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+
+        Objects.requireNonNull(options);
+
+        try
+        {
+            return invokeMethodAsync(IotHubConnectionString.getUrlMethod(this.hostName, deviceId), methodName, options);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId to create url", e);
         }
+    }
+
+    /**
+     * Directly invokes a method on the module without blocking the calling thread.
+     *
+     * @param deviceId is the device where the module is related to.
+     * @param moduleId is the module where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @return a future that completes with the status and payload resulted from the method invoke. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String moduleId, String methodName)
+    {
+        return invokeAsync(deviceId, moduleId, methodName, DirectMethodRequestOptions.builder().build());
+    }
 
+    /**
+     * Directly invokes a method on the module without blocking the calling thread.
+     *
+     * @param deviceId is the device where the module is related to.
+     * @param moduleId is the module where the request is sent to.
+     * @param methodName is the name of the method that shall be invoked on the device.
+     * @param options the optional parameters for this request, including the method's payload. May not be null.
+     * @return a future that completes with the status and payload resulted from the method invoke. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<MethodResult> invokeAsync(String deviceId, String moduleId, String methodName, DirectMethodRequestOptions options)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId is empty or null.");
+        }
+
+        if (moduleId == null || moduleId.isEmpty())
+        {
+            throw new IllegalArgumentException("moduleId is empty or null.");
+        }
+
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+
+        Objects.requireNonNull(options);
+
+        try
+        {
+            URL url = IotHubConnectionString.getUrlModuleMethod(this.hostName, deviceId, moduleId);
+            return invokeMethodAsync(url, methodName, options);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId or moduleId to create url", e);
+        }
+    }
+
+    /**
+     * Invokes a method on many devices, with several invocations in progress at the same time. The invocations share
+     * the client's pooled connections and cached authentication token.
+     *
+     * @param deviceIds the Ids of the devices to invoke the method on. These are read lazily, so they can come from a
+     * query, such as {@code queryClient.scanTwins().map(Twin::getDeviceId)::iterator}.
+     * @param methodName is the name of the method that shall be invoked on the devices.
+     * @param resultHandler is called with the result of each invocation as it completes. It is not called concurrently.
+     * It is called on a thread of the fan-out's own, so a handler that blocks delays the results after it, but not the
+     * invocations themselves.
+     * @return a future that completes with the latency statistics of the invocations once all of them have completed.
+     * Cancelling it stops invoking the method on devices that it hasn't been invoked on yet. It completes exceptionally
+     * if the device Ids could not be iterated or the result handler threw.
+     */
+    public CompletableFuture<DirectMethodFanOutStatistics> invokeOnDevicesAsync(
+        Iterable<String> deviceIds,
+        String methodName,
+        Consumer<DeviceMethodInvocationResult> resultHandler)
+    {
+        return invokeOnDevicesAsync(deviceIds, methodName, resultHandler, DirectMethodFanOutOptions.builder().build());
+    }
+
+    /**
+     * Invokes a method on many devices, with several invocations in progress at the same time. The invocations share
+     * the client's pooled connections and cached authentication token.
+     *
+     * @param deviceIds the Ids of the devices to invoke the method on. These are read lazily, so they can come from a
+     * query, such as {@code queryClient.scanTwins().map(Twin::getDeviceId)::iterator}.
+     * @param methodName is the name of the method that shall be invoked on the devices.
+     * @param resultHandler is called with the result of each invocation as it completes. It is not called concurrently.
+     * It is called on a thread of the fan-out's own, so a handler that blocks delays the results after it, but not the
+     * invocations themselves.
+     * @param options the optional parameters for the invocations, including the method's payload and the concurrency
+     * and rate limits. May not be null.
+     * @return a future that completes with the latency statistics of the invocations once all of them have completed.
+     * Cancelling it stops invoking the method on devices that it hasn't been invoked on yet. It completes exceptionally
+     * if the device Ids could not be iterated or the result handler threw.
+     */
+    public CompletableFuture<DirectMethodFanOutStatistics> invokeOnDevicesAsync(
+        Iterable<String> deviceIds,
+        String methodName,
+        Consumer<DeviceMethodInvocationResult> resultHandler,
+        DirectMethodFanOutOptions options)
+    {
+        if (deviceIds == null)
+        {
+            throw new IllegalArgumentException("deviceIds is null.");
+        }
+
+        if (methodName == null || methodName.isEmpty())
+        {
+            throw new IllegalArgumentException("methodName is empty or null.");
+        }
+
+        Objects.requireNonNull(resultHandler);
+        Objects.requireNonNull(options);
+
+        return DirectMethodFanOut.start(
+            deviceIds,
+            deviceId -> invokeAsync(deviceId, methodName, options.getMethodRequestOptions()),
+            resultHandler,
+            options);
+    }
+
+    private MethodResult invokeMethod(URL url, String methodName, DirectMethodRequestOptions options)
+            throws IotHubException, IOException
+    {
         ProxyOptions proxyOptions = this.options.getProxyOptions();
         Proxy proxy = proxyOptions != null ? proxyOptions.getProxy() : null;
         HttpRequest httpRequest = new HttpRequest(
             url,
             HttpMethod.POST,
-            json.getBytes(StandardCharsets.UTF_8),
+            createMethodPayload(methodName, options),
             this.getAuthenticationToken(),
             proxy);
 
         httpRequest.setReadTimeoutSeconds(this.options.getHttpReadTimeoutSeconds());
         httpRequest.setConnectTimeoutSeconds(this.options.getHttpConnectTimeoutSeconds());
-        httpRequest.setHeaderField(REQUEST_ID, String.valueOf(requestId++));
+        httpRequest.setHeaderField(REQUEST_ID, String.valueOf(requestId.getAndIncrement()));
 
         HttpResponse response = httpRequest.send();
 
+        return toMethodResult(response);
+    }
+
+    private CompletableFuture<MethodResult> invokeMethodAsync(URL url, String methodName, DirectMethodRequestOptions options)
+    {
+        ProxyOptions proxyOptions = this.options.getProxyOptions();
+        Proxy proxy = proxyOptions != null ? proxyOptions.getProxy() : null;
+        AsyncHttpRequest httpRequest = new AsyncHttpRequest(
+            url,
+            HttpMethod.POST,
+            createMethodPayload(methodName, options),
+            null,
+            proxy);
+
+        httpRequest.setReadTimeoutSeconds(this.options.getHttpReadTimeoutSeconds());
+        httpRequest.setConnectTimeoutSeconds(this.options.getHttpConnectTimeoutSeconds());
+        httpRequest.setHeaderField(REQUEST_ID, String.valueOf(requestId.getAndIncrement()));
+
+        AsyncHttpEngine configuredEngine = this.options.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync()
+            .thenCompose(token -> engine.sendAsync(httpRequest.setAuthorizationToken(token)))
+            .thenApply(DirectMethodsClient::toMethodResult);
+    }
+
+    private static byte[] createMethodPayload(String methodName, DirectMethodRequestOptions options)
+    {
+        MethodParser methodParser =
+            new MethodParser(
+                methodName,
+                options.getMethodResponseTimeoutSeconds(),
+                options.getMethodConnectTimeoutSeconds(),
+                options.getPayload());
+
+        String json = methodParser.toJson();
+        if (json == null)
+        {
+            throw new IllegalArgumentException("MethodParser return null Json");
+        }
+
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MethodResult toMethodResult(HttpResponse response)
+    {
         MethodParser methodParserResponse = new MethodParser();
         methodParserResponse.fromJson(new String(response.getBody(), StandardCharsets.UTF_8));
 
@@ -288,6 +498,17 @@ public final class DirectMethodsClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 }
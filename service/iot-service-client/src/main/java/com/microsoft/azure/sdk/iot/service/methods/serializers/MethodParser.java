@@ -28,6 +28,8 @@ import static com.microsoft.azure.sdk.iot.service.ParserUtility.resolveJsonEleme
  */
 public class MethodParser
 {
+    private static final Gson PAYLOAD_GSON = new Gson();
+
     protected enum Operation
     {
         invoke,
@@ -325,7 +327,7 @@ public class MethodParser
             }
             catch (JsonSyntaxException e)
             {
-                return new Gson().toJsonTree(payload);
+                return PAYLOAD_GSON.toJsonTree(payload);
             }
         }
     }
@@ -6,34 +6,29 @@ package com.microsoft.azure.sdk.iot.service.query;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubUnauthorizedException;
 import com.microsoft.azure.sdk.iot.service.jobs.ScheduledJob;
 import com.microsoft.azure.sdk.iot.service.jobs.ScheduledJobStatus;
 import com.microsoft.azure.sdk.iot.service.jobs.ScheduledJobType;
-import lombok.AccessLevel;
-import lombok.Getter;
-import lombok.Setter;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * A pageable set of {@link ScheduledJob} objects returned from a query.
  */
-public class JobQueryResponse
+public class JobQueryResponse extends QueryResponse<ScheduledJob>
 {
-    private final transient Gson gson;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
     Iterator<ScheduledJob> jobs;
 
-    @Setter(AccessLevel.PACKAGE) // value is retrieved from header, not json payload
-    @Getter
-    String continuationToken = "";
+    // requests the pages after this one in the background, if this query prefetches pages
+    QueryPagePrefetcher<JobQueryResponse> prefetcher;
 
     final QueryClient queryClient;
     final String originalQuery;
@@ -42,16 +37,9 @@ public class JobQueryResponse
 
     JobQueryResponse(String json, QueryClient queryClient, String originalQuery)
     {
-        gson = new GsonBuilder().disableHtmlEscaping().create();
+        super(json);
 
-        JsonObject[] twinJsonArray = gson.fromJson(json, JsonObject[].class);
-        List<ScheduledJob> jobsArray = new ArrayList<>();
-        for (JsonObject twinJson : twinJsonArray)
-        {
-            jobsArray.add(new ScheduledJob(twinJson.toString()));
-        }
-
-        this.jobs = jobsArray.iterator();
+        this.jobs = new JsonArrayIterator<>(json, JobQueryResponse::parseJob);
 
         this.queryClient = queryClient;
         this.originalQuery = originalQuery;
@@ -61,16 +49,9 @@ public class JobQueryResponse
 
     JobQueryResponse(String json, QueryClient queryClient, ScheduledJobType jobType, ScheduledJobStatus jobStatus)
     {
-        gson = new GsonBuilder().disableHtmlEscaping().create();
+        super(json);
 
-        JsonObject[] twinJsonArray = gson.fromJson(json, JsonObject[].class);
-        List<ScheduledJob> jobsArray = new ArrayList<>();
-        for (JsonObject twinJson : twinJsonArray)
-        {
-            jobsArray.add(new ScheduledJob(twinJson.toString()));
-        }
-
-        this.jobs = jobsArray.iterator();
+        this.jobs = new JsonArrayIterator<>(json, JobQueryResponse::parseJob);
 
         this.queryClient = queryClient;
         this.originalQuery = null;
@@ -78,9 +59,21 @@ public class JobQueryResponse
         this.jobStatus = jobStatus;
     }
 
+    private static ScheduledJob parseJob(JsonReader reader)
+    {
+        JsonObject jobJson = GSON.fromJson(reader, JsonObject.class);
+        if (jobJson == null)
+        {
+            throw new IllegalArgumentException("Malformed json: null job");
+        }
+
+        return new ScheduledJob(jobJson.toString());
+    }
+
     /**
      * @return True if the query has at least one more job to return. False otherwise.
      */
+    @Override
     public boolean hasNext()
     {
         return this.jobs.hasNext() || this.continuationToken != null;
@@ -94,6 +87,7 @@ public class JobQueryResponse
      * @throws IOException If any network level errors occur.
      * @throws NoSuchElementException If there is no next ScheduledJob to return anymore.
      */
+    @Override
     public ScheduledJob next() throws IotHubException, IOException, NoSuchElementException
     {
         return next(QueryPageOptions.builder().build());
@@ -101,7 +95,8 @@ public class JobQueryResponse
 
     /**
      * Return the next job from the query. If the previous page of query results has been exhausted, then this method
-     * will make a request to the service to get the next page of results using the provided paging options.
+     * will make a request to the service to get the next page of results using the provided paging options. If the
+     * query prefetches pages, the next page has already been requested with the paging options of the query instead.
      * @return the next job from the query.
      * @param pageOptions the options for the next page of results if the next page is retrieved to fulfil this request
      * for the next job. May not be null.
@@ -126,20 +121,28 @@ public class JobQueryResponse
                 throw ex;
             }
 
-            QueryPageOptions nextPageOptions =
-                QueryPageOptions.builder()
-                    .continuationToken(this.continuationToken)
-                    .pageSize(pageOptions.getPageSize())
-                    .build();
-
             JobQueryResponse nextPage;
-            if (this.originalQuery != null)
+            if (this.prefetcher != null)
             {
-                nextPage = this.queryClient.queryJobs(this.originalQuery, nextPageOptions);
+                // the next page was requested in the background as soon as the page before it was received
+                nextPage = this.prefetcher.takeNextPage();
             }
             else
             {
-                nextPage = this.queryClient.queryJobs(this.jobType, this.jobStatus, nextPageOptions);
+                QueryPageOptions nextPageOptions =
+                    QueryPageOptions.builder()
+                        .continuationToken(this.continuationToken)
+                        .pageSize(pageOptions.getPageSize())
+                        .build();
+
+                if (this.originalQuery != null)
+                {
+                    nextPage = this.queryClient.queryJobs(this.originalQuery, nextPageOptions);
+                }
+                else
+                {
+                    nextPage = this.queryClient.queryJobs(this.jobType, this.jobStatus, nextPageOptions);
+                }
             }
 
             this.jobs = nextPage.jobs;
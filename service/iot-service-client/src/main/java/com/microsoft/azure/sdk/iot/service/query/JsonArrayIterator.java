@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the elements of a page of query results, parsing each element from the page's json array only as the
+ * iterator advances to it. No intermediate json tree or json string is built for the page or its elements.
+ *
+ * @param <T> the type that each element of the json array is parsed into.
+ */
+final class JsonArrayIterator<T> implements Iterator<T>
+{
+    /**
+     * Reads a single element of the json array.
+     *
+     * @param <T> the type that the element is parsed into.
+     */
+    interface ElementParser<T>
+    {
+        T parse(JsonReader reader) throws IOException;
+    }
+
+    private final JsonReader reader;
+    private final ElementParser<T> elementParser;
+    private boolean hasNext;
+
+    /**
+     * @param json the json array of query results.
+     * @param elementParser reads one element of the array.
+     * @throws IllegalArgumentException if the json is not a json array.
+     */
+    JsonArrayIterator(String json, ElementParser<T> elementParser)
+    {
+        this.reader = new JsonReader(new StringReader(json));
+        this.elementParser = elementParser;
+
+        try
+        {
+            this.reader.beginArray();
+            this.hasNext = advance();
+        }
+        catch (IOException | IllegalStateException malformed)
+        {
+            throw new IllegalArgumentException("Malformed json:" + malformed);
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return this.hasNext;
+    }
+
+    /**
+     * @return the next element of the json array.
+     * @throws NoSuchElementException if the json array has no more elements.
+     * @throws IllegalArgumentException if the next element of the json array is malformed.
+     */
+    @Override
+    public T next()
+    {
+        if (!this.hasNext)
+        {
+            throw new NoSuchElementException();
+        }
+
+        try
+        {
+            T element = this.elementParser.parse(this.reader);
+            this.hasNext = advance();
+            return element;
+        }
+        catch (IOException | IllegalStateException | JsonParseException malformed)
+        {
+            this.hasNext = false;
+            throw new IllegalArgumentException("Malformed json:" + malformed);
+        }
+    }
+
+    private boolean advance() throws IOException
+    {
+        if (this.reader.hasNext())
+        {
+            return true;
+        }
+
+        this.reader.endArray();
+        this.reader.close();
+        return false;
+    }
+}
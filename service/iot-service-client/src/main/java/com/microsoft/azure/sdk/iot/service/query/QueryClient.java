@@ -7,22 +7,29 @@ import com.azure.core.credential.AzureSasCredential;
 import com.azure.core.credential.TokenCredential;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.jobs.ScheduledJobStatus;
 import com.microsoft.azure.sdk.iot.service.jobs.ScheduledJobType;
 import com.microsoft.azure.sdk.iot.service.query.serializers.QueryRequestParser;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
+import com.microsoft.azure.sdk.iot.service.twin.Twin;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Slf4j
 public final class QueryClient
@@ -30,10 +37,17 @@ public final class QueryClient
     private static final String CONTINUATION_TOKEN_KEY = "x-ms-continuation";
     private static final String PAGE_SIZE_KEY = "x-ms-max-item-count";
 
+    // Requests a single page of a query with the given paging options
+    private interface PageQuery<T>
+    {
+        T query(QueryPageOptions options) throws IOException, IotHubException;
+    }
+
     private final String hostName;
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
 
     private final QueryClientOptions options;
 
@@ -67,6 +81,7 @@ public final class QueryClient
 
         this.iotHubConnectionString =
             IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
 
         this.hostName = iotHubConnectionString.getHostName();
         this.options = options;
@@ -178,6 +193,7 @@ public final class QueryClient
         }
 
         Objects.requireNonNull(options, "Options cannot be null");
+        validatePrefetchOptions(options);
 
         QueryRequestParser requestParser = new QueryRequestParser(query);
         byte[] payload = requestParser.toJson().getBytes(StandardCharsets.UTF_8);
@@ -204,9 +220,138 @@ public final class QueryClient
         String continuationToken = httpResponse.getHeaderFields().get(CONTINUATION_TOKEN_KEY); // may be null
         twinQueryResponse.setContinuationToken(continuationToken);
 
+        twinQueryResponse.prefetcher = createPrefetcher(twinQueryResponse, options, nextPageOptions -> queryTwins(query, nextPageOptions));
+
         return twinQueryResponse;
     }
 
+    /**
+     * Query from your IoT Hub's set of Twins without blocking the calling thread.
+     *
+     * @param query The IoT Hub query for selecting which twins to getJob.
+     * @return A future that completes with the pageable set of Twins that were queried. Later pages are retrieved
+     * by {@link TwinQueryResponse#next()} like those of {@link #queryTwins(String)}. It completes exceptionally with an
+     * {@link IOException} if IoT Hub cannot be reached due to network level issues, or with an {@link IotHubException}
+     * if the request fails for non-network level issues such as an incorrectly formatted query.
+     * @see <a href="https://docs.microsoft.com/en-us/azure/iot-hub/iot-hub-devguide-query-language">IoT Hub query language</a>
+     */
+    public CompletableFuture<TwinQueryResponse> queryTwinsAsync(String query)
+    {
+        return queryTwinsAsync(query, QueryPageOptions.builder().build());
+    }
+
+    /**
+     * Query from your IoT Hub's set of Twins without blocking the calling thread.
+     *
+     * @param query The IoT Hub query for selecting which twins to getJob.
+     * @param options The optional parameters used to decide how the query's results are returned.
+     * @return A future that completes with the pageable set of Twins that were queried. Later pages are retrieved
+     * by {@link TwinQueryResponse#next()} like those of {@link #queryTwins(String, QueryPageOptions)}. It completes
+     * exceptionally with an {@link IOException} if IoT Hub cannot be reached due to network level issues, or with an
+     * {@link IotHubException} if the request fails for non-network level issues such as an incorrectly formatted query.
+     * @see <a href="https://docs.microsoft.com/en-us/azure/iot-hub/iot-hub-devguide-query-language">IoT Hub query language</a>
+     */
+    public CompletableFuture<TwinQueryResponse> queryTwinsAsync(String query, QueryPageOptions options)
+    {
+        if (query == null || query.isEmpty())
+        {
+            throw new IllegalArgumentException("Query cannot be null or empty");
+        }
+
+        Objects.requireNonNull(options, "Options cannot be null");
+        validatePrefetchOptions(options);
+
+        QueryRequestParser requestParser = new QueryRequestParser(query);
+        byte[] payload = requestParser.toJson().getBytes(StandardCharsets.UTF_8);
+        Proxy proxy = null;
+        if (this.options.getProxyOptions() != null)
+        {
+            proxy = this.options.getProxyOptions().getProxy();
+        }
+
+        AsyncHttpRequest httpRequest;
+        try
+        {
+            httpRequest = new AsyncHttpRequest(
+                IotHubConnectionString.getUrlTwinQuery(hostName),
+                HttpMethod.POST,
+                payload,
+                null,
+                proxy);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid hostName to create url", e);
+        }
+
+        httpRequest.setConnectTimeoutSeconds(this.options.getHttpConnectTimeoutSeconds());
+        httpRequest.setReadTimeoutSeconds(this.options.getHttpReadTimeoutSeconds());
+
+        if (options.getContinuationToken() != null)
+        {
+            httpRequest.setHeaderField(CONTINUATION_TOKEN_KEY, options.getContinuationToken());
+        }
+
+        httpRequest.setHeaderField(PAGE_SIZE_KEY, String.valueOf(options.getPageSize()));
+
+        AsyncHttpEngine configuredEngine = this.options.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync()
+            .thenCompose(token -> engine.sendAsync(httpRequest.setAuthorizationToken(token)))
+            .thenApply(httpResponse ->
+            {
+                String responsePayload = new String(httpResponse.getBody(), StandardCharsets.UTF_8);
+                TwinQueryResponse twinQueryResponse = new TwinQueryResponse(responsePayload, this, query);
+
+                String continuationToken = httpResponse.getHeaderFields().get(CONTINUATION_TOKEN_KEY); // may be null
+                twinQueryResponse.setContinuationToken(continuationToken);
+
+                twinQueryResponse.prefetcher = createPrefetcher(twinQueryResponse, options, nextPageOptions -> queryTwins(query, nextPageOptions));
+
+                return twinQueryResponse;
+            });
+    }
+
+    /**
+     * Scan the twins of all the devices in your IoT Hub, using the default scan options.
+     *
+     * @return The stream of the scanned twins. See {@link #scanTwins(TwinScanOptions)}.
+     */
+    public Stream<Twin> scanTwins()
+    {
+        return scanTwins(TwinScanOptions.builder().build());
+    }
+
+    /**
+     * Scan the twins of all the devices in your IoT Hub that meet the condition of the provided options.
+     *
+     * <p>
+     * The pages of a single query are requested one after the other, since each request needs the continuation token
+     * of the page before it. So the scan is split into disjoint queries, either by device Id range or by the provided
+     * partition conditions, and up to {@link TwinScanOptions#getMaxParallelism()} of them are run at the same time on
+     * background threads. Throttled page requests are retried with exponential backoff.
+     * </p>
+     *
+     * <p>
+     * The twins of all the queries are merged into the returned stream in no particular order. The stream should be
+     * closed, for instance with a try-with-resources statement, if it isn't fully consumed, so that the queries stop.
+     * A stream that is abandoned without being closed only stops its queries once it has been garbage collected.
+     * If a query fails, the stream throws an {@link java.io.UncheckedIOException} for network level errors, or a
+     * {@link RuntimeException} caused by the {@link IotHubException} for IoT Hub level errors.
+     * </p>
+     *
+     * @param options The options of the scan. May not be null.
+     * @return The stream of the scanned twins.
+     * @see <a href="https://docs.microsoft.com/en-us/azure/iot-hub/iot-hub-devguide-query-language">IoT Hub query language</a>
+     */
+    public Stream<Twin> scanTwins(TwinScanOptions options)
+    {
+        Objects.requireNonNull(options, "Options cannot be null");
+
+        return TwinScan.start(this::queryTwins, options);
+    }
+
     /**
      * Query from your IoT Hub's set of scheduled jobs.
      *
@@ -234,6 +379,7 @@ public final class QueryClient
     public JobQueryResponse queryJobs(String query, QueryPageOptions options) throws IOException, IotHubException
     {
         Objects.requireNonNull(options, "Options cannot be null");
+        validatePrefetchOptions(options);
 
         Proxy proxy = null;
         if (this.options.getProxyOptions() != null)
@@ -261,6 +407,8 @@ public final class QueryClient
         String continuationToken = httpResponse.getHeaderFields().get(CONTINUATION_TOKEN_KEY); // may be null
         jobQueryResponse.setContinuationToken(continuationToken);
 
+        jobQueryResponse.prefetcher = createPrefetcher(jobQueryResponse, options, nextPageOptions -> queryJobs(query, nextPageOptions));
+
         return jobQueryResponse;
     }
 
@@ -291,6 +439,7 @@ public final class QueryClient
     public JobQueryResponse queryJobs(ScheduledJobType jobType, ScheduledJobStatus jobStatus, QueryPageOptions options) throws IOException, IotHubException
     {
         Objects.requireNonNull(options, "Options cannot be null");
+        validatePrefetchOptions(options);
 
         String jobTypeString = (jobType == null) ? null : jobType.toString();
         String jobStatusString = (jobStatus == null) ? null : jobStatus.toString();
@@ -318,6 +467,8 @@ public final class QueryClient
         String continuationToken = httpResponse.getHeaderFields().get(CONTINUATION_TOKEN_KEY); // may be null
         jobQueryResponse.setContinuationToken(continuationToken);
 
+        jobQueryResponse.prefetcher = createPrefetcher(jobQueryResponse, options, nextPageOptions -> queryJobs(jobType, jobStatus, nextPageOptions));
+
         return jobQueryResponse;
     }
 
@@ -348,6 +499,7 @@ public final class QueryClient
     public RawQueryResponse queryRaw(String query, QueryPageOptions options) throws IOException, IotHubException
     {
         Objects.requireNonNull(options, "Options cannot be null");
+        validatePrefetchOptions(options);
 
         Proxy proxy = null;
         if (this.options.getProxyOptions() != null)
@@ -375,9 +527,53 @@ public final class QueryClient
         String continuationToken = httpResponse.getHeaderFields().get(CONTINUATION_TOKEN_KEY); // may be null
         rawQueryResponse.setContinuationToken(continuationToken);
 
+        rawQueryResponse.prefetcher = createPrefetcher(rawQueryResponse, options, nextPageOptions -> queryRaw(query, nextPageOptions));
+
         return rawQueryResponse;
     }
 
+    private static void validatePrefetchOptions(QueryPageOptions options)
+    {
+        if (options.getPrefetchPageCount() < 0)
+        {
+            throw new IllegalArgumentException("prefetchPageCount cannot be negative");
+        }
+
+        if (options.getPrefetchPageCount() > 0 && options.getMaxPrefetchBytes() <= 0)
+        {
+            throw new IllegalArgumentException("maxPrefetchBytes must be positive");
+        }
+    }
+
+    private static QueryPageOptions getNextPageOptions(QueryPageOptions options, String continuationToken)
+    {
+        // Pages requested ahead don't request pages ahead themselves
+        return QueryPageOptions.builder()
+            .continuationToken(continuationToken)
+            .pageSize(options.getPageSize())
+            .build();
+    }
+
+    // Returns null if the query doesn't prefetch pages, so its pages are only requested as they are iterated over
+    private static <T extends QueryResponse<?>> QueryPagePrefetcher<T> createPrefetcher(
+        T firstPage,
+        QueryPageOptions options,
+        PageQuery<T> pageQuery)
+    {
+        if (options.getPrefetchPageCount() == 0)
+        {
+            return null;
+        }
+
+        return new QueryPagePrefetcher<>(
+            firstPage.continuationToken,
+            nextContinuationToken -> pageQuery.query(getNextPageOptions(options, nextContinuationToken)),
+            page -> page.continuationToken,
+            page -> page.payloadLength,
+            options.getPrefetchPageCount(),
+            options.getMaxPrefetchBytes());
+    }
+
     private String getAuthenticationToken()
     {
         // Three different constructor types for this class, and each type provides either a TokenCredential implementation,
@@ -392,7 +588,18 @@ public final class QueryClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 
     private void setCommonHttpHeaders(HttpRequest httpRequest, QueryPageOptions options)
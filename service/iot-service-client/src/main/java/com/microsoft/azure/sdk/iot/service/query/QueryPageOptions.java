@@ -12,6 +12,8 @@ import lombok.Getter;
 @Builder
 public final class QueryPageOptions
 {
+    private static final long DEFAULT_MAX_PREFETCH_BYTES = 16 * 1024 * 1024;
+
     /**
      * The number of results per page. Larger page sizes will require the client to send fewer HTTP requests to continue
      * queries, but the HTTP requests will have larger payloads.
@@ -25,4 +27,24 @@ public final class QueryPageOptions
      */
     @Getter
     private String continuationToken;
+
+    /**
+     * The number of pages to request ahead of the page that is being iterated over. Each page is requested in the
+     * background with the continuation token of the page before it as soon as that page has been received, so that
+     * iterating over the query's results doesn't wait on the service at every page boundary. Later pages are requested
+     * with the page size of these options. By default, this value is 0 and each page is only requested once the page
+     * before it has been iterated over. Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private int prefetchPageCount = 0;
+
+    /**
+     * The number of bytes of prefetched pages that may be held in memory before no more pages are requested ahead. A
+     * page is always requested once the page before it has been iterated over, even if it is larger than this value. By
+     * default, this value is 16 MB. Must be a positive value. Only used if {@link #prefetchPageCount} is positive.
+     */
+    @Getter
+    @Builder.Default
+    private long maxPrefetchBytes = DEFAULT_MAX_PREFETCH_BYTES;
 }
@@ -0,0 +1,206 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Requests the pages of a query ahead of the page that is being iterated over, so that iterating over a query's results
+ * doesn't wait on the service at every page boundary. Each page is requested with the continuation token of the page
+ * before it as soon as that page has been received, until either the configured number of pages or the configured
+ * number of bytes are buffered. Pages are requested one at a time and in order, on a shared pool of daemon threads.
+ *
+ * @param <T> the type of the query's pages.
+ */
+@Slf4j
+final class QueryPagePrefetcher<T>
+{
+    private static final String THREAD_NAME_PREFIX = "azure-iot-sdk-QueryPagePrefetcher-";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(runnable ->
+    {
+        Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Requests a single page of the query.
+     *
+     * @param <T> the type of the query's pages.
+     */
+    interface PageFetcher<T>
+    {
+        T fetch(String continuationToken) throws IOException, IotHubException;
+    }
+
+    private final PageFetcher<T> pageFetcher;
+    private final Function<T, String> continuationTokenOf;
+    private final ToIntFunction<T> payloadLengthOf;
+    private final int maxPages;
+    private final long maxBytes;
+
+    private final Deque<T> pages = new ArrayDeque<>();
+    private long bufferedBytes;
+    private String nextContinuationToken;
+    private boolean isFetching;
+    private Exception failure;
+
+    /**
+     * @param continuationToken the continuation token of the page that was already received, or null if it was the last
+     * page.
+     * @param pageFetcher requests the page for a continuation token.
+     * @param continuationTokenOf gets the continuation token of a received page, or null if it is the last page.
+     * @param payloadLengthOf gets the size of a received page, in characters of its json payload.
+     * @param maxPages the maximum number of pages to buffer. Must be positive.
+     * @param maxBytes no page is requested while at least this many bytes of pages are buffered. Must be positive.
+     */
+    QueryPagePrefetcher(
+        String continuationToken,
+        PageFetcher<T> pageFetcher,
+        Function<T, String> continuationTokenOf,
+        ToIntFunction<T> payloadLengthOf,
+        int maxPages,
+        long maxBytes)
+    {
+        this.nextContinuationToken = continuationToken;
+        this.pageFetcher = pageFetcher;
+        this.continuationTokenOf = continuationTokenOf;
+        this.payloadLengthOf = payloadLengthOf;
+        this.maxPages = maxPages;
+        this.maxBytes = maxBytes;
+
+        synchronized (this)
+        {
+            fetchIfBelowLimits();
+        }
+    }
+
+    /**
+     * Get the next page of the query, waiting for it to be received if it hasn't been already.
+     *
+     * @return the next page of the query.
+     * @throws IOException If the page could not be requested due to network level issues, or if the thread was
+     * interrupted while waiting for the page.
+     * @throws IotHubException If the page request failed for non-network level issues.
+     * @throws NoSuchElementException If the query has no more pages.
+     */
+    synchronized T takeNextPage() throws IOException, IotHubException
+    {
+        while (this.pages.isEmpty())
+        {
+            if (this.failure != null)
+            {
+                // The failed page is requested again by the next call to this method
+                Exception pageFailure = this.failure;
+                this.failure = null;
+                throwFailure(pageFailure);
+            }
+
+            if (!this.isFetching)
+            {
+                if (this.nextContinuationToken == null)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                fetchIfBelowLimits();
+            }
+
+            try
+            {
+                wait();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interruptedException = new InterruptedIOException("Interrupted while waiting for the next query page");
+                interruptedException.initCause(e);
+                throw interruptedException;
+            }
+        }
+
+        T page = this.pages.poll();
+        this.bufferedBytes -= this.payloadLengthOf.applyAsInt(page);
+        fetchIfBelowLimits();
+        return page;
+    }
+
+    private void fetchIfBelowLimits()
+    {
+        if (this.isFetching
+            || this.failure != null
+            || this.nextContinuationToken == null
+            || this.pages.size() >= this.maxPages
+            || this.bufferedBytes >= this.maxBytes)
+        {
+            return;
+        }
+
+        this.isFetching = true;
+        String continuationToken = this.nextContinuationToken;
+        PREFETCH_EXECUTOR.execute(() -> fetch(continuationToken));
+    }
+
+    private void fetch(String continuationToken)
+    {
+        T page = null;
+        Exception pageFailure = null;
+        try
+        {
+            page = this.pageFetcher.fetch(continuationToken);
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            log.debug("Failed to prefetch the next query page", e);
+            pageFailure = e;
+        }
+
+        synchronized (this)
+        {
+            this.isFetching = false;
+
+            if (pageFailure != null)
+            {
+                this.failure = pageFailure;
+            }
+            else
+            {
+                this.pages.add(page);
+                this.bufferedBytes += this.payloadLengthOf.applyAsInt(page);
+                this.nextContinuationToken = this.continuationTokenOf.apply(page);
+                fetchIfBelowLimits();
+            }
+
+            notifyAll();
+        }
+    }
+
+    private static void throwFailure(Exception failure) throws IOException, IotHubException
+    {
+        if (failure instanceof IOException)
+        {
+            throw (IOException) failure;
+        }
+
+        if (failure instanceof IotHubException)
+        {
+            throw (IotHubException) failure;
+        }
+
+        throw (RuntimeException) failure;
+    }
+}
@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * The paging state and {@link Stream} views shared by the pageable query responses.
+ *
+ * @param <T> the type of the query's results.
+ */
+abstract class QueryResponse<T>
+{
+    @Setter(AccessLevel.PACKAGE) // value is retrieved from header, not json payload
+    @Getter
+    String continuationToken = "";
+
+    // the length of this page's json payload, used to limit how many pages are prefetched
+    final int payloadLength;
+
+    QueryResponse(String json)
+    {
+        this.payloadLength = json.length();
+    }
+
+    /**
+     * @return True if the query has at least one more result to return. False otherwise.
+     */
+    public abstract boolean hasNext();
+
+    /**
+     * Return the next result from the query, requesting the next page of results from the service if the previous
+     * page has been exhausted.
+     * @return the next result from the query.
+     * @throws IotHubException If any IoT Hub level errors occur.
+     * @throws IOException If any network level errors occur.
+     */
+    public abstract T next() throws IotHubException, IOException;
+
+    /**
+     * Get a sequential stream over the remaining results of the query. Pages are requested from the service as the
+     * stream is consumed, using the default paging options or, if this query prefetches pages, the paging options of
+     * the query. If a page can't be requested, the stream throws an {@link java.io.UncheckedIOException} for network
+     * level errors, or a {@link RuntimeException} caused by the {@link IotHubException} for IoT Hub level errors.
+     * @return a sequential stream over the remaining results of the query.
+     */
+    public Stream<T> stream()
+    {
+        return QueryResultStreams.stream(this::hasNext, this::next, false);
+    }
+
+    /**
+     * Get a parallel stream over the remaining results of the query. Batches of results are split off as they are
+     * read, so they can be processed by several threads while later pages are still being requested. Errors are
+     * reported as they are by {@link #stream()}. This object should not be used otherwise while the stream is in use.
+     * @return a parallel stream over the remaining results of the query.
+     */
+    public Stream<T> parallelStream()
+    {
+        return QueryResultStreams.stream(this::hasNext, this::next, true);
+    }
+}
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Builds the {@link Stream} views of the query responses.
+ */
+final class QueryResultStreams
+{
+    /**
+     * Gets the next result of a query, requesting the next page from the service if needed.
+     *
+     * @param <T> the type of the query's results.
+     */
+    interface ResultSupplier<T>
+    {
+        T next() throws IOException, IotHubException;
+    }
+
+    private QueryResultStreams()
+    {
+    }
+
+    /**
+     * Create a stream over the remaining results of a query. The stream's spliterator splits off batches of results, so
+     * a parallel stream parses and processes results on several threads while pages are still being requested.
+     *
+     * @param hasNext whether the query has another result.
+     * @param next gets the next result of the query.
+     * @param parallel whether the stream is a parallel stream.
+     * @param <T> the type of the query's results.
+     * @return the stream over the remaining results.
+     */
+    static <T> Stream<T> stream(BooleanSupplier hasNext, ResultSupplier<T> next, boolean parallel)
+    {
+        Iterator<T> iterator = new Iterator<T>()
+        {
+            // A page that the service returns with a continuation token may still be empty, so the query's hasNext
+            // alone can't tell whether there is another result
+            private T nextResult;
+
+            @Override
+            public boolean hasNext()
+            {
+                if (this.nextResult != null)
+                {
+                    return true;
+                }
+
+                if (!hasNext.getAsBoolean())
+                {
+                    return false;
+                }
+
+                try
+                {
+                    this.nextResult = next.next();
+                }
+                catch (NoSuchElementException e)
+                {
+                    return false;
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+                catch (IotHubException e)
+                {
+                    throw new RuntimeException(e);
+                }
+
+                return true;
+            }
+
+            @Override
+            public T next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                T result = this.nextResult;
+                this.nextResult = null;
+                return result;
+            }
+        };
+
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, parallel);
+    }
+}
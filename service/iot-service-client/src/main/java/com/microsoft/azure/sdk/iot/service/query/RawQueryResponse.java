@@ -6,15 +6,10 @@ package com.microsoft.azure.sdk.iot.service.query;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubUnauthorizedException;
-import lombok.AccessLevel;
-import lombok.Getter;
-import lombok.Setter;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -22,31 +17,23 @@ import java.util.Objects;
 /**
  * A pageable set of undefined json objects returned from a query.
  */
-public class RawQueryResponse
+public class RawQueryResponse extends QueryResponse<String>
 {
-    private final transient Gson gson;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
     Iterator<JsonObject> jsonObjects;
 
-    @Setter(AccessLevel.PACKAGE) // value is retrieved from header, not json payload
-    @Getter
-    String continuationToken = "";
+    // requests the pages after this one in the background, if this query prefetches pages
+    QueryPagePrefetcher<RawQueryResponse> prefetcher;
 
     final QueryClient queryClient;
     final String originalQuery;
 
     public RawQueryResponse(String json, QueryClient queryClient, String originalQuery)
     {
-        gson = new GsonBuilder().disableHtmlEscaping().create();
+        super(json);
 
-        try
-        {
-            this.jsonObjects = Arrays.asList(gson.fromJson(json, JsonObject[].class)).iterator();
-        }
-        catch (JsonSyntaxException malformed)
-        {
-            throw new IllegalArgumentException("Malformed json:" + malformed);
-        }
+        this.jsonObjects = new JsonArrayIterator<>(json, reader -> GSON.fromJson(reader, JsonObject.class));
 
         this.queryClient = queryClient;
         this.originalQuery = originalQuery;
@@ -55,6 +42,7 @@ public class RawQueryResponse
     /**
      * @return True if the query has at least one more json object to return. False otherwise.
      */
+    @Override
     public boolean hasNext()
     {
         return this.jsonObjects.hasNext() || this.continuationToken != null;
@@ -68,6 +56,7 @@ public class RawQueryResponse
      * @throws IOException If any network level errors occur.
      * @throws NoSuchElementException If there is no next object to return anymore.
      */
+    @Override
     public String next() throws IotHubException, IOException, NoSuchElementException
     {
         return next(QueryPageOptions.builder().build());
@@ -75,7 +64,8 @@ public class RawQueryResponse
 
     /**
      * Return the next json object from the query. If the previous page of query results has been exhausted, then this method
-     * will make a request to the service to get the next page of results using the provided paging options.
+     * will make a request to the service to get the next page of results using the provided paging options. If the
+     * query prefetches pages, the next page has already been requested with the paging options of the query instead.
      * @return the next json object from the query.
      * @param pageOptions the options for the next page of results if the next page is retrieved to fulfil this request
      * for the next json object. May not be null.
@@ -100,13 +90,23 @@ public class RawQueryResponse
                 throw ex;
             }
 
-            QueryPageOptions nextPageOptions =
-                QueryPageOptions.builder()
-                    .continuationToken(this.continuationToken)
-                    .pageSize(pageOptions.getPageSize())
-                    .build();
+            RawQueryResponse nextPage;
+            if (this.prefetcher != null)
+            {
+                // the next page was requested in the background as soon as the page before it was received
+                nextPage = this.prefetcher.takeNextPage();
+            }
+            else
+            {
+                QueryPageOptions nextPageOptions =
+                    QueryPageOptions.builder()
+                        .continuationToken(this.continuationToken)
+                        .pageSize(pageOptions.getPageSize())
+                        .build();
+
+                nextPage = this.queryClient.queryRaw(this.originalQuery, nextPageOptions);
+            }
 
-            RawQueryResponse nextPage = this.queryClient.queryRaw(this.originalQuery, nextPageOptions);
             this.jsonObjects = nextPage.jsonObjects;
             this.continuationToken = nextPage.continuationToken;
 
@@ -3,59 +3,34 @@
 
 package com.microsoft.azure.sdk.iot.service.query;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubUnauthorizedException;
 import com.microsoft.azure.sdk.iot.service.twin.Twin;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
-import lombok.AccessLevel;
-import lombok.Getter;
-import lombok.Setter;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
  * A pageable set of {@link Twin} objects returned from a query.
  */
-public class TwinQueryResponse
+public class TwinQueryResponse extends QueryResponse<Twin>
 {
-    private final transient Gson gson;
-
     Iterator<Twin> twins;
 
-    @Setter(AccessLevel.PACKAGE) // value is retrieved from header, not json payload
-    @Getter
-    String continuationToken = "";
+    // requests the pages after this one in the background, if this query prefetches pages
+    QueryPagePrefetcher<TwinQueryResponse> prefetcher;
 
     final QueryClient queryClient;
     final String originalQuery;
 
     public TwinQueryResponse(String json, QueryClient queryClient, String originalQuery)
     {
-        gson = new GsonBuilder().disableHtmlEscaping().create();
+        super(json);
 
-        try
-        {
-            JsonObject[] twinJsonArray = gson.fromJson(json, JsonObject[].class);
-            List<Twin> twinArray = new ArrayList<>();
-            for (JsonObject twinJson : twinJsonArray)
-            {
-                twinArray.add(Twin.fromJson(twinJson.toString()));
-            }
-
-            this.twins = twinArray.iterator();
-        }
-        catch (JsonSyntaxException malformed)
-        {
-            throw new IllegalArgumentException("Malformed json:" + malformed);
-        }
+        // Twins are parsed straight from the page one at a time as they are iterated over
+        this.twins = new JsonArrayIterator<>(json, Twin::fromJson);
 
         this.queryClient = queryClient;
         this.originalQuery = originalQuery;
@@ -64,6 +39,7 @@ public class TwinQueryResponse
     /**
      * @return True if the query has at least one more twin to return. False otherwise.
      */
+    @Override
     public boolean hasNext()
     {
         return this.twins.hasNext() || this.continuationToken != null;
@@ -77,6 +53,7 @@ public class TwinQueryResponse
      * @throws IOException If any network level errors occur.
      * @throws NoSuchElementException If there is no next Twin to return anymore.
      */
+    @Override
     public Twin next() throws IotHubException, IOException
     {
         return next(QueryPageOptions.builder().build());
@@ -84,7 +61,8 @@ public class TwinQueryResponse
 
     /**
      * Return the next Twin from the query. If the previous page of query results has been exhausted, then this method
-     * will make a request to the service to get the next page of results using the provided paging options.
+     * will make a request to the service to get the next page of results using the provided paging options. If the
+     * query prefetches pages, the next page has already been requested with the paging options of the query instead.
      * @param pageOptions the options for the next page of results if the next page is retrieved to fulfil this request
      * for the next Twin. May not be null.
      * @return the next Twin from the query.
@@ -109,13 +87,23 @@ public class TwinQueryResponse
                 throw ex;
             }
 
-            QueryPageOptions nextPageOptions =
-                QueryPageOptions.builder()
-                    .continuationToken(this.continuationToken)
-                    .pageSize(pageOptions.getPageSize())
-                    .build();
+            TwinQueryResponse nextPage;
+            if (this.prefetcher != null)
+            {
+                // the next page was requested in the background as soon as the page before it was received
+                nextPage = this.prefetcher.takeNextPage();
+            }
+            else
+            {
+                QueryPageOptions nextPageOptions =
+                    QueryPageOptions.builder()
+                        .continuationToken(this.continuationToken)
+                        .pageSize(pageOptions.getPageSize())
+                        .build();
+
+                nextPage = this.queryClient.queryTwins(this.originalQuery, nextPageOptions);
+            }
 
-            TwinQueryResponse nextPage = this.queryClient.queryTwins(this.originalQuery, nextPageOptions);
             this.twins = nextPage.twins;
             this.continuationToken = nextPage.continuationToken;
 
@@ -0,0 +1,381 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.transport.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.service.transport.ThrottlingBackoff;
+import com.microsoft.azure.sdk.iot.service.twin.Twin;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans the twins of an IoT hub's devices by splitting the scan into disjoint queries and running several of them at
+ * the same time. The pages of a single query have to be requested one after the other because each page's request
+ * needs the continuation token of the page before it, but the pages of different queries don't.
+ *
+ * <p>
+ * The scan stops when its stream is closed. The background threads only hold a weak reference to the stream's
+ * iterator, so if the stream is abandoned without being closed, the threads that are waiting for its buffer to drain
+ * stop the scan once the iterator has been garbage collected.
+ * </p>
+ */
+@Slf4j
+final class TwinScan
+{
+    // The characters that the device Id ranges are split on, in ordinal (ASCII) order, which is the order that the
+    // service compares device Ids in
+    private static final String PARTITION_BOUNDARY_CHARACTERS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-TwinScan-");
+
+    // Marks that one of the queries has returned all of its twins
+    private static final Object END_OF_PARTITION = new Object();
+
+    /**
+     * Requests a single page of a twin query.
+     */
+    interface PageQuery
+    {
+        TwinQueryResponse query(String query, QueryPageOptions options) throws IOException, IotHubException;
+    }
+
+    private final PageQuery pageQuery;
+    private final TwinScanOptions options;
+    private final List<String> partitionQueries;
+    private final BlockingQueue<Object> results;
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private final ExecutorService executor;
+    private volatile boolean isClosed;
+
+    // Cleared once the stream has been abandoned, so that the scan doesn't keep the stream's iterator reachable
+    private WeakReference<ResultIterator> consumer;
+
+    private TwinScan(PageQuery pageQuery, TwinScanOptions options)
+    {
+        this.pageQuery = pageQuery;
+        this.options = options;
+        this.partitionQueries = createPartitionQueries(options);
+        this.results = new ArrayBlockingQueue<>(options.getMaxBufferedTwins());
+        this.executor = Executors.newFixedThreadPool(
+            Math.min(options.getMaxParallelism(), this.partitionQueries.size()),
+            THREAD_FACTORY);
+    }
+
+    /**
+     * Start scanning twins.
+     *
+     * @param pageQuery requests a single page of a twin query.
+     * @param options the options of the scan.
+     * @return the stream of the scanned twins. Closing the stream stops the scan.
+     */
+    static Stream<Twin> start(PageQuery pageQuery, TwinScanOptions options)
+    {
+        validateOptions(options);
+
+        TwinScan scan = new TwinScan(pageQuery, options);
+        ResultIterator iterator = scan.new ResultIterator();
+        scan.consumer = new WeakReference<>(iterator);
+
+        for (String partitionQuery : scan.partitionQueries)
+        {
+            scan.executor.execute(() -> scan.scanPartition(partitionQuery));
+        }
+
+        // The threads end once the queued partitions have been scanned
+        scan.executor.shutdown();
+
+        Spliterator<Twin> spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(scan::close);
+    }
+
+    /**
+     * Create the queries that the scan is split into, one per partition.
+     *
+     * @param options the options of the scan.
+     * @return the queries of the scan.
+     */
+    static List<String> createPartitionQueries(TwinScanOptions options)
+    {
+        List<String> partitionConditions = options.getPartitionConditions() != null
+            ? options.getPartitionConditions()
+            : createDeviceIdRangeConditions(options.getPartitionCount());
+
+        List<String> queries = new ArrayList<>();
+        for (String partitionCondition : partitionConditions)
+        {
+            String where = partitionCondition;
+            if (options.getCondition() != null && !options.getCondition().isEmpty())
+            {
+                where = partitionCondition == null
+                    ? options.getCondition()
+                    : "(" + options.getCondition() + ") AND (" + partitionCondition + ")";
+            }
+
+            queries.add(SqlQueryBuilder.createSqlQuery("*", SqlQueryBuilder.FromType.DEVICES, where, null));
+        }
+
+        return queries;
+    }
+
+    /**
+     * Split the device Id keyspace into ranges on the first character of the device Id. The first range has no lower
+     * bound and the last range has no upper bound, so every device Id falls into exactly one range.
+     *
+     * <p>
+     * This relies on the service comparing device Ids by their ordinal (ASCII) value, as it does today. Under that
+     * order the boundary characters are ascending, so the ranges are disjoint; under a case insensitive order, for
+     * instance, the upper case and lower case ranges would overlap.
+     * </p>
+     *
+     * @param partitionCount the number of ranges.
+     * @return the condition that selects each range, or a single null condition if there is only one range.
+     */
+    static List<String> createDeviceIdRangeConditions(int partitionCount)
+    {
+        if (partitionCount == 1)
+        {
+            return Collections.singletonList(null);
+        }
+
+        List<String> boundaries = new ArrayList<>();
+        for (int i = 1; i < partitionCount; i++)
+        {
+            int boundaryIndex = i * PARTITION_BOUNDARY_CHARACTERS.length() / partitionCount;
+            boundaries.add(String.valueOf(PARTITION_BOUNDARY_CHARACTERS.charAt(boundaryIndex)));
+        }
+
+        List<String> conditions = new ArrayList<>();
+        conditions.add("deviceId < '" + boundaries.get(0) + "'");
+        for (int i = 1; i < boundaries.size(); i++)
+        {
+            conditions.add("deviceId >= '" + boundaries.get(i - 1) + "' AND deviceId < '" + boundaries.get(i) + "'");
+        }
+
+        conditions.add("deviceId >= '" + boundaries.get(boundaries.size() - 1) + "'");
+        return conditions;
+    }
+
+    private static void validateOptions(TwinScanOptions options)
+    {
+        if (options.getPartitionConditions() != null && options.getPartitionConditions().isEmpty())
+        {
+            throw new IllegalArgumentException("partitionConditions cannot be empty");
+        }
+
+        if (options.getPartitionConditions() == null
+            && (options.getPartitionCount() < 1 || options.getPartitionCount() > PARTITION_BOUNDARY_CHARACTERS.length()))
+        {
+            throw new IllegalArgumentException("partitionCount must be between 1 and " + PARTITION_BOUNDARY_CHARACTERS.length());
+        }
+
+        if (options.getMaxParallelism() < 1)
+        {
+            throw new IllegalArgumentException("maxParallelism must be positive");
+        }
+
+        if (options.getPageSize() < 1)
+        {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+
+        if (options.getMaxThrottlingRetries() < 0)
+        {
+            throw new IllegalArgumentException("maxThrottlingRetries cannot be negative");
+        }
+
+        if (options.getInitialThrottlingBackoffMillis() < 1)
+        {
+            throw new IllegalArgumentException("initialThrottlingBackoffMillis must be positive");
+        }
+
+        if (options.getMaxBufferedTwins() < 1)
+        {
+            throw new IllegalArgumentException("maxBufferedTwins must be positive");
+        }
+    }
+
+    private void scanPartition(String partitionQuery)
+    {
+        try
+        {
+            String continuationToken = null;
+            do
+            {
+                TwinQueryResponse page = queryPage(partitionQuery, continuationToken);
+                while (page.twins.hasNext())
+                {
+                    if (!offer(page.twins.next()))
+                    {
+                        return;
+                    }
+                }
+
+                continuationToken = page.getContinuationToken();
+            }
+            while (continuationToken != null && !continuationToken.isEmpty());
+
+            offer(END_OF_PARTITION);
+        }
+        catch (IOException | IotHubException | RuntimeException e)
+        {
+            if (!this.isClosed)
+            {
+                log.debug("Failed to scan the twins of query {}", partitionQuery, e);
+                this.failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private TwinQueryResponse queryPage(String partitionQuery, String continuationToken) throws IOException, IotHubException
+    {
+        QueryPageOptions pageOptions = QueryPageOptions.builder()
+            .pageSize(this.options.getPageSize())
+            .continuationToken(continuationToken)
+            .build();
+
+        return ThrottlingBackoff.sendWithRetry(
+            () -> this.pageQuery.query(partitionQuery, pageOptions),
+            "twin query",
+            this.options.getMaxThrottlingRetries(),
+            this.options.getInitialThrottlingBackoffMillis(),
+            () -> this.isClosed);
+    }
+
+    private boolean offer(Object result)
+    {
+        try
+        {
+            // Wait for the stream to be consumed if too many twins are buffered
+            while (!this.isClosed && this.failure.get() == null)
+            {
+                if (this.results.offer(result, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+                {
+                    return true;
+                }
+
+                if (this.consumer.get() == null)
+                {
+                    log.debug("The stream of scanned twins was abandoned without being closed, stopping the scan");
+                    close();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+    private void close()
+    {
+        this.isClosed = true;
+        this.executor.shutdownNow();
+    }
+
+    private class ResultIterator implements Iterator<Twin>
+    {
+        private int endedPartitions;
+        private Twin nextTwin;
+
+        @Override
+        public boolean hasNext()
+        {
+            while (this.nextTwin == null && this.endedPartitions < partitionQueries.size())
+            {
+                throwIfFailed();
+
+                Object result;
+                try
+                {
+                    result = results.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    close();
+                    InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for scanned twins");
+                    interruptedIOException.initCause(e);
+                    throw new UncheckedIOException(interruptedIOException);
+                }
+
+                if (result == END_OF_PARTITION)
+                {
+                    this.endedPartitions++;
+                }
+                else if (result != null)
+                {
+                    this.nextTwin = (Twin) result;
+                }
+            }
+
+            if (this.nextTwin == null)
+            {
+                // every partition has been scanned
+                executor.shutdownNow();
+                return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public Twin next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            Twin twin = this.nextTwin;
+            this.nextTwin = null;
+            return twin;
+        }
+
+        private void throwIfFailed()
+        {
+            Exception scanFailure = failure.get();
+            if (scanFailure == null)
+            {
+                return;
+            }
+
+            close();
+
+            if (scanFailure instanceof IOException)
+            {
+                throw new UncheckedIOException((IOException) scanFailure);
+            }
+
+            if (scanFailure instanceof RuntimeException)
+            {
+                throw (RuntimeException) scanFailure;
+            }
+
+            throw new RuntimeException(scanFailure);
+        }
+    }
+}
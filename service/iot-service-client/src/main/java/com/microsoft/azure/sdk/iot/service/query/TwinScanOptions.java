@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The optional parameters for scanning the twins of all the devices in an IoT hub with
+ * {@link QueryClient#scanTwins(TwinScanOptions)}.
+ */
+@Builder
+public final class TwinScanOptions
+{
+    private static final int DEFAULT_PARTITION_COUNT = 16;
+    private static final int DEFAULT_MAX_PARALLELISM = 4;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_MAX_THROTTLING_RETRIES = 10;
+    private static final long DEFAULT_INITIAL_THROTTLING_BACKOFF_MILLIS = 1000;
+    private static final int DEFAULT_MAX_BUFFERED_TWINS = 10000;
+
+    /**
+     * The condition that the scanned twins must meet, in the syntax of the WHERE clause of the IoT Hub query language.
+     * For instance, "tags.location.region = 'US'". If null, the twins of all devices are scanned.
+     */
+    @Getter
+    private final String condition;
+
+    /**
+     * The number of queries that the device Id keyspace is split into. Each query selects the devices whose Ids fall
+     * into a disjoint range. The ranges are split on the first character of the device Id, so device Ids that share a
+     * long common prefix all fall into the same range; use {@link #partitionConditions} for such fleets instead. By
+     * default, this value is 16. Must be between 1 and 62. Ignored if {@link #partitionConditions} is set.
+     */
+    @Getter
+    @Builder.Default
+    private final int partitionCount = DEFAULT_PARTITION_COUNT;
+
+    /**
+     * The conditions that split the scanned twins into disjoint queries, in the syntax of the WHERE clause of the IoT
+     * Hub query language. For instance, "tags.shard = 0", "tags.shard = 1" and so on. Every twin must meet exactly
+     * one of these conditions to be scanned once. If null, the device Id keyspace is split into
+     * {@link #partitionCount} ranges.
+     */
+    @Getter
+    private final List<String> partitionConditions;
+
+    /**
+     * The maximum number of queries that run at the same time. By default, this value is 4. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxParallelism = DEFAULT_MAX_PARALLELISM;
+
+    /**
+     * The number of twins requested per page of each query. By default, this value is 100. Must be a positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * The number of times that a page request is retried if IoT hub throttles it. The wait before each retry doubles,
+     * starting at {@link #initialThrottlingBackoffMillis}, up to 32 times that wait. By default, this value is 10.
+     * Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxThrottlingRetries = DEFAULT_MAX_THROTTLING_RETRIES;
+
+    /**
+     * The wait before the first retry of a throttled page request, in milliseconds. Each wait is randomized by up to
+     * half of its length so that the queries don't retry in lock step. By default, this value is 1000. Must be a
+     * positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final long initialThrottlingBackoffMillis = DEFAULT_INITIAL_THROTTLING_BACKOFF_MILLIS;
+
+    /**
+     * The maximum number of twins that have been received but not yet consumed from the scan's stream. Queries wait
+     * for the stream to be consumed once this many twins are buffered. By default, this value is 10000. Must be a
+     * positive value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxBufferedTwins = DEFAULT_MAX_BUFFERED_TWINS;
+}
@@ -14,6 +14,8 @@ import com.microsoft.azure.sdk.iot.service.ParserUtility;
 @SuppressWarnings("unused") // A number of private members are unused but may be filled in or used by serialization
 public class QueryRequestParser
 {
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+
     private static final String QUERY_TAG = "query";
     // This suppression below is addressing warnings of field used for serialization.
     @SuppressWarnings("FieldCanBeLocal")
@@ -41,8 +43,7 @@ public class QueryRequestParser
      */
     public String toJson()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().create();
-        return gson.toJson(this);
+        return GSON.toJson(this);
     }
 
     /**
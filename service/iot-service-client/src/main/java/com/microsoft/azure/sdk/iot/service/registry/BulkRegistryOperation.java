@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.ErrorCodeDescription;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.DeviceRegistryOperationErrorParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.DeviceRegistryOperationWarningParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.ExportImportDeviceParser;
+import com.microsoft.azure.sdk.iot.service.transport.DaemonThreadFactory;
+import com.microsoft.azure.sdk.iot.service.transport.ThrottlingBackoff;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Adds, updates or removes a collection of devices or modules by splitting it into requests of up to 100 identities,
+ * which is the most that the bulk registry endpoint accepts, and sending several of those requests at the same time.
+ */
+@Slf4j
+final class BulkRegistryOperation
+{
+    static final int MAX_IDENTITIES_PER_REQUEST = 100;
+
+    private static final ThreadFactory THREAD_FACTORY = new DaemonThreadFactory("azure-iot-sdk-BulkRegistryOperation-");
+
+    /**
+     * Sends a single bulk registry operation request.
+     */
+    interface RequestSender
+    {
+        BulkRegistryOperationResultParser send(List<ExportImportDeviceParser> identities) throws IOException, IotHubException;
+    }
+
+    private BulkRegistryOperation()
+    {
+    }
+
+    /**
+     * Run the bulk registry operation.
+     *
+     * @param identities the devices or modules to add, update or remove, with their import mode set.
+     * @param sender sends a single bulk registry operation request.
+     * @param options the options of the operation.
+     * @return the errors and warnings of all the requests of the operation.
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting for the requests to complete.
+     */
+    static BulkRegistryOperationResult run(List<ExportImportDeviceParser> identities, RequestSender sender, BulkRegistryOperationOptions options)
+        throws InterruptedIOException
+    {
+        validateOptions(options);
+
+        List<List<ExportImportDeviceParser>> requests = split(identities, options.getMaxIdentitiesPerRequest());
+        if (requests.isEmpty())
+        {
+            return new BulkRegistryOperationResult(true, Collections.emptyList(), Collections.emptyList());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(options.getMaxConcurrentRequests(), requests.size()),
+            THREAD_FACTORY);
+
+        try
+        {
+            List<Future<BulkRegistryOperationResult>> futures = new ArrayList<>();
+            for (List<ExportImportDeviceParser> request : requests)
+            {
+                futures.add(executor.submit(() -> sendRequest(request, sender, options)));
+            }
+
+            boolean isSuccessful = true;
+            List<DeviceRegistryOperationError> errors = new ArrayList<>();
+            List<DeviceRegistryOperationWarning> warnings = new ArrayList<>();
+            for (Future<BulkRegistryOperationResult> future : futures)
+            {
+                BulkRegistryOperationResult requestResult = future.get();
+                isSuccessful &= requestResult.isSuccessful();
+                errors.addAll(requestResult.getErrors());
+                warnings.addAll(requestResult.getWarnings());
+            }
+
+            return new BulkRegistryOperationResult(isSuccessful, errors, warnings);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting for the bulk registry operation to complete");
+            interruptedIOException.initCause(e);
+            throw interruptedIOException;
+        }
+        catch (ExecutionException e)
+        {
+            // Requests only fail with unchecked exceptions, the checked ones are reported as errors of their identities
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+
+            throw (RuntimeException) e.getCause();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the identities of an operation into the identities of each of its requests.
+     *
+     * @param identities the identities of the operation.
+     * @param maxIdentitiesPerRequest the maximum number of identities of each request.
+     * @return the identities of each request, in order.
+     */
+    static List<List<ExportImportDeviceParser>> split(List<ExportImportDeviceParser> identities, int maxIdentitiesPerRequest)
+    {
+        List<List<ExportImportDeviceParser>> requests = new ArrayList<>();
+        for (int start = 0; start < identities.size(); start += maxIdentitiesPerRequest)
+        {
+            requests.add(identities.subList(start, Math.min(start + maxIdentitiesPerRequest, identities.size())));
+        }
+
+        return requests;
+    }
+
+    private static void validateOptions(BulkRegistryOperationOptions options)
+    {
+        if (options.getMaxIdentitiesPerRequest() < 1 || options.getMaxIdentitiesPerRequest() > MAX_IDENTITIES_PER_REQUEST)
+        {
+            throw new IllegalArgumentException("maxIdentitiesPerRequest must be between 1 and " + MAX_IDENTITIES_PER_REQUEST);
+        }
+
+        if (options.getMaxConcurrentRequests() < 1)
+        {
+            throw new IllegalArgumentException("maxConcurrentRequests must be positive");
+        }
+
+        if (options.getMaxThrottlingRetries() < 0)
+        {
+            throw new IllegalArgumentException("maxThrottlingRetries cannot be negative");
+        }
+
+        if (options.getInitialThrottlingBackoffMillis() < 1)
+        {
+            throw new IllegalArgumentException("initialThrottlingBackoffMillis must be positive");
+        }
+    }
+
+    private static BulkRegistryOperationResult sendRequest(
+        List<ExportImportDeviceParser> identities,
+        RequestSender sender,
+        BulkRegistryOperationOptions options)
+    {
+        BulkRegistryOperationResultParser response;
+        try
+        {
+            response = ThrottlingBackoff.sendWithRetry(
+                () -> sender.send(identities),
+                "bulk registry operation request",
+                options.getMaxThrottlingRetries(),
+                options.getInitialThrottlingBackoffMillis(),
+                () -> false);
+        }
+        catch (IotHubException e)
+        {
+            log.debug("Bulk registry operation request for {} identities failed", identities.size(), e);
+            return failedRequestResult(identities, e.getErrorCode(), e.getErrorCodeDescription(), e.getMessage());
+        }
+        catch (IOException e)
+        {
+            log.debug("Bulk registry operation request for {} identities failed", identities.size(), e);
+            return failedRequestResult(identities, 0, ErrorCodeDescription.UnclassifiedErrorCode, e.toString());
+        }
+
+        List<DeviceRegistryOperationError> errors = new ArrayList<>();
+        if (response.getErrors() != null)
+        {
+            for (DeviceRegistryOperationErrorParser error : response.getErrors())
+            {
+                errors.add(new DeviceRegistryOperationError(error));
+            }
+        }
+
+        List<DeviceRegistryOperationWarning> warnings = new ArrayList<>();
+        if (response.getWarnings() != null)
+        {
+            for (DeviceRegistryOperationWarningParser warning : response.getWarnings())
+            {
+                warnings.add(new DeviceRegistryOperationWarning(warning));
+            }
+        }
+
+        return new BulkRegistryOperationResult(response.isSuccessful() && errors.isEmpty(), errors, warnings);
+    }
+
+    private static BulkRegistryOperationResult failedRequestResult(
+        List<ExportImportDeviceParser> identities,
+        int errorCode,
+        ErrorCodeDescription errorCodeDescription,
+        String errorStatus)
+    {
+        List<DeviceRegistryOperationError> errors = new ArrayList<>();
+        for (ExportImportDeviceParser identity : identities)
+        {
+            errors.add(new DeviceRegistryOperationError(identity.getId(), identity.getModuleId(), errorCode, errorCodeDescription, errorStatus));
+        }
+
+        return new BulkRegistryOperationResult(false, errors, Collections.emptyList());
+    }
+}
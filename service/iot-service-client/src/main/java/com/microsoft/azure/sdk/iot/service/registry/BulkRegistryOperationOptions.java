@@ -0,0 +1,54 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The optional parameters for adding, updating or removing a collection of devices or modules with a bulk registry
+ * operation, such as {@link RegistryClient#addDevices(java.util.Collection, BulkRegistryOperationOptions)}.
+ */
+@Builder
+public final class BulkRegistryOperationOptions
+{
+    private static final int DEFAULT_MAX_IDENTITIES_PER_REQUEST = 100;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+    private static final int DEFAULT_MAX_THROTTLING_RETRIES = 10;
+    private static final long DEFAULT_INITIAL_THROTTLING_BACKOFF_MILLIS = 1000;
+
+    /**
+     * The number of devices or modules sent in each request. By default, this value is 100, which is the most that
+     * IoT hub accepts in a single request. Must be between 1 and 100.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxIdentitiesPerRequest = DEFAULT_MAX_IDENTITIES_PER_REQUEST;
+
+    /**
+     * The maximum number of requests that are sent at the same time. By default, this value is 4. Must be a positive
+     * value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+    /**
+     * The number of times that a request is retried if IoT hub throttles it. The wait before each retry doubles,
+     * starting at {@link #initialThrottlingBackoffMillis}, up to 32 times that wait. By default, this value is 10.
+     * Must be a non-negative value.
+     */
+    @Getter
+    @Builder.Default
+    private final int maxThrottlingRetries = DEFAULT_MAX_THROTTLING_RETRIES;
+
+    /**
+     * The wait before the first retry of a throttled request, in milliseconds. Each wait is randomized by up to half of
+     * its length so that the requests don't retry in lock step. By default, this value is 1000. Must be a positive
+     * value.
+     */
+    @Getter
+    @Builder.Default
+    private final long initialThrottlingBackoffMillis = DEFAULT_INITIAL_THROTTLING_BACKOFF_MILLIS;
+}
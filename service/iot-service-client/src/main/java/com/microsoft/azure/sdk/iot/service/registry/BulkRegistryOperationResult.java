@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of adding, updating or removing a collection of devices or modules with a bulk registry operation, such
+ * as {@link RegistryClient#addDevices(java.util.Collection)}. The operation is split into requests of up to 100
+ * identities each, and the errors and warnings of all of those requests are collected here.
+ */
+public final class BulkRegistryOperationResult
+{
+    /**
+     * True if the operation succeeded for every device or module, and false otherwise.
+     */
+    @Getter
+    private final boolean isSuccessful;
+
+    /**
+     * The devices and modules that the operation failed for, along with the reason. If a whole request failed, for
+     * instance because it was throttled more times than the operation retries, there is an error for each of the
+     * identities in that request.
+     */
+    @Getter
+    private final List<DeviceRegistryOperationError> errors;
+
+    /**
+     * The warnings for the devices and modules that the operation succeeded for.
+     */
+    @Getter
+    private final List<DeviceRegistryOperationWarning> warnings;
+
+    BulkRegistryOperationResult(boolean isSuccessful, List<DeviceRegistryOperationError> errors, List<DeviceRegistryOperationWarning> warnings)
+    {
+        this.isSuccessful = isSuccessful;
+        this.errors = Collections.unmodifiableList(errors);
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+}
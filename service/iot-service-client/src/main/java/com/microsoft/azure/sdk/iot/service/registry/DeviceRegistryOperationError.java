@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.ErrorCodeDescription;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.DeviceRegistryOperationErrorParser;
+import lombok.Getter;
+
+/**
+ * The reason that a bulk registry operation failed for a single device or module.
+ */
+public final class DeviceRegistryOperationError
+{
+    /**
+     * The Id of the device that the operation failed for.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The Id of the module that the operation failed for, or null if the operation was on a device.
+     */
+    @Getter
+    private final String moduleId;
+
+    /**
+     * The error code, such as 409001 if the device already exists. This value is 0 if the service reported the error
+     * by name only.
+     */
+    @Getter
+    private final int errorCode;
+
+    /**
+     * The description of the error code.
+     */
+    @Getter
+    private final ErrorCodeDescription errorCodeDescription;
+
+    /**
+     * The message that describes the failure.
+     */
+    @Getter
+    private final String errorStatus;
+
+    DeviceRegistryOperationError(String deviceId, String moduleId, int errorCode, ErrorCodeDescription errorCodeDescription, String errorStatus)
+    {
+        this.deviceId = deviceId;
+        this.moduleId = moduleId;
+        this.errorCode = errorCode;
+        this.errorCodeDescription = errorCodeDescription;
+        this.errorStatus = errorStatus;
+    }
+
+    DeviceRegistryOperationError(DeviceRegistryOperationErrorParser parser)
+    {
+        this.deviceId = parser.getDeviceId();
+        this.moduleId = parser.getModuleId();
+        this.errorStatus = parser.getErrorStatus();
+
+        int parsedErrorCode = 0;
+        ErrorCodeDescription parsedErrorCodeDescription = ErrorCodeDescription.UnclassifiedErrorCode;
+        String errorCodeString = parser.getErrorCode();
+        if (errorCodeString != null)
+        {
+            try
+            {
+                parsedErrorCode = Integer.parseInt(errorCodeString);
+                parsedErrorCodeDescription = ErrorCodeDescription.Parse(parsedErrorCode);
+            }
+            catch (NumberFormatException e)
+            {
+                // Older service versions report the name of the error code rather than its number
+                for (ErrorCodeDescription description : ErrorCodeDescription.values())
+                {
+                    if (description.name().equalsIgnoreCase(errorCodeString))
+                    {
+                        parsedErrorCodeDescription = description;
+                        break;
+                    }
+                }
+            }
+        }
+
+        this.errorCode = parsedErrorCode;
+        this.errorCodeDescription = parsedErrorCodeDescription;
+    }
+}
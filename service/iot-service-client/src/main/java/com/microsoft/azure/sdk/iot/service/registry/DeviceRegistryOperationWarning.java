@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import com.microsoft.azure.sdk.iot.service.registry.serializers.DeviceRegistryOperationWarningParser;
+import lombok.Getter;
+
+/**
+ * A warning that a bulk registry operation reported for a single device or module that it did not fail for.
+ */
+public final class DeviceRegistryOperationWarning
+{
+    /**
+     * The Id of the device that the warning is for.
+     */
+    @Getter
+    private final String deviceId;
+
+    /**
+     * The Id of the module that the warning is for, or null if the operation was on a device.
+     */
+    @Getter
+    private final String moduleId;
+
+    /**
+     * The warning code, such as "DeviceRegisteredWithoutTwin".
+     */
+    @Getter
+    private final String warningCode;
+
+    /**
+     * The message that describes the warning.
+     */
+    @Getter
+    private final String warningStatus;
+
+    DeviceRegistryOperationWarning(DeviceRegistryOperationWarningParser parser)
+    {
+        this.deviceId = parser.getDeviceId();
+        this.moduleId = parser.getModuleId();
+        this.warningCode = parser.getWarningCode();
+        this.warningStatus = parser.getWarningStatus();
+    }
+}
@@ -10,27 +10,36 @@ import com.azure.core.credential.TokenCredential;
 import com.google.gson.Gson;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.ExportImportDeviceParser;
 import com.microsoft.azure.sdk.iot.service.registry.serializers.JobPropertiesParser;
 import com.microsoft.azure.sdk.iot.service.registry.serializers.RegistryIdentityParser;
 import com.microsoft.azure.sdk.iot.service.registry.serializers.RegistryStatisticsParser;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import com.microsoft.azure.sdk.iot.service.twin.TwinClient;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * Use the RegistryClient to manage the identity registry in IoT hubs.
@@ -39,10 +48,13 @@ import java.util.Objects;
 @Slf4j
 public final class RegistryClient
 {
+    private static final Gson GSON = new Gson();
+
     private final String hostName;
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
 
     private final RegistryClientOptions options;
 
@@ -76,6 +88,7 @@ public final class RegistryClient
 
         this.iotHubConnectionString =
                 IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
 
         this.hostName = iotHubConnectionString.getHostName();
         this.options = options;
@@ -301,6 +314,123 @@ public final class RegistryClient
         IotHubExceptionManager.httpResponseVerification(response);
     }
 
+    /**
+     * Add device using the given Device object without blocking the calling thread.
+     *
+     * @param device The device object to add
+     * @return A future that completes with the response device object from IotHub. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Device> addDeviceAsync(Device device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device cannot be null");
+        }
+
+        String deviceJson = device.toRegistryIdentityParser().toJson();
+
+        AsyncHttpRequest request =
+            createAsyncRequest(getUrlDevice(device.getDeviceId()), HttpMethod.PUT, deviceJson.getBytes(StandardCharsets.UTF_8));
+
+        return sendAsync(request).thenApply(RegistryClient::toDevice);
+    }
+
+    /**
+     * Get device data by device Id from IotHub without blocking the calling thread.
+     *
+     * @param deviceId The id of requested device
+     * @return A future that completes with the device object of requested device. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Device> getDeviceAsync(String deviceId)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+
+        AsyncHttpRequest request = createAsyncRequest(getUrlDevice(deviceId), HttpMethod.GET, new byte[0]);
+
+        return sendAsync(request).thenApply(RegistryClient::toDevice);
+    }
+
+    /**
+     * Update device not forced, without blocking the calling thread.
+     *
+     * @param device The device object containing updated data
+     * @return A future that completes with the updated device object. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Device> updateDeviceAsync(Device device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device cannot be null");
+        }
+
+        AsyncHttpRequest request = createAsyncRequest(
+            getUrlDevice(device.getDeviceId()),
+            HttpMethod.PUT,
+            device.toRegistryIdentityParser().toJson().getBytes(StandardCharsets.UTF_8));
+
+        request.setHeaderField("If-Match", "*");
+
+        return sendAsync(request).thenApply(RegistryClient::toDevice);
+    }
+
+    /**
+     * Remove device without blocking the calling thread.
+     *
+     * @param deviceId The device name to remove
+     * @return A future that completes when the device has been removed. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Void> removeDeviceAsync(String deviceId)
+    {
+        return removeDeviceOperationAsync(deviceId, "*");
+    }
+
+    /**
+     * Remove device without blocking the calling thread.
+     *
+     * @param device The device to remove
+     * @return A future that completes when the device has been removed. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Void> removeDeviceAsync(Device device)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device cannot be null or empty");
+        }
+
+        return removeDeviceOperationAsync(device.getDeviceId(), device.getETag());
+    }
+
+    private CompletableFuture<Void> removeDeviceOperationAsync(String deviceId, String etag)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+
+        if (etag == null || etag.isEmpty())
+        {
+            throw new IllegalArgumentException("etag cannot be null or empty");
+        }
+
+        AsyncHttpRequest request = createAsyncRequest(getUrlDevice(deviceId), HttpMethod.DELETE, new byte[0]);
+        request.setHeaderField("If-Match", etag);
+
+        return sendAsync(request).thenApply(response -> null);
+    }
+
     /**
      * Get device statistics
      *
@@ -387,6 +517,41 @@ public final class RegistryClient
         return new Module(new RegistryIdentityParser(bodyStr));
     }
 
+    /**
+     * Get module data by device Id and module Id from IotHub without blocking the calling thread.
+     *
+     * @param deviceId The id of requested device
+     * @param moduleId The id of requested module
+     * @return A future that completes with the module object of requested module on the specific device. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<Module> getModuleAsync(String deviceId, String moduleId)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("deviceId cannot be null or empty");
+        }
+
+        if (moduleId == null || moduleId.isEmpty())
+        {
+            throw new IllegalArgumentException("moduleId cannot be null or empty");
+        }
+
+        URL url;
+        try
+        {
+            url = IotHubConnectionString.getUrlModule(this.hostName, deviceId, moduleId);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId or moduleId to create url", e);
+        }
+
+        return sendAsync(createAsyncRequest(url, HttpMethod.GET, new byte[0]))
+            .thenApply(response -> new Module(new RegistryIdentityParser(new String(response.getBody(), StandardCharsets.UTF_8))));
+    }
+
     /**
      * Get modules data by device Id from IotHub
      *
@@ -412,8 +577,7 @@ public final class RegistryClient
 
         String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
 
-        Gson gson = new Gson();
-        RegistryIdentityParser[] registryIdentityParsers = gson.fromJson(bodyStr, RegistryIdentityParser[].class);
+        RegistryIdentityParser[] registryIdentityParsers = GSON.fromJson(bodyStr, RegistryIdentityParser[].class);
 
         List<Module> moduleList = new ArrayList<>();
         for (int i = 0; i < registryIdentityParsers.length; i++)
@@ -520,6 +684,231 @@ public final class RegistryClient
         IotHubExceptionManager.httpResponseVerification(response);
     }
 
+    /**
+     * Add a collection of devices, sending up to 100 of them per request and several requests at the same time.
+     *
+     * @param devices The devices to add
+     * @return The result of the operation, with an error for each device that could not be added
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices) throws IOException
+    {
+        return addDevices(devices, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Add a collection of devices, sending up to 100 of them per request and several requests at the same time.
+     *
+     * @param devices The devices to add
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each device that could not be added
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult addDevices(Collection<Device> devices, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(devices, identity -> ImportMode.Create, options);
+    }
+
+    /**
+     * Update a collection of devices, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #updateDevice(Device)}, the update is forced regardless of the devices' etags.
+     *
+     * @param devices The devices containing the updated data
+     * @return The result of the operation, with an error for each device that could not be updated
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices) throws IOException
+    {
+        return updateDevices(devices, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Update a collection of devices, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #updateDevice(Device)}, the update is forced regardless of the devices' etags.
+     *
+     * @param devices The devices containing the updated data
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each device that could not be updated
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult updateDevices(Collection<Device> devices, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(devices, identity -> ImportMode.Update, options);
+    }
+
+    /**
+     * Remove a collection of devices, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #removeDevice(Device)}, a device with an etag is only removed if the etag still matches.
+     *
+     * @param devices The devices to remove
+     * @return The result of the operation, with an error for each device that could not be removed
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices) throws IOException
+    {
+        return removeDevices(devices, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Remove a collection of devices, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #removeDevice(Device)}, a device with an etag is only removed if the etag still matches.
+     *
+     * @param devices The devices to remove
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each device that could not be removed
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult removeDevices(Collection<Device> devices, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(devices, RegistryClient::getRemoveImportMode, options);
+    }
+
+    /**
+     * Add a collection of modules, sending up to 100 of them per request and several requests at the same time.
+     *
+     * @param modules The modules to add
+     * @return The result of the operation, with an error for each module that could not be added
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult addModules(Collection<Module> modules) throws IOException
+    {
+        return addModules(modules, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Add a collection of modules, sending up to 100 of them per request and several requests at the same time.
+     *
+     * @param modules The modules to add
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each module that could not be added
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult addModules(Collection<Module> modules, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(modules, identity -> ImportMode.Create, options);
+    }
+
+    /**
+     * Update a collection of modules, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #updateModule(Module)}, the update is forced regardless of the modules' etags.
+     *
+     * @param modules The modules containing the updated data
+     * @return The result of the operation, with an error for each module that could not be updated
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult updateModules(Collection<Module> modules) throws IOException
+    {
+        return updateModules(modules, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Update a collection of modules, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #updateModule(Module)}, the update is forced regardless of the modules' etags.
+     *
+     * @param modules The modules containing the updated data
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each module that could not be updated
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult updateModules(Collection<Module> modules, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(modules, identity -> ImportMode.Update, options);
+    }
+
+    /**
+     * Remove a collection of modules, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #removeModule(Module)}, a module with an etag is only removed if the etag still matches.
+     *
+     * @param modules The modules to remove
+     * @return The result of the operation, with an error for each module that could not be removed
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult removeModules(Collection<Module> modules) throws IOException
+    {
+        return removeModules(modules, BulkRegistryOperationOptions.builder().build());
+    }
+
+    /**
+     * Remove a collection of modules, sending up to 100 of them per request and several requests at the same time. Like
+     * {@link #removeModule(Module)}, a module with an etag is only removed if the etag still matches.
+     *
+     * @param modules The modules to remove
+     * @param options The options that control how the requests are split, sent and retried
+     * @return The result of the operation, with an error for each module that could not be removed
+     * @throws IOException This exception is thrown if the calling thread is interrupted while waiting for the requests
+     */
+    public BulkRegistryOperationResult removeModules(Collection<Module> modules, BulkRegistryOperationOptions options) throws IOException
+    {
+        return runBulkOperation(modules, RegistryClient::getRemoveImportMode, options);
+    }
+
+    private BulkRegistryOperationResult runBulkOperation(
+        Collection<? extends RegistryIdentity> identities,
+        Function<RegistryIdentity, ImportMode> importModeOf,
+        BulkRegistryOperationOptions options) throws IOException
+    {
+        if (identities == null)
+        {
+            throw new IllegalArgumentException("identities cannot be null");
+        }
+
+        Objects.requireNonNull(options, "options cannot be null");
+
+        List<ExportImportDeviceParser> parsers = new ArrayList<>(identities.size());
+        for (RegistryIdentity identity : identities)
+        {
+            if (identity == null)
+            {
+                throw new IllegalArgumentException("identities cannot contain null elements");
+            }
+
+            parsers.add(toExportImportDeviceParser(identity, importModeOf.apply(identity)));
+        }
+
+        return BulkRegistryOperation.run(parsers, this::sendBulkRegistryOperationRequest, options);
+    }
+
+    private BulkRegistryOperationResultParser sendBulkRegistryOperationRequest(List<ExportImportDeviceParser> identities)
+        throws IOException, IotHubException
+    {
+        URL url = IotHubConnectionString.getUrlBulkRegistryOperations(this.hostName);
+
+        String identitiesJson = GSON.toJson(identities);
+        HttpRequest request = createRequest(url, HttpMethod.POST, identitiesJson.getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse response = request.send();
+
+        IotHubExceptionManager.httpResponseVerification(response);
+
+        String bodyStr = new String(response.getBody(), StandardCharsets.UTF_8);
+
+        return new BulkRegistryOperationResultParser(bodyStr);
+    }
+
+    private static ImportMode getRemoveImportMode(RegistryIdentity identity)
+    {
+        return identity.getETag() == null || identity.getETag().isEmpty() ? ImportMode.Delete : ImportMode.DeleteIfMatchETag;
+    }
+
+    static ExportImportDeviceParser toExportImportDeviceParser(RegistryIdentity identity, ImportMode importMode)
+    {
+        RegistryIdentityParser registryIdentityParser = identity.toRegistryIdentityParser();
+
+        ExportImportDeviceParser parser = new ExportImportDeviceParser();
+        parser.setId(registryIdentityParser.getDeviceId());
+        parser.setModuleId(registryIdentityParser.getModuleId());
+        parser.setETag(registryIdentityParser.getETag());
+        parser.setImportMode(importMode.toString());
+        parser.setStatus(registryIdentityParser.getStatus());
+        parser.setStatusReason(registryIdentityParser.getStatusReason());
+        parser.setAuthentication(registryIdentityParser.getAuthenticationParser());
+        parser.setCapabilities(registryIdentityParser.getCapabilities());
+        parser.setDeviceScope(registryIdentityParser.getScope());
+        parser.setParentScopes(registryIdentityParser.getParentScopes());
+        parser.setManagedBy(registryIdentityParser.getManagedBy());
+        return parser;
+    }
+
     /**
      * Create a bulk export job.
      *
@@ -696,6 +1085,46 @@ public final class RegistryClient
         return request;
     }
 
+    private AsyncHttpRequest createAsyncRequest(URL url, HttpMethod method, byte[] payload)
+    {
+        Proxy proxy = null;
+        if (this.options.getProxyOptions() != null)
+        {
+            proxy = this.options.getProxyOptions().getProxy();
+        }
+
+        // The Authorization header is set by sendAsync, once the token is available
+        AsyncHttpRequest request = new AsyncHttpRequest(url, method, payload, null, proxy);
+        request.setReadTimeoutSeconds(options.getHttpReadTimeoutSeconds());
+        request.setConnectTimeoutSeconds(options.getHttpConnectTimeoutSeconds());
+        return request;
+    }
+
+    private CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request)
+    {
+        AsyncHttpEngine configuredEngine = this.options.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync().thenCompose(token -> engine.sendAsync(request.setAuthorizationToken(token)));
+    }
+
+    private URL getUrlDevice(String deviceId)
+    {
+        try
+        {
+            return IotHubConnectionString.getUrlDevice(this.hostName, deviceId);
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId to create url", e);
+        }
+    }
+
+    private static Device toDevice(HttpResponse response)
+    {
+        return new Device(new RegistryIdentityParser(new String(response.getBody(), StandardCharsets.UTF_8)));
+    }
+
     private String getAuthenticationToken()
     {
         // Three different constructor types for this class, and each type provides either a TokenCredential implementation,
@@ -710,6 +1139,17 @@ public final class RegistryClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 }
\ No newline at end of file
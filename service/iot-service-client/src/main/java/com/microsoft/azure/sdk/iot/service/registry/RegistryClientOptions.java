@@ -1,6 +1,8 @@
 package com.microsoft.azure.sdk.iot.service.registry;
 
 import com.microsoft.azure.sdk.iot.service.ProxyOptions;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -38,4 +40,12 @@ public final class RegistryClientOptions
     @Getter
     @Builder.Default
     private final int httpConnectTimeoutSeconds = DEFAULT_HTTP_CONNECT_TIMEOUT_SECONDS;
+
+    /**
+     * The engine that sends the requests of this client's asynchronous operations. If null, the engine returned by
+     * {@link NettyHttpEngine#getDefaultInstance()} is used. The proxy and timeouts of these options apply to those
+     * requests as well. The client does not close this engine.
+     */
+    @Getter
+    private final AsyncHttpEngine asyncHttpEngine;
 }
@@ -0,0 +1,84 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry.serializers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * The response of a single bulk registry operation request.
+ */
+public class BulkRegistryOperationResultParser
+{
+    private final transient static Gson gson = new Gson();
+
+    private static final String IS_SUCCESSFUL_NAME = "isSuccessful";
+    @Expose
+    @SerializedName(IS_SUCCESSFUL_NAME)
+    @Getter
+    @Setter
+    private boolean isSuccessful;
+
+    private static final String ERRORS_NAME = "errors";
+    @Expose
+    @SerializedName(ERRORS_NAME)
+    @Getter
+    @Setter
+    private List<DeviceRegistryOperationErrorParser> errors;
+
+    private static final String WARNINGS_NAME = "warnings";
+    @Expose
+    @SerializedName(WARNINGS_NAME)
+    @Getter
+    @Setter
+    private List<DeviceRegistryOperationWarningParser> warnings;
+
+    /**
+     * Empty constructor
+     */
+    public BulkRegistryOperationResultParser()
+    {
+    }
+
+    /**
+     * Constructor for a BulkRegistryOperationResultParser that is constructed from Json.
+     * @param json the json to build from.
+     */
+    public BulkRegistryOperationResultParser(String json)
+    {
+        if (json == null || json.isEmpty())
+        {
+            throw new IllegalArgumentException("The provided json cannot be null or empty");
+        }
+
+        BulkRegistryOperationResultParser parser;
+        try
+        {
+            parser = gson.fromJson(json, BulkRegistryOperationResultParser.class);
+        }
+        catch (JsonSyntaxException e)
+        {
+            throw new IllegalArgumentException("The provided json could not be parsed");
+        }
+
+        this.isSuccessful = parser.isSuccessful;
+        this.errors = parser.errors;
+        this.warnings = parser.warnings;
+    }
+
+    /**
+     * Converts this into a json string.
+     * @return the json representation of this.
+     */
+    public String toJson()
+    {
+        return gson.toJson(this);
+    }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry.serializers;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The error that a bulk registry operation reports for a single device or module.
+ */
+public class DeviceRegistryOperationErrorParser
+{
+    private static final String DEVICE_ID_NAME = "deviceId";
+    @Expose
+    @SerializedName(DEVICE_ID_NAME)
+    @Getter
+    @Setter
+    private String deviceId;
+
+    private static final String MODULE_ID_NAME = "moduleId";
+    @Expose
+    @SerializedName(MODULE_ID_NAME)
+    @Getter
+    @Setter
+    private String moduleId;
+
+    // The service reports the code as a number, which gson reads into a string as well
+    private static final String ERROR_CODE_NAME = "errorCode";
+    @Expose
+    @SerializedName(ERROR_CODE_NAME)
+    @Getter
+    @Setter
+    private String errorCode;
+
+    private static final String ERROR_STATUS_NAME = "errorStatus";
+    @Expose
+    @SerializedName(ERROR_STATUS_NAME)
+    @Getter
+    @Setter
+    private String errorStatus;
+}
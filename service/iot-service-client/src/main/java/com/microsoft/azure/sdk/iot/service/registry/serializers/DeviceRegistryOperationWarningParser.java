@@ -0,0 +1,43 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry.serializers;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The warning that a bulk registry operation reports for a single device or module.
+ */
+public class DeviceRegistryOperationWarningParser
+{
+    private static final String DEVICE_ID_NAME = "deviceId";
+    @Expose
+    @SerializedName(DEVICE_ID_NAME)
+    @Getter
+    @Setter
+    private String deviceId;
+
+    private static final String MODULE_ID_NAME = "moduleId";
+    @Expose
+    @SerializedName(MODULE_ID_NAME)
+    @Getter
+    @Setter
+    private String moduleId;
+
+    private static final String WARNING_CODE_NAME = "warningCode";
+    @Expose
+    @SerializedName(WARNING_CODE_NAME)
+    @Getter
+    @Setter
+    private String warningCode;
+
+    private static final String WARNING_STATUS_NAME = "warningStatus";
+    @Expose
+    @SerializedName(WARNING_STATUS_NAME)
+    @Getter
+    @Setter
+    private String warningStatus;
+}
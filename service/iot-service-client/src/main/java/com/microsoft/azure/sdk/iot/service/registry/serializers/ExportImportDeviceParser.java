@@ -11,6 +11,8 @@ import com.microsoft.azure.sdk.iot.service.twin.TwinCollection;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 public class ExportImportDeviceParser
 {
     private static final String ID_NAME = "id";
@@ -69,6 +71,34 @@ public class ExportImportDeviceParser
     @Setter
     private TwinCollection tags;
 
+    private static final String CAPABILITIES_NAME = "capabilities";
+    @Expose
+    @SerializedName(CAPABILITIES_NAME)
+    @Getter
+    @Setter
+    private DeviceCapabilitiesParser capabilities;
+
+    private static final String DEVICE_SCOPE_NAME = "deviceScope";
+    @Expose
+    @SerializedName(DEVICE_SCOPE_NAME)
+    @Getter
+    @Setter
+    private String deviceScope;
+
+    private static final String PARENT_SCOPES_NAME = "parentScopes";
+    @Expose
+    @SerializedName(PARENT_SCOPES_NAME)
+    @Getter
+    @Setter
+    private List<String> parentScopes;
+
+    private static final String MANAGED_BY_NAME = "managedBy";
+    @Expose
+    @SerializedName(MANAGED_BY_NAME)
+    @Getter
+    @Setter
+    private String managedBy;
+
     private final transient static Gson gson = new Gson();
 
     /**
@@ -133,5 +163,9 @@ public class ExportImportDeviceParser
         this.statusReason = deviceParser.statusReason;
         this.status = deviceParser.status;
         this.tags = deviceParser.tags;
+        this.capabilities = deviceParser.capabilities;
+        this.deviceScope = deviceParser.deviceScope;
+        this.parentScopes = deviceParser.parentScopes;
+        this.managedBy = deviceParser.managedBy;
     }
 }
@@ -128,7 +128,7 @@ public class RegistryIdentityParser
     @Setter
     private List<String> parentScopes = new ArrayList<>();
 
-    private final transient Gson gson = new Gson();
+    private final transient static Gson gson = new Gson();
 
     /**
      * Converts this into JSON format and returns it.
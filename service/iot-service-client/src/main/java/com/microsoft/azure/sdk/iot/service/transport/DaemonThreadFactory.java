@@ -0,0 +1,33 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the daemon threads of the SDK's background work, numbered in the order they are created so that they can be
+ * told apart in thread dumps. This class is meant for the SDK itself rather than for users of the SDK.
+ */
+public final class DaemonThreadFactory implements ThreadFactory
+{
+    private final String threadNamePrefix;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * @param threadNamePrefix the name of the threads, which is followed by the number of each thread.
+     */
+    public DaemonThreadFactory(String threadNamePrefix)
+    {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, this.threadNamePrefix + this.threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
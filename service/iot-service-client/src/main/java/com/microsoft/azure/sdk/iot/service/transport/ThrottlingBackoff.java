@@ -0,0 +1,99 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Retries requests that the service throttles, either with a 429 response or because it is busy, waiting an
+ * exponentially growing and jittered time between attempts. This class is meant for the SDK's own bulk operations
+ * rather than for users of the SDK.
+ */
+@Slf4j
+public final class ThrottlingBackoff
+{
+    private static final int MAX_BACKOFF_MULTIPLIER = 32;
+
+    /**
+     * A request that may be throttled by the service.
+     *
+     * @param <T> the type of the request's response.
+     */
+    public interface Request<T>
+    {
+        T send() throws IOException, IotHubException;
+    }
+
+    private ThrottlingBackoff()
+    {
+    }
+
+    /**
+     * Send the request, sending it again after a backoff each time it is throttled.
+     *
+     * @param request the request to send.
+     * @param description what the request is, for logging.
+     * @param maxRetries the most times that the request is sent again.
+     * @param initialBackoffMillis the time to wait before the first retry. Each later retry waits twice as long as the
+     * one before it, up to 32 times this long, less a random jitter of up to half of that.
+     * @param isCancelled returns true if the request should not be retried anymore.
+     * @param <T> the type of the request's response.
+     * @return the response of the request.
+     * @throws IOException if the request fails for network level issues, or if the thread is interrupted while waiting
+     * to retry it.
+     * @throws IotHubException if the request fails for IoT Hub level issues, including throttling once it has been
+     * retried the most times or has been cancelled.
+     */
+    public static <T> T sendWithRetry(
+        Request<T> request,
+        String description,
+        int maxRetries,
+        long initialBackoffMillis,
+        BooleanSupplier isCancelled) throws IOException, IotHubException
+    {
+        for (int retry = 0; ; retry++)
+        {
+            try
+            {
+                return request.send();
+            }
+            catch (IotHubTooManyRequestsException | IotHubServerBusyException e)
+            {
+                if (retry >= maxRetries || isCancelled.getAsBoolean())
+                {
+                    throw e;
+                }
+
+                long backoffMillis = getBackoffMillis(initialBackoffMillis, retry);
+                log.debug("{} was throttled, retrying in {} milliseconds", description, backoffMillis);
+
+                try
+                {
+                    Thread.sleep(backoffMillis);
+                }
+                catch (InterruptedException interruptedException)
+                {
+                    Thread.currentThread().interrupt();
+                    InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted while waiting to retry a throttled " + description);
+                    interruptedIOException.initCause(interruptedException);
+                    throw interruptedIOException;
+                }
+            }
+        }
+    }
+
+    static long getBackoffMillis(long initialBackoffMillis, int retry)
+    {
+        long backoffMillis = initialBackoffMillis * Math.min(1L << Math.min(retry, 30), MAX_BACKOFF_MULTIPLIER);
+        return backoffMillis - ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+    }
+}
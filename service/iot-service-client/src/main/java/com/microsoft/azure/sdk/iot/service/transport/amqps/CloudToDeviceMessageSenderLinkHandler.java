@@ -21,13 +21,19 @@ import org.apache.qpid.proton.engine.Delivery;
 import org.apache.qpid.proton.engine.EndpointState;
 import org.apache.qpid.proton.engine.Event;
 import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.apache.qpid.proton.reactor.Selectable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
@@ -36,13 +42,29 @@ import java.util.function.Consumer;
  * Contains and sets connection parameters (path, port, endpoint)
  * Maintains the layers of AMQP protocol (Link, Session, Connection, Transport)
  * Creates and sets SASL authentication for transport
+ *
+ * <p>
+ * Queued messages are sent as soon as they are queued, rather than on a timer. Proton-J's reactor is not thread safe,
+ * so {@link #sendAsync(String, String, Message, Consumer, Object)} wakes the reactor thread by writing to a pipe that
+ * the reactor is watching, and the reactor thread then sends the queued messages. Messages are only sent while the
+ * service has granted link credit for them, the rest stay queued until the next link flow event grants more.
+ * </p>
  */
 @Slf4j
 public class CloudToDeviceMessageSenderLinkHandler extends SenderLinkHandler
 {
+    // Only used if the reactor could not watch the wakeup pipe
+    private static final int SEND_MESSAGES_PERIOD_MILLISECONDS = 200;
+
     private final Queue<CloudToDeviceMessage> outgoingMessageQueue = new ConcurrentLinkedQueue<>();
     private final Map<Integer, CloudToDeviceMessage> unacknowledgedMessages = new ConcurrentHashMap<>();
 
+    // Set while a wakeup has been written to the pipe but the reactor thread hasn't read it yet, so that queueing many
+    // messages at once writes a single wakeup rather than filling the pipe
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+    private volatile Pipe wakeupPipe;
+    private Selectable wakeupSelectable;
+
     public CloudToDeviceMessageSenderLinkHandler(Sender sender, String linkCorrelationId, LinkStateCallback linkStateCallback)
     {
         super(sender, linkCorrelationId, linkStateCallback);
@@ -60,6 +82,15 @@ public class CloudToDeviceMessageSenderLinkHandler extends SenderLinkHandler
         }
 
         outgoingMessageQueue.add(new CloudToDeviceMessage(deviceId, moduleId, iotHubMessage, callback, context));
+        wakeReactor();
+    }
+
+    @Override
+    public void onLinkRemoteOpen(Event event)
+    {
+        // The wakeup must be watched before the link is reported as open, since messages can be queued from then on
+        startWatchingWakeups(event.getReactor());
+        super.onLinkRemoteOpen(event);
     }
 
     /**
@@ -69,27 +100,150 @@ public class CloudToDeviceMessageSenderLinkHandler extends SenderLinkHandler
     @Override
     public void onLinkFlow(Event event)
     {
-        event.getReactor().schedule(200, this);
+        // The service granted more link credit, so messages that were waiting for it can be sent now
+        sendQueuedMessages();
     }
 
-
     @Override
     public void onTimerTask(Event event)
     {
         sendQueuedMessages();
 
-        // schedule the next onTimerTask event so that messages can be sent again later
-        event.getReactor().schedule(200, this);
+        if (this.wakeupSelectable == null && this.senderLink.getLocalState() != EndpointState.CLOSED)
+        {
+            // schedule the next onTimerTask event so that messages can be sent again later
+            event.getReactor().schedule(SEND_MESSAGES_PERIOD_MILLISECONDS, this);
+        }
+    }
+
+    @Override
+    public void onLinkLocalClose(Event event)
+    {
+        stopWatchingWakeups(event.getReactor());
+        super.onLinkLocalClose(event);
+    }
+
+    @Override
+    public void onLinkRemoteClose(Event event)
+    {
+        stopWatchingWakeups(event.getReactor());
+        super.onLinkRemoteClose(event);
+    }
+
+    private void startWatchingWakeups(Reactor reactor)
+    {
+        if (this.wakeupSelectable != null)
+        {
+            return;
+        }
+
+        Pipe pipe;
+        try
+        {
+            pipe = Pipe.open();
+            pipe.source().configureBlocking(false);
+        }
+        catch (IOException e)
+        {
+            log.warn("Failed to create the pipe that wakes the reactor to send cloud to device messages, falling back to sending them every {} milliseconds", SEND_MESSAGES_PERIOD_MILLISECONDS, e);
+            reactor.schedule(SEND_MESSAGES_PERIOD_MILLISECONDS, this);
+            return;
+        }
+
+        Selectable selectable = reactor.selectable();
+        selectable.setChannel(pipe.source());
+        selectable.onReadable(this::onWakeup);
+        selectable.onFree(freedSelectable -> closePipe(pipe));
+        selectable.setReading(true);
+        reactor.update(selectable);
+
+        this.wakeupSelectable = selectable;
+        this.wakeupPipe = pipe;
+    }
+
+    private void stopWatchingWakeups(Reactor reactor)
+    {
+        if (this.wakeupSelectable != null)
+        {
+            // Otherwise the selectable would keep the reactor running after the connection has closed
+            this.wakeupSelectable.terminate();
+            reactor.update(this.wakeupSelectable);
+            this.wakeupSelectable = null;
+            this.wakeupPipe = null;
+        }
+    }
+
+    // Called from the threads that queue messages
+    private void wakeReactor()
+    {
+        Pipe pipe = this.wakeupPipe;
+        if (pipe == null || !this.wakeupPending.compareAndSet(false, true))
+        {
+            // Either the messages are sent on a timer, or the reactor thread has yet to read an earlier wakeup and
+            // will send this message along with the messages queued before it
+            return;
+        }
+
+        try
+        {
+            pipe.sink().write(ByteBuffer.allocate(1));
+        }
+        catch (IOException e)
+        {
+            // The pipe is closed once the link closes, and closing the link fails any messages that are still queued
+            log.debug("Failed to wake the reactor to send a cloud to device message", e);
+            this.wakeupPending.set(false);
+        }
+    }
+
+    // Called from the reactor thread
+    private void onWakeup(Selectable selectable)
+    {
+        try
+        {
+            Pipe pipe = this.wakeupPipe;
+            if (pipe != null)
+            {
+                pipe.source().read(ByteBuffer.allocate(1));
+            }
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to read the wakeup of the cloud to device message sender link", e);
+        }
+
+        // Cleared before sending so that a message queued while the others are being sent wakes the reactor again
+        this.wakeupPending.set(false);
+        sendQueuedMessages();
+    }
+
+    private static void closePipe(Pipe pipe)
+    {
+        try
+        {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+        catch (IOException e)
+        {
+            log.debug("Failed to close the wakeup pipe of the cloud to device message sender link", e);
+        }
     }
 
     private void sendQueuedMessages()
     {
-        CloudToDeviceMessage outgoingMessage = this.outgoingMessageQueue.poll();
-        while (outgoingMessage != null)
+        // Each message sent uses up one credit. Messages that there is no credit for stay queued until the service
+        // grants more in a link flow event
+        while (this.senderLink.getCredit() > 0)
         {
+            CloudToDeviceMessage outgoingMessage = this.outgoingMessageQueue.poll();
+            if (outgoingMessage == null)
+            {
+                break;
+            }
+
             int deliveryTag = this.sendMessageAndGetDeliveryTag(outgoingMessage.getProtonMessage());
             this.unacknowledgedMessages.put(deliveryTag, outgoingMessage);
-            outgoingMessage = this.outgoingMessageQueue.poll();
         }
     }
 
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends {@link AsyncHttpRequest}s without blocking the calling thread, for the asynchronous APIs of the service
+ * clients such as {@link com.microsoft.azure.sdk.iot.service.twin.TwinClient#getAsync(String)}.
+ *
+ * <p>
+ * Implementations must be thread safe. Unless set in a client's options, clients share the engine returned by
+ * {@link NettyHttpEngine#getDefaultInstance()}.
+ * </p>
+ */
+public interface AsyncHttpEngine extends Closeable
+{
+    /**
+     * Send the request.
+     *
+     * @param request the request to send.
+     * @return a future that completes with the response once it has been received and verified. It completes
+     * exceptionally with an {@link IOException} if the request could not be sent or no response was received in time,
+     * and with an {@link IotHubException} if IoT hub responded with an error code.
+     */
+    CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request);
+
+    /**
+     * Close all connections opened by this engine and release its threads. Requests that are still in progress
+     * complete exceptionally.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import lombok.Getter;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An HTTP request to be sent by an {@link AsyncHttpEngine}. Unlike {@link HttpRequest}, this doesn't open a
+ * connection when it is created; it only holds what the engine needs to send it.
+ */
+public class AsyncHttpRequest
+{
+    private static final String USER_AGENT = "User-Agent";
+    private static final String ACCEPT = "Accept";
+    private static final String ACCEPT_VALUE = "application/json";
+    private static final String ACCEPT_CHARSET = "charset=utf-8";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String AUTHORIZATION = "Authorization";
+
+    /**
+     * The URL for the request.
+     */
+    @Getter
+    private final URL url;
+
+    /**
+     * The HTTP request method.
+     */
+    @Getter
+    private final HttpMethod method;
+
+    /**
+     * The proxy to send the request through, or null if no proxy should be used.
+     */
+    @Getter
+    private final Proxy proxy;
+
+    /**
+     * The read timeout, in seconds. A timeout of zero is interpreted as an infinite timeout.
+     */
+    @Getter
+    private int readTimeoutSeconds;
+
+    /**
+     * The connect timeout, in seconds. A timeout of zero is interpreted as an infinite timeout.
+     */
+    @Getter
+    private int connectTimeoutSeconds;
+
+    private final byte[] body;
+    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Constructor. Takes a URL as an argument and returns an HTTP request that is ready to be sent through an
+     * optional proxy.
+     *
+     * @param url The URL for the request.
+     * @param method The HTTP request method (i.e. GET).
+     * @param body The request body. Must be an array of size 0 if the request method is GET or DELETE.
+     * @param authorizationToken The header value for the Authorization header.
+     * @param proxy The proxy to send the request through. May be null if no proxy should be used
+     *
+     * @throws IllegalArgumentException if a body is given for a request that is not a POST, PATCH or PUT request.
+     */
+    public AsyncHttpRequest(URL url, HttpMethod method, byte[] body, String authorizationToken, Proxy proxy)
+    {
+        if (url == null)
+        {
+            throw new IllegalArgumentException("url cannot be null");
+        }
+
+        if (method == null)
+        {
+            throw new IllegalArgumentException("method cannot be null");
+        }
+
+        if (method != HttpMethod.POST && method != HttpMethod.PUT && method != HttpMethod.PATCH && body.length > 0)
+        {
+            throw new IllegalArgumentException(
+                "Cannot write a body to a request that "
+                    + "is not a POST, PATCH or PUT request.");
+        }
+
+        this.url = url;
+        this.method = method;
+        this.body = Arrays.copyOf(body, body.length);
+        this.proxy = proxy;
+
+        this.setHeaderField(USER_AGENT, TransportUtils.javaServiceClientIdentifier + TransportUtils.serviceVersion);
+        this.setHeaderField(ACCEPT, ACCEPT_VALUE);
+        this.setHeaderField(CONTENT_TYPE, ACCEPT_VALUE + "; " + ACCEPT_CHARSET);
+        this.setHeaderField(AUTHORIZATION, authorizationToken);
+    }
+
+    /**
+     * Sets the header field to the given value.
+     *
+     * @param field The header field name.
+     * @param value The header field value.
+     *
+     * @return The object itself, for fluent setting.
+     */
+    public AsyncHttpRequest setHeaderField(String field, String value)
+    {
+        this.headers.put(field, value);
+        return this;
+    }
+
+    /**
+     * Sets the header value for the Authorization header. This allows the request to be created before its token is
+     * available, so that a token that has to be renewed can be waited on without blocking.
+     *
+     * @param authorizationToken The header value for the Authorization header.
+     *
+     * @return The object itself, for fluent setting.
+     */
+    public AsyncHttpRequest setAuthorizationToken(String authorizationToken)
+    {
+        return this.setHeaderField(AUTHORIZATION, authorizationToken);
+    }
+
+    /**
+     * Sets the header field to the given value.
+     *
+     * @param headers The set of headers to use for this request
+     *
+     * @return The object itself, for fluent setting.
+     */
+    public AsyncHttpRequest setHeaders(Map<String, String> headers)
+    {
+        if (headers == null)
+        {
+            return this;
+        }
+
+        this.headers.putAll(headers);
+        return this;
+    }
+
+    /**
+     * Sets the read timeout, in seconds, for the request. The read timeout is the amount of time allowed between the
+     * request being sent and its response being received.
+     *
+     * @param timeout The read timeout.
+     *
+     * @return The object itself, for fluent setting.
+     */
+    public AsyncHttpRequest setReadTimeoutSeconds(int timeout)
+    {
+        this.readTimeoutSeconds = timeout;
+        return this;
+    }
+
+    /**
+     * Set the connect timeout, in seconds, for the request. The connect timeout is the allowed amount of time for the
+     * http connection to be established, if the request can't reuse an open connection.
+     *
+     * @param timeout the connect timeout
+     * @return the object itself, for fluent setting.
+     */
+    public AsyncHttpRequest setConnectTimeoutSeconds(int timeout)
+    {
+        this.connectTimeoutSeconds = timeout;
+        return this;
+    }
+
+    /**
+     * @return the request body.
+     */
+    public byte[] getBody()
+    {
+        return Arrays.copyOf(this.body, this.body.length);
+    }
+
+    /**
+     * @return the header fields of the request. The returned map can't be modified.
+     */
+    public Map<String, String> getHeaders()
+    {
+        return Collections.unmodifiableMap(this.headers);
+    }
+
+    byte[] getBodyWithoutCopy()
+    {
+        return this.body;
+    }
+}
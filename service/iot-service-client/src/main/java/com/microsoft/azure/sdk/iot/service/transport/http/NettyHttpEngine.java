@@ -0,0 +1,646 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubExceptionManager;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.AbstractChannelPoolMap;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.proxy.HttpProxyHandler;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.resolver.NoopAddressResolverGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The default {@link AsyncHttpEngine}, built on netty.
+ *
+ * <p>
+ * Connections are pooled per host, port, proxy and connect timeout, and are kept open between requests unless the
+ * service asks for them to be closed. Each pool opens at most {@link #getMaxConnectionsPerHost()} connections, and
+ * requests sent while all of them are busy wait for one to be released. Once {@link #getMaxPendingRequestsPerHost()}
+ * requests are waiting on a pool, further requests to that host fail immediately. All I/O is done on a small set of
+ * daemon threads, so the number of requests in progress is not limited by the number of threads.
+ * </p>
+ *
+ * <p>
+ * Connections that have been idle for {@link #IDLE_CONNECTION_TIMEOUT_SECONDS} seconds are closed, before the service
+ * or a load balancer in front of it would close them. A connection may still be closed by the other end just as a
+ * request is sent on it. In that case, GET, PUT and DELETE requests, which are idempotent, are sent again once on a
+ * new connection.
+ * </p>
+ *
+ * <p>
+ * The futures returned by {@link #sendAsync(AsyncHttpRequest)} are completed on these I/O threads. Dependent stages
+ * that don't specify an executor run on them too, so they must not block.
+ * </p>
+ */
+@Slf4j
+public final class NettyHttpEngine implements AsyncHttpEngine
+{
+    /**
+     * The default maximum number of connections opened to a single host.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 64;
+
+    /**
+     * The default maximum number of requests to a single host that can wait for a connection to be available.
+     */
+    public static final int DEFAULT_MAX_PENDING_REQUESTS_PER_HOST = 10000;
+
+    /**
+     * The number of seconds a pooled connection can be idle before it is closed.
+     */
+    public static final int IDLE_CONNECTION_TIMEOUT_SECONDS = 60;
+
+    // Large enough for the biggest response IoT hub sends, such as a full page of twins from a query
+    private static final int MAX_RESPONSE_CONTENT_LENGTH = 64 * 1024 * 1024;
+
+    private static final String THREAD_POOL_NAME = "azure-iot-sdk-http";
+
+    private static final AttributeKey<PendingRequest> PENDING_REQUEST =
+        AttributeKey.valueOf(NettyHttpEngine.class, "pendingRequest");
+
+    // Set on a connection once a request has been sent on it, so that a later request knows it is reusing the connection
+    private static final AttributeKey<Boolean> HAS_BEEN_USED =
+        AttributeKey.valueOf(NettyHttpEngine.class, "hasBeenUsed");
+
+    private static final ResponseHandler RESPONSE_HANDLER = new ResponseHandler();
+
+    private final int maxConnectionsPerHost;
+    private final int maxPendingRequestsPerHost;
+    private final boolean isShared;
+    private final EventLoopGroup eventLoopGroup;
+    private final SslContext sslContext;
+    private final AbstractChannelPoolMap<PoolKey, FixedChannelPool> pools;
+    private volatile boolean isClosed;
+
+    /**
+     * Create an engine with {@link #DEFAULT_MAX_CONNECTIONS_PER_HOST} and {@link #DEFAULT_MAX_PENDING_REQUESTS_PER_HOST}.
+     * Most applications should use {@link #getDefaultInstance()} instead.
+     */
+    public NettyHttpEngine()
+    {
+        this(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_PENDING_REQUESTS_PER_HOST);
+    }
+
+    /**
+     * Create an engine.
+     *
+     * @param maxConnectionsPerHost the maximum number of connections to open to a single host. Must be positive.
+     * @param maxPendingRequestsPerHost the maximum number of requests to a single host that can wait for a connection
+     * to be available. Must be positive.
+     */
+    public NettyHttpEngine(int maxConnectionsPerHost, int maxPendingRequestsPerHost)
+    {
+        this(maxConnectionsPerHost, maxPendingRequestsPerHost, false);
+    }
+
+    private NettyHttpEngine(int maxConnectionsPerHost, int maxPendingRequestsPerHost, boolean isShared)
+    {
+        if (maxConnectionsPerHost <= 0)
+        {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+        }
+
+        if (maxPendingRequestsPerHost <= 0)
+        {
+            throw new IllegalArgumentException("maxPendingRequestsPerHost must be positive");
+        }
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxPendingRequestsPerHost = maxPendingRequestsPerHost;
+        this.isShared = isShared;
+
+        try
+        {
+            // The JDK's TLS, as the rest of the SDK uses. Letting netty pick OpenSSL breaks when the netty-tcnative
+            // versions on the classpath don't match each other
+            this.sslContext = SslContextBuilder.forClient().sslProvider(SslProvider.JDK).build();
+        }
+        catch (SSLException e)
+        {
+            throw new IllegalStateException("Failed to create the TLS context for the HTTP engine", e);
+        }
+
+        this.eventLoopGroup = new NioEventLoopGroup(0, new DefaultThreadFactory(THREAD_POOL_NAME, true));
+        this.pools = new AbstractChannelPoolMap<PoolKey, FixedChannelPool>()
+        {
+            @Override
+            protected FixedChannelPool newPool(PoolKey key)
+            {
+                return createPool(key);
+            }
+        };
+    }
+
+    /**
+     * Get the engine that service clients use when none is set in their options. It is created the first time this is
+     * called, and is never closed; calling {@link #close()} on it does nothing.
+     *
+     * @return the shared engine.
+     */
+    public static NettyHttpEngine getDefaultInstance()
+    {
+        return DefaultInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the maximum number of connections this engine opens to a single host.
+     */
+    public int getMaxConnectionsPerHost()
+    {
+        return this.maxConnectionsPerHost;
+    }
+
+    /**
+     * @return the maximum number of requests to a single host that can wait for a connection to be available.
+     */
+    public int getMaxPendingRequestsPerHost()
+    {
+        return this.maxPendingRequestsPerHost;
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request)
+    {
+        Objects.requireNonNull(request, "request cannot be null");
+
+        URL url = request.getUrl();
+        boolean isSecure = "https".equalsIgnoreCase(url.getProtocol());
+        if (!isSecure && !"http".equalsIgnoreCase(url.getProtocol()))
+        {
+            throw new IllegalArgumentException("Only http and https requests can be sent");
+        }
+
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        if (this.isClosed)
+        {
+            future.completeExceptionally(new IOException("The HTTP engine has been closed"));
+            return future;
+        }
+
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        int connectTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(request.getConnectTimeoutSeconds());
+        long readTimeoutMillis = TimeUnit.SECONDS.toMillis(request.getReadTimeoutSeconds());
+
+        PoolKey key = new PoolKey(isSecure, url.getHost(), port, request.getProxy(), connectTimeoutMillis);
+        FixedChannelPool pool = this.pools.get(key);
+
+        pool.acquire().addListener((FutureListener<Channel>) acquired ->
+        {
+            if (!acquired.isSuccess())
+            {
+                future.completeExceptionally(toIOException(acquired.cause()));
+                return;
+            }
+
+            Channel channel = acquired.getNow();
+            boolean isReused = channel.attr(HAS_BEEN_USED).getAndSet(Boolean.TRUE) != null;
+
+            // Only a reused connection can have been closed by the other end while it sat in the pool
+            Runnable retry = isReused && isIdempotent(request.getMethod())
+                ? () -> sendOnNewConnection(key, request, url, port, readTimeoutMillis, future)
+                : null;
+
+            send(channel, pool, toNettyRequest(request, url, port), readTimeoutMillis, future, retry);
+        });
+
+        return future;
+    }
+
+    @Override
+    public void close()
+    {
+        if (this.isShared)
+        {
+            log.debug("Ignoring the request to close the shared HTTP engine");
+            return;
+        }
+
+        this.isClosed = true;
+        this.pools.close();
+        this.eventLoopGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+    }
+
+    private void send(
+        Channel channel,
+        ChannelPool pool,
+        FullHttpRequest nettyRequest,
+        long readTimeoutMillis,
+        CompletableFuture<HttpResponse> future,
+        Runnable retry)
+    {
+        PendingRequest pendingRequest = new PendingRequest(future, pool, channel, retry);
+        channel.attr(PENDING_REQUEST).set(pendingRequest);
+
+        if (readTimeoutMillis > 0)
+        {
+            pendingRequest.readTimeoutFuture = channel.eventLoop().schedule(
+                () -> pendingRequest.fail(new SocketTimeoutException("Read timed out")),
+                readTimeoutMillis,
+                TimeUnit.MILLISECONDS);
+        }
+
+        channel.writeAndFlush(nettyRequest).addListener((ChannelFutureListener) written ->
+        {
+            if (!written.isSuccess())
+            {
+                pendingRequest.fail(toIOException(written.cause()));
+            }
+        });
+    }
+
+    // The connection is opened outside of the pool, so that the request can't be given another pooled connection that
+    // was closed by the other end as well. It is closed once the request completes.
+    private void sendOnNewConnection(
+        PoolKey key,
+        AsyncHttpRequest request,
+        URL url,
+        int port,
+        long readTimeoutMillis,
+        CompletableFuture<HttpResponse> future)
+    {
+        if (this.isClosed)
+        {
+            future.completeExceptionally(new IOException("The HTTP engine has been closed"));
+            return;
+        }
+
+        log.debug("Sending {} request to {}:{} again on a new connection, since its pooled connection was closed", request.getMethod(), key.host, key.port);
+        Bootstrap bootstrap = createBootstrap(key).handler(new ChannelInitializer<Channel>()
+        {
+            @Override
+            protected void initChannel(Channel channel)
+            {
+                initializeChannel(key, channel);
+            }
+        });
+
+        bootstrap.connect().addListener((ChannelFutureListener) connected ->
+        {
+            if (!connected.isSuccess())
+            {
+                future.completeExceptionally(toIOException(connected.cause()));
+                return;
+            }
+
+            send(connected.channel(), null, toNettyRequest(request, url, port), readTimeoutMillis, future, null);
+        });
+    }
+
+    private Bootstrap createBootstrap(PoolKey key)
+    {
+        Bootstrap bootstrap = new Bootstrap()
+            .group(this.eventLoopGroup)
+            .channel(NioSocketChannel.class)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, key.connectTimeoutMillis)
+            .remoteAddress(InetSocketAddress.createUnresolved(key.host, key.port));
+
+        if (key.proxy != null)
+        {
+            // the proxy resolves the host, not this client
+            bootstrap.resolver(NoopAddressResolverGroup.INSTANCE);
+        }
+
+        return bootstrap;
+    }
+
+    private void initializeChannel(PoolKey key, Channel channel)
+    {
+        log.debug("Opened a new HTTP connection to {}:{}", key.host, key.port);
+        ChannelPipeline pipeline = channel.pipeline();
+
+        if (key.proxy != null)
+        {
+            HttpProxyHandler proxyHandler = new HttpProxyHandler(key.proxy.address());
+            if (key.connectTimeoutMillis > 0)
+            {
+                proxyHandler.setConnectTimeoutMillis(key.connectTimeoutMillis);
+            }
+
+            pipeline.addLast(proxyHandler);
+        }
+
+        if (key.isSecure)
+        {
+            SslHandler sslHandler = this.sslContext.newHandler(channel.alloc(), key.host, key.port);
+            SSLParameters sslParameters = sslHandler.engine().getSSLParameters();
+            sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslHandler.engine().setSSLParameters(sslParameters);
+            pipeline.addLast(sslHandler);
+        }
+
+        pipeline.addLast(new IdleStateHandler(0, 0, IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        pipeline.addLast(new HttpClientCodec());
+        pipeline.addLast(new HttpObjectAggregator(MAX_RESPONSE_CONTENT_LENGTH));
+        pipeline.addLast(RESPONSE_HANDLER);
+    }
+
+    private FixedChannelPool createPool(PoolKey key)
+    {
+        AbstractChannelPoolHandler handler = new AbstractChannelPoolHandler()
+        {
+            @Override
+            public void channelCreated(Channel channel)
+            {
+                initializeChannel(key, channel);
+            }
+        };
+
+        return new FixedChannelPool(
+            createBootstrap(key),
+            handler,
+            ChannelHealthChecker.ACTIVE,
+            null,
+            -1,
+            this.maxConnectionsPerHost,
+            this.maxPendingRequestsPerHost,
+            true,
+            false);
+    }
+
+    private static boolean isIdempotent(HttpMethod method)
+    {
+        return method == HttpMethod.GET || method == HttpMethod.PUT || method == HttpMethod.DELETE;
+    }
+
+    private static FullHttpRequest toNettyRequest(AsyncHttpRequest request, URL url, int port)
+    {
+        String uri = url.getFile().isEmpty() ? "/" : url.getFile();
+        byte[] body = request.getBodyWithoutCopy();
+        FullHttpRequest nettyRequest = new DefaultFullHttpRequest(
+            HttpVersion.HTTP_1_1,
+            io.netty.handler.codec.http.HttpMethod.valueOf(request.getMethod().name()),
+            uri,
+            Unpooled.wrappedBuffer(body));
+
+        HttpHeaders headers = nettyRequest.headers();
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet())
+        {
+            if (header.getValue() != null)
+            {
+                headers.set(header.getKey(), header.getValue());
+            }
+        }
+
+        headers.set(HttpHeaderNames.HOST, port == url.getDefaultPort() ? url.getHost() : url.getHost() + ":" + port);
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, body.length);
+        headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        return nettyRequest;
+    }
+
+    private static HttpResponse toHttpResponse(FullHttpResponse response)
+    {
+        Map<String, List<String>> headerFields = new HashMap<>();
+        for (String name : response.headers().names())
+        {
+            headerFields.put(name, response.headers().getAll(name));
+        }
+
+        int status = response.status().code();
+        byte[] content = ByteBufUtil.getBytes(response.content());
+
+        // Match HttpRequest, which reads the body of an error response as its error reason
+        if (status >= 400)
+        {
+            return new HttpResponse(status, new byte[0], headerFields, content);
+        }
+
+        return new HttpResponse(status, content, headerFields, new byte[0]);
+    }
+
+    private static IOException toIOException(Throwable cause)
+    {
+        if (cause instanceof IOException)
+        {
+            return (IOException) cause;
+        }
+
+        return new IOException(cause);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class PoolKey
+    {
+        private final boolean isSecure;
+        private final String host;
+        private final int port;
+        private final Proxy proxy;
+        private final int connectTimeoutMillis;
+    }
+
+    /**
+     * The state of a request that has been given a connection, kept as an attribute of that connection until the
+     * request completes and the connection is released.
+     */
+    private static final class PendingRequest
+    {
+        private final CompletableFuture<HttpResponse> future;
+        private final ChannelPool pool;
+        private final Channel channel;
+        private final Runnable retry;
+        private final AtomicBoolean isDone = new AtomicBoolean();
+        private volatile ScheduledFuture<?> readTimeoutFuture;
+
+        /**
+         * @param pool the pool the connection was acquired from, or null if the connection isn't pooled and should be
+         * closed once the request completes.
+         * @param retry sends the request again if the connection fails before a response is received, or null if the
+         * request can't be sent again.
+         */
+        private PendingRequest(CompletableFuture<HttpResponse> future, ChannelPool pool, Channel channel, Runnable retry)
+        {
+            this.future = future;
+            this.pool = pool;
+            this.channel = channel;
+            this.retry = retry;
+        }
+
+        private void complete(FullHttpResponse response)
+        {
+            if (!finish(this.pool != null && HttpUtil.isKeepAlive(response)))
+            {
+                return;
+            }
+
+            HttpResponse httpResponse = toHttpResponse(response);
+            try
+            {
+                IotHubExceptionManager.httpResponseVerification(httpResponse);
+                this.future.complete(httpResponse);
+            }
+            catch (IotHubException e)
+            {
+                this.future.completeExceptionally(e);
+            }
+        }
+
+        private void fail(Throwable cause)
+        {
+            if (!finish(false))
+            {
+                return;
+            }
+
+            // A request that timed out may still be processed by the service, and sending it again would only time out
+            // again, so only requests whose connection failed are sent again
+            if (this.retry != null && !(cause instanceof SocketTimeoutException))
+            {
+                this.retry.run();
+            }
+            else
+            {
+                this.future.completeExceptionally(cause);
+            }
+        }
+
+        private boolean finish(boolean keepConnection)
+        {
+            if (!this.isDone.compareAndSet(false, true))
+            {
+                return false;
+            }
+
+            ScheduledFuture<?> timeoutFuture = this.readTimeoutFuture;
+            if (timeoutFuture != null)
+            {
+                timeoutFuture.cancel(false);
+            }
+
+            this.channel.attr(PENDING_REQUEST).set(null);
+            if (!keepConnection)
+            {
+                // the pool discards closed connections when they are released
+                this.channel.close();
+            }
+
+            if (this.pool != null)
+            {
+                this.pool.release(this.channel);
+            }
+
+            return true;
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static final class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse>
+    {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response)
+        {
+            PendingRequest pendingRequest = ctx.channel().attr(PENDING_REQUEST).get();
+            if (pendingRequest == null)
+            {
+                // A response to a request that already timed out, or that was never sent
+                ctx.close();
+                return;
+            }
+
+            pendingRequest.complete(response);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx)
+        {
+            PendingRequest pendingRequest = ctx.channel().attr(PENDING_REQUEST).get();
+            if (pendingRequest != null)
+            {
+                pendingRequest.fail(new IOException("The connection was closed before a response was received"));
+            }
+
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object event)
+        {
+            if (event instanceof IdleStateEvent && ctx.channel().attr(PENDING_REQUEST).get() == null)
+            {
+                // the pool discards closed connections when they are next acquired
+                log.debug("Closing HTTP connection that has been idle for {} seconds", IDLE_CONNECTION_TIMEOUT_SECONDS);
+                ctx.close();
+                return;
+            }
+
+            ctx.fireUserEventTriggered(event);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+        {
+            PendingRequest pendingRequest = ctx.channel().attr(PENDING_REQUEST).get();
+            if (pendingRequest != null)
+            {
+                pendingRequest.fail(toIOException(cause));
+            }
+
+            ctx.close();
+        }
+    }
+
+    private static final class DefaultInstanceHolder
+    {
+        private static final NettyHttpEngine INSTANCE =
+            new NettyHttpEngine(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_PENDING_REQUESTS_PER_HOST, true);
+    }
+}
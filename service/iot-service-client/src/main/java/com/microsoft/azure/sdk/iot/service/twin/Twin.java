@@ -5,6 +5,7 @@
 
 package com.microsoft.azure.sdk.iot.service.twin;
 
+import com.google.gson.stream.JsonReader;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -73,8 +74,23 @@ public class Twin
 
     public static Twin fromJson(String json)
     {
-        TwinState twinState = new TwinState(json);
+        return fromTwinState(new TwinState(json));
+    }
+
+    /**
+     * Create a twin by reading the next JSON value from the provided reader, such as one element of a JSON array of
+     * twins, without first building the twin's JSON string.
+     *
+     * @param reader the reader positioned at the start of the twin JSON object.
+     * @return the twin read from the reader.
+     */
+    public static Twin fromJson(JsonReader reader)
+    {
+        return fromTwinState(TwinState.createFromJsonReader(reader));
+    }
 
+    private static Twin fromTwinState(TwinState twinState)
+    {
         Twin twin = new Twin(twinState.getDeviceId());
         twin.setVersion(twinState.getVersion());
         twin.setETag(twinState.getETag());
@@ -9,7 +9,7 @@ import com.azure.core.credential.AzureSasCredential;
 import com.azure.core.credential.TokenCredential;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionString;
 import com.microsoft.azure.sdk.iot.service.auth.IotHubConnectionStringBuilder;
-import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasToken;
+import com.microsoft.azure.sdk.iot.service.auth.IotHubServiceSasTokenCache;
 import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
 import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
 import com.microsoft.azure.sdk.iot.service.query.QueryClient;
@@ -17,16 +17,21 @@ import com.microsoft.azure.sdk.iot.service.query.QueryClientOptions;
 import com.microsoft.azure.sdk.iot.service.query.QueryPageOptions;
 import com.microsoft.azure.sdk.iot.service.query.TwinQueryResponse;
 import com.microsoft.azure.sdk.iot.service.transport.TransportUtils;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpEngine;
+import com.microsoft.azure.sdk.iot.service.transport.http.AsyncHttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpMethod;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest;
 import com.microsoft.azure.sdk.iot.service.transport.http.HttpResponse;
+import com.microsoft.azure.sdk.iot.service.transport.http.NettyHttpEngine;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.Proxy;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import static com.microsoft.azure.sdk.iot.service.transport.http.HttpRequest.REQUEST_ID;
 
@@ -43,6 +48,7 @@ public final class TwinClient
     private TokenCredentialCache credentialCache;
     private AzureSasCredential azureSasCredential;
     private IotHubConnectionString iotHubConnectionString;
+    private IotHubServiceSasTokenCache sasTokenCache;
 
     // keep a queryClient within this client so that twins can be queried
     private final QueryClient queryClient;
@@ -72,6 +78,7 @@ public final class TwinClient
 
         this.options = options;
         this.iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        this.sasTokenCache = new IotHubServiceSasTokenCache(this.iotHubConnectionString);
         this.hostName = this.iotHubConnectionString.getHostName();
         commonConstructorSetup();
 
@@ -80,6 +87,7 @@ public final class TwinClient
                 .httpReadTimeoutSeconds(options.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(options.getHttpConnectTimeoutSeconds())
                 .proxyOptions(options.getProxyOptions())
+                .asyncHttpEngine(options.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(connectionString, queryClientOptions);
@@ -124,6 +132,7 @@ public final class TwinClient
                 .httpReadTimeoutSeconds(options.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(options.getHttpConnectTimeoutSeconds())
                 .proxyOptions(options.getProxyOptions())
+                .asyncHttpEngine(options.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(hostName, credential, queryClientOptions);
@@ -166,6 +175,7 @@ public final class TwinClient
                 .httpReadTimeoutSeconds(options.getHttpReadTimeoutSeconds())
                 .httpConnectTimeoutSeconds(options.getHttpConnectTimeoutSeconds())
                 .proxyOptions(options.getProxyOptions())
+                .asyncHttpEngine(options.getAsyncHttpEngine())
                 .build();
 
         this.queryClient = new QueryClient(hostName, azureSasCredential, queryClientOptions);
@@ -221,6 +231,63 @@ public final class TwinClient
         return Twin.fromJson(twinString);
     }
 
+    /**
+     * Retrieve the twin of the specified device without blocking the calling thread.
+     *
+     * @param deviceId The id of the device whose twin will be retrieved.
+     * @return A future that completes with the retrieved twin object for the specified device. It completes
+     * exceptionally with an {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the
+     * response verification failed.
+     */
+    public CompletableFuture<Twin> getAsync(String deviceId)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("DeviceId must not be null or empty");
+        }
+
+        try
+        {
+            return getAsync(IotHubConnectionString.getUrlTwin(this.hostName, deviceId));
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId to create url", e);
+        }
+    }
+
+    /**
+     * Retrieve the twin of the specified module without blocking the calling thread.
+     *
+     * @param deviceId The id of the device whose twin will be retrieved.
+     * @param moduleId The id of the module on the device whose twin will be retrieved.
+     * @return A future that completes with the retrieved twin object for the specified module on the specified device.
+     * It completes exceptionally with an {@link IOException} if the IO operation failed, or with an
+     * {@link IotHubException} if the response verification failed.
+     */
+    public CompletableFuture<Twin> getAsync(String deviceId, String moduleId)
+    {
+        if (deviceId == null || deviceId.isEmpty())
+        {
+            throw new IllegalArgumentException("DeviceId must not be null or empty");
+        }
+
+        try
+        {
+            return getAsync(IotHubConnectionString.getUrlModuleTwin(this.hostName, deviceId, moduleId));
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId or moduleId to create url", e);
+        }
+    }
+
+    private CompletableFuture<Twin> getAsync(URL url)
+    {
+        return sendAsync(createAsyncRequest(url, HttpMethod.GET, new byte[0]))
+            .thenApply(response -> Twin.fromJson(new String(response.getBody(), StandardCharsets.UTF_8)));
+    }
+
     /**
      * This method updates device twin for the specified device.
      * <p>This API uses the IoT Hub PATCH API when sending updates, but it sends the full twin with each patch replace.
@@ -265,6 +332,37 @@ public final class TwinClient
         httpRequest.send();
     }
 
+    /**
+     * Update the twin of the specified device or module without blocking the calling thread. Like
+     * {@link #patch(Twin)}, this sends the full set of tags and desired properties of the twin.
+     *
+     * @param twin The twin with a valid device Id, and optionally a module Id, for which the twin is to be updated.
+     * @return A future that completes when the twin has been updated. It completes exceptionally with an
+     * {@link IOException} if the IO operation failed, or with an {@link IotHubException} if the response verification
+     * failed.
+     */
+    public CompletableFuture<Void> patchAsync(Twin twin)
+    {
+        if (twin == null || twin.getDeviceId() == null || twin.getDeviceId().length() == 0)
+        {
+            throw new IllegalArgumentException("Instantiate a twin and set device Id to be used.");
+        }
+
+        if ((twin.getDesiredMap() == null || twin.getDesiredMap().isEmpty()) &&
+                (twin.getTagsMap() == null || twin.getTagsMap().isEmpty()))
+        {
+            throw new IllegalArgumentException("Set either desired properties or tags for the device to be updated.");
+        }
+
+        TwinState twinState = new TwinState(twin.getTagsMap(), twin.getDesiredMap(), null);
+        String twinJson = twinState.toJsonElement().toString();
+
+        AsyncHttpRequest request =
+            createAsyncRequest(getUrlTwin(twin), HttpMethod.PATCH, twinJson.getBytes(StandardCharsets.UTF_8));
+
+        return sendAsync(request).thenApply(response -> null);
+    }
+
     /**
      * Replace the full twin for a given device or module with the provided twin.
      *
@@ -300,6 +398,31 @@ public final class TwinClient
         return Twin.fromJson(twinString);
     }
 
+    /**
+     * Replace the full twin for a given device or module with the provided twin without blocking the calling thread.
+     *
+     * @param twin The twin object to replace the current twin object.
+     * @return A future that completes with the Twin object's current state returned from the service after the
+     * replace operation. It completes exceptionally with an {@link IOException} if the request failed to send to IoT
+     * hub, or with an {@link IotHubException} if IoT hub responded with an error.
+     */
+    public CompletableFuture<Twin> replaceAsync(Twin twin)
+    {
+        if (twin == null || twin.getDeviceId() == null || twin.getDeviceId().length() == 0)
+        {
+            throw new IllegalArgumentException("Instantiate a device and set device Id to be used.");
+        }
+
+        TwinState twinState = new TwinState(twin.getTagsMap(), twin.getDesiredMap(), null);
+        String twinJson = twinState.toJsonElement().toString();
+
+        AsyncHttpRequest request =
+            createAsyncRequest(getUrlTwin(twin), HttpMethod.PUT, twinJson.getBytes(StandardCharsets.UTF_8));
+
+        return sendAsync(request)
+            .thenApply(response -> Twin.fromJson(new String(response.getBody(), StandardCharsets.UTF_8)));
+    }
+
     /**
      * Query from your IoT Hub's set of Twins.
      *
@@ -344,6 +467,47 @@ public final class TwinClient
         return request;
     }
 
+    private AsyncHttpRequest createAsyncRequest(URL url, HttpMethod method, byte[] payload)
+    {
+        Proxy proxy = null;
+        if (this.options.getProxyOptions() != null)
+        {
+            proxy = this.options.getProxyOptions().getProxy();
+        }
+
+        // The Authorization header is set by sendAsync, once the token is available
+        AsyncHttpRequest request = new AsyncHttpRequest(url, method, payload, null, proxy);
+        request.setReadTimeoutSeconds(options.getHttpReadTimeoutSeconds());
+        request.setConnectTimeoutSeconds(options.getHttpConnectTimeoutSeconds());
+        request.setHeaderField(REQUEST_ID, String.valueOf(requestId++));
+        return request;
+    }
+
+    private CompletableFuture<HttpResponse> sendAsync(AsyncHttpRequest request)
+    {
+        AsyncHttpEngine configuredEngine = this.options.getAsyncHttpEngine();
+        AsyncHttpEngine engine = configuredEngine != null ? configuredEngine : NettyHttpEngine.getDefaultInstance();
+
+        return getAuthenticationTokenAsync().thenCompose(token -> engine.sendAsync(request.setAuthorizationToken(token)));
+    }
+
+    private URL getUrlTwin(Twin twin)
+    {
+        try
+        {
+            if (twin.getModuleId() == null || twin.getModuleId().length() == 0)
+            {
+                return IotHubConnectionString.getUrlTwin(this.hostName, twin.getDeviceId());
+            }
+
+            return IotHubConnectionString.getUrlModuleTwin(this.hostName, twin.getDeviceId(), twin.getModuleId());
+        }
+        catch (MalformedURLException e)
+        {
+            throw new IllegalArgumentException("Invalid deviceId or moduleId to create url", e);
+        }
+    }
+
     private String getAuthenticationToken()
     {
         // Three different constructor types for this class, and each type provides either a TokenCredential implementation,
@@ -358,6 +522,17 @@ public final class TwinClient
             return this.azureSasCredential.getSignature();
         }
 
-        return new IotHubServiceSasToken(iotHubConnectionString).toString();
+        return this.sasTokenCache.getTokenString();
+    }
+
+    // Renewing a TokenCredential's token may take a network call, so that token is fetched without blocking the caller
+    private CompletableFuture<String> getAuthenticationTokenAsync()
+    {
+        if (this.credentialCache != null)
+        {
+            return this.credentialCache.getTokenStringAsync();
+        }
+
+        return CompletableFuture.completedFuture(getAuthenticationToken());
     }
 }
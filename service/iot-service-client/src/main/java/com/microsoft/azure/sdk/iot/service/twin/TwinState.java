@@ -9,6 +9,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -104,6 +105,11 @@ import java.util.Map;
 @SuppressWarnings("unused") // A number of private members are unused but may be filled in or used by serialization
 public class TwinState
 {
+    // Gson instances are thread safe, so parsing twins doesn't need to build a new one each time
+    private static final Gson TWIN_STATE_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
+    private static final Gson SERIALIZE_NULLS_GSON = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
+    private static final Gson PRETTY_PRINTING_GSON = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().disableHtmlEscaping().create();
+
     /**
      * Device name
      * A case-sensitive string (up to 128 char long)
@@ -335,8 +341,7 @@ public class TwinState
      */
     public JsonElement toJsonElement()
     {
-        Gson gson = new GsonBuilder().disableHtmlEscaping().serializeNulls().create();
-        JsonElement json = gson.toJsonTree(this).getAsJsonObject();
+        JsonElement json = SERIALIZE_NULLS_GSON.toJsonTree(this).getAsJsonObject();
 
         // Since null values are lost when building the json tree, need to manually re-add properties as reported
         // properties may have contained a property with a null value. Those must be preserved so users can delete
@@ -399,8 +404,7 @@ public class TwinState
     public String toString()
     {
         /* SRS_TWIN_STATE_21_008: [The toString shall return a String with the information in this class in a pretty print JSON.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().setPrettyPrinting().disableHtmlEscaping().create();
-        JsonObject jsonObject = gson.toJsonTree(this).getAsJsonObject();
+        JsonObject jsonObject = PRETTY_PRINTING_GSON.toJsonTree(this).getAsJsonObject();
 
         /* SRS_TWIN_STATE_21_009: [If the tags is null, the JSON shall not include the `tags`.] */
         if (this.tags != null)
@@ -432,14 +436,45 @@ public class TwinState
 
         /* SRS_TWIN_STATE_21_012: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_013: [The factory shall deserialize the provided JSON for the twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinState result = gson.fromJson(json, TwinState.class);
+        copyFrom(TWIN_STATE_GSON.fromJson(json, TwinState.class));
+    }
 
+    /**
+     * Factory
+     *
+     * <p> Create a new instance of the TwinState by reading the next JSON value from the provided reader as the full
+     * Twin information. This allows a page of twins to be parsed one twin at a time without first building the twin's
+     * JSON string.
+     *
+     * @param reader the {@code JsonReader} positioned at the start of the twin JSON object. It cannot be {@code null}.
+     * @return The new instance of the TwinState.
+     * @throws IllegalArgumentException if the reader is {@code null} or the next JSON value is null.
+     */
+    public static TwinState createFromJsonReader(JsonReader reader)
+    {
+        if (reader == null)
+        {
+            throw new IllegalArgumentException("JSON reader is null");
+        }
+
+        TwinState result = TWIN_STATE_GSON.fromJson(reader, TwinState.class);
+        if (result == null)
+        {
+            throw new IllegalArgumentException("JSON with result is null");
+        }
+
+        TwinState twinState = new TwinState(null, null, null);
+        twinState.copyFrom(result);
+        return twinState;
+    }
+
+    private void copyFrom(TwinState result)
+    {
         /*
          * During the deserialization process, the GSON will convert both tags and
          * properties to a raw Map, which will includes the $version and $metadata
          * as part of the collection. So, we need to reorganize this map using the
-         * TwinCollection format. This constructor will do that.
+         * TwinCollection format. This method will do that.
          */
         this.tags = new TwinCollection(result.getTags());
         if (result.properties != null)
@@ -483,8 +518,7 @@ public class TwinState
 
         /* SRS_TWIN_STATE_21_015: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_016: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinCollection result = gson.fromJson(json, TwinCollection.class);
+        TwinCollection result = TWIN_STATE_GSON.fromJson(json, TwinCollection.class);
 
         return new TwinState(null, result, null);
     }
@@ -507,8 +541,7 @@ public class TwinState
 
         /* SRS_TWIN_STATE_21_018: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_019: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinCollection result = gson.fromJson(json, TwinCollection.class);
+        TwinCollection result = TWIN_STATE_GSON.fromJson(json, TwinCollection.class);
 
         return new TwinState(null, null, result);
     }
@@ -531,19 +564,18 @@ public class TwinState
 
         /* SRS_TWIN_STATE_21_021: [The factory shall throw JsonSyntaxException if the JSON is invalid.] */
         /* SRS_TWIN_STATE_21_022: [The factory shall deserialize the provided JSON for the Twin class and subclasses.] */
-        Gson gson = new GsonBuilder().excludeFieldsWithoutExposeAnnotation().disableHtmlEscaping().create();
-        TwinProperties result = gson.fromJson(json, TwinProperties.class);
+        TwinProperties result = TWIN_STATE_GSON.fromJson(json, TwinProperties.class);
 
         return new TwinState(null, result.getDesired(), result.getReported());
     }
 
     /**
      * Get the connection state
-     * @return the connection state
+     * @return the connection state, or null if the twin didn't include it, as the twins of a projection query don't
      */
     public String getConnectionState()
     {
-        return this.connectionState.toString();
+        return this.connectionState == null ? null : this.connectionState.toString();
     }
 
     /**
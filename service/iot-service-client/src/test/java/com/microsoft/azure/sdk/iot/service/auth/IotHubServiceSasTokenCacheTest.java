@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.auth;
+
+import mockit.Deencapsulation;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Unit tests for IotHubServiceSasTokenCache. */
+public class IotHubServiceSasTokenCacheTest
+{
+    private static final String SHARED_ACCESS_KEY =
+        encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void cachesOfSameConnectionStringKeepSeparateTokens()
+    {
+        IotHubServiceSasTokenCache first = new IotHubServiceSasTokenCache(createConnectionString("same"));
+        IotHubServiceSasTokenCache second = new IotHubServiceSasTokenCache(createConnectionString("same"));
+
+        first.getTokenString();
+
+        assertNotNull(Deencapsulation.getField(first, "sasToken"));
+        assertNull(Deencapsulation.getField(second, "sasToken"));
+    }
+
+    @Test
+    public void getTokenStringSignsRenewedTokensWithSameMac()
+    {
+        IotHubConnectionString connectionString = createConnectionString("mac");
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache(connectionString);
+        cache.getTokenString();
+        Mac mac = Deencapsulation.getField(cache, "mac");
+        IotHubServiceSasToken expiringToken = createToken(connectionString, 30);
+        Deencapsulation.setField(cache, "sasToken", expiringToken);
+
+        String token = cache.getTokenString();
+
+        assertNotNull(mac);
+        assertNotEquals(expiringToken.toString(), token);
+        assertSame(mac, Deencapsulation.getField(cache, "mac"));
+    }
+
+    @Test
+    public void getTokenStringReturnsCachedToken()
+    {
+        IotHubConnectionString connectionString = createConnectionString("cached");
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache(connectionString);
+
+        String token = cache.getTokenString();
+        IotHubServiceSasToken cachedToken = Deencapsulation.getField(cache, "sasToken");
+
+        assertTrue(token.startsWith("SharedAccessSignature sr=cached.b.c.d&sig="));
+        assertEquals(token, cache.getTokenString());
+        assertSame(cachedToken, Deencapsulation.getField(cache, "sasToken"));
+    }
+
+    @Test
+    public void getTokenStringRenewsExpiringTokenOnCallingThread()
+    {
+        IotHubConnectionString connectionString = createConnectionString("expiring");
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache(connectionString);
+        IotHubServiceSasToken expiringToken = createToken(connectionString, 30);
+        Deencapsulation.setField(cache, "sasToken", expiringToken);
+
+        String token = cache.getTokenString();
+
+        assertNotEquals(expiringToken.toString(), token);
+        IotHubServiceSasToken renewedToken = Deencapsulation.getField(cache, "sasToken");
+        assertTrue(renewedToken.getExpiryTimeMillis() > expiringToken.getExpiryTimeMillis());
+    }
+
+    @Test
+    public void getTokenStringRenewsTokenCloseToExpiryInBackground() throws InterruptedException
+    {
+        IotHubConnectionString connectionString = createConnectionString("proactive");
+        IotHubServiceSasTokenCache cache = new IotHubServiceSasTokenCache(connectionString);
+        IotHubServiceSasToken closeToExpiryToken = createToken(connectionString, TimeUnit.MINUTES.toSeconds(5));
+        Deencapsulation.setField(cache, "sasToken", closeToExpiryToken);
+
+        // the token is still valid, so it is returned while the new one is generated
+        assertEquals(closeToExpiryToken.toString(), cache.getTokenString());
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (Deencapsulation.getField(cache, "sasToken") == closeToExpiryToken && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+
+        IotHubServiceSasToken renewedToken = Deencapsulation.getField(cache, "sasToken");
+        assertTrue(renewedToken.getExpiryTimeMillis() > closeToExpiryToken.getExpiryTimeMillis());
+        assertEquals(renewedToken.toString(), cache.getTokenString());
+    }
+
+    private static IotHubConnectionString createConnectionString(String hubName)
+    {
+        String connectionString = "HostName=" + hubName + ".b.c.d;SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=" + SHARED_ACCESS_KEY;
+        return IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+    }
+
+    private static IotHubServiceSasToken createToken(IotHubConnectionString connectionString, long lifespanSeconds)
+    {
+        return Deencapsulation.newInstance(
+            IotHubServiceSasToken.class,
+            new Class<?>[] { IotHubConnectionString.class, long.class, Mac.class },
+            connectionString,
+            lifespanSeconds,
+            null);
+    }
+}
@@ -15,6 +15,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
 import static org.apache.commons.codec.binary.Base64.encodeBase64String;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -122,4 +123,32 @@ public class IotHubServiceSasTokenTest
         Deencapsulation.setField(iotHubConnectionString, "hostName", null);
         IotHubServiceSasToken iotHubServiceSasToken = new IotHubServiceSasToken(iotHubConnectionString);
     }
+
+    @Test
+    public void constructorWithReusedMacSignsSameTokenAsConstructorWithNewMac()
+    {
+        // Arrange
+        String hostName = "HOSTNAME.b.c.d";
+        String sharedAccessKey = encodeBase64String("1234567890abcdefghijklmnopqrstvwxyz=".getBytes(StandardCharsets.UTF_8));
+        String connectionString = "HostName=" + hostName + ";SharedAccessKeyName=ACCESSKEYNAME;SharedAccessKey=" + sharedAccessKey;
+        IotHubConnectionString iotHubConnectionString = IotHubConnectionStringBuilder.createIotHubConnectionString(connectionString);
+        Mac mac = IotHubServiceSasToken.createMac(sharedAccessKey);
+
+        for (int attempt = 0; attempt < 5; attempt++)
+        {
+            // Act
+            // the first token signed with the Mac leaves it reset, and the second reuses it
+            new IotHubServiceSasToken(iotHubConnectionString, mac);
+            IotHubServiceSasToken reusedMacToken = new IotHubServiceSasToken(iotHubConnectionString, mac);
+            IotHubServiceSasToken newMacToken = new IotHubServiceSasToken(iotHubConnectionString);
+
+            // Assert
+            // the tokens can only match if they were created in the same second
+            if (reusedMacToken.getExpiryTimeMillis() == newMacToken.getExpiryTimeMillis())
+            {
+                assertEquals(newMacToken.toString(), reusedMacToken.toString());
+                return;
+            }
+        }
+    }
 }
@@ -6,166 +6,242 @@ package com.microsoft.azure.sdk.iot.service.auth;
 import com.azure.core.credential.AccessToken;
 import com.azure.core.credential.TokenCredential;
 import com.azure.core.credential.TokenRequestContext;
-import com.microsoft.azure.sdk.iot.service.auth.TokenCredentialCache;
-import mockit.Expectations;
-import mockit.Mocked;
 import org.junit.Test;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
+import java.time.Duration;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TokenCredentialCacheTest
 {
-    @Mocked
-    TokenCredential mockTokenCredential;
-
-    @Mocked
-    AccessToken mockAccessToken;
-
-    @Mocked
-    AccessToken mockAccessToken2;
-
-    @Mocked
-    Mono<AccessToken> mockTokenTask;
+    private static final int TIMEOUT_SECONDS = 10;
 
     @Test
     public void tokenCredentialCachesToken()
     {
-        TokenCredentialCache cache = new TokenCredentialCache(mockTokenCredential);
-
-        new Expectations()
-        {
-            {
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken;
-
-                mockAccessToken.getExpiresAt();
-                result = OffsetDateTime.MAX;
-            }
-        };
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofHours(1));
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
         AccessToken accessToken = cache.getAccessToken();
         AccessToken accessToken2 = cache.getAccessToken();
 
-        assertEquals(mockAccessToken, accessToken);
-        assertEquals(mockAccessToken, accessToken2);
+        assertSame(accessToken, accessToken2);
+        assertEquals(1, tokenCredential.fetchCount.get());
     }
 
     @Test
-    public void tokenCredentialProactivelyRenewsToken()
+    public void tokenCredentialProactivelyRenewsToken() throws InterruptedException
     {
-        TokenCredentialCache cache = new TokenCredentialCache(mockTokenCredential);
+        // 8 minutes from the current time, should fit within the proactive renewal range
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofMinutes(8));
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
-        new Expectations()
-        {
-            {
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken;
+        AccessToken accessToken = cache.getAccessToken();
+        tokenCredential.lifespan = Duration.ofHours(1);
 
-                mockAccessToken.getExpiresAt();
-                result = OffsetDateTime.MAX;
-            }
-        };
+        // act
+        AccessToken accessToken2 = cache.getAccessToken();
+        AccessToken renewedToken = waitForRenewal(cache, accessToken);
+
+        // assert
+        assertSame(accessToken, accessToken2);
+        assertEquals("token2", renewedToken.getToken());
+        assertEquals(2, tokenCredential.fetchCount.get());
+    }
+
+    @Test
+    public void tokenCredentialRenewsExpiredToken()
+    {
+        // Token expired one minute ago
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofMinutes(-1));
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
         AccessToken accessToken = cache.getAccessToken();
+        tokenCredential.lifespan = Duration.ofHours(1);
 
-        // 8 minutes from the current time, should fit within the proactive renewal range
-        final long milliseconds = System.currentTimeMillis() + (8 * 60 * 1000);
-        new Expectations()
-        {
-            {
-                mockAccessToken.getExpiresAt();
-                result = Instant.ofEpochMilli(milliseconds).atOffset(ZoneOffset.UTC);
+        // act
+        AccessToken accessToken2 = cache.getAccessToken();
 
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken2;
-            }
-        };
+        // assert
+        assertEquals("token1", accessToken.getToken());
+        assertEquals("token2", accessToken2.getToken());
+    }
+
+    @Test
+    public void tokenCredentialDoesNotRenewTooProactively()
+    {
+        // 12 minutes from the current time, should not fit within the proactive renewal range, so the cached token shouldn't be renewed
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofMinutes(12));
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
         // act
+        AccessToken accessToken = cache.getAccessToken();
         AccessToken accessToken2 = cache.getAccessToken();
 
         // assert
-        assertEquals(mockAccessToken, accessToken);
-        assertEquals(mockAccessToken2, accessToken2);
+        assertSame(accessToken, accessToken2);
+        assertEquals(1, tokenCredential.fetchCount.get());
     }
 
     @Test
-    public void tokenCredentialRenewsExpiredToken()
+    public void concurrentCallersShareSingleTokenFetch() throws Exception
     {
-        TokenCredentialCache cache = new TokenCredentialCache(mockTokenCredential);
+        final int threadCount = 500;
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofHours(1));
+        tokenCredential.delay = Duration.ofMillis(200);
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
-        new Expectations()
-        {
-            {
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken;
+        Set<AccessToken> tokens = runConcurrently(threadCount, cache);
 
-                mockAccessToken.getExpiresAt();
-                result = OffsetDateTime.MAX;
-            }
-        };
+        assertEquals(1, tokenCredential.fetchCount.get());
+        assertEquals(1, tokens.size());
+    }
 
+    @Test
+    public void concurrentCallersTriggerSingleProactiveRenewalWithoutWaiting() throws Exception
+    {
+        final int threadCount = 500;
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofMinutes(5));
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
         AccessToken accessToken = cache.getAccessToken();
 
-        // Token expired one minute ago
-        final long milliseconds = System.currentTimeMillis() - (60 * 1000);
-        new Expectations()
-        {
-            {
-                mockAccessToken.getExpiresAt();
-                result = Instant.ofEpochMilli(milliseconds).atOffset(ZoneOffset.UTC);
+        // a renewal that would take longer than the test timeout if any caller waited for it
+        tokenCredential.lifespan = Duration.ofHours(1);
+        tokenCredential.delay = Duration.ofSeconds(TIMEOUT_SECONDS * 2);
 
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken2;
-            }
-        };
+        Set<AccessToken> tokens = runConcurrently(threadCount, cache);
 
-        // act
-        AccessToken accessToken2 = cache.getAccessToken();
+        assertEquals(1, tokens.size());
+        assertTrue(tokens.contains(accessToken));
+        assertEquals(2, tokenCredential.fetchCount.get());
+    }
 
-        // assert
-        assertEquals(mockAccessToken, accessToken);
-        assertEquals(mockAccessToken2, accessToken2);
+    @Test
+    public void getAccessTokenAsyncCompletesWithFetchedToken() throws Exception
+    {
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofHours(1));
+        tokenCredential.delay = Duration.ofMillis(100);
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
+
+        CompletableFuture<AccessToken> future = cache.getAccessTokenAsync();
+        CompletableFuture<String> tokenStringFuture = cache.getTokenStringAsync();
+
+        assertEquals("token1", future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getToken());
+        assertEquals("Bearer token1", tokenStringFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(cache.getAccessTokenAsync().isDone());
+        assertEquals(1, tokenCredential.fetchCount.get());
     }
 
     @Test
-    public void tokenCredentialDoesNotRenewTooProactively()
+    public void failedFetchIsRetriedByNextCaller()
     {
-        TokenCredentialCache cache = new TokenCredentialCache(mockTokenCredential);
+        FakeTokenCredential tokenCredential = new FakeTokenCredential(Duration.ofHours(1));
+        tokenCredential.failure = new IllegalStateException("AAD is unavailable");
+        TokenCredentialCache cache = new TokenCredentialCache(tokenCredential);
 
-        new Expectations()
+        try
         {
-            {
-                mockTokenCredential.getToken((TokenRequestContext) any).block();
-                result = mockAccessToken;
+            cache.getAccessToken();
+            fail("Expected the token fetch to fail");
+        }
+        catch (IllegalStateException e)
+        {
+            assertEquals("AAD is unavailable", e.getMessage());
+        }
 
-                mockAccessToken.getExpiresAt();
-                result = OffsetDateTime.MAX;
-            }
-        };
+        tokenCredential.failure = null;
 
-        AccessToken accessToken = cache.getAccessToken();
+        assertEquals("token2", cache.getAccessToken().getToken());
+    }
 
-        // 12 minutes from the current time, should not fit within the proactive renewal range, so the cached token shouldn't be renewed
-        final long milliseconds = System.currentTimeMillis() + (12 * 60 * 1000);
-        new Expectations()
+    private static Set<AccessToken> runConcurrently(int threadCount, TokenCredentialCache cache) throws InterruptedException
+    {
+        Set<AccessToken> tokens = ConcurrentHashMap.newKeySet();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++)
         {
+            Thread thread = new Thread(() ->
             {
-                mockAccessToken.getExpiresAt();
-                result = Instant.ofEpochMilli(milliseconds).atOffset(ZoneOffset.UTC);
-            }
-        };
+                try
+                {
+                    start.await();
+                    tokens.add(cache.getAccessToken());
+                }
+                catch (Exception e)
+                {
+                    failures.incrementAndGet();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+
+        start.countDown();
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        return tokens;
+    }
 
-        // act
-        AccessToken accessToken2 = cache.getAccessToken();
+    private static AccessToken waitForRenewal(TokenCredentialCache cache, AccessToken oldToken) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        AccessToken accessToken = cache.getAccessToken();
+        while (accessToken == oldToken && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+            accessToken = cache.getAccessToken();
+        }
 
-        // assert
-        assertEquals(mockAccessToken, accessToken);
-        assertEquals(mockAccessToken, accessToken2);
+        assertFalse(accessToken == oldToken);
+        return accessToken;
+    }
+
+    private static class FakeTokenCredential implements TokenCredential
+    {
+        final AtomicInteger fetchCount = new AtomicInteger();
+        volatile Duration lifespan;
+        volatile Duration delay = Duration.ZERO;
+        volatile RuntimeException failure;
+
+        FakeTokenCredential(Duration lifespan)
+        {
+            this.lifespan = lifespan;
+        }
+
+        @Override
+        public Mono<AccessToken> getToken(TokenRequestContext request)
+        {
+            int fetchNumber = this.fetchCount.incrementAndGet();
+            Duration tokenLifespan = this.lifespan;
+            RuntimeException fetchFailure = this.failure;
+
+            return Mono.delay(this.delay).map(ignored ->
+            {
+                if (fetchFailure != null)
+                {
+                    throw fetchFailure;
+                }
+
+                return new AccessToken("token" + fetchNumber, OffsetDateTime.now().plus(tokenLifespan));
+            });
+        }
     }
 }
@@ -134,4 +134,26 @@ public class FeedbackBatchMessageTest
         assertEquals(feedbackBatch.getUserId(), "");
         assertEquals(feedbackBatch.getLockToken(), "");
     }
+
+    @Test
+    public void parse_FeedbackBatchMessage_skips_unknown_fields_and_defaults_missing_status_code()
+    {
+        // Arrange
+        String jsonString =
+                "Data{[" +
+                        "{\"originalMessageId\":\"a1aaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee\",\"newField\":{\"nested\":[1,2]},\"deviceId\":\"xxx-01\",\"enqueuedTimeUtc\":\"2015-10-10T23:35:19.9774002Z\"}," +
+                        "{\"originalMessageId\":\"a2aaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee\",\"statusCode\":null,\"deviceId\":\"xxx-02\",\"enqueuedTimeUtc\":\"2015-10-11T23:35:19.9774002Z\"}" +
+                        "]}";
+        // Act
+        FeedbackBatch feedbackBatch = FeedbackBatchMessage.parse(jsonString);
+        // Assert
+        assertEquals(2, feedbackBatch.getRecords().size());
+
+        assertEquals("xxx-01", feedbackBatch.getRecords().get(0).getDeviceId());
+        assertEquals("a1aaaaaa-bbbb-cccc-dddd-eeeeeeeeeeee", feedbackBatch.getRecords().get(0).getOriginalMessageId());
+        assertEquals(FeedbackStatusCode.unknown, feedbackBatch.getRecords().get(0).getStatusCode());
+
+        assertEquals("xxx-02", feedbackBatch.getRecords().get(1).getDeviceId());
+        assertEquals(FeedbackStatusCode.unknown, feedbackBatch.getRecords().get(1).getStatusCode());
+    }
 }
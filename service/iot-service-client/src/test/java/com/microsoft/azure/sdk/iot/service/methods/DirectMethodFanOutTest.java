@@ -0,0 +1,250 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.methods;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubNotFoundException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for DirectMethodFanOut. Invocations are answered by a fake that completes them after a delay rather than
+ * sending them to an IoT hub.
+ */
+public class DirectMethodFanOutTest
+{
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+    private final AtomicInteger activeInvocations = new AtomicInteger();
+    private final AtomicInteger maxActiveInvocations = new AtomicInteger();
+    private final AtomicInteger startedInvocations = new AtomicInteger();
+
+    @After
+    public void tearDown()
+    {
+        this.responder.shutdownNow();
+    }
+
+    @Test
+    public void startDeliversResultOfEveryDeviceAndSummarizesThem() throws Exception
+    {
+        Map<String, DeviceMethodInvocationResult> results = new ConcurrentHashMap<>();
+
+        DirectMethodFanOutStatistics statistics = DirectMethodFanOut.start(
+            createDeviceIds(50),
+            deviceId -> respondAfter(deviceId, 5),
+            result -> results.put(result.getDeviceId(), result),
+            DirectMethodFanOutOptions.builder().build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(50, results.size());
+        assertEquals(50, statistics.getInvocationCount());
+        assertEquals(49, statistics.getSuccessCount());
+        assertEquals(1, statistics.getFailureCount());
+        assertTrue(statistics.getMinLatencyMillis() <= statistics.getP50LatencyMillis());
+        assertTrue(statistics.getP50LatencyMillis() <= statistics.getP99LatencyMillis());
+        assertTrue(statistics.getP99LatencyMillis() <= statistics.getMaxLatencyMillis());
+
+        DeviceMethodInvocationResult succeeded = results.get("device1");
+        assertTrue(succeeded.isSuccessful());
+        assertEquals(Integer.valueOf(200), succeeded.getMethodResult().getStatus());
+
+        DeviceMethodInvocationResult failed = results.get("device0");
+        assertFalse(failed.isSuccessful());
+        assertNull(failed.getMethodResult());
+        assertTrue(failed.getException() instanceof IotHubNotFoundException);
+    }
+
+    @Test
+    public void startKeepsNoMoreThanMaxConcurrentInvocationsInProgress() throws Exception
+    {
+        DirectMethodFanOut.start(
+            createDeviceIds(40),
+            deviceId -> respondAfter(deviceId, 10),
+            result -> { },
+            DirectMethodFanOutOptions.builder().maxConcurrentInvocations(3).build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(40, this.startedInvocations.get());
+        assertTrue(this.maxActiveInvocations.get() <= 3);
+    }
+
+    @Test
+    public void startLimitsInvocationRate() throws Exception
+    {
+        long startMillis = System.currentTimeMillis();
+
+        DirectMethodFanOut.start(
+            createDeviceIds(11),
+            deviceId -> respondAfter(deviceId, 0),
+            result -> { },
+            DirectMethodFanOutOptions.builder().maxInvocationsPerSecond(50).build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // 10 intervals of 20 milliseconds between the 11 invocations
+        assertTrue(System.currentTimeMillis() - startMillis >= 200);
+    }
+
+    @Test
+    public void cancelStopsStartingInvocations() throws Exception
+    {
+        CompletableFuture<DirectMethodFanOutStatistics> fanOut = DirectMethodFanOut.start(
+            createDeviceIds(1000),
+            deviceId -> respondAfter(deviceId, 10),
+            result -> { },
+            DirectMethodFanOutOptions.builder().maxConcurrentInvocations(1).build());
+
+        Thread.sleep(50);
+        fanOut.cancel(false);
+        Thread.sleep(50);
+
+        int startedAfterCancel = this.startedInvocations.get();
+        Thread.sleep(100);
+
+        assertTrue(startedAfterCancel < 1000);
+        assertEquals(startedAfterCancel, this.startedInvocations.get());
+    }
+
+    @Test
+    public void startCallsResultHandlerOnFanOutThread() throws Exception
+    {
+        Set<String> handlerThreadNames = ConcurrentHashMap.newKeySet();
+
+        DirectMethodFanOut.start(
+            createDeviceIds(20),
+            deviceId -> respondAfter(deviceId, 1),
+            result -> handlerThreadNames.add(Thread.currentThread().getName()),
+            DirectMethodFanOutOptions.builder().build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // Not the responder's threads that completed the invocations
+        assertEquals(1, handlerThreadNames.size());
+        assertTrue(handlerThreadNames.iterator().next().startsWith("azure-iot-sdk-DirectMethodFanOut-"));
+    }
+
+    @Test
+    public void slowResultHandlerDoesNotAddToLatencies() throws Exception
+    {
+        DirectMethodFanOutStatistics statistics = DirectMethodFanOut.start(
+            createDeviceIds(10),
+            deviceId -> respondAfter(deviceId, 0),
+            result ->
+            {
+                try
+                {
+                    Thread.sleep(50);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            },
+            DirectMethodFanOutOptions.builder().build()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // The results wait up to 450 milliseconds for the handler, which their latencies don't include
+        assertEquals(10, statistics.getInvocationCount());
+        assertTrue(statistics.getMaxLatencyMillis() < 200);
+    }
+
+    @Test
+    public void startCompletesExceptionallyIfResultHandlerThrows() throws Exception
+    {
+        CompletableFuture<DirectMethodFanOutStatistics> fanOut = DirectMethodFanOut.start(
+            createDeviceIds(10),
+            deviceId -> respondAfter(deviceId, 0),
+            result ->
+            {
+                throw new IllegalStateException("handler failed");
+            },
+            DirectMethodFanOutOptions.builder().build());
+
+        try
+        {
+            fanOut.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected the fan-out to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void statisticsUseNearestRankPercentiles()
+    {
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++)
+        {
+            latencies[i] = i + 1;
+        }
+
+        DirectMethodFanOutStatistics statistics = new DirectMethodFanOutStatistics(100, 0, latencies, 1000);
+
+        assertEquals(1, statistics.getMinLatencyMillis());
+        assertEquals(100, statistics.getMaxLatencyMillis());
+        assertEquals(50.5, statistics.getAverageLatencyMillis(), 0.001);
+        assertEquals(50, statistics.getP50LatencyMillis());
+        assertEquals(95, statistics.getP95LatencyMillis());
+        assertEquals(99, statistics.getP99LatencyMillis());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void startThrowsForNonPositiveMaxConcurrentInvocations()
+    {
+        DirectMethodFanOut.start(
+            Collections.emptyList(),
+            deviceId -> respondAfter(deviceId, 0),
+            result -> { },
+            DirectMethodFanOutOptions.builder().maxConcurrentInvocations(0).build());
+    }
+
+    // device0 is never found, every other device responds with status 200
+    private CompletableFuture<MethodResult> respondAfter(String deviceId, long delayMillis)
+    {
+        this.startedInvocations.incrementAndGet();
+        this.maxActiveInvocations.accumulateAndGet(this.activeInvocations.incrementAndGet(), Math::max);
+
+        CompletableFuture<MethodResult> invocation = new CompletableFuture<>();
+        this.responder.schedule(() ->
+        {
+            this.activeInvocations.decrementAndGet();
+            if (deviceId.equals("device0"))
+            {
+                invocation.completeExceptionally(new IotHubNotFoundException("device not found"));
+            }
+            else
+            {
+                invocation.complete(new MethodResult(200, deviceId));
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+
+        return invocation;
+    }
+
+    private static List<String> createDeviceIds(int count)
+    {
+        List<String> deviceIds = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            deviceIds.add("device" + i);
+        }
+
+        return deviceIds;
+    }
+}
@@ -0,0 +1,172 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for QueryPagePrefetcher. Pages are strings of the form "page{N}" whose continuation token is "{N + 1}".
+ */
+public class QueryPagePrefetcherTest
+{
+    private static final int TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void takeNextPageReturnsPagesInOrder() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(5);
+        QueryPagePrefetcher<String> prefetcher = createPrefetcher(fetcher, 2, Long.MAX_VALUE);
+
+        for (int i = 2; i <= 5; i++)
+        {
+            assertEquals("page" + i, prefetcher.takeNextPage());
+        }
+
+        try
+        {
+            prefetcher.takeNextPage();
+            fail("Expected no more pages");
+        }
+        catch (NoSuchElementException expected)
+        {
+            // expected
+        }
+
+        assertEquals(4, fetcher.requestedTokens.size());
+    }
+
+    @Test
+    public void requestsPagesAheadUpToPrefetchCount() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(100);
+        createPrefetcher(fetcher, 3, Long.MAX_VALUE);
+
+        // pages 2 to 4 are requested without any page being taken
+        assertTrue(fetcher.awaitRequests(3));
+        Thread.sleep(100);
+        assertEquals(3, fetcher.requestedTokens.size());
+    }
+
+    @Test
+    public void requestsMorePagesAsPagesAreTaken() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(100);
+        QueryPagePrefetcher<String> prefetcher = createPrefetcher(fetcher, 2, Long.MAX_VALUE);
+        assertTrue(fetcher.awaitRequests(2));
+
+        assertEquals("page2", prefetcher.takeNextPage());
+
+        assertTrue(fetcher.awaitRequests(3));
+    }
+
+    @Test
+    public void stopsRequestingPagesAheadAtMemoryCap() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(100);
+
+        // every page is 5 characters long, so only one page fits under the cap
+        QueryPagePrefetcher<String> prefetcher = createPrefetcher(fetcher, 10, 5);
+        assertTrue(fetcher.awaitRequests(1));
+        Thread.sleep(100);
+        assertEquals(1, fetcher.requestedTokens.size());
+
+        assertEquals("page2", prefetcher.takeNextPage());
+        assertTrue(fetcher.awaitRequests(2));
+    }
+
+    @Test
+    public void takeNextPageThrowsPageFailureAndRetries() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(3);
+        fetcher.failuresRemaining = 1;
+        QueryPagePrefetcher<String> prefetcher = createPrefetcher(fetcher, 2, Long.MAX_VALUE);
+
+        try
+        {
+            prefetcher.takeNextPage();
+            fail("Expected the page request to fail");
+        }
+        catch (IotHubServerBusyException expected)
+        {
+            // expected
+        }
+
+        assertEquals("page2", prefetcher.takeNextPage());
+        assertEquals("page3", prefetcher.takeNextPage());
+    }
+
+    @Test (expected = NoSuchElementException.class)
+    public void takeNextPageThrowsIfFirstPageWasLast() throws Exception
+    {
+        FakePageFetcher fetcher = new FakePageFetcher(1);
+        QueryPagePrefetcher<String> prefetcher =
+            new QueryPagePrefetcher<>(null, fetcher, fetcher::continuationTokenOf, String::length, 2, Long.MAX_VALUE);
+
+        prefetcher.takeNextPage();
+    }
+
+    private static QueryPagePrefetcher<String> createPrefetcher(FakePageFetcher fetcher, int maxPages, long maxBytes)
+    {
+        // the first page was already received, and its continuation token is that of the second page
+        return new QueryPagePrefetcher<>("2", fetcher, fetcher::continuationTokenOf, String::length, maxPages, maxBytes);
+    }
+
+    private static class FakePageFetcher implements QueryPagePrefetcher.PageFetcher<String>
+    {
+        private final int lastPage;
+
+        final List<String> requestedTokens = new ArrayList<>();
+        volatile int failuresRemaining;
+
+        FakePageFetcher(int pageCount)
+        {
+            this.lastPage = pageCount;
+        }
+
+        @Override
+        public synchronized String fetch(String continuationToken) throws IOException, IotHubException
+        {
+            this.requestedTokens.add(continuationToken);
+            notifyAll();
+
+            if (this.failuresRemaining > 0)
+            {
+                this.failuresRemaining--;
+                throw new IotHubServerBusyException();
+            }
+
+            return "page" + continuationToken;
+        }
+
+        synchronized boolean awaitRequests(int count) throws InterruptedException
+        {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (this.requestedTokens.size() < count && System.currentTimeMillis() < deadline)
+            {
+                wait(10);
+            }
+
+            return this.requestedTokens.size() >= count;
+        }
+
+        String continuationTokenOf(String page)
+        {
+            int pageNumber = Integer.parseInt(page.substring("page".length()));
+            return pageNumber >= this.lastPage ? null : String.valueOf(pageNumber + 1);
+        }
+    }
+}
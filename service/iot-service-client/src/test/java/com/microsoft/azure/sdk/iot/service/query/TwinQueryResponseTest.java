@@ -0,0 +1,208 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.twin.Twin;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for TwinQueryResponse and RawQueryResponse page parsing.
+ */
+public class TwinQueryResponseTest
+{
+    private static final String QUERY = "SELECT * FROM devices";
+
+    @Mocked
+    QueryClient mockQueryClient;
+
+    @Test
+    public void nextReturnsTwinsInPageOrder() throws IotHubException, IOException
+    {
+        TwinQueryResponse response = new TwinQueryResponse(createTwinPage("device1", "device2", "device3"), mockQueryClient, QUERY);
+        response.setContinuationToken(null);
+
+        assertEquals("device1", response.next().getDeviceId());
+        assertEquals("device2", response.next().getDeviceId());
+
+        Twin twin = response.next();
+        assertEquals("device3", twin.getDeviceId());
+        assertEquals("\"etag-device3\"", twin.getETag());
+        assertEquals(Integer.valueOf(1), twin.getDesiredPropertiesVersion());
+        assertEquals(1, twin.getDesiredProperties().size());
+        assertFalse(response.hasNext());
+    }
+
+    @Test
+    public void emptyPageHasNoTwins() throws IotHubException, IOException
+    {
+        TwinQueryResponse response = new TwinQueryResponse("[]", mockQueryClient, QUERY);
+        response.setContinuationToken(null);
+
+        assertFalse(response.hasNext());
+
+        try
+        {
+            response.next();
+            fail("Expected no twins to be returned");
+        }
+        catch (NoSuchElementException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void nextParsesEachTwinOnlyWhenReached() throws IotHubException, IOException
+    {
+        // the second twin is malformed, but that isn't noticed until the iterator reaches it
+        TwinQueryResponse response = new TwinQueryResponse("[{\"deviceId\":\"device1\"},{\"deviceId\":}]", mockQueryClient, QUERY);
+        response.setContinuationToken(null);
+
+        assertEquals("device1", response.next().getDeviceId());
+        assertTrue(response.hasNext());
+
+        try
+        {
+            response.next();
+            fail("Expected the malformed twin to be rejected");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            // expected
+        }
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsIfPageIsNotJsonArray()
+    {
+        new TwinQueryResponse("{\"deviceId\":\"device1\"}", mockQueryClient, QUERY);
+    }
+
+    @Test
+    public void nextGetsNextPageWhenPageIsExhausted() throws IotHubException, IOException
+    {
+        final TwinQueryResponse secondPage = new TwinQueryResponse(createTwinPage("device2"), mockQueryClient, QUERY);
+        secondPage.setContinuationToken(null);
+
+        new Expectations()
+        {
+            {
+                mockQueryClient.queryTwins(QUERY, (QueryPageOptions) any);
+                result = secondPage;
+                times = 1;
+            }
+        };
+
+        TwinQueryResponse response = new TwinQueryResponse(createTwinPage("device1"), mockQueryClient, QUERY);
+        response.setContinuationToken("continuation");
+
+        assertEquals("device1", response.next().getDeviceId());
+        assertEquals("device2", response.next().getDeviceId());
+        assertFalse(response.hasNext());
+    }
+
+    @Test
+    public void streamReturnsTwinsOfAllPages() throws IotHubException, IOException
+    {
+        final TwinQueryResponse secondPage = new TwinQueryResponse(createTwinPage("device3", "device4"), mockQueryClient, QUERY);
+        secondPage.setContinuationToken(null);
+
+        new Expectations()
+        {
+            {
+                mockQueryClient.queryTwins(QUERY, (QueryPageOptions) any);
+                result = secondPage;
+            }
+        };
+
+        TwinQueryResponse response = new TwinQueryResponse(createTwinPage("device1", "device2"), mockQueryClient, QUERY);
+        response.setContinuationToken("continuation");
+
+        List<String> deviceIds = response.stream().map(Twin::getDeviceId).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList("device1", "device2", "device3", "device4"), deviceIds);
+    }
+
+    @Test
+    public void parallelStreamReturnsEveryTwin() throws IotHubException, IOException
+    {
+        String[] deviceIds = new String[2000];
+        for (int i = 0; i < deviceIds.length; i++)
+        {
+            deviceIds[i] = "device" + i;
+        }
+
+        TwinQueryResponse response = new TwinQueryResponse(createTwinPage(deviceIds), mockQueryClient, QUERY);
+        response.setContinuationToken(null);
+
+        Set<String> streamedDeviceIds = response.parallelStream().map(Twin::getDeviceId).collect(Collectors.toSet());
+
+        assertEquals(new HashSet<>(Arrays.asList(deviceIds)), streamedDeviceIds);
+    }
+
+    @Test
+    public void streamEndsAtEmptyLastPage() throws IotHubException, IOException
+    {
+        final TwinQueryResponse emptyPage = new TwinQueryResponse("[]", mockQueryClient, QUERY);
+        emptyPage.setContinuationToken(null);
+
+        new Expectations()
+        {
+            {
+                mockQueryClient.queryTwins(QUERY, (QueryPageOptions) any);
+                result = emptyPage;
+            }
+        };
+
+        TwinQueryResponse response = new TwinQueryResponse(createTwinPage("device1"), mockQueryClient, QUERY);
+        response.setContinuationToken("continuation");
+
+        assertEquals(1, response.stream().count());
+    }
+
+    @Test
+    public void rawQueryResponseReturnsEachObjectAsJson() throws IotHubException, IOException
+    {
+        RawQueryResponse response = new RawQueryResponse("[{\"count\":5},{\"deviceId\":\"device1\",\"tags\":{\"a\":\"<b>\"}}]", mockQueryClient, QUERY);
+        response.setContinuationToken(null);
+
+        assertEquals("{\"count\":5}", response.next());
+        assertEquals("{\"deviceId\":\"device1\",\"tags\":{\"a\":\"<b>\"}}", response.next());
+        assertFalse(response.hasNext());
+    }
+
+    private static String createTwinPage(String... deviceIds)
+    {
+        StringBuilder page = new StringBuilder("[");
+        for (int i = 0; i < deviceIds.length; i++)
+        {
+            if (i > 0)
+            {
+                page.append(',');
+            }
+
+            page.append("{\"deviceId\":\"").append(deviceIds[i]).append("\",\"etag\":\"\\\"etag-").append(deviceIds[i])
+                .append("\\\"\",\"version\":2,\"tags\":{\"floor\":\"1\"},\"properties\":{\"desired\":{\"speed\":4,\"$version\":1},")
+                .append("\"reported\":{\"speed\":3,\"$version\":1}}}");
+        }
+
+        return page.append(']').toString();
+    }
+}
@@ -0,0 +1,287 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.azure.sdk.iot.service.query;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.service.twin.Twin;
+import com.microsoft.azure.sdk.iot.service.twin.TwinConnectionState;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for TwinScan. Each partition query is answered by a fake that returns pages of twins named after the
+ * query's partition.
+ */
+public class TwinScanTest
+{
+    @Test
+    public void deviceIdRangesCoverKeyspaceWithoutOverlap()
+    {
+        List<String> conditions = TwinScan.createDeviceIdRangeConditions(4);
+
+        assertEquals(Arrays.asList(
+            "deviceId < 'F'",
+            "deviceId >= 'F' AND deviceId < 'V'",
+            "deviceId >= 'V' AND deviceId < 'k'",
+            "deviceId >= 'k'"),
+            conditions);
+    }
+
+    @Test
+    public void singlePartitionHasNoCondition()
+    {
+        List<String> queries = TwinScan.createPartitionQueries(TwinScanOptions.builder().partitionCount(1).build());
+
+        assertEquals(1, queries.size());
+        assertEquals("select * from devices ", queries.get(0));
+    }
+
+    @Test
+    public void partitionQueriesCombineConditionWithPartitionConditions()
+    {
+        TwinScanOptions options = TwinScanOptions.builder()
+            .condition("tags.region = 'US'")
+            .partitionConditions(Arrays.asList("tags.shard = 0", "tags.shard = 1"))
+            .build();
+
+        List<String> queries = TwinScan.createPartitionQueries(options);
+
+        assertEquals(Arrays.asList(
+            "select * from devices where (tags.region = 'US') AND (tags.shard = 0) ",
+            "select * from devices where (tags.region = 'US') AND (tags.shard = 1) "),
+            queries);
+    }
+
+    @Test
+    public void scanReturnsTwinsOfEveryPageOfEveryPartition()
+    {
+        FakePageQuery pageQuery = new FakePageQuery(3, 5);
+        TwinScanOptions options = TwinScanOptions.builder().partitionCount(8).maxParallelism(3).build();
+
+        List<Twin> scannedTwins;
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            scannedTwins = twins.collect(Collectors.toList());
+        }
+
+        assertEquals(8 * 3 * 5, scannedTwins.stream().map(Twin::getDeviceId).distinct().count());
+        assertEquals(8 * 3 * 3, scannedTwins.stream().filter(twin -> TwinConnectionState.CONNECTED.name().equals(twin.getConnectionState())).count());
+        assertEquals(8 * 3, pageQuery.pageRequests.get());
+        assertTrue(pageQuery.maxConcurrentRequests.get() <= 3);
+    }
+
+    @Test
+    public void scanRunsPartitionsConcurrently()
+    {
+        FakePageQuery pageQuery = new FakePageQuery(2, 5);
+        pageQuery.delayMillis = 50;
+        TwinScanOptions options = TwinScanOptions.builder().partitionCount(8).maxParallelism(4).build();
+
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            assertEquals(8 * 2 * 5, twins.count());
+        }
+
+        assertTrue(pageQuery.maxConcurrentRequests.get() > 1);
+    }
+
+    @Test
+    public void scanRetriesThrottledPages()
+    {
+        FakePageQuery pageQuery = new FakePageQuery(2, 5);
+        pageQuery.throttledRequestsRemaining.set(3);
+        TwinScanOptions options = TwinScanOptions.builder().partitionCount(2).initialThrottlingBackoffMillis(1).build();
+
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            assertEquals(2 * 2 * 5, twins.count());
+        }
+
+        assertEquals(2 * 2 + 3, pageQuery.pageRequests.get());
+    }
+
+    @Test
+    public void scanThrowsWhenThrottledTooManyTimes()
+    {
+        FakePageQuery pageQuery = new FakePageQuery(2, 5);
+        pageQuery.throttledRequestsRemaining.set(Integer.MAX_VALUE);
+        TwinScanOptions options = TwinScanOptions.builder()
+            .partitionCount(1)
+            .maxThrottlingRetries(2)
+            .initialThrottlingBackoffMillis(1)
+            .build();
+
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            twins.count();
+            fail("Expected the scan to fail");
+        }
+        catch (RuntimeException e)
+        {
+            assertTrue(e.getCause() instanceof IotHubTooManyRequestsException);
+        }
+
+        assertEquals(3, pageQuery.pageRequests.get());
+    }
+
+    @Test
+    public void scanThrowsQueryFailure()
+    {
+        FakePageQuery pageQuery = new FakePageQuery(2, 5);
+        pageQuery.failingQuery = "deviceId >= 'V'";
+        TwinScanOptions options = TwinScanOptions.builder().partitionCount(2).build();
+
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            twins.count();
+            fail("Expected the scan to fail");
+        }
+        catch (RuntimeException e)
+        {
+            assertTrue(e.getCause() instanceof IotHubBadFormatException);
+        }
+    }
+
+    @Test
+    public void closingStreamStopsScan() throws InterruptedException
+    {
+        FakePageQuery pageQuery = new FakePageQuery(1000, 5);
+        TwinScanOptions options = TwinScanOptions.builder().partitionCount(4).maxBufferedTwins(10).build();
+
+        try (Stream<Twin> twins = TwinScan.start(pageQuery, options))
+        {
+            assertEquals(20, twins.limit(20).count());
+        }
+
+        Thread.sleep(500);
+        int pageRequests = pageQuery.pageRequests.get();
+        Thread.sleep(500);
+
+        assertEquals(pageRequests, pageQuery.pageRequests.get());
+        assertTrue(pageRequests < 4 * 1000);
+    }
+
+    @Test
+    public void abandoningStreamStopsScan() throws InterruptedException
+    {
+        FakePageQuery pageQuery = new FakePageQuery(1000, 5);
+        consumeAndAbandon(pageQuery, TwinScanOptions.builder().partitionCount(4).maxBufferedTwins(10).build());
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (pageQuery.queryThreads.stream().anyMatch(Thread::isAlive) && System.currentTimeMillis() < deadline)
+        {
+            System.gc();
+            Thread.sleep(100);
+        }
+
+        assertFalse(pageQuery.queryThreads.isEmpty());
+        assertFalse(pageQuery.queryThreads.stream().anyMatch(Thread::isAlive));
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void startThrowsForTooManyPartitions()
+    {
+        TwinScan.start(new FakePageQuery(1, 1), TwinScanOptions.builder().partitionCount(63).build());
+    }
+
+    // Reads some twins and drops the stream without closing it
+    private static void consumeAndAbandon(TwinScan.PageQuery pageQuery, TwinScanOptions options)
+    {
+        Iterator<Twin> twins = TwinScan.start(pageQuery, options).iterator();
+        for (int i = 0; i < 20; i++)
+        {
+            twins.next();
+        }
+    }
+
+    private static class FakePageQuery implements TwinScan.PageQuery
+    {
+        final AtomicInteger pageRequests = new AtomicInteger();
+        final AtomicInteger concurrentRequests = new AtomicInteger();
+        final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+        final AtomicInteger throttledRequestsRemaining = new AtomicInteger();
+        final Map<String, Integer> queryIds = new ConcurrentHashMap<>();
+        final Set<Thread> queryThreads = ConcurrentHashMap.newKeySet();
+        final AtomicInteger nextQueryId = new AtomicInteger();
+        final int pagesPerPartition;
+        final int twinsPerPage;
+        volatile long delayMillis;
+        volatile String failingQuery;
+
+        FakePageQuery(int pagesPerPartition, int twinsPerPage)
+        {
+            this.pagesPerPartition = pagesPerPartition;
+            this.twinsPerPage = twinsPerPage;
+        }
+
+        @Override
+        public TwinQueryResponse query(String query, QueryPageOptions options) throws IotHubException
+        {
+            this.pageRequests.incrementAndGet();
+            this.queryThreads.add(Thread.currentThread());
+            int concurrent = this.concurrentRequests.incrementAndGet();
+            this.maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+
+            try
+            {
+                if (this.delayMillis > 0)
+                {
+                    Thread.sleep(this.delayMillis);
+                }
+
+                if (this.throttledRequestsRemaining.getAndDecrement() > 0)
+                {
+                    throw new IotHubTooManyRequestsException("throttled");
+                }
+
+                if (this.failingQuery != null && query.contains(this.failingQuery))
+                {
+                    throw new IotHubBadFormatException("bad query");
+                }
+
+                int queryId = this.queryIds.computeIfAbsent(query, key -> this.nextQueryId.getAndIncrement());
+                int page = options.getContinuationToken() == null ? 0 : Integer.parseInt(options.getContinuationToken());
+
+                StringBuilder json = new StringBuilder("[");
+                for (int i = 0; i < this.twinsPerPage; i++)
+                {
+                    // Only every other twin has a connection state, as the twins of a projection query have none
+                    json.append(i == 0 ? "" : ",").append("{\"deviceId\":\"device-").append(queryId).append('-')
+                        .append(page).append('-').append(i).append('"')
+                        .append(i % 2 == 0 ? ",\"connectionState\":\"Connected\"" : "").append('}');
+                }
+
+                TwinQueryResponse response = new TwinQueryResponse(json.append(']').toString(), null, query);
+                response.setContinuationToken(page + 1 < this.pagesPerPartition ? String.valueOf(page + 1) : null);
+                return response;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IotHubException("interrupted");
+            }
+            finally
+            {
+                this.concurrentRequests.decrementAndGet();
+            }
+        }
+    }
+}
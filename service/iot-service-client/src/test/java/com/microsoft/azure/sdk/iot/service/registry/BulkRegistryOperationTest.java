@@ -0,0 +1,215 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.registry;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.ErrorCodeDescription;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.AuthenticationTypeParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.BulkRegistryOperationResultParser;
+import com.microsoft.azure.sdk.iot.service.registry.serializers.ExportImportDeviceParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for BulkRegistryOperation. Requests are answered by fakes rather than sent to an IoT hub.
+ */
+public class BulkRegistryOperationTest
+{
+    private static final String SUCCESSFUL_RESPONSE = "{\"isSuccessful\":true,\"errors\":[],\"warnings\":[]}";
+
+    @Test
+    public void runSplitsIdentitiesIntoRequestsOfAtMost100() throws Exception
+    {
+        List<Integer> requestSizes = Collections.synchronizedList(new ArrayList<>());
+
+        BulkRegistryOperationResult result = BulkRegistryOperation.run(
+            createIdentities(250),
+            identities ->
+            {
+                requestSizes.add(identities.size());
+                return new BulkRegistryOperationResultParser(SUCCESSFUL_RESPONSE);
+            },
+            BulkRegistryOperationOptions.builder().build());
+
+        Collections.sort(requestSizes);
+        assertEquals(3, requestSizes.size());
+        assertEquals(Integer.valueOf(50), requestSizes.get(0));
+        assertEquals(Integer.valueOf(100), requestSizes.get(2));
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    public void runSendsNoMoreThanMaxConcurrentRequests() throws Exception
+    {
+        AtomicInteger activeRequests = new AtomicInteger();
+        AtomicInteger maxActiveRequests = new AtomicInteger();
+        AtomicInteger sentRequests = new AtomicInteger();
+
+        BulkRegistryOperation.run(
+            createIdentities(20),
+            identities ->
+            {
+                maxActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+                try
+                {
+                    Thread.sleep(20);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    activeRequests.decrementAndGet();
+                }
+
+                sentRequests.incrementAndGet();
+                return new BulkRegistryOperationResultParser(SUCCESSFUL_RESPONSE);
+            },
+            BulkRegistryOperationOptions.builder().maxIdentitiesPerRequest(1).maxConcurrentRequests(3).build());
+
+        assertEquals(20, sentRequests.get());
+        assertTrue(maxActiveRequests.get() <= 3);
+    }
+
+    @Test
+    public void runRetriesThrottledRequests() throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        BulkRegistryOperationResult result = BulkRegistryOperation.run(
+            createIdentities(5),
+            identities ->
+            {
+                if (attempts.incrementAndGet() <= 2)
+                {
+                    throw new IotHubTooManyRequestsException("throttled");
+                }
+
+                return new BulkRegistryOperationResultParser(SUCCESSFUL_RESPONSE);
+            },
+            BulkRegistryOperationOptions.builder().initialThrottlingBackoffMillis(1).build());
+
+        assertEquals(3, attempts.get());
+        assertTrue(result.isSuccessful());
+    }
+
+    @Test
+    public void runReportsFailedRequestAsErrorOfEachOfItsIdentities() throws Exception
+    {
+        ConcurrentHashMap<String, Boolean> failedDeviceIds = new ConcurrentHashMap<>();
+
+        BulkRegistryOperationResult result = BulkRegistryOperation.run(
+            createIdentities(4),
+            identities ->
+            {
+                if (identities.get(0).getId().equals("device0"))
+                {
+                    for (ExportImportDeviceParser identity : identities)
+                    {
+                        failedDeviceIds.put(identity.getId(), true);
+                    }
+
+                    throw new IotHubBadFormatException("bad request");
+                }
+
+                return new BulkRegistryOperationResultParser(SUCCESSFUL_RESPONSE);
+            },
+            BulkRegistryOperationOptions.builder().maxIdentitiesPerRequest(2).maxThrottlingRetries(0).build());
+
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getErrors().size());
+        for (DeviceRegistryOperationError error : result.getErrors())
+        {
+            assertTrue(failedDeviceIds.containsKey(error.getDeviceId()));
+            assertEquals("bad request", error.getErrorStatus());
+        }
+    }
+
+    @Test
+    public void runAggregatesErrorsAndWarningsReportedByTheService() throws Exception
+    {
+        String response = "{\"isSuccessful\":false,"
+            + "\"errors\":[{\"deviceId\":\"device0\",\"errorCode\":409001,\"errorStatus\":\"already exists\"}],"
+            + "\"warnings\":[{\"deviceId\":\"device1\",\"warningCode\":\"DeviceRegisteredWithoutTwin\",\"warningStatus\":\"no twin\"}]}";
+
+        BulkRegistryOperationResult result = BulkRegistryOperation.run(
+            createIdentities(2),
+            identities -> new BulkRegistryOperationResultParser(response),
+            BulkRegistryOperationOptions.builder().build());
+
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getErrors().size());
+        DeviceRegistryOperationError error = result.getErrors().get(0);
+        assertEquals("device0", error.getDeviceId());
+        assertNull(error.getModuleId());
+        assertEquals(409001, error.getErrorCode());
+        assertEquals(ErrorCodeDescription.DeviceAlreadyExists, error.getErrorCodeDescription());
+        assertEquals(1, result.getWarnings().size());
+        assertEquals("DeviceRegisteredWithoutTwin", result.getWarnings().get(0).getWarningCode());
+    }
+
+    @Test
+    public void runReturnsSuccessfulResultWithoutRequestsForNoIdentities() throws Exception
+    {
+        BulkRegistryOperationResult result = BulkRegistryOperation.run(
+            Collections.emptyList(),
+            identities ->
+            {
+                throw new IotHubException("no request expected");
+            },
+            BulkRegistryOperationOptions.builder().build());
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void runThrowsForMoreThan100IdentitiesPerRequest() throws Exception
+    {
+        BulkRegistryOperation.run(
+            createIdentities(1),
+            identities -> new BulkRegistryOperationResultParser(SUCCESSFUL_RESPONSE),
+            BulkRegistryOperationOptions.builder().maxIdentitiesPerRequest(101).build());
+    }
+
+    @Test
+    public void toExportImportDeviceParserSetsIdentityAndImportMode()
+    {
+        Device device = new Device("device0");
+
+        ExportImportDeviceParser parser = RegistryClient.toExportImportDeviceParser(device, ImportMode.Create);
+
+        assertEquals("device0", parser.getId());
+        assertEquals(ImportMode.Create.toString(), parser.getImportMode());
+        assertEquals(AuthenticationTypeParser.SAS, parser.getAuthentication().getType());
+    }
+
+    private static List<ExportImportDeviceParser> createIdentities(int count)
+    {
+        List<ExportImportDeviceParser> identities = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            ExportImportDeviceParser identity = new ExportImportDeviceParser();
+            identity.setId("device" + i);
+            identity.setImportMode(ImportMode.Create.toString());
+            identities.add(identity);
+        }
+
+        return identities;
+    }
+}
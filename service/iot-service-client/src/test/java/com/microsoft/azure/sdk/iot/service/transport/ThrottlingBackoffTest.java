@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See LICENSE file in the project root for full license information.
+
+package com.microsoft.azure.sdk.iot.service.transport;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubBadFormatException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubServerBusyException;
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubTooManyRequestsException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Unit tests for ThrottlingBackoff. */
+public class ThrottlingBackoffTest
+{
+    @Test
+    public void sendWithRetryRetriesThrottledRequests() throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String response = ThrottlingBackoff.sendWithRetry(
+            () ->
+            {
+                int attempt = attempts.incrementAndGet();
+                if (attempt == 1)
+                {
+                    throw new IotHubTooManyRequestsException("throttled");
+                }
+
+                if (attempt == 2)
+                {
+                    throw new IotHubServerBusyException("busy");
+                }
+
+                return "response";
+            },
+            "test request",
+            2,
+            1,
+            () -> false);
+
+        assertEquals("response", response);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void sendWithRetryThrowsOnceRetriesAreExhausted() throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try
+        {
+            ThrottlingBackoff.sendWithRetry(
+                () ->
+                {
+                    attempts.incrementAndGet();
+                    throw new IotHubTooManyRequestsException("throttled");
+                },
+                "test request",
+                2,
+                1,
+                () -> false);
+            fail("Expected the request to fail");
+        }
+        catch (IotHubTooManyRequestsException e)
+        {
+            assertEquals(3, attempts.get());
+        }
+    }
+
+    @Test
+    public void sendWithRetryDoesNotRetryCancelledRequest() throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try
+        {
+            ThrottlingBackoff.sendWithRetry(
+                () ->
+                {
+                    attempts.incrementAndGet();
+                    throw new IotHubTooManyRequestsException("throttled");
+                },
+                "test request",
+                5,
+                1,
+                () -> true);
+            fail("Expected the request to fail");
+        }
+        catch (IotHubTooManyRequestsException e)
+        {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void sendWithRetryDoesNotRetryOtherFailures() throws Exception
+    {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try
+        {
+            ThrottlingBackoff.sendWithRetry(
+                () ->
+                {
+                    attempts.incrementAndGet();
+                    throw new IotHubBadFormatException("bad request");
+                },
+                "test request",
+                5,
+                1,
+                () -> false);
+            fail("Expected the request to fail");
+        }
+        catch (IotHubBadFormatException e)
+        {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void backoffDoublesUpToLimitWithJitterOfUpToHalf()
+    {
+        for (int retry = 0; retry < 40; retry++)
+        {
+            long maxBackoffMillis = 100 * Math.min(1L << Math.min(retry, 30), 32);
+            long backoffMillis = ThrottlingBackoff.getBackoffMillis(100, retry);
+
+            assertTrue(backoffMillis <= maxBackoffMillis);
+            assertTrue(backoffMillis >= maxBackoffMillis / 2);
+        }
+    }
+}
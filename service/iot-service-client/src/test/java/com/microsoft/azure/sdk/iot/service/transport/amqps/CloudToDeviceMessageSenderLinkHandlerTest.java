@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.amqps;
+
+import com.microsoft.azure.sdk.iot.service.messaging.Message;
+import mockit.Deencapsulation;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import mockit.integration.junit4.JMockit;
+import org.apache.qpid.proton.engine.Event;
+import org.apache.qpid.proton.engine.Sender;
+import org.apache.qpid.proton.reactor.Reactor;
+import org.apache.qpid.proton.reactor.Selectable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/** Unit tests for CloudToDeviceMessageSenderLinkHandler */
+@RunWith(JMockit.class)
+public class CloudToDeviceMessageSenderLinkHandlerTest
+{
+    @Mocked Sender sender;
+    @Mocked Event event;
+    @Mocked Reactor reactor;
+    @Mocked Selectable selectable;
+    @Mocked LinkStateCallback linkStateCallback;
+
+    @Test
+    public void onLinkFlowSendsOnlyAsManyMessagesAsThereIsCreditFor()
+    {
+        // Arrange
+        CloudToDeviceMessageSenderLinkHandler handler = new CloudToDeviceMessageSenderLinkHandler(sender, "correlationId", linkStateCallback);
+        handler.sendAsync("device1", null, new Message("1"), null, null);
+        handler.sendAsync("device2", null, new Message("2"), null, null);
+        handler.sendAsync("device3", null, new Message("3"), null, null);
+
+        new Expectations()
+        {
+            {
+                sender.getCredit();
+                returns(2, 1, 0);
+            }
+        };
+
+        // Act
+        handler.onLinkFlow(event);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                sender.delivery((byte[]) any);
+                times = 2;
+            }
+        };
+    }
+
+    @Test
+    public void onLinkFlowDoesNotSendWithoutCredit()
+    {
+        // Arrange
+        CloudToDeviceMessageSenderLinkHandler handler = new CloudToDeviceMessageSenderLinkHandler(sender, "correlationId", linkStateCallback);
+        handler.sendAsync("device1", null, new Message("1"), null, null);
+
+        new Expectations()
+        {
+            {
+                sender.getCredit();
+                result = 0;
+            }
+        };
+
+        // Act
+        handler.onLinkFlow(event);
+
+        // Assert
+        new Verifications()
+        {
+            {
+                sender.delivery((byte[]) any);
+                times = 0;
+            }
+        };
+    }
+
+    @Test
+    public void sendAsyncWakesReactorOnceForMessagesQueuedBeforeItWakes() throws Exception
+    {
+        // Arrange
+        new Expectations()
+        {
+            {
+                event.getReactor();
+                result = reactor;
+                reactor.selectable();
+                result = selectable;
+            }
+        };
+
+        CloudToDeviceMessageSenderLinkHandler handler = new CloudToDeviceMessageSenderLinkHandler(sender, "correlationId", linkStateCallback);
+        handler.onLinkRemoteOpen(event);
+        Pipe wakeupPipe = Deencapsulation.getField(handler, "wakeupPipe");
+        assertNotNull(wakeupPipe);
+
+        // Act
+        handler.sendAsync("device1", null, new Message("1"), null, null);
+        handler.sendAsync("device2", null, new Message("2"), null, null);
+
+        // Assert
+        ByteBuffer wakeups = ByteBuffer.allocate(16);
+        assertEquals(1, wakeupPipe.source().read(wakeups));
+        new Verifications()
+        {
+            {
+                selectable.setReading(true);
+                reactor.update(selectable);
+                linkStateCallback.onSenderLinkRemoteOpen();
+            }
+        };
+    }
+
+    @Test
+    public void onLinkRemoteCloseStopsWatchingWakeups()
+    {
+        // Arrange
+        new Expectations()
+        {
+            {
+                event.getReactor();
+                result = reactor;
+                reactor.selectable();
+                result = selectable;
+            }
+        };
+
+        CloudToDeviceMessageSenderLinkHandler handler = new CloudToDeviceMessageSenderLinkHandler(sender, "correlationId", linkStateCallback);
+        handler.onLinkRemoteOpen(event);
+
+        // Act
+        handler.onLinkRemoteClose(event);
+
+        // Assert
+        assertNull(Deencapsulation.getField(handler, "wakeupPipe"));
+        new Verifications()
+        {
+            {
+                selectable.terminate();
+                times = 1;
+            }
+        };
+    }
+}
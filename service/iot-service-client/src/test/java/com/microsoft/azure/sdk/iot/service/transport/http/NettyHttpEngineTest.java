@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) Microsoft. All rights reserved.
+ * Licensed under the MIT license. See LICENSE file in the project root for full license information.
+ */
+
+package com.microsoft.azure.sdk.iot.service.transport.http;
+
+import com.microsoft.azure.sdk.iot.service.exceptions.IotHubException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.netty.handler.ssl.JdkSslContext;
+import io.netty.handler.ssl.SslContext;
+import mockit.Deencapsulation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Unit tests for NettyHttpEngine, sending requests over plain http to a local server. */
+public class NettyHttpEngineTest
+{
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private NettyHttpEngine engine;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException
+    {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.serverExecutor = Executors.newFixedThreadPool(16);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.createContext("/ok", exchange -> respond(exchange, 200, "{\"requestId\":\"" + exchange.getRequestHeaders().getFirst("Request-Id") + "\"}"));
+        this.server.createContext("/notfound", exchange -> respond(exchange, 404, "{\"Message\":\"ErrorCode:DeviceNotFound;not found\"}"));
+        this.server.createContext("/slow", new SlowHandler());
+        this.server.start();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if (this.engine != null)
+        {
+            this.engine.close();
+        }
+
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void sendAsyncReturnsResponseAndReusesConnection() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+
+        for (int i = 0; i < 3; i++)
+        {
+            AsyncHttpRequest request = createRequest("/ok", HttpMethod.GET, new byte[0]);
+            request.setHeaderField(HttpRequest.REQUEST_ID, String.valueOf(i));
+
+            HttpResponse response = this.engine.sendAsync(request).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatus());
+            assertEquals("{\"requestId\":\"" + i + "\"}", new String(response.getBody(), StandardCharsets.UTF_8));
+        }
+
+        assertEquals(1, this.clientPorts.size());
+    }
+
+    @Test
+    public void sendAsyncSendsBody() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+        this.server.createContext("/echo", exchange ->
+        {
+            try (InputStream body = exchange.getRequestBody())
+            {
+                byte[] buffer = new byte[1024];
+                int length = body.read(buffer);
+                respond(exchange, 200, exchange.getRequestMethod() + " " + new String(buffer, 0, Math.max(0, length), StandardCharsets.UTF_8));
+            }
+        });
+
+        byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+        HttpResponse response = this.engine.sendAsync(createRequest("/echo", HttpMethod.PATCH, body)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals("PATCH {\"a\":1}", new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void sendAsyncCompletesExceptionallyWithIotHubExceptionForErrorStatus() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+
+        try
+        {
+            this.engine.sendAsync(createRequest("/notfound", HttpMethod.GET, new byte[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IotHubException);
+        }
+
+        // the connection can still be used after an error response
+        HttpResponse response = this.engine.sendAsync(createRequest("/ok", HttpMethod.GET, new byte[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void sendAsyncOpensNoMoreThanMaxConnectionsPerHost() throws Exception
+    {
+        final int maxConnections = 2;
+        this.engine = new NettyHttpEngine(maxConnections, 100);
+
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            AsyncHttpRequest request = createRequest("/slow", HttpMethod.GET, new byte[0]);
+            request.setHeaderField("Delay-Millis", "50");
+            futures.add(this.engine.sendAsync(request));
+        }
+
+        for (CompletableFuture<HttpResponse> future : futures)
+        {
+            assertEquals(200, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getStatus());
+        }
+
+        assertEquals(maxConnections, this.clientPorts.size());
+        assertTrue(this.maxActiveRequests.get() <= maxConnections);
+    }
+
+    @Test
+    public void sendAsyncCompletesExceptionallyWhenReadTimesOut() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+        AsyncHttpRequest request = createRequest("/slow", HttpMethod.GET, new byte[0]);
+        request.setHeaderField("Delay-Millis", "3000");
+        request.setReadTimeoutSeconds(1);
+
+        try
+        {
+            this.engine.sendAsync(request).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected the request to time out");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof SocketTimeoutException);
+        }
+    }
+
+    @Test
+    public void sendAsyncCompletesExceptionallyAfterClose() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+        this.engine.close();
+
+        try
+        {
+            this.engine.sendAsync(createRequest("/ok", HttpMethod.GET, new byte[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void sendAsyncSendsIdempotentRequestAgainOnNewConnectionWhenPooledConnectionIsClosed() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")))
+        {
+            AtomicInteger connectionCount = startClosingServer(serverSocket);
+            URL url = new URL("http", "127.0.0.1", serverSocket.getLocalPort(), "/ok");
+
+            this.engine.sendAsync(new AsyncHttpRequest(url, HttpMethod.GET, new byte[0], "token", null)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            HttpResponse response = this.engine.sendAsync(new AsyncHttpRequest(url, HttpMethod.GET, new byte[0], "token", null)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(200, response.getStatus());
+            assertEquals(2, connectionCount.get());
+        }
+    }
+
+    @Test
+    public void sendAsyncDoesNotSendPostRequestAgainWhenPooledConnectionIsClosed() throws Exception
+    {
+        this.engine = new NettyHttpEngine();
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1")))
+        {
+            startClosingServer(serverSocket);
+            URL url = new URL("http", "127.0.0.1", serverSocket.getLocalPort(), "/ok");
+
+            this.engine.sendAsync(new AsyncHttpRequest(url, HttpMethod.GET, new byte[0], "token", null)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            try
+            {
+                this.engine.sendAsync(new AsyncHttpRequest(url, HttpMethod.POST, new byte[0], "token", null)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                fail("Expected the request to fail");
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    @Test
+    public void defaultInstanceUsesJdkTls()
+    {
+        NettyHttpEngine defaultEngine = NettyHttpEngine.getDefaultInstance();
+
+        SslContext sslContext = Deencapsulation.getField(defaultEngine, "sslContext");
+        assertTrue(sslContext instanceof JdkSslContext);
+        assertSame(defaultEngine, NettyHttpEngine.getDefaultInstance());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void constructorThrowsForNonPositiveMaxConnections()
+    {
+        new NettyHttpEngine(0, 100);
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void asyncRequestThrowsForBodyOnGet() throws Exception
+    {
+        createRequest("/ok", HttpMethod.GET, new byte[] { 1 });
+    }
+
+    private AsyncHttpRequest createRequest(String path, HttpMethod method, byte[] body) throws IOException
+    {
+        URL url = new URL("http", "localhost", this.server.getAddress().getPort(), path);
+        return new AsyncHttpRequest(url, method, body, "SharedAccessSignature sr=test", null);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException
+    {
+        this.clientPorts.add(exchange.getRemoteAddress().getPort());
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody())
+        {
+            responseBody.write(bytes);
+        }
+    }
+
+    // Answers the first request on the first connection, then closes that connection when the second request arrives
+    // on it, as a server does with a connection that it considers idle. Requests on later connections are answered.
+    private static AtomicInteger startClosingServer(ServerSocket serverSocket)
+    {
+        AtomicInteger connectionCount = new AtomicInteger();
+        Thread serverThread = new Thread(() ->
+        {
+            try
+            {
+                try (Socket socket = serverSocket.accept())
+                {
+                    connectionCount.incrementAndGet();
+                    readRequestHead(socket.getInputStream());
+                    writeOkResponse(socket.getOutputStream());
+                    readRequestHead(socket.getInputStream());
+                }
+
+                while (true)
+                {
+                    try (Socket socket = serverSocket.accept())
+                    {
+                        connectionCount.incrementAndGet();
+                        readRequestHead(socket.getInputStream());
+                        writeOkResponse(socket.getOutputStream());
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                // the server socket was closed by the test
+            }
+        });
+        serverThread.setDaemon(true);
+        serverThread.start();
+        return connectionCount;
+    }
+
+    private static void readRequestHead(InputStream inputStream) throws IOException
+    {
+        int matched = 0;
+        byte[] endOfHead = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+        while (matched < endOfHead.length)
+        {
+            int b = inputStream.read();
+            if (b < 0)
+            {
+                throw new IOException("Connection closed before the request was read");
+            }
+
+            matched = b == endOfHead[matched] ? matched + 1 : (b == endOfHead[0] ? 1 : 0);
+        }
+    }
+
+    private static void writeOkResponse(OutputStream outputStream) throws IOException
+    {
+        outputStream.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: keep-alive\r\n\r\n{}".getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+    }
+
+    private class SlowHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            int active = activeRequests.incrementAndGet();
+            maxActiveRequests.accumulateAndGet(active, Math::max);
+            try
+            {
+                Thread.sleep(Long.parseLong(exchange.getRequestHeaders().getFirst("Delay-Millis")));
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                activeRequests.decrementAndGet();
+            }
+
+            try
+            {
+                respond(exchange, 200, "{}");
+            }
+            catch (IOException e)
+            {
+                // the client gave up on this request
+            }
+        }
+    }
+}
@@ -7,10 +7,14 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
 import com.microsoft.azure.sdk.iot.service.Helpers;
 import mockit.Deencapsulation;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringReader;
+
 import static org.junit.Assert.*;
 
 /**
@@ -287,6 +291,16 @@ public class TwinStateTest
         assertEquals(expectedConnectionState, TwinConnectionState.valueOf(twinState.getConnectionState()));
     }
 
+    @Test
+    public void getConnectionStateReturnsNullIfNotSet()
+    {
+        // arrange
+        TwinState twinState = new TwinState(TAGS, PROPERTIES, PROPERTIES);
+
+        // act - assert
+        assertNull(twinState.getConnectionState());
+    }
+
     /* SRS_TWIN_STATE_21_006: [The getDesiredProperty shall return a TwinCollection with the stored desired property.] */
     /* SRS_TWIN_STATE_21_007: [The getReportedProperty shall return a TwinCollection with the stored reported property.] */
     @Test
@@ -431,6 +445,35 @@ public class TwinStateTest
         Helpers.assertJson(Deencapsulation.invoke(twinState, "toJsonElement").toString(), json);
     }
 
+    @Test
+    public void createFromJsonReaderReadsOneTwinFromArray() throws IOException
+    {
+        // arrange
+        final String twinJson =
+                "{\"tags\":{\"tag1\":\"val1\"},\"properties\":{\"desired\":{\"prop1\":\"val1\"},\"reported\":{\"prop2\":\"val2\"}},\"configurations\":null,\"deviceScope\":null,\"parentScopes\":[],\"deviceId\":\"validDeviceId\",\"moduleId\":null,\"modelId\":null,\"generationId\":null,\"etag\":\"validEtag\",\"version\":3,\"status\":null,\"statusReason\":null,\"statusUpdatedTime\":null,\"connectionState\":null,\"connectionStateUpdatedTime\":null,\"lastActivityTime\":null,\"capabilities\":null}";
+        JsonReader reader = new JsonReader(new StringReader("[" + twinJson + ",{\"deviceId\":\"otherDeviceId\"}]"));
+        reader.beginArray();
+
+        // act
+        TwinState twinState = TwinState.createFromJsonReader(reader);
+
+        // assert
+        Helpers.assertJson(Deencapsulation.invoke(twinState, "toJsonElement").toString(), twinJson);
+        assertEquals("otherDeviceId", TwinState.createFromJsonReader(reader).getDeviceId());
+        assertFalse(reader.hasNext());
+    }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void createFromJsonReaderThrowsOnNullValue() throws IOException
+    {
+        // arrange
+        JsonReader reader = new JsonReader(new StringReader("[null]"));
+        reader.beginArray();
+
+        // act
+        TwinState.createFromJsonReader(reader);
+    }
+
     /* SRS_TWIN_STATE_21_014: [The factory shall throw IllegalArgumentException if the JSON is null or empty.] */
     @Test (expected = IllegalArgumentException.class)
     public void createFromDesiredPropertyJsonThrowsOnNull()